@@ -0,0 +1,59 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.tests.internal.geotiff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.udig.catalog.ID;
+import org.locationtech.udig.catalog.rasterings.PyramidCoverageReader;
+import org.locationtech.udig.catalog.rasterings.RasterPyramid;
+
+public class RasterPyramidTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBuildAndRead() throws Exception {
+        File source = new ID(Data.getResource(RasterPyramidTest.class, "cir.tif")).toFile(); //$NON-NLS-1$
+        File directory = new File(folder.getRoot(), "pyramid"); //$NON-NLS-1$
+
+        GeoTiffReader reader = new GeoTiffReader(source);
+        // cir.tif is 10x8 pixels: 5x4, then 3x2
+        assertEquals(2, RasterPyramid.build(source, reader, directory, 4, null));
+        assertEquals(2, RasterPyramid.getLevels(source, directory));
+        assertTrue(new File(directory, "2.tif").isFile()); //$NON-NLS-1$
+
+        PyramidCoverageReader pyramid = new PyramidCoverageReader(reader, directory, 2);
+        try {
+            double[][] levels = pyramid.getResolutionLevels();
+            assertEquals(3, levels.length);
+            assertTrue(levels[2][0] > levels[1][0]);
+            assertTrue(levels[1][0] > levels[0][0]);
+            assertNotNull(pyramid.read(null));
+        } finally {
+            pyramid.dispose();
+        }
+
+        RasterPyramid.delete(directory);
+        assertFalse(directory.exists());
+        assertEquals(0, RasterPyramid.getLevels(source, directory));
+    }
+}
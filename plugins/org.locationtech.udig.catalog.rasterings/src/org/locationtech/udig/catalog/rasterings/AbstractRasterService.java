@@ -108,6 +108,10 @@ public abstract class AbstractRasterService extends IService {
     /**
      * Finds or creates the Reader used to access this service. Apon any exception, the message
      * field is populated and null is returned.
+     * <p>
+     * Large files without overviews get a {@link RasterPyramid} built in the background; the
+     * reader reads through it once it is built.
+     * </p>
      * 
      * @return Reader linked to this service.
      */
@@ -123,6 +127,12 @@ public abstract class AbstractRasterService extends IService {
                         // Hints hints = new Hints();
                         // hints.put(Hints.DEFAULT_COORDINATE_REFERENCE_SYSTEM, )
                         this.reader = (AbstractGridCoverage2DReader) frmt.getReader(file);
+                        if (this.reader != null) {
+                            this.reader = RasterPyramid.open(file, this.reader);
+                            if (RasterPyramid.isNeeded(this.reader)) {
+                                BuildPyramidJob.schedule(this, file);
+                            }
+                        }
                         return this.reader;
 	                }
 	                else {
@@ -137,6 +147,17 @@ public abstract class AbstractRasterService extends IService {
         return this.reader;
     }
 
+    /**
+     * Switches the reader over to the pyramid just built for the file of this service.
+     * 
+     * @param file raster file of this service
+     */
+    synchronized void usePyramid( File file ) {
+        if (this.reader != null && !(this.reader instanceof PyramidCoverageReader)) {
+            this.reader = RasterPyramid.open(file, this.reader);
+        }
+    }
+
     /**
      * Retrieves the string identifying this service. This is the location of the resource to be
      * loaded.
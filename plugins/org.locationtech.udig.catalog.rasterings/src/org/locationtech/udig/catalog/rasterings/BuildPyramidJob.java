@@ -0,0 +1,90 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.rasterings;
+
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.locationtech.udig.catalog.rasterings.internal.Messages;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+
+/**
+ * Builds the {@link RasterPyramid} of a raster file in the background and makes the service use
+ * it once it is done.
+ *
+ * @since 2.1.0
+ */
+public class BuildPyramidJob extends Job {
+
+    /** files whose pyramid is being built */
+    private static final Set<File> BUILDING = new HashSet<File>();
+
+    private final AbstractRasterService service;
+
+    private final File source;
+
+    private BuildPyramidJob( AbstractRasterService service, File source ) {
+        super(MessageFormat.format(Messages.BuildPyramidJob_name, source.getName()));
+        this.service = service;
+        this.source = source;
+        setPriority(DECORATE);
+    }
+
+    /**
+     * Starts building the pyramid of the file unless it is already being built.
+     *
+     * @param service service of the file
+     * @param source raster file
+     */
+    public static void schedule( AbstractRasterService service, File source ) {
+        synchronized (BUILDING) {
+            if (!BUILDING.add(source)) {
+                return;
+            }
+        }
+        new BuildPyramidJob(service, source).schedule();
+    }
+
+    @Override
+    protected IStatus run( IProgressMonitor monitor ) {
+        try {
+            // a reader of its own, the service's reader keeps drawing the map meanwhile
+            AbstractGridCoverage2DReader reader = service.getFormat().getReader(source);
+            if (reader == null) {
+                return Status.OK_STATUS;
+            }
+            File directory = RasterPyramid.getDirectory(source);
+            try {
+                RasterPyramid.build(source, reader, directory, RasterPyramid.MIN_SIZE, monitor);
+            } finally {
+                reader.dispose();
+            }
+            service.usePyramid(source);
+            return Status.OK_STATUS;
+        } catch (OperationCanceledException e) {
+            return Status.CANCEL_STATUS;
+        } catch (Exception e) {
+            return new Status(IStatus.WARNING, RasteringsPlugin.getDefault().getBundle()
+                    .getSymbolicName(), getName(), e);
+        } finally {
+            synchronized (BUILDING) {
+                BUILDING.remove(source);
+            }
+        }
+    }
+}
@@ -73,4 +73,14 @@ public class GridCoverageLoader {
         
         return coverage;
     }
+
+    /**
+     * Returns the key the loaded coverage is kept under in the {@link RasterMemoryPool}, so
+     * coverages derived from it can be pooled as well.
+     * 
+     * @return the key, or null if the coverage is read again on every load
+     */
+    public Object getPoolKey() {
+        return null;
+    }
 }
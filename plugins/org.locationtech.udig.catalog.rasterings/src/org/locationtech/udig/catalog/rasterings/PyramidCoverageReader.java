@@ -0,0 +1,161 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.rasterings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.opengis.coverage.grid.Format;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Reads a raster through the overviews of its {@link RasterPyramid}.
+ * <p>
+ * The reader describes the original raster, reporting the pyramid levels as its overviews. A read
+ * is passed to the level whose resolution is closest to, but not coarser than, the requested one;
+ * full resolution reads go to the reader of the original file.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class PyramidCoverageReader extends AbstractGridCoverage2DReader {
+
+    private final AbstractGridCoverage2DReader original;
+
+    private final List<AbstractGridCoverage2DReader> levels;
+
+    /**
+     * @param original reader of the original file, disposed with this reader
+     * @param directory directory of the pyramid
+     * @param count number of levels in the pyramid
+     * @throws IOException if a level cannot be opened
+     */
+    public PyramidCoverageReader( AbstractGridCoverage2DReader original, File directory,
+            int count ) throws IOException {
+        this.original = original;
+        this.levels = new ArrayList<AbstractGridCoverage2DReader>(count);
+        this.source = original.getSource();
+        this.coverageName = original.getGridCoverageNames()[0];
+        this.crs = original.getCoordinateReferenceSystem();
+        this.originalEnvelope = original.getOriginalEnvelope();
+        this.originalGridRange = original.getOriginalGridRange();
+        this.raster2Model = original.getOriginalGridToWorld(PixelInCell.CELL_CENTER);
+        this.highestRes = original.getResolutionLevels()[0];
+        this.numOverviews = count;
+        this.overViewResolutions = new double[count][];
+        try {
+            for( int level = 1; level <= count; level++ ) {
+                AbstractGridCoverage2DReader reader = new GeoTiffReader(new File(directory, level
+                        + ".tif")); //$NON-NLS-1$
+                levels.add(reader);
+                overViewResolutions[level - 1] = reader.getResolutionLevels()[0];
+            }
+        } catch (IOException e) {
+            disposeLevels();
+            throw e;
+        }
+    }
+
+    public Format getFormat() {
+        return original.getFormat();
+    }
+
+    @Override
+    public GridCoverage2D read( GeneralParameterValue[] parameters ) throws IOException {
+        AbstractGridCoverage2DReader reader = original;
+        GridGeometry2D request = requestedGridGeometry(parameters);
+        if (request != null) {
+            try {
+                reader = pick(resolution(request));
+            } catch (TransformException e) {
+                // read the original, it knows best
+            } catch (FactoryException e) {
+                // read the original, it knows best
+            }
+        }
+        return reader.read(parameters);
+    }
+
+    /**
+     * @return the level with the coarsest resolution still at least as detailed as the target
+     */
+    private AbstractGridCoverage2DReader pick( double target ) {
+        AbstractGridCoverage2DReader best = original;
+        double bestResolution = highestRes[0];
+        for( int i = 0; i < numOverviews; i++ ) {
+            double resolution = overViewResolutions[i][0];
+            if (resolution <= target && resolution > bestResolution) {
+                best = levels.get(i);
+                bestResolution = resolution;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the size of a requested pixel in the units of the raster
+     */
+    private double resolution( GridGeometry2D request ) throws TransformException,
+            FactoryException {
+        ReferencedEnvelope envelope = new ReferencedEnvelope(request.getEnvelope2D());
+        if (crs != null && envelope.getCoordinateReferenceSystem() != null
+                && !CRS.equalsIgnoreMetadata(crs, envelope.getCoordinateReferenceSystem())) {
+            envelope = envelope.transform(crs, true);
+        }
+        return envelope.getWidth() / request.getGridRange2D().getWidth();
+    }
+
+    private static GridGeometry2D requestedGridGeometry( GeneralParameterValue[] parameters ) {
+        if (parameters == null) {
+            return null;
+        }
+        String name = AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().toString();
+        for( GeneralParameterValue parameter : parameters ) {
+            if (parameter instanceof ParameterValue< ? >
+                    && name.equals(parameter.getDescriptor().getName().toString())) {
+                Object value = ((ParameterValue< ? >) parameter).getValue();
+                if (value instanceof GridGeometry2D) {
+                    return (GridGeometry2D) value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Disposes the levels; the reader of the original file is disposed as well.
+     */
+    @Override
+    public void dispose() {
+        disposeLevels();
+        original.dispose();
+        super.dispose();
+    }
+
+    private void disposeLevels() {
+        for( AbstractGridCoverage2DReader level : levels ) {
+            level.dispose();
+        }
+        levels.clear();
+    }
+}
@@ -0,0 +1,294 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.rasterings;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+
+/**
+ * Rasters decoded into memory, shared by all the resources and renderers that keep whole rasters
+ * in memory.
+ * <p>
+ * The pool has one budget in bytes for all the rasters. When it is over budget the least recently
+ * used rasters are dropped, and room is made for a raster before it is loaded when its size is
+ * known up front. Different rasters load at the same time; a raster asked for while it is loading
+ * is loaded once and handed to everyone waiting for it.
+ * </p>
+ * <p>
+ * The statistics (hits, misses, evictions and the time spent loading) show whether the budget
+ * suits the rasters in use.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public final class RasterMemoryPool {
+
+    private static final RasterMemoryPool DEFAULT = new RasterMemoryPool(Runtime.getRuntime()
+            .maxMemory() / 4);
+
+    private static class Entry {
+        GridCoverage2D coverage;
+
+        long size;
+    }
+
+    /**
+     * Loaded rasters in access order; the first entry is the least recently used.
+     */
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16,
+            0.75f, true);
+
+    /** rasters being loaded */
+    private final Map<Object, FutureTask<GridCoverage2D>> loading = new HashMap<Object, FutureTask<GridCoverage2D>>();
+
+    private long maxSize;
+
+    private long size;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long loadTime;
+
+    /**
+     * @param maxSize memory budget in bytes
+     */
+    public RasterMemoryPool( long maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the pool shared by all rasters, allowed a quarter of the heap
+     */
+    public static RasterMemoryPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Estimates the memory used by the pixels of a raster.
+     *
+     * @param coverage
+     * @return size in bytes
+     */
+    public static long sizeOf( GridCoverage2D coverage ) {
+        RenderedImage image = coverage.getRenderedImage();
+        return sizeOf(image.getWidth(), image.getHeight(), image.getSampleModel().getNumBands(),
+                image.getSampleModel().getDataType());
+    }
+
+    /**
+     * Estimates the memory used by the pixels of a raster.
+     *
+     * @param width
+     * @param height
+     * @param bands
+     * @param dataType one of the {@link DataBuffer} types
+     * @return size in bytes
+     */
+    public static long sizeOf( int width, int height, int bands, int dataType ) {
+        return (long) width * height * bands * DataBuffer.getDataTypeSize(dataType) / 8;
+    }
+
+    /**
+     * Returns the raster kept under the key, loading it if it is not in the pool.
+     *
+     * @param key identifies the raster, usually the resource and how it was read
+     * @param expectedSize size the raster will have in bytes, room is made for it before loading;
+     *        0 if not known
+     * @param loader loads the raster with its pixels in memory
+     * @return the raster, null if the loader returned null
+     * @throws IOException if loading failed
+     */
+    public GridCoverage2D get( Object key, long expectedSize, Callable<GridCoverage2D> loader )
+            throws IOException {
+        FutureTask<GridCoverage2D> task;
+        boolean load = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.coverage;
+            }
+            task = loading.get(key);
+            if (task == null) {
+                misses++;
+                task = new FutureTask<GridCoverage2D>(loader);
+                loading.put(key, task);
+                load = true;
+                evict(Math.max(0, maxSize - expectedSize));
+            }
+        }
+        if (load) {
+            long start = System.currentTimeMillis();
+            // outside the lock, so other rasters load meanwhile
+            task.run();
+            synchronized (this) {
+                loading.remove(key);
+                loadTime += System.currentTimeMillis() - start;
+                GridCoverage2D coverage = result(task, false);
+                if (coverage != null) {
+                    put(key, coverage);
+                }
+            }
+        }
+        return result(task, true);
+    }
+
+    private static GridCoverage2D result( FutureTask<GridCoverage2D> task, boolean rethrow )
+            throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new IOException(e.getMessage()).initCause(e);
+        } catch (ExecutionException e) {
+            if (!rethrow) {
+                return null;
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+        }
+    }
+
+    /**
+     * Adds a raster to the pool, dropping the least recently used rasters if the pool is over
+     * budget.
+     *
+     * @param key
+     * @param coverage a raster with its pixels in memory
+     */
+    public synchronized void put( Object key, GridCoverage2D coverage ) {
+        Entry entry = new Entry();
+        entry.coverage = coverage;
+        entry.size = sizeOf(coverage);
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            size -= old.size;
+        }
+        size += entry.size;
+        evict(maxSize);
+    }
+
+    /**
+     * @param key
+     * @return the raster kept under the key or null; does not count as a hit or miss
+     */
+    public synchronized GridCoverage2D peek( Object key ) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.coverage;
+    }
+
+    /**
+     * Drops a raster, for example when its resource is closed.
+     *
+     * @param key
+     */
+    public synchronized void remove( Object key ) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * Drops all rasters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Changes the memory budget, dropping rasters if needed.
+     *
+     * @param maxSize budget in bytes
+     */
+    public synchronized void setMaxSize( long maxSize ) {
+        this.maxSize = maxSize;
+        evict(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return estimated memory used by the rasters in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return milliseconds spent loading rasters
+     */
+    public synchronized long getLoadTime() {
+        return loadTime;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RasterMemoryPool[" + entries.size() + " rasters, " + size / (1024 * 1024) + "/" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                + maxSize / (1024 * 1024) + "MB, " + hits + " hits, " + misses + " misses, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                + evictions + " evictions, " + loadTime + "ms loading]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Drops the least recently used rasters until the pool uses no more than the limit. Must be
+     * called holding the lock.
+     */
+    private void evict( long limit ) {
+        Iterator<Entry> iter = entries.values().iterator();
+        while( size > limit && iter.hasNext() ) {
+            Entry entry = iter.next();
+            iter.remove();
+            size -= entry.size;
+            evictions++;
+        }
+    }
+}
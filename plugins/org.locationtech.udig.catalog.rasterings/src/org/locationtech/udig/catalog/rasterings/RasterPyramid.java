@@ -0,0 +1,304 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.rasterings;
+
+import java.awt.RenderingHints;
+import java.awt.image.IndexColorModel;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.Interpolation;
+import javax.media.jai.JAI;
+import javax.media.jai.operator.ScaleDescriptor;
+import javax.media.jai.operator.SubsampleAverageDescriptor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.imageio.GeoToolsWriteParams;
+import org.geotools.gce.geotiff.GeoTiffFormat;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.gce.geotiff.GeoTiffWriteParams;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValueGroup;
+
+/**
+ * Overviews built for raster files that have none, kept in the workspace.
+ * <p>
+ * Each level is a tiled GeoTIFF half the size of the level before it, the first level being half
+ * the size of the original file. The levels are written to a directory of the workspace named
+ * after the original file, so the user's data is never touched. A pyramid is only used while the
+ * original file has the size and modification time it was built from.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public final class RasterPyramid {
+
+    /** Width and height of the tiles of the levels */
+    static final int TILE_SIZE = 512;
+
+    /** Levels are added until the image fits in this many pixels across */
+    static final int MIN_SIZE = 1024;
+
+    /** Rasters with fewer pixels are read quickly enough without overviews */
+    private static final long MIN_PIXELS = 4096L * 4096L;
+
+    private static final String PROPERTIES = "pyramid.properties"; //$NON-NLS-1$
+
+    private static final String LEVELS = "levels"; //$NON-NLS-1$
+
+    private static final String SOURCE_LENGTH = "source.length"; //$NON-NLS-1$
+
+    private static final String SOURCE_MODIFIED = "source.modified"; //$NON-NLS-1$
+
+    private RasterPyramid() {
+    }
+
+    /**
+     * @param source raster file
+     * @return directory the pyramid of the file is kept in
+     */
+    public static File getDirectory( File source ) {
+        File pyramids = RasteringsPlugin.getDefault().getStateLocation().append("pyramids").toFile(); //$NON-NLS-1$
+        String name = source.getName() + "_" //$NON-NLS-1$
+                + Integer.toHexString(source.getAbsolutePath().hashCode());
+        return new File(pyramids, name);
+    }
+
+    /**
+     * Returns true if a raster is large and has no overviews of its own.
+     *
+     * @param reader
+     * @return true if a pyramid would speed up drawing the raster
+     */
+    public static boolean isNeeded( AbstractGridCoverage2DReader reader ) {
+        try {
+            if (reader instanceof PyramidCoverageReader || reader.getResolutionLevels().length > 1) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        GridEnvelope range = reader.getOriginalGridRange();
+        return range != null && (long) range.getSpan(0) * range.getSpan(1) > MIN_PIXELS;
+    }
+
+    /**
+     * Returns the number of levels built for the file, if they are complete and up to date.
+     *
+     * @param source raster file
+     * @param directory directory of the pyramid
+     * @return number of levels, 0 if there is no usable pyramid
+     */
+    public static int getLevels( File source, File directory ) {
+        File file = new File(directory, PROPERTIES);
+        if (!file.isFile()) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+            if (Long.parseLong(properties.getProperty(SOURCE_LENGTH)) != source.length()
+                    || Long.parseLong(properties.getProperty(SOURCE_MODIFIED)) != source
+                            .lastModified()) {
+                return 0;
+            }
+            return Integer.parseInt(properties.getProperty(LEVELS));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Opens a reader using the pyramid of the file, if one is built.
+     *
+     * @param source raster file
+     * @param reader reader of the file
+     * @return a reader using the pyramid or the reader passed in
+     */
+    public static AbstractGridCoverage2DReader open( File source,
+            AbstractGridCoverage2DReader reader ) {
+        File directory = getDirectory(source);
+        int levels = getLevels(source, directory);
+        if (levels == 0) {
+            return reader;
+        }
+        try {
+            return new PyramidCoverageReader(reader, directory, levels);
+        } catch (IOException e) {
+            RasteringsPlugin.log("unable to open the overviews of " + source, e); //$NON-NLS-1$
+            return reader;
+        }
+    }
+
+    /**
+     * Number of levels needed before an image fits in the size.
+     *
+     * @param width
+     * @param height
+     * @param minSize
+     * @return number of levels
+     */
+    static int levelCount( int width, int height, int minSize ) {
+        int levels = 0;
+        while( Math.max(width, height) > minSize ) {
+            width = (width + 1) / 2;
+            height = (height + 1) / 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Builds the pyramid of a raster file. Each level is built from the previous one, so only
+     * the first level reads the original file.
+     *
+     * @param source raster file
+     * @param reader reader of the file, not used elsewhere while the pyramid is built
+     * @param directory directory to write the levels to
+     * @param minSize levels are added until the image is this small
+     * @param monitor
+     * @return number of levels built
+     * @throws IOException
+     * @throws OperationCanceledException if the monitor is canceled
+     */
+    public static int build( File source, AbstractGridCoverage2DReader reader, File directory,
+            int minSize, IProgressMonitor monitor ) throws IOException {
+        if (monitor == null)
+            monitor = new NullProgressMonitor();
+        GridEnvelope range = reader.getOriginalGridRange();
+        int levels = levelCount(range.getSpan(0), range.getSpan(1), minSize);
+
+        delete(directory);
+        if (!directory.mkdirs()) {
+            throw new IOException("unable to create " + directory); //$NON-NLS-1$
+        }
+        monitor.beginTask(source.getName(), levels);
+        boolean built = false;
+        try {
+            AbstractGridCoverage2DReader previous = reader;
+            try {
+                for( int level = 1; level <= levels; level++ ) {
+                    if (monitor.isCanceled()) {
+                        throw new OperationCanceledException();
+                    }
+                    GridCoverage2D coverage = previous.read(null);
+                    if (coverage == null) {
+                        throw new IOException("unable to read " + source); //$NON-NLS-1$
+                    }
+                    File file = new File(directory, level + ".tif"); //$NON-NLS-1$
+                    write(halve(coverage), file);
+                    coverage.dispose(true);
+
+                    if (previous != reader) {
+                        previous.dispose();
+                    }
+                    previous = new GeoTiffReader(file);
+                    monitor.worked(1);
+                }
+            } finally {
+                if (previous != reader) {
+                    previous.dispose();
+                }
+            }
+
+            // written last, so an unfinished pyramid is never used
+            Properties properties = new Properties();
+            properties.setProperty(LEVELS, String.valueOf(levels));
+            properties.setProperty(SOURCE_LENGTH, String.valueOf(source.length()));
+            properties.setProperty(SOURCE_MODIFIED, String.valueOf(source.lastModified()));
+            OutputStream out = new FileOutputStream(new File(directory, PROPERTIES));
+            try {
+                properties.store(out, source.getAbsolutePath());
+            } finally {
+                out.close();
+            }
+            built = true;
+        } finally {
+            monitor.done();
+            if (!built) {
+                delete(directory);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Returns a coverage of the same area with half as many pixels across. Colour mapped images
+     * keep one of the pixels, others average them.
+     */
+    private static GridCoverage2D halve( GridCoverage2D coverage ) {
+        RenderedImage image = coverage.getRenderedImage();
+        ImageLayout layout = new ImageLayout();
+        layout.setTileWidth(TILE_SIZE).setTileHeight(TILE_SIZE);
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout);
+        RenderedImage half;
+        if (image.getColorModel() instanceof IndexColorModel) {
+            half = ScaleDescriptor.create(image, 0.5f, 0.5f, 0f, 0f, Interpolation
+                    .getInstance(Interpolation.INTERP_NEAREST), hints);
+        } else {
+            half = SubsampleAverageDescriptor.create(image, 0.5, 0.5, hints);
+        }
+        GridCoverageFactory factory = CoverageFactoryFinder.getGridCoverageFactory(null);
+        return factory.create(coverage.getName(), half, coverage.getEnvelope(), coverage
+                .getSampleDimensions(), null, null);
+    }
+
+    private static void write( GridCoverage2D coverage, File file ) throws IOException {
+        GeoTiffWriteParams writeParams = new GeoTiffWriteParams();
+        writeParams.setTilingMode(GeoToolsWriteParams.MODE_EXPLICIT);
+        writeParams.setTiling(TILE_SIZE, TILE_SIZE);
+        ParameterValueGroup params = new GeoTiffFormat().getWriteParameters();
+        params.parameter(AbstractGridFormat.GEOTOOLS_WRITE_PARAMS.getName().toString())
+                .setValue(writeParams);
+
+        GeoTiffWriter writer = new GeoTiffWriter(file);
+        try {
+            writer.write(coverage, params.values().toArray(new GeneralParameterValue[1]));
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Deletes the pyramid in the directory.
+     *
+     * @param directory
+     */
+    public static void delete( File directory ) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for( File file : files ) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
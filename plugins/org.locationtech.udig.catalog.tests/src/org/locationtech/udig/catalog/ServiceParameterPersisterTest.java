@@ -11,13 +11,17 @@
 package org.locationtech.udig.catalog;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +31,7 @@ import org.eclipse.core.runtime.Platform;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.locationtech.udig.catalog.internal.ServiceFactoryImpl;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
 
@@ -104,13 +109,35 @@ public class ServiceParameterPersisterTest {
         assertPersistance(service);
     }
 
+    @Test
+    public void testRestoreWithExtension() throws Exception {
+        TestService first = new TestService(new URL("http://first.org"), "first"); //$NON-NLS-1$ //$NON-NLS-2$
+        first.getPersistentProperties().put(ServiceParameterPersister.EXTENSION_KEY,
+                "org.example.FirstExtension"); //$NON-NLS-1$
+        TestService second = new TestService(new URL("http://second.org"), "second"); //$NON-NLS-1$ //$NON-NLS-2$
+        storer.store(monitor, preferences, Arrays.asList(first, second));
+
+        RecordingFactory factory = new RecordingFactory();
+        TestPersister persister = new TestPersister(factory);
+        persister.restore(preferences);
+
+        assertEquals(2, persister.ids.size());
+        assertEquals(2, factory.extensions.size());
+        // the first service was created by the recorded extension, the second by any of them
+        assertTrue(factory.extensions.contains("org.example.FirstExtension")); //$NON-NLS-1$
+        assertTrue(factory.extensions.contains(null));
+    }
+
     class TestPersister extends ServiceParameterPersister {
         ID id;
         Map<String, Serializable> map;
+        List<ID> ids = new ArrayList<ID>();
 
         public TestPersister() {
-            super(CatalogPlugin.getDefault().getLocalCatalog(), CatalogPlugin.getDefault()
-                    .getServiceFactory());
+            this(CatalogPlugin.getDefault().getServiceFactory());
+        }
+        public TestPersister( IServiceFactory factory ) {
+            super(CatalogPlugin.getDefault().getLocalCatalog(), factory);
         }
         @Override
         protected void locateService( ID url, Map<String, Serializable> map,
@@ -118,6 +145,17 @@ public class ServiceParameterPersisterTest {
 
             this.id = url;
             this.map = map;
+            this.ids.add(url);
+        }
+    }
+    class RecordingFactory extends ServiceFactoryImpl {
+        final List<String> extensions = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public List<IService> createService( String extension,
+                Map<String, Serializable> connectionParameters ) {
+            extensions.add(extension);
+            return new LinkedList<IService>();
         }
     }
     class TestService extends IService {
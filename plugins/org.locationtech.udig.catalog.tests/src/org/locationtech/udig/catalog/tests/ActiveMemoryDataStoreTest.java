@@ -0,0 +1,117 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.udig.catalog.memory.ActiveMemoryDataStore;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+@SuppressWarnings("nls")
+public class ActiveMemoryDataStoreTest {
+
+    private ActiveMemoryDataStore store;
+
+    private SimpleFeatureType type;
+
+    private FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+
+    @Before
+    public void setUp() throws Exception {
+        type = DataUtilities.createType("points", "geom:Point,name:String");
+        store = new ActiveMemoryDataStore();
+        store.createSchema(type);
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        for( int i = 0; i < 100; i++ ) {
+            builder.add(gf.createPoint(new Coordinate(i, i)));
+            builder.add("point" + i);
+            store.addFeature(builder.buildFeature("points." + i));
+        }
+    }
+
+    @Test
+    public void testBoundsQuery() throws Exception {
+        SimpleFeatureSource source = store.getFeatureSource("points");
+        Filter filter = ff.bbox("geom", 9.5, 9.5, 20.5, 20.5, null);
+        assertEquals(11, source.getFeatures(filter).size());
+
+        SimpleFeatureIterator iter = source.getFeatures(filter).features();
+        try {
+            // features come back in the order they were added
+            assertEquals("points.10", iter.next().getID());
+            assertEquals("points.11", iter.next().getID());
+        } finally {
+            iter.close();
+        }
+
+        Filter both = ff.and(filter, ff.equals(ff.property("name"), ff.literal("point15")));
+        assertEquals(1, source.getFeatures(both).size());
+    }
+
+    @Test
+    public void testIdQuery() throws Exception {
+        SimpleFeatureSource source = store.getFeatureSource("points");
+        Filter filter = ff.id(Collections.singleton(ff.featureId("points.42")));
+        SimpleFeatureIterator iter = source.getFeatures(filter).features();
+        try {
+            SimpleFeature feature = iter.next();
+            assertEquals("point42", feature.getAttribute("name"));
+        } finally {
+            iter.close();
+        }
+    }
+
+    @Test
+    public void testChanges() throws Exception {
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) store.getFeatureSource("points");
+        Filter filter = ff.bbox("geom", -0.5, -0.5, 4.5, 4.5, null);
+        assertEquals(5, featureStore.getFeatures(filter).size());
+
+        featureStore.removeFeatures(ff.id(Collections.singleton(ff.featureId("points.0"))));
+        assertEquals(4, featureStore.getFeatures(filter).size());
+
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        builder.add(new GeometryFactory().createPoint(new Coordinate(2.5, 2.5)));
+        builder.add("added");
+        store.addFeature(builder.buildFeature("points.added"));
+        assertEquals(5, featureStore.getFeatures(filter).size());
+
+        // moved out of the box and back in, without building the index again
+        Filter fid = ff.id(Collections.singleton(ff.featureId("points.3")));
+        featureStore.modifyFeatures("geom", new GeometryFactory().createPoint(new Coordinate(50.5,
+                50.5)), fid);
+        assertEquals(4, featureStore.getFeatures(filter).size());
+        assertEquals(3, featureStore.getFeatures(ff.bbox("geom", 49.6, 49.6, 51.4, 51.4, null))
+                .size());
+        featureStore.modifyFeatures("geom", new GeometryFactory().createPoint(new Coordinate(3,
+                3)), fid);
+        assertEquals(5, featureStore.getFeatures(filter).size());
+
+        assertTrue(store.getMemorySize("points") > 0);
+    }
+}
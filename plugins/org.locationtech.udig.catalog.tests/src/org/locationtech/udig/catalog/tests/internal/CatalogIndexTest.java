@@ -0,0 +1,140 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.tests.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.catalog.IResolve;
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.internal.CatalogImpl;
+import org.locationtech.udig.catalog.internal.CatalogIndex;
+import org.locationtech.udig.catalog.tests.DummyService;
+import org.locationtech.udig.catalog.util.ASTFactory;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+@SuppressWarnings("nls")
+public class CatalogIndexTest {
+
+    private CatalogImpl catalog;
+
+    private IService first;
+
+    private IService second;
+
+    @Before
+    public void setUp() throws Exception {
+        catalog = new CatalogImpl();
+        List<List<Object>> resources = new ArrayList<List<Object>>();
+        resources.add(Collections.emptyList());
+        resources.add(Collections.emptyList());
+        first = DummyService.createService(new URL("file://first.refractions.net/dummy"), null,
+                resources);
+        second = DummyService.createService(new URL("file://second.refractions.net/dummy"), null,
+                resources);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        CatalogIndex index = new CatalogIndex(catalog);
+        assertFalse(index.contains(first));
+        index.index(first, new NullProgressMonitor());
+        index.index(second, new NullProgressMonitor());
+        assertTrue(index.contains(first));
+
+        List<IService> scope = Arrays.asList(first, second);
+        List<IResolve> found = search(index, scope, "DummyResource.2", null);
+        assertEquals(2, found.size());
+        assertEquals(first.resources(null).get(1), found.get(0));
+        assertEquals(second.resources(null).get(1), found.get(1));
+
+        // words are matched anywhere in a word, like the pattern
+        assertEquals(1, search(index, scope, "SECOND+esource.1", null).size());
+        assertEquals(4, search(index, scope, "ummy", null).size());
+        assertEquals(0, search(index, scope, "missing", null).size());
+
+        // the dummy resources cover the world
+        assertEquals(4, search(index, scope, "dummy", new Envelope(10, 20, 10, 20)).size());
+
+        index.remove(first.getID());
+        assertEquals(1, search(index, scope, "DummyResource.2", null).size());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        CatalogIndex index = new CatalogIndex(catalog);
+        catalog.add(first);
+        index.index(first, new NullProgressMonitor());
+
+        File file = File.createTempFile("catalog", ".index");
+        file.deleteOnExit();
+        index.save(file);
+
+        CatalogIndex loaded = new CatalogIndex(catalog);
+        loaded.load(file);
+        assertTrue(loaded.contains(first));
+        List<IResolve> found = search(loaded, Collections.singletonList(first),
+                "DummyResource.1", null);
+        assertEquals(1, found.size());
+        assertEquals(first.resources(null).get(0).getID(), found.get(0).getID());
+        catalog.remove(first);
+    }
+
+    @Test
+    public void testBrokenServiceIsNotIndexedOnEverySearch() throws Exception {
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put("dummy", new URL("file://broken.refractions.net/dummy"));
+        final int[] listed = new int[1];
+        IService broken = new DummyService(params){
+            @Override
+            public List< ? extends IGeoResource> resources( IProgressMonitor monitor )
+                    throws IOException {
+                listed[0]++;
+                throw new IOException("unreachable");
+            }
+        };
+        CatalogIndex index = new CatalogIndex(catalog);
+        index.index(broken, new NullProgressMonitor());
+        assertEquals(1, listed[0]);
+        // the failure is remembered, the catalog does not index the service again right away
+        assertTrue(index.contains(broken));
+
+        // and it is not saved as if it had no resources
+        File file = File.createTempFile("catalog", ".index");
+        file.deleteOnExit();
+        index.save(file);
+        CatalogIndex loaded = new CatalogIndex(catalog);
+        loaded.load(file);
+        assertFalse(loaded.contains(broken));
+    }
+
+    private List<IResolve> search( CatalogIndex index, List<IService> scope, String pattern,
+            Envelope bbox ) {
+        return index.search(scope, ASTFactory.parse(pattern), bbox, new NullProgressMonitor());
+    }
+}
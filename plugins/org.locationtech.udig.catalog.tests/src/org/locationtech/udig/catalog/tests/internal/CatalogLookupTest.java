@@ -0,0 +1,131 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.tests.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.udig.catalog.ID;
+import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.catalog.IResolve;
+import org.locationtech.udig.catalog.IResolveChangeEvent;
+import org.locationtech.udig.catalog.IResolveDelta;
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.internal.CatalogImpl;
+import org.locationtech.udig.catalog.internal.CatalogLookup;
+import org.locationtech.udig.catalog.internal.ResolveChangeEvent;
+import org.locationtech.udig.catalog.internal.ResolveDelta;
+import org.locationtech.udig.catalog.tests.DummyService;
+
+@SuppressWarnings("nls")
+public class CatalogLookupTest {
+
+    private CatalogImpl catalog;
+
+    private IService service;
+
+    @Before
+    public void setUp() throws Exception {
+        catalog = new CatalogImpl();
+        List<List<Object>> resources = new ArrayList<List<Object>>();
+        resources.add(Collections.emptyList());
+        resources.add(Collections.emptyList());
+        catalog.add(DummyService.createService(new URL("file://other.refractions.net/dummy"),
+                null, null));
+        service = catalog.add(DummyService.createService(new URL(
+                "file://lookup.refractions.net/dummy"), null, resources));
+    }
+
+    @Test
+    public void testGetById() throws Exception {
+        CatalogLookup lookup = catalog.getLookup();
+        lookup.resetCounters();
+
+        assertSame(service, catalog.getById(IService.class, service.getID(), null));
+        assertEquals(1, lookup.getHitCount());
+
+        IGeoResource resource = service.resources(null).get(1);
+        assertSame(resource, catalog.getById(IGeoResource.class, resource.getID(), null));
+        long hits = lookup.getHitCount();
+        long scans = lookup.getScanCount();
+        // the services and the resource of the id are remembered
+        assertSame(resource, catalog.getById(IGeoResource.class, resource.getID(), null));
+        assertEquals(hits + 2, lookup.getHitCount());
+        assertEquals(scans, lookup.getScanCount());
+
+        catalog.remove(service);
+        assertNull(catalog.getById(IService.class, service.getID(), null));
+        assertNull(catalog.getById(IGeoResource.class, resource.getID(), null));
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        CatalogLookup lookup = catalog.getLookup();
+
+        IGeoResource resource = service.resources(null).get(0);
+        assertTrue(catalog.find(resource.getID(), new NullProgressMonitor()).contains(resource));
+        long hits = lookup.getHitCount();
+        long scans = lookup.getScanCount();
+        assertTrue(catalog.find(resource.getID(), new NullProgressMonitor()).contains(resource));
+        assertEquals(hits + 2, lookup.getHitCount());
+        assertEquals(scans, lookup.getScanCount());
+
+        // a failed find is remembered
+        ID missing = new ID(new URL("file://missing.refractions.net/dummy"));
+        assertTrue(catalog.find(missing, new NullProgressMonitor()).isEmpty());
+        long negativeHits = lookup.getNegativeHitCount();
+        scans = lookup.getScanCount();
+        assertTrue(catalog.find(missing, new NullProgressMonitor()).isEmpty());
+        assertEquals(negativeHits + 1, lookup.getNegativeHitCount());
+        assertEquals(scans, lookup.getScanCount());
+
+        // until a service is added; then it is found
+        IService added = catalog.add(DummyService.createService(missing.toURL(), null, null));
+        assertTrue(catalog.find(missing, new NullProgressMonitor()).contains(added));
+    }
+
+    @Test
+    public void testChangeEvent() throws Exception {
+        CatalogLookup lookup = catalog.getLookup();
+        ID missing = new ID(new URL("file://missing.refractions.net/dummy"));
+        assertTrue(catalog.find(missing, new NullProgressMonitor()).isEmpty());
+        long scans = lookup.getScanCount();
+
+        // a changed service may match what was missing
+        IResolveDelta changed = new ResolveDelta(service, IResolveDelta.Kind.CHANGED);
+        catalog.fire(new ResolveChangeEvent(catalog, IResolveChangeEvent.Type.POST_CHANGE,
+                new ResolveDelta(catalog, Collections.singletonList(changed))));
+        assertTrue(catalog.find(missing, new NullProgressMonitor()).isEmpty());
+        assertEquals(scans + 1, lookup.getScanCount());
+    }
+
+    @Test
+    public void testFindTwoServices() throws Exception {
+        // both identifiers match the query, only one of them is the query itself
+        IService host = catalog.add(DummyService.createService(new URL(
+                "http://lookup.refractions.net"), null, null));
+        IService dummy = catalog.add(DummyService.createService(new URL(
+                "http://lookup.refractions.net/dummy"), null, null));
+
+        List<IResolve> found = catalog.find(dummy.getID(), new NullProgressMonitor());
+        assertTrue(found.contains(dummy));
+        assertTrue(found.contains(host));
+    }
+}
@@ -0,0 +1,96 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.tests.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.catalog.IGeoResourceInfo;
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.InfoCache;
+import org.locationtech.udig.catalog.internal.CatalogImpl;
+import org.locationtech.udig.catalog.tests.DummyService;
+
+@SuppressWarnings("nls")
+public class InfoCacheTest {
+
+    private URL url;
+
+    private List<List<Object>> resources;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        url = new URL("http://cache.refractions.net/dummy");
+        resources = new ArrayList<List<Object>>();
+        resources.add(Collections.emptyList());
+        file = File.createTempFile("info", ".cache");
+        file.delete();
+        file.deleteOnExit();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        IService service = DummyService.createService(url, null, resources);
+        IGeoResource resource = service.resources(null).get(0);
+        IGeoResourceInfo info = resource.getInfo(null);
+
+        InfoCache cache = new InfoCache(file);
+        cache.put(resource, info);
+        cache.save();
+
+        // a handle of the next session that has not connected yet
+        IService restored = DummyService.createService(url, null, resources);
+        IGeoResource fresh = restored.resources(null).get(0);
+        InfoCache loaded = new InfoCache(file);
+        IGeoResourceInfo snapshot = loaded.getInfo(fresh);
+        assertNotNull(snapshot);
+        assertEquals(info.getTitle(), snapshot.getTitle());
+        assertEquals(info.getName(), snapshot.getName());
+        assertEquals(info.getBounds().getMinX(), snapshot.getBounds().getMinX(), 0.0);
+        assertEquals(info.getBounds().getMaxY(), snapshot.getBounds().getMaxY(), 0.0);
+
+        loaded.remove(fresh);
+        assertNull(loaded.getInfo(fresh));
+    }
+
+    @Test
+    public void testRemovedFromCatalog() throws Exception {
+        CatalogImpl catalog = new CatalogImpl();
+        IService service = catalog.add(DummyService.createService(url, null, resources));
+        IGeoResource resource = service.resources(null).get(0);
+
+        InfoCache cache = new InfoCache(file);
+        catalog.addCatalogListener(cache);
+        cache.put(service, service.getInfo(null));
+        cache.put(resource, resource.getInfo(null));
+
+        IService other = DummyService.createService(url, null, resources);
+        IGeoResource fresh = other.resources(null).get(0);
+        assertNotNull(cache.getInfo(other));
+        assertNotNull(cache.getInfo(fresh));
+
+        // the snapshots of the service and of its resources go with it
+        catalog.remove(service);
+        assertNull(cache.getInfo(other));
+        assertNull(cache.getInfo(fresh));
+    }
+}
@@ -9,6 +9,7 @@
  */
 package org.locationtech.udig.catalog.tests.internal;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -19,6 +20,7 @@ import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.IResolve;
 import org.locationtech.udig.catalog.IResolveAdapterFactory;
 import org.locationtech.udig.catalog.IResolveManager;
+import org.locationtech.udig.catalog.internal.ResolveManager2;
 import org.locationtech.udig.catalog.tests.DummyService;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -120,4 +122,20 @@ public class ResolveManagerTest {
         
     }
 
+    /**
+     * Test method for {@link org.locationtech.udig.catalog.internal.ResolveManager2#getTimings()}.
+     */
+    @Test
+    public void testTimings() throws Exception {
+        ResolveManager2 manager = (ResolveManager2) resolveManager;
+        manager.resetTimings();
+        assertNotNull(resolveManager.resolve(service, ResolvedTo.class, new NullProgressMonitor()));
+        assertNotNull(resolveManager.resolve(service, ResolvedTo.class, new NullProgressMonitor()));
+        ResolveManager2.AdapterTiming timing = manager.getTimings().get(
+                DummyResolverFactory.class.getName());
+        assertNotNull(timing);
+        assertEquals(2, timing.getCount());
+        assertTrue(timing.getMaxTime() <= timing.getTotalTime());
+    }
+
 }
@@ -27,6 +27,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.IForward;
 import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.catalog.IGeoResourceInfo;
 import org.locationtech.udig.catalog.IProcess;
 import org.locationtech.udig.catalog.IResolve;
 import org.locationtech.udig.catalog.IResolveChangeEvent;
@@ -394,14 +395,22 @@ public class ResolveTitlesDecorator implements ILabelDecorator, IColorDecorator,
                         if(text){
                         	if(element instanceof IGeoResource) {
                         		IGeoResource resource = (IGeoResource) element;
-                        		data.text = resource.getInfo(monitor).getTitle();
+                        		// a snapshot from an earlier session avoids connecting
+                        		IGeoResourceInfo info = CatalogPlugin.getDefault().getInfoCache().getInfo(resource);
+                        		if( info == null ){
+                        		    info = resource.getInfo(monitor);
+                        		}
+                        		data.text = info.getTitle();
                         		IService service = resource.service(monitor);
                         		if( service != null ){
                         		    service.getPersistentProperties().put(resource.getID() + "_title", data.text);
                         		}
                         	} else if(element instanceof IService) {
                         		IService service = (IService) element;
-                        		IServiceInfo info = service.getInfo(monitor);
+                        		IServiceInfo info = CatalogPlugin.getDefault().getInfoCache().getInfo(service);
+                        		if( info == null ){
+                        		    info = service.getInfo(monitor);
+                        		}
                         		if( info != null ){
                         		    data.text = info.getTitle();
                         		    service.getPersistentProperties().put("title", data.text);
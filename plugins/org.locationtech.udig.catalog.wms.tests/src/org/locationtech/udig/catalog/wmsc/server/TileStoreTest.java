@@ -0,0 +1,144 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.wmsc.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TileStoreTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("tilestore", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for( File file : directory.listFiles() ) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        TileStore store = new TileStore(directory, 1024);
+        byte[] tile = bytes(100, 1);
+        store.write("osm/1/0/0", tile, 0); //$NON-NLS-1$
+
+        assertTrue(store.contains("osm/1/0/0")); //$NON-NLS-1$
+        assertFalse(store.contains("osm/1/0/1")); //$NON-NLS-1$
+        assertArrayEquals(tile, store.read("osm/1/0/0")); //$NON-NLS-1$
+        assertNull(store.read("osm/1/0/1")); //$NON-NLS-1$
+        assertEquals(100, store.getSize());
+        assertEquals(1, store.getHitCount());
+        assertEquals(1, store.getMissCount());
+        store.close();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        TileStore store = new TileStore(directory, 300);
+        store.write("a", bytes(100, 1), 0); //$NON-NLS-1$
+        store.write("b", bytes(100, 2), 0); //$NON-NLS-1$
+        store.write("c", bytes(100, 3), 0); //$NON-NLS-1$
+
+        // use "a" so "b" is now the least recently used
+        store.read("a"); //$NON-NLS-1$
+        store.write("d", bytes(100, 4), 0); //$NON-NLS-1$
+
+        assertTrue(store.contains("a")); //$NON-NLS-1$
+        assertFalse(store.contains("b")); //$NON-NLS-1$
+        assertTrue(store.contains("c")); //$NON-NLS-1$
+        assertTrue(store.contains("d")); //$NON-NLS-1$
+        assertEquals(300, store.getSize());
+        assertEquals(1, store.getEvictionCount());
+        store.close();
+    }
+
+    @Test
+    public void testExpired() throws IOException {
+        TileStore store = new TileStore(directory, 1024);
+        store.write("a", bytes(10, 1), System.currentTimeMillis() - 1000); //$NON-NLS-1$
+        assertFalse(store.contains("a")); //$NON-NLS-1$
+        assertNull(store.read("a")); //$NON-NLS-1$
+        store.close();
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        TileStore store = new TileStore(directory, 1024);
+        byte[] tile = bytes(100, 7);
+        store.write("a", tile, 0); //$NON-NLS-1$
+        store.write("b", bytes(50, 8), 0); //$NON-NLS-1$
+        store.remove("b"); //$NON-NLS-1$
+        store.close();
+
+        store = new TileStore(directory, 1024);
+        assertEquals(1, store.getTileCount());
+        assertArrayEquals(tile, store.read("a")); //$NON-NLS-1$
+        assertFalse(store.contains("b")); //$NON-NLS-1$
+        store.close();
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        TileStore store = new TileStore(directory, 1024);
+        store.write("a", bytes(100, 1), 0); //$NON-NLS-1$
+        assertTrue(store.clear());
+        assertEquals(0, store.getTileCount());
+        assertEquals(0, store.getSize());
+        store.close();
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        TileStore store = new TileStore(directory, 200 * 1024);
+        for( int i = 0; i < 60; i++ ) {
+            store.write("tile" + i, bytes(20 * 1024, i), 0); //$NON-NLS-1$
+        }
+        store.compact();
+
+        // only the tiles that are still referenced are left in the container
+        assertEquals(store.getSize(), new File(directory, TileStore.DATA_FILE).length());
+        assertEquals(10, store.getTileCount());
+        assertArrayEquals(bytes(20 * 1024, 59), store.read("tile59")); //$NON-NLS-1$
+        assertArrayEquals(bytes(20 * 1024, 50), store.read("tile50")); //$NON-NLS-1$
+        assertFalse(store.contains("tile49")); //$NON-NLS-1$
+
+        // and the store can be reopened from the index written after compacting
+        store.close();
+        store = new TileStore(directory, 200 * 1024);
+        assertArrayEquals(bytes(20 * 1024, 55), store.read("tile55")); //$NON-NLS-1$
+        store.close();
+    }
+
+    private static byte[] bytes( int length, int value ) {
+        byte[] bytes = new byte[length];
+        for( int i = 0; i < length; i++ ) {
+            bytes[i] = (byte) (value + i);
+        }
+        return bytes;
+    }
+}
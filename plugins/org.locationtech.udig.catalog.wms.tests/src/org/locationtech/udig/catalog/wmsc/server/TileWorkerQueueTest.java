@@ -0,0 +1,195 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.wmsc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class TileWorkerQueueTest {
+
+    private TileWorkerQueue queue;
+
+    private CountDownLatch blocked;
+
+    private WMSTileSet tileset;
+
+    @Before
+    public void setUp() throws Exception {
+        tileset = new WMSTileSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (blocked != null) {
+            blocked.countDown();
+        }
+        queue.dispose();
+    }
+
+    @Test
+    public void testClosestToFocusFirst() throws Exception {
+        queue = new TileWorkerQueue(1);
+        block();
+
+        Object owner = new Object();
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        WMSTile far = tile(90, 1);
+        WMSTile near = tile(0, 1);
+        WMSTile otherScale = tile(0, 2);
+        queue.execute(owner, far, null, record(order, "far"), null); //$NON-NLS-1$
+        queue.execute(owner, otherScale, null, record(order, "otherScale"), null); //$NON-NLS-1$
+        queue.execute(owner, near, null, record(order, "near"), null); //$NON-NLS-1$
+        queue.setFocus(owner, new Envelope(-100, 100, -100, 100), 1);
+
+        CountDownLatch done = new CountDownLatch(1);
+        queue.execute(owner, tile(95, 3), null, countDown(done), null);
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals("near", order.get(0)); //$NON-NLS-1$
+        assertEquals("far", order.get(1)); //$NON-NLS-1$
+        assertEquals("otherScale", order.get(2)); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testDropOutOfFocus() throws Exception {
+        queue = new TileWorkerQueue(1);
+        block();
+
+        Object owner = new Object();
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        queue.execute(owner, tile(0, 1), null, count(loaded), count(dropped));
+        queue.execute(owner, tile(500, 1), null, count(loaded), count(dropped));
+        assertEquals(2, queue.getQueueSize(owner));
+
+        queue.setFocus(owner, new Envelope(-100, 100, -100, 100), 1);
+        assertEquals(1, queue.getQueueSize(owner));
+        assertEquals(1, dropped.get());
+        assertEquals(1, queue.getDroppedCount());
+
+        CountDownLatch done = new CountDownLatch(1);
+        queue.execute(owner, tile(10, 1), null, countDown(done), null);
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, loaded.get());
+    }
+
+    @Test
+    public void testMergeDuplicates() throws Exception {
+        queue = new TileWorkerQueue(1);
+        block();
+
+        WMSTile tile = tile(0, 1);
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        queue.execute(new Object(), tile, null, count(first), null);
+        queue.execute(new Object(), tile, null, count(second), null);
+        assertEquals(1, queue.getQueueSize());
+        assertEquals(1, queue.getMergedCount());
+
+        CountDownLatch done = new CountDownLatch(1);
+        queue.execute(null, tile(10, 1), null, countDown(done), null);
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    public void testHostLimit() throws Exception {
+        queue = new TileWorkerQueue(4, 1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(6);
+        for( int i = 0; i < 6; i++ ) {
+            queue.execute(null, tile(i, 1), "server", new Runnable(){ //$NON-NLS-1$
+                        public void run() {
+                            int now = running.incrementAndGet();
+                            synchronized (maxRunning) {
+                                maxRunning.set(Math.max(maxRunning.get(), now));
+                            }
+                            try {
+                                Thread.sleep(20);
+                            } catch (InterruptedException e) {
+                                // ignore
+                            }
+                            running.decrementAndGet();
+                            done.countDown();
+                        }
+                    }, null);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    /**
+     * Occupy the worker threads until blocked is counted down.
+     */
+    private void block() throws InterruptedException {
+        blocked = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(queue.getThreadPoolSize());
+        for( int i = 0; i < queue.getThreadPoolSize(); i++ ) {
+            queue.execute(new Runnable(){
+                public void run() {
+                    started.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private WMSTile tile( double x, double scale ) {
+        return new WMSTile(null, tileset, new Envelope(x, x + 10, 0, 10), scale);
+    }
+
+    private static Runnable record( final List<String> order, final String name ) {
+        return new Runnable(){
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+
+    private static Runnable count( final AtomicInteger counter ) {
+        return new Runnable(){
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+    }
+
+    private static Runnable countDown( final CountDownLatch latch ) {
+        return new Runnable(){
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+}
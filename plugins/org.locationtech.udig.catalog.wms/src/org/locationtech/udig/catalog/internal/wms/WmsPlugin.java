@@ -13,6 +13,8 @@ package org.locationtech.udig.catalog.internal.wms;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
+import org.locationtech.udig.catalog.wmsc.server.TileStore;
+
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -49,6 +51,8 @@ public class WmsPlugin extends AbstractUIPlugin {
 	 * This method is called when the plug-in is stopped
 	 */
 	public void stop(BundleContext context) throws Exception {
+		// write out the tile store indexes so cached tiles are available next run
+		TileStore.disposeAll();
 		plugin = null;
 		resourceBundle = null;
 		super.stop(context);
@@ -51,6 +51,12 @@ public abstract class AbstractTileRange implements TileRange {
     protected boolean using_threadpools = false;  // set in the constructor
     
     protected final static boolean testing = false;  // for testing output
+    
+    /** owner of the tile requests used by the work queue to look up the focus; may be null */
+    protected Object requestOwner;
+    
+    /** host used to limit concurrent requests, defaults to the host of the server */
+    protected String requestHost;
  
     /** keep track of all tile listeners **/
     protected Set<TileListener> tileListeners = new HashSet<TileListener>();    
@@ -280,7 +286,14 @@ public abstract class AbstractTileRange implements TileRange {
 	            	internalLoadTile(tile, monitor);
 	            }
 	        };
-	        requestTileWorkQueue.execute(r);
+	        Runnable dropped = new Runnable() {
+	            public void run() {
+	                // no longer in view; stop waiting on it
+	                tileLoaded(tile);
+	                removeTileFromLoadingList(tile);
+	            }
+	        };
+	        requestTileWorkQueue.execute(requestOwner, tile, getRequestHost(), r, dropped);
     	}
     	else {
     		Thread t = new Thread() {
@@ -311,6 +324,40 @@ public abstract class AbstractTileRange implements TileRange {
         cacheTile(tile);  // cache the tile with whatever method is setup
     }
     
+    /**
+     * Set the owner of the tile requests (usually the renderer); the work queue orders and
+     * drops requests based on the focus set by the owner.
+     * 
+     * @see TileWorkerQueue#setFocus(Object, Envelope, double)
+     * @param owner
+     */
+    public void setRequestOwner( Object owner ) {
+        this.requestOwner = owner;
+    }
+    
+    /**
+     * Set the host used to limit the number of concurrent requests; used when the tiles
+     * are not fetched through a server.
+     * 
+     * @param host
+     */
+    public void setRequestHost( String host ) {
+        this.requestHost = host;
+    }
+    
+    /**
+     * Host used to limit the number of concurrent requests.
+     * 
+     * @return host, or null if unknown
+     */
+    protected String getRequestHost() {
+        if (requestHost == null && server != null && server.getInfo() != null
+                && server.getInfo().getSource() != null) {
+            requestHost = server.getInfo().getSource().getHost();
+        }
+        return requestHost;
+    }
+    
     protected BufferedImage createErrorImage(){
         BufferedImage bf = new BufferedImage(tileset.getWidth(), tileset.getHeight(), BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = bf.createGraphics();
@@ -320,6 +367,30 @@ public abstract class AbstractTileRange implements TileRange {
         return bf;
     }
     
+    /**
+     * Get the file type of the tiles (this is in the format of png, or jpg, etc)
+     * 
+     * @return
+     */
+    protected String getFileType() {
+        // format is like "image\png" so strip out the beginning
+        String format = tileset.getFormat();
+        // remove any numbers from the format (ie: png8, remove 8)
+        format = format.replaceAll("\\d+", "");  //$NON-NLS-1$ //$NON-NLS-2$
+        
+        int indexOf = format.indexOf("\\"); //$NON-NLS-1$
+        if (indexOf < 0) {
+            indexOf = format.indexOf("/"); //$NON-NLS-1$
+            if (indexOf < 0) {
+                return format;
+            }
+        }
+        if (indexOf >= (format.length()-1) ) {
+            return format;
+        }
+        return format.substring(indexOf+1);
+    }
+
     /**
      * Notify all tile listeners that a tile can now be drawn
      *
@@ -0,0 +1,169 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.wmsc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.udig.catalog.CatalogPlugin;
+import org.locationtech.udig.catalog.internal.PreferenceConstants;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Fetches tiles the user is likely to need next, so that panning and zooming can be drawn from
+ * the cache rather than waiting on the server.
+ * <p>
+ * Two kinds of tiles are fetched in advance:
+ * <ul>
+ * <li>a ring of tiles around the visible tiles (on the same zoom level)</li>
+ * <li>the visible area on the neighbouring zoom levels, the most likely one first; when zooming
+ * in only the center of the view is fetched</li>
+ * </ul>
+ * Prefetch requests are submitted to the {@link TileWorkerQueue} without an owner so they are
+ * only sent once all the requests for visible tiles have been sent. They are only submitted
+ * when the request queue is close to idle.
+ *
+ * @since 2.1.0
+ */
+public class TilePrefetch {
+
+    /**
+     * Groups larger than this are not fetched.
+     */
+    public static final int MAX_PREFETCH_TILES = 128;
+
+    private TilePrefetch() {
+    }
+
+    /**
+     * @return true if prefetching has been turned on in the preferences
+     */
+    public static boolean isEnabled() {
+        return CatalogPlugin.getDefault().getPreferenceStore()
+                .getBoolean(PreferenceConstants.P_WMSCTILE_PREFETCH);
+    }
+
+    /**
+     * @return the number of tiles to fetch on each side of the visible tiles
+     */
+    public static int getRingSize() {
+        IPreferenceStore store = CatalogPlugin.getDefault().getPreferenceStore();
+        return Math.max(0, store.getInt(PreferenceConstants.P_WMSCTILE_PREFETCH_RING));
+    }
+
+    /**
+     * Checks if the queue has spare capacity for prefetch requests.
+     *
+     * @param queue request queue
+     * @return true if there are fewer requests waiting than worker threads
+     */
+    public static boolean isIdle( TileWorkerQueue queue ) {
+        return queue.getQueueSize() < queue.getThreadPoolSize();
+    }
+
+    /**
+     * Submit the tiles of the range to the request queue; the range should have been created
+     * without a request owner so the tiles are fetched after any visible tiles.
+     *
+     * @param range tiles to fetch
+     */
+    public static void load( TileRange range ) {
+        if (range.getTileCount() > 0) {
+            range.loadTiles(new NullProgressMonitor());
+        }
+    }
+
+    /**
+     * Works out the tiles of a WMS-C tileset worth fetching in advance.
+     *
+     * @param tileset tileset being drawn
+     * @param bounds visible bounds, in the CRS of the tileset
+     * @param viewportScale size of a pixel of the view (used to pick the zoom level)
+     * @param visibleTiles tiles being drawn (these are not included)
+     * @param ringSize number of tiles to add on each side of the visible tiles
+     * @return groups of tiles in the order they should be fetched
+     */
+    public static List<Map<String, Tile>> getPrefetchTiles( TileSet tileset, Envelope bounds,
+            double viewportScale, Map<String, Tile> visibleTiles, int ringSize ) {
+        List<Map<String, Tile>> groups = new ArrayList<Map<String, Tile>>();
+        if (visibleTiles.isEmpty()) {
+            return groups;
+        }
+        double zoom = visibleTiles.values().iterator().next().getScale();
+
+        // ring around the visible tiles
+        if (ringSize > 0) {
+            Envelope ringBounds = new Envelope(bounds);
+            ringBounds.expandBy(ringSize * tileset.getWidth() * zoom, ringSize
+                    * tileset.getHeight() * zoom);
+            Map<String, Tile> ring = tileset.getTilesFromZoom(ringBounds, zoom);
+            ring.keySet().removeAll(visibleTiles.keySet());
+            addGroup(groups, ring);
+        }
+
+        // resolutions are ordered from the most zoomed out to the most zoomed in
+        double[] resolutions = tileset.getResolutions();
+        int index = -1;
+        for( int i = 0; i < resolutions.length; i++ ) {
+            if (resolutions[i] == zoom) {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1) {
+            return groups;
+        }
+        double parent = index > 0 ? resolutions[index - 1] : Double.NaN;
+        double child = index < resolutions.length - 1 ? resolutions[index + 1] : Double.NaN;
+
+        Envelope center = new Envelope(bounds);
+        center.expandBy(-bounds.getWidth() / 4, -bounds.getHeight() / 4);
+
+        Map<String, Tile> parentTiles = Double.isNaN(parent) ? null : tileset.getTilesFromZoom(
+                bounds, parent);
+        Map<String, Tile> childTiles = Double.isNaN(child) ? null : tileset.getTilesFromZoom(
+                center, child);
+
+        if (isCloser(viewportScale, child, parent)) {
+            addGroup(groups, childTiles);
+            addGroup(groups, parentTiles);
+        } else {
+            addGroup(groups, parentTiles);
+            addGroup(groups, childTiles);
+        }
+        return groups;
+    }
+
+    /**
+     * Compares resolutions on a log scale (each zoom level is usually half the previous).
+     *
+     * @return true if a is a closer match for the scale than b
+     */
+    private static boolean isCloser( double scale, double a, double b ) {
+        if (Double.isNaN(a)) {
+            return false;
+        }
+        if (Double.isNaN(b)) {
+            return true;
+        }
+        return Math.abs(Math.log(scale / a)) < Math.abs(Math.log(scale / b));
+    }
+
+    private static void addGroup( List<Map<String, Tile>> groups, Map<String, Tile> tiles ) {
+        if (tiles != null && !tiles.isEmpty() && tiles.size() <= MAX_PREFETCH_TILES) {
+            groups.add(tiles);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.wmsc.server;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.locationtech.udig.catalog.CatalogPlugin;
+import org.locationtech.udig.catalog.internal.PreferenceConstants;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.geotools.data.ows.AbstractOpenWebService;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A TileRangeInStore represents a set of Tiles in a given bounds and stores them in a
+ * {@link TileStore}; a single indexed container on disk with a limited size.
+ * <p>
+ * Tiles are first looked up in the store index (no file system access is needed to find out
+ * if a tile is available) and any remaining tiles are fetched from the server and written to
+ * the store as they arrive.
+ * <p>
+ * Every time a tile is "completed", all listeners will be notified.
+ *
+ * @since 2.1.0
+ */
+public class TileRangeInStore extends AbstractTileRange {
+
+    private static final String KEY_DIVIDER = "/"; //$NON-NLS-1$
+
+    private TileStore tileStore;
+
+    private TileWorkerQueue writeTileWorkQueue;
+
+    /**
+     * TileRange implementation that saves tiles into the shared tile store configured in the
+     * preferences.
+     *
+     * @param server The Server to fetch the tiles from (may be null)
+     * @param tileset TileSet of rendered content
+     * @param bounds Optional bounds (may be null) that contain the provided tiles
+     * @param tiles The tiles that we wish to fetch; must be from the provided tileset
+     * @param requestTileWorkQueue Queue of worker threads that can be used to fetch tiles
+     * @param writeTileWorkQueue Queue used to write tiles into the store
+     * @throws IOException if the tile store could not be opened
+     */
+    public TileRangeInStore( AbstractOpenWebService<?, ?> server, TileSet tileset,
+            Envelope bounds, Map<String, Tile> tiles, TileWorkerQueue requestTileWorkQueue,
+            TileWorkerQueue writeTileWorkQueue ) throws IOException {
+        this(server, tileset, bounds, tiles, requestTileWorkQueue, writeTileWorkQueue,
+                getDefaultTileStore());
+    }
+
+    /**
+     * This constructor allows you to provide the TileStore to use.
+     *
+     * @param server
+     * @param tileset
+     * @param bounds
+     * @param tiles
+     * @param requestTileWorkQueue
+     * @param writeTileWorkQueue
+     * @param tileStore
+     */
+    public TileRangeInStore( AbstractOpenWebService<?, ?> server, TileSet tileset,
+            Envelope bounds, Map<String, Tile> tiles, TileWorkerQueue requestTileWorkQueue,
+            TileWorkerQueue writeTileWorkQueue, TileStore tileStore ) {
+        super(server, tileset, bounds, tiles, requestTileWorkQueue);
+
+        if (writeTileWorkQueue == null) {
+            using_threadpools = false;
+        } else {
+            this.writeTileWorkQueue = writeTileWorkQueue;
+        }
+        this.tileStore = tileStore;
+
+        // the super's constructor will have built the list of tiles not loaded, so
+        // now remove any tiles that we can find already in the store
+        checkStoreForLoadedTiles();
+    }
+
+    /**
+     * Look up the shared tile store using the disk cache location and size from the
+     * preferences.
+     *
+     * @return shared tile store
+     * @throws IOException if the tile store could not be opened
+     */
+    public static TileStore getDefaultTileStore() throws IOException {
+        IPreferenceStore store = CatalogPlugin.getDefault().getPreferenceStore();
+        String dir = store.getString(PreferenceConstants.P_WMSCTILE_DISKDIR);
+        long maxSize = store.getLong(PreferenceConstants.P_WMSCTILE_STORE_SIZE) * 1024 * 1024;
+        return TileStore.getInstance(dir, maxSize);
+    }
+
+    /**
+     * Check the store for any tiles that have not yet been loaded, load them, and remove them
+     * from the not-loaded list
+     */
+    private void checkStoreForLoadedTiles() {
+        try {
+            tilesWaitingToLoad_lock.writeLock().lock();
+
+            Set<String> tilesToRemove = new HashSet<String>();
+            for( Entry<String, Tile> tileentry : tilesWaitingToLoad.entrySet() ) {
+                Tile tile = tileentry.getValue();
+                if (tileStore.readTile(getStoreKey(tile), tile)) {
+                    tilesToRemove.add(tileentry.getKey());
+                }
+            }
+            // Remove any tiles we were able to load
+            for( String key : tilesToRemove ) {
+                tilesWaitingToLoad.remove(key);
+            }
+        } finally {
+            // unlock the write lock
+            tilesWaitingToLoad_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Try caching the tile in the store if it is valid (ie: not in error)
+     */
+    public void cacheTile( final Tile tile ) {
+        if (tile.getTileState() == WMSTile.INERROR) {
+            return;
+        }
+        Runnable r = new Runnable(){
+            public void run() {
+                if (tile.getBufferedImage() != null && tile.getTileState() != WMSTile.INERROR) {
+                    tileStore.writeTile(getStoreKey(tile), tile, getFileType());
+                }
+            }
+        };
+        if (using_threadpools) {
+            writeTileWorkQueue.execute(r);
+        } else {
+            new Thread(r).start();
+        }
+    }
+
+    /**
+     * Key used to store the tile; made up of the server, tileset, scale and position of the
+     * tile.
+     *
+     * @param tile
+     * @return key of the tile in the store
+     */
+    protected String getStoreKey( Tile tile ) {
+        StringBuilder key = new StringBuilder();
+        if (server != null && server.getInfo() != null && server.getInfo().getSource() != null) {
+            key.append(server.getInfo().getSource());
+        }
+        key.append(KEY_DIVIDER);
+        if (tileset != null) {
+            key.append(tileset.getLayers()).append(KEY_DIVIDER);
+            key.append(tileset.getEPSGCode()).append(KEY_DIVIDER);
+            key.append(tileset.getFormat());
+        }
+        key.append(KEY_DIVIDER).append(tile.getScale());
+        key.append(KEY_DIVIDER).append(tile.getPosition());
+        return key.toString();
+    }
+
+    /**
+     * @return the tile store used by this range
+     */
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+}
@@ -193,29 +193,5 @@ public class TileRangeOnDisk extends AbstractTileRange {
             System.out.println("REMOVING lock for disk write: "+tile.getId()); //$NON-NLS-1$
         }
     }
-    
-    /**
-     * Get the file type of the tiles (this is in the format of png, or jpg, etc)
-     * 
-     * @return
-     */
-    protected String getFileType() {
-    	// format is like "image\png" so strip out the beginning
-    	String format = tileset.getFormat();
-    	// remove any numbers from the format (ie: png8, remove 8)
-    	format = format.replaceAll("\\d+", "");  //$NON-NLS-1$ //$NON-NLS-2$
-    	
-    	int indexOf = format.indexOf("\\"); //$NON-NLS-1$
-    	if (indexOf < 0) {
-    		indexOf = format.indexOf("/"); //$NON-NLS-1$
-    		if (indexOf < 0) {
-    			return format;
-    		}
-    	}
-    	if (indexOf >= (format.length()-1) ) {
-    		return format;
-    	}
-    	return format.substring(indexOf+1);
-    }	
 
 }
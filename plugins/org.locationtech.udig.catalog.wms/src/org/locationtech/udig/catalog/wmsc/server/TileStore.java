@@ -0,0 +1,629 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.wmsc.server;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.locationtech.udig.catalog.internal.wms.WmsPlugin;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * A persistent, size bounded store for tile images.
+ * <p>
+ * All tiles are kept in a single container file ({@value #DATA_FILE}) with a companion index
+ * file ({@value #INDEX_FILE}) mapping a tile key to its offset and length in the container.
+ * The index is held in memory so looking up a tile never touches the file system; reading a
+ * tile is a single positioned read.
+ * <p>
+ * The store is bounded by a byte budget. When a write would exceed the budget the least
+ * recently used tiles are evicted from the index; the space they used in the container is
+ * reclaimed by compacting the container once more than half of it is unused. Compaction runs in
+ * a background job and only holds the store while it swaps the containers, so tiles can be read
+ * and written while it copies them.
+ * <p>
+ * Stores are shared: use {@link #getInstance(String, long)} to look up the store for a
+ * directory so every renderer writes into the same container.
+ *
+ * @since 2.1.0
+ */
+public class TileStore {
+
+    /** Name of the container file holding the tile images */
+    public static final String DATA_FILE = "tilestore.dat"; //$NON-NLS-1$
+
+    /** Name of the index file written next to the container */
+    public static final String INDEX_FILE = "tilestore.idx"; //$NON-NLS-1$
+
+    private static final String baseSubTileFolder = "tilestore"; //$NON-NLS-1$
+
+    private static final int INDEX_MAGIC = 0x75446754; // "uDgT"
+
+    private static final int INDEX_VERSION = 1;
+
+    /** the index is written out after this many changes */
+    private static final int FLUSH_INTERVAL = 64;
+
+    /** containers smaller than this are never compacted */
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private static final Map<File, TileStore> stores = new HashMap<File, TileStore>();
+
+    /**
+     * Location of a tile in the container file.
+     */
+    static class Entry {
+        final long offset;
+
+        final int length;
+
+        /** time in milliseconds after which the tile is stale; 0 for never */
+        final long expires;
+
+        Entry( long offset, int length, long expires ) {
+            this.offset = offset;
+            this.length = length;
+            this.expires = expires;
+        }
+    }
+
+    private final File directory;
+
+    private long maxSize;
+
+    /** index in access order, the first entry is the least recently used */
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<String, Entry>(256,
+            0.75f, true);
+
+    private RandomAccessFile data;
+
+    /** bytes referenced by the index */
+    private long size;
+
+    private int changes;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /** changed when the container is cleared, closed or replaced; a compaction in progress is dropped */
+    private int generation;
+
+    /** only one compaction at a time writes the temporary container */
+    private final Object compactLock = new Object();
+
+    private final Job compactor = new Job("Compact tile store"){ //$NON-NLS-1$
+        @Override
+        protected IStatus run( IProgressMonitor monitor ) {
+            try {
+                compact();
+            } catch (IOException e) {
+                WmsPlugin.log("Unable to compact the tile store " + directory, e); //$NON-NLS-1$
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
+    /**
+     * Opens (or creates) the store in the given directory.
+     *
+     * @param directory directory to hold the container and index files
+     * @param maxSize maximum number of bytes of tile data to keep
+     * @throws IOException if the container could not be opened
+     */
+    public TileStore( File directory, long maxSize ) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        directory.mkdirs();
+        data = new RandomAccessFile(new File(directory, DATA_FILE), "rw"); //$NON-NLS-1$
+        readIndex();
+        compactor.setSystem(true);
+    }
+
+    /**
+     * Look up the shared store for the given base directory, creating it if needed.
+     *
+     * @param baseDir base tile cache directory (as used by {@link TileImageReadWriter})
+     * @param maxSize maximum number of bytes of tile data to keep
+     * @return shared store for the directory
+     * @throws IOException if the container could not be opened
+     */
+    public static TileStore getInstance( String baseDir, long maxSize ) throws IOException {
+        File directory = new File(baseDir, baseSubTileFolder).getAbsoluteFile();
+        synchronized (stores) {
+            TileStore store = stores.get(directory);
+            if (store == null) {
+                store = new TileStore(directory, maxSize);
+                stores.put(directory, store);
+            } else {
+                store.setMaxSize(maxSize);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Check if a store has been created in the given base directory.
+     *
+     * @param baseDir base tile cache directory
+     * @return true if a store container exists
+     */
+    public static boolean exists( String baseDir ) {
+        return new File(new File(baseDir, baseSubTileFolder), DATA_FILE).exists();
+    }
+
+    /**
+     * Flushes and closes every shared store; used during shutdown.
+     */
+    public static void disposeAll() {
+        synchronized (stores) {
+            for( TileStore store : stores.values() ) {
+                store.close();
+            }
+            stores.clear();
+        }
+    }
+
+    /**
+     * @return directory holding the container and index files
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return maximum number of bytes of tile data kept by this store
+     */
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the byte budget, evicting tiles if the store is now too large.
+     *
+     * @param maxSize maximum number of bytes of tile data to keep
+     */
+    public synchronized void setMaxSize( long maxSize ) {
+        this.maxSize = maxSize;
+        evict(0);
+    }
+
+    /**
+     * @return number of bytes of tile data currently referenced by the index
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of tiles in the store
+     */
+    public synchronized int getTileCount() {
+        return index.size();
+    }
+
+    /**
+     * @return number of successful reads since the store was opened
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return number of reads that did not find a (fresh) tile since the store was opened
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return number of tiles evicted to stay within the byte budget
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Check if a fresh (not expired) tile is stored for the key. This is an in memory lookup.
+     *
+     * @param key tile key
+     * @return true if the tile can be read
+     */
+    public synchronized boolean contains( String key ) {
+        Entry entry = index.get(key);
+        return entry != null && !isExpired(entry);
+    }
+
+    /**
+     * Read the encoded image stored for the key.
+     *
+     * @param key tile key
+     * @return encoded image, or null if the tile is not stored or is stale
+     */
+    public synchronized byte[] read( String key ) {
+        Entry entry = index.get(key);
+        if (entry == null || isExpired(entry) || data == null) {
+            misses++;
+            return null;
+        }
+        byte[] bytes = new byte[entry.length];
+        try {
+            data.seek(entry.offset);
+            data.readFully(bytes);
+        } catch (IOException e) {
+            // container is damaged for this entry; forget it
+            remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return bytes;
+    }
+
+    /**
+     * Store the encoded image for the key, evicting least recently used tiles as required.
+     *
+     * @param key tile key
+     * @param bytes encoded image
+     * @param expires time in milliseconds after which the tile is stale; 0 for never
+     * @throws IOException if the container could not be written
+     */
+    public synchronized void write( String key, byte[] bytes, long expires ) throws IOException {
+        if (data == null) {
+            throw new IOException("Tile store is closed: " + directory); //$NON-NLS-1$
+        }
+        if (bytes.length > maxSize) {
+            return; // never fits
+        }
+        remove(key);
+        evict(bytes.length);
+
+        long offset = data.length();
+        data.seek(offset);
+        data.write(bytes);
+        index.put(key, new Entry(offset, bytes.length, expires));
+        size += bytes.length;
+
+        if (offset + bytes.length > MIN_COMPACT_SIZE && offset + bytes.length > 2 * size
+                && compactor.getState() == Job.NONE) {
+            compactor.schedule();
+        }
+        if (++changes >= FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    /**
+     * Remove the tile stored for the key (the space is reclaimed on the next compaction).
+     *
+     * @param key tile key
+     */
+    public synchronized void remove( String key ) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            size -= entry.length;
+            changes++;
+        }
+    }
+
+    /**
+     * Read the tile's image from the store and set it on the tile.
+     *
+     * @param key tile key
+     * @param tile tile to fill in
+     * @return true on success
+     */
+    public boolean readTile( String key, Tile tile ) {
+        byte[] bytes = read(key);
+        if (bytes == null) {
+            return false;
+        }
+        BufferedImage image = null;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            WmsPlugin.log("Unable to read tile " + key, e); //$NON-NLS-1$
+        }
+        if (image == null) {
+            remove(key);
+            return false;
+        }
+        synchronized (tile.getTileLock()) {
+            tile.setBufferedImage(image);
+        }
+        return true;
+    }
+
+    /**
+     * Encode the tile's image and write it to the store.
+     *
+     * @param key tile key
+     * @param tile tile to store
+     * @param filetype image format (such as png or jpeg)
+     * @return true on success
+     */
+    public boolean writeTile( String key, Tile tile, String filetype ) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            // lock on the tile so we aren't trying to read it as it is being written to
+            synchronized (tile.getTileLock()) {
+                BufferedImage image = tile.getBufferedImage();
+                if (image == null || !ImageIO.write(image, filetype, out)) {
+                    return false;
+                }
+            }
+            write(key, out.toByteArray(), getExpiry(tile));
+            return true;
+        } catch (IOException e) {
+            WmsPlugin.log("Unable to store tile " + key, e); //$NON-NLS-1$
+        }
+        return false;
+    }
+
+    /**
+     * Write the index out so the store can be reopened on the next run.
+     */
+    public synchronized void flush() {
+        if (data == null) {
+            return;
+        }
+        File indexFile = new File(directory, INDEX_FILE);
+        File tmpFile = new File(directory, INDEX_FILE + ".tmp"); //$NON-NLS-1$
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(index.size());
+            // iteration order is least recently used first, preserved on reload
+            for( Map.Entry<String, Entry> mapEntry : index.entrySet() ) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.offset);
+                out.writeInt(entry.length);
+                out.writeLong(entry.expires);
+            }
+            out.close();
+            out = null;
+            data.getFD().sync();
+            if (indexFile.exists() && !indexFile.delete()) {
+                throw new IOException("Unable to replace " + indexFile); //$NON-NLS-1$
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                throw new IOException("Unable to write " + indexFile); //$NON-NLS-1$
+            }
+            changes = 0;
+        } catch (IOException e) {
+            WmsPlugin.log("Unable to write the tile store index " + indexFile, e); //$NON-NLS-1$
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the index and close the container. The store can not be used afterwards.
+     */
+    public synchronized void close() {
+        if (data == null) {
+            return;
+        }
+        compactor.cancel();
+        generation++;
+        flush();
+        try {
+            data.close();
+        } catch (IOException e) {
+            WmsPlugin.log("Unable to close the tile store " + directory, e); //$NON-NLS-1$
+        }
+        data = null;
+    }
+
+    /**
+     * Remove every tile from the store.
+     *
+     * @return true on success
+     */
+    public synchronized boolean clear() {
+        index.clear();
+        size = 0;
+        generation++;
+        try {
+            if (data != null) {
+                data.setLength(0);
+            }
+        } catch (IOException e) {
+            WmsPlugin.log("Unable to clear the tile store " + directory, e); //$NON-NLS-1$
+            return false;
+        }
+        flush();
+        return true;
+    }
+
+    /**
+     * Evict least recently used tiles until the given number of additional bytes fits.
+     */
+    private void evict( long needed ) {
+        Iterator<Map.Entry<String, Entry>> iterator = index.entrySet().iterator();
+        while( size + needed > maxSize && iterator.hasNext() ) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            size -= entry.length;
+            evictions++;
+            changes++;
+        }
+    }
+
+    /**
+     * Rewrite the container keeping only the tiles referenced by the index.
+     * <p>
+     * The tiles are copied to a new container without holding the store, through a separate
+     * handle on the container (tiles are only ever appended to it). Tiles written in the
+     * meantime are copied while holding the store, just before the new container replaces the
+     * old one. Nothing changes if the store is cleared or closed meanwhile.
+     */
+    void compact() throws IOException {
+        synchronized (compactLock) {
+            File dataFile = new File(directory, DATA_FILE);
+            File tmpFile = new File(directory, DATA_FILE + ".tmp"); //$NON-NLS-1$
+            Map<String, Entry> snapshot;
+            int started;
+            synchronized (this) {
+                if (data == null) {
+                    return;
+                }
+                snapshot = new HashMap<String, Entry>(index);
+                started = generation;
+            }
+            Map<String, Entry> moved = new HashMap<String, Entry>();
+            RandomAccessFile source = new RandomAccessFile(dataFile, "r"); //$NON-NLS-1$
+            RandomAccessFile compacted = new RandomAccessFile(tmpFile, "rw"); //$NON-NLS-1$
+            try {
+                compacted.setLength(0);
+                for( Map.Entry<String, Entry> mapEntry : snapshot.entrySet() ) {
+                    Entry entry = mapEntry.getValue();
+                    moved.put(mapEntry.getKey(), copy(source, entry, compacted));
+                }
+                synchronized (this) {
+                    if (data == null || generation != started) {
+                        return;
+                    }
+                    Map<String, Entry> entries = new HashMap<String, Entry>();
+                    for( Map.Entry<String, Entry> mapEntry : index.entrySet() ) {
+                        Entry entry = mapEntry.getValue();
+                        Entry copy = snapshot.get(mapEntry.getKey()) == entry ? moved
+                                .get(mapEntry.getKey()) : null;
+                        if (copy == null) {
+                            // written since the copy started
+                            copy = copy(data, entry, compacted);
+                        }
+                        entries.put(mapEntry.getKey(), copy);
+                    }
+                    compacted.close();
+                    source.close();
+                    data.close();
+                    generation++;
+                    if (!dataFile.delete() || !tmpFile.renameTo(dataFile)) {
+                        // fall back to an empty store rather than an index that no longer matches
+                        index.clear();
+                        size = 0;
+                        dataFile.delete();
+                    } else {
+                        // setValue keeps the least recently used order
+                        for( Map.Entry<String, Entry> mapEntry : index.entrySet() ) {
+                            mapEntry.setValue(entries.get(mapEntry.getKey()));
+                        }
+                    }
+                    data = new RandomAccessFile(dataFile, "rw"); //$NON-NLS-1$
+                    flush();
+                }
+            } finally {
+                compacted.close();
+                source.close();
+                // nothing left to delete once it has replaced the container
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static Entry copy( RandomAccessFile from, Entry entry, RandomAccessFile to )
+            throws IOException {
+        byte[] bytes = new byte[entry.length];
+        from.seek(entry.offset);
+        from.readFully(bytes);
+        long offset = to.getFilePointer();
+        to.write(bytes);
+        return new Entry(offset, entry.length, entry.expires);
+    }
+
+    /**
+     * Read the index file; a missing or damaged index results in an empty store.
+     */
+    private void readIndex() throws IOException {
+        File indexFile = new File(directory, INDEX_FILE);
+        long length = data.length();
+        if (indexFile.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+                if (in.readInt() == INDEX_MAGIC && in.readInt() == INDEX_VERSION) {
+                    int count = in.readInt();
+                    for( int i = 0; i < count; i++ ) {
+                        String key = in.readUTF();
+                        Entry entry = new Entry(in.readLong(), in.readInt(), in.readLong());
+                        if (entry.offset + entry.length <= length) {
+                            index.put(key, entry);
+                            size += entry.length;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // damaged index, start over
+                index.clear();
+                size = 0;
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+        }
+        if (index.isEmpty()) {
+            data.setLength(0);
+        }
+        evict(0);
+    }
+
+    private static boolean isExpired( Entry entry ) {
+        return entry.expires != 0 && entry.expires < System.currentTimeMillis();
+    }
+
+    /**
+     * Work out when the tile becomes stale based on its max cache age (in seconds).
+     */
+    private static long getExpiry( Tile tile ) {
+        String maxCacheAge = tile.getMaxCacheAge();
+        if (maxCacheAge != null && !"".equals(maxCacheAge)) { //$NON-NLS-1$
+            try {
+                return System.currentTimeMillis() + Long.parseLong(maxCacheAge) * 1000;
+            } catch (NumberFormatException nfe) {
+                WmsPlugin.log("Invalid max cache age: " + maxCacheAge, nfe); //$NON-NLS-1$
+            }
+        }
+        return 0;
+    }
+
+}
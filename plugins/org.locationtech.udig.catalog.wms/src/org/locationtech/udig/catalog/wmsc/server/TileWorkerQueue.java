@@ -9,36 +9,48 @@
  */
 package org.locationtech.udig.catalog.wmsc.server;
 
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.internal.PreferenceConstants;
 
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
 /**
  * This is a work queue for re-using a group of threads to do Tile work. An example use is the work
  * of saving tiles to disk. When preloading all tiles in a tileset, the number of threads originally
  * got out of hand for saving tiles. This queue allows a group of threads to be reused to do the
  * work. It can also be used to manage the threads for sending tile requests out, but there should
  * be a separate queue for each.
- * 
+ * <p>
+ * Tile requests submitted with {@link #execute(Object, Tile, String, Runnable, Runnable)} are
+ * scheduled by priority rather than in submission order:
+ * <ul>
+ * <li>each owner (usually a renderer) sets its focus with
+ * {@link #setFocus(Object, Envelope, double)}; requests at the focus scale that are closest to
+ * the center of the focus are run first</li>
+ * <li>queued requests of an owner that no longer intersect its focus are dropped</li>
+ * <li>a request for a tile that is already queued or running is merged with it</li>
+ * <li>the number of requests running against a single host is limited</li>
+ * </ul>
+ * Plain {@link #execute(Runnable)} work is run before tile requests, in submission order.
+ * <p>
  * NOTE: This class is not intended to be subclassed or extended.
- * 
- * This class us based on the code example "Java theory and practice: Thread pools and work queues"
- * 
- * @see http://www.ibm.com/developerworks/library/j-jtp0730.html
- * 
- *      This class can be replaced with {@link Executor} now that Doug Lee's work is included in
- *      Java.
- * 
+ *
  * @author GDavis
- * 
+ *
  */
 public class TileWorkerQueue {
-    /** Collection of threads and quee of tasks waiting for execution */
-    ExecutorService executor;
-    final int limit;
     /**
      * Max size could be larger, but beware that larger numbers of threads could mean a much slower
      * system.
@@ -49,36 +61,269 @@ public class TileWorkerQueue {
 
     public static final int defaultWorkingQueueSize = 16;
 
+    /** Default number of requests allowed to run against a single host at once */
+    public static final int defaultHostRequests = 6;
+
+    /** Collection of threads that run the queued work */
+    ExecutorService executor;
+    final int limit;
+    final int hostLimit;
+
+    /** queued requests, best first; guarded by this */
+    private final PriorityQueue<TileRequest> queue = new PriorityQueue<TileRequest>();
+
+    /** queued or running requests by tile so duplicate requests can be merged; guarded by this */
+    private final Map<Tile, TileRequest> requests = new IdentityHashMap<Tile, TileRequest>();
+
+    /** focus of each owner; guarded by this */
+    private final Map<Object, Focus> focus = new IdentityHashMap<Object, Focus>();
+
+    /** running requests per host; guarded by this */
+    private final Map<String, Integer> running = new HashMap<String, Integer>();
+
+    /** dispatch tasks handed to the executor that have not yet started; guarded by this */
+    private int dispatching;
+
+    private long sequence;
+
+    private long completedCount;
+
+    private long droppedCount;
+
+    private long mergedCount;
+
+    private long totalWaitTime;
+
+    private long maxWaitTime;
+
     private boolean isTerminated = false;
 
+    /** request queue shared by the tile renderers */
+    private static TileWorkerQueue requestQueue;
+
     public TileWorkerQueue() {
         // check if a preference is set for the max number of threads
-        int nThreads = CatalogPlugin.getDefault().getPreferenceStore()
-                .getInt(PreferenceConstants.P_WMSCTILE_MAX_CON_REQUESTS);
+        IPreferenceStore store = CatalogPlugin.getDefault().getPreferenceStore();
+        int nThreads = store.getInt(PreferenceConstants.P_WMSCTILE_MAX_CON_REQUESTS);
         if (nThreads <= 0) {
-            nThreads = 16;
+            nThreads = defaultWorkingQueueSize;
+        }
+        int nHostThreads = store.getInt(PreferenceConstants.P_WMSCTILE_MAX_HOST_REQUESTS);
+        if (nHostThreads <= 0) {
+            nHostThreads = defaultHostRequests;
         }
         executor = Executors.newFixedThreadPool(nThreads);
         limit = nThreads;
+        hostLimit = nHostThreads;
     }
 
     public TileWorkerQueue(int nThreads) {
+        this(nThreads, nThreads);
+    }
+
+    /**
+     * @param nThreads maximum number of threads
+     * @param nHostThreads maximum number of requests run against a single host at once
+     */
+    public TileWorkerQueue(int nThreads, int nHostThreads) {
         if (nThreads > maxWorkingQueueSize)
             nThreads = maxWorkingQueueSize;
         if (nThreads < minWorkingQueueSize)
             nThreads = minWorkingQueueSize;
         executor = Executors.newFixedThreadPool(nThreads);
         limit = nThreads;
+        hostLimit = Math.max(minWorkingQueueSize, nHostThreads);
+    }
+
+    /**
+     * Queue used to request tiles, shared by the WMS-C and WMT renderers so the number
+     * of connections is limited across all tiled layers.
+     *
+     * @return shared tile request queue
+     */
+    public static synchronized TileWorkerQueue getRequestQueue() {
+        if (requestQueue == null) {
+            requestQueue = new TileWorkerQueue();
+        }
+        return requestQueue;
     }
 
     public void execute(Runnable r) {
-        executor.execute(r); // submit for execution
+        execute(null, null, null, r, null);
+    }
+
+    /**
+     * Queue a tile request.
+     *
+     * @param owner owner of the request (usually a renderer) used to look up the focus; may be
+     *        null
+     * @param tile tile being requested; requests for the same tile are merged
+     * @param host host the tile is fetched from; may be null if there is no per host limit
+     * @param work the request
+     * @param dropped called instead of work if the request is dropped because it is no longer
+     *        in focus; may be null
+     */
+    public synchronized void execute(Object owner, Tile tile, String host, Runnable work,
+            Runnable dropped) {
+        if (isTerminated) {
+            return;
+        }
+        if (tile != null) {
+            TileRequest existing = requests.get(tile);
+            if (existing != null && !existing.finished) {
+                // merge with the request already queued (or running) for this tile
+                existing.merge(owner, work, dropped);
+                mergedCount++;
+                if (queue.remove(existing)) {
+                    existing.prioritize();
+                    queue.add(existing);
+                }
+                return;
+            }
+        }
+        TileRequest request = new TileRequest(owner, tile, host, work, dropped, sequence++);
+        request.prioritize();
+        if (tile != null) {
+            requests.put(tile, request);
+        }
+        queue.add(request);
+        dispatch();
+    }
+
+    /**
+     * Set the area an owner is interested in. Queued requests of the owner are re-ordered and
+     * those that do not intersect the focus are dropped.
+     *
+     * @param owner owner of the requests
+     * @param bounds area in focus, in the CRS of the tiles; null to clear the focus
+     * @param scale scale of the tiles in focus
+     */
+    public void setFocus(Object owner, Envelope bounds, double scale) {
+        List<Runnable> droppedCallbacks = new ArrayList<Runnable>();
+        synchronized (this) {
+            if (bounds == null) {
+                focus.remove(owner);
+            } else {
+                focus.put(owner, new Focus(bounds, scale));
+            }
+            List<TileRequest> requeue = new ArrayList<TileRequest>(queue);
+            queue.clear();
+            for( TileRequest request : requeue ) {
+                int dropped = request.drop(owner, bounds, droppedCallbacks);
+                droppedCount += dropped;
+                if (request.owners.isEmpty()) {
+                    requests.remove(request.tile);
+                } else {
+                    request.prioritize();
+                    queue.add(request);
+                }
+            }
+        }
+        // notify outside of the lock
+        for( Runnable callback : droppedCallbacks ) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Remove the focus of an owner, used when the owner is disposed.
+     *
+     * @param owner
+     */
+    public synchronized void removeFocus(Object owner) {
+        focus.remove(owner);
+    }
+
+    /**
+     * Hand a dispatch task to the executor for each queued request that could run.
+     */
+    private void dispatch() {
+        while( executor != null && dispatching < queue.size() && dispatching < limit ) {
+            dispatching++;
+            executor.execute(new Runnable(){
+                public void run() {
+                    runNext();
+                }
+            });
+        }
+    }
+
+    /**
+     * Run the best request whose host is not busy; called on a worker thread.
+     */
+    private void runNext() {
+        TileRequest request;
+        synchronized (this) {
+            dispatching--;
+            request = next();
+            if (request == null) {
+                return;
+            }
+            if (request.host != null) {
+                Integer count = running.get(request.host);
+                running.put(request.host, count == null ? 1 : count + 1);
+            }
+            long wait = System.currentTimeMillis() - request.queued;
+            totalWaitTime += wait;
+            maxWaitTime = Math.max(maxWaitTime, wait);
+        }
+        try {
+            request.run();
+        } finally {
+            synchronized (this) {
+                completedCount++;
+                if (request.tile != null && requests.get(request.tile) == request) {
+                    requests.remove(request.tile);
+                }
+                if (request.host != null) {
+                    int count = running.get(request.host) - 1;
+                    if (count == 0) {
+                        running.remove(request.host);
+                    } else {
+                        running.put(request.host, count);
+                    }
+                }
+                // requests waiting on this host may now be able to run
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Remove the best queued request that is allowed to run; guarded by this.
+     */
+    private TileRequest next() {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        List<TileRequest> busy = null;
+        TileRequest found = null;
+        while( !queue.isEmpty() ) {
+            TileRequest request = queue.poll();
+            Integer count = request.host == null ? null : running.get(request.host);
+            if (count == null || count < hostLimit) {
+                found = request;
+                break;
+            }
+            if (busy == null) {
+                busy = new ArrayList<TileRequest>();
+            }
+            busy.add(request);
+        }
+        if (busy != null) {
+            queue.addAll(busy);
+        }
+        return found;
     }
 
     /*
      * Stop and delete all the threads
      */
     public synchronized void dispose() {
+        isTerminated = true;
+        queue.clear();
+        requests.clear();
+        focus.clear();
         if (executor != null && !executor.isShutdown()) {
             executor.shutdownNow();
             executor = null;
@@ -88,4 +333,206 @@ public class TileWorkerQueue {
     public int getThreadPoolSize() {
         return limit;
     }
+
+    /** Maximum number of requests run against a single host at once */
+    public int getHostLimit() {
+        return hostLimit;
+    }
+
+    /**
+     * @return number of requests waiting to run
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @param owner
+     * @return number of requests of the given owner waiting to run
+     */
+    public synchronized int getQueueSize(Object owner) {
+        int count = 0;
+        for( TileRequest request : queue ) {
+            if (request.isOwnedBy(owner)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of requests that have been run
+     */
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return number of requests dropped because they were no longer in focus
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return number of requests merged with a request for the same tile
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return average time in milliseconds a request waited in the queue before running
+     */
+    public synchronized long getAverageWaitTime() {
+        return completedCount == 0 ? 0 : totalWaitTime / completedCount;
+    }
+
+    /**
+     * @return longest time in milliseconds a request waited in the queue before running
+     */
+    public synchronized long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * Area and scale an owner is interested in.
+     */
+    private static class Focus {
+        final Envelope bounds;
+        final double scale;
+
+        Focus(Envelope bounds, double scale) {
+            this.bounds = bounds;
+            this.scale = scale;
+        }
+    }
+
+    /**
+     * A queued request, possibly merged from several requests for the same tile.
+     */
+    private class TileRequest implements Comparable<TileRequest> {
+        final Tile tile;
+        final String host;
+        final long order;
+        final long queued = System.currentTimeMillis();
+
+        final List<Object> owners = new ArrayList<Object>(1);
+        final List<Runnable> work = new ArrayList<Runnable>(1);
+        final List<Runnable> dropped = new ArrayList<Runnable>(1);
+
+        /** set once all the work has been run; guarded by the queue */
+        boolean finished;
+
+        /** 0 for plain work; otherwise 1 for the focus scale and higher for other scales */
+        double scaleDistance;
+        double centerDistance;
+
+        TileRequest(Object owner, Tile tile, String host, Runnable work, Runnable dropped,
+                long order) {
+            this.tile = tile;
+            this.host = host;
+            this.order = order;
+            merge(owner, work, dropped);
+        }
+
+        void merge(Object owner, Runnable r, Runnable d) {
+            owners.add(owner);
+            work.add(r);
+            dropped.add(d);
+        }
+
+        boolean isOwnedBy(Object owner) {
+            for( Object o : owners ) {
+                if (o == owner) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Remove the parts of this request that belong to the owner if the tile is out of focus.
+         *
+         * @param callbacks drop callbacks of the removed parts are added to this list
+         * @return number of parts removed
+         */
+        int drop(Object owner, Envelope bounds, List<Runnable> callbacks) {
+            if (bounds == null || tile == null || tile.getBounds() == null
+                    || bounds.intersects(tile.getBounds())) {
+                return 0;
+            }
+            int count = 0;
+            for( int i = owners.size() - 1; i >= 0; i-- ) {
+                if (owners.get(i) == owner) {
+                    owners.remove(i);
+                    work.remove(i);
+                    Runnable callback = dropped.remove(i);
+                    if (callback != null) {
+                        callbacks.add(callback);
+                    }
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void run() {
+            // the first request does the work; any merged requests find the tile loaded
+            int i = 0;
+            while( true ) {
+                Runnable r;
+                synchronized (TileWorkerQueue.this) {
+                    if (i >= work.size()) {
+                        finished = true;
+                        return;
+                    }
+                    r = work.get(i++);
+                }
+                r.run();
+            }
+        }
+
+        /**
+         * Work out the priority of this request based on the focus of its owners.
+         */
+        void prioritize() {
+            scaleDistance = 0;
+            centerDistance = 0;
+            if (tile == null || tile.getBounds() == null) {
+                return;
+            }
+            scaleDistance = Double.MAX_VALUE;
+            centerDistance = Double.MAX_VALUE;
+            Coordinate center = tile.getBounds().centre();
+            for( Object owner : owners ) {
+                Focus f = focus.get(owner);
+                if (f == null) {
+                    continue;
+                }
+                double scale = tile.getScale();
+                double zoom = 1 + Math.abs(scale - f.scale)
+                        / Math.max(Math.abs(scale), Math.abs(f.scale));
+                if (Double.isNaN(zoom)) {
+                    zoom = 1; // both zero
+                }
+                double distance = center.distance(f.bounds.centre());
+                if (zoom < scaleDistance || (zoom == scaleDistance && distance < centerDistance)) {
+                    scaleDistance = zoom;
+                    centerDistance = distance;
+                }
+            }
+        }
+
+        public int compareTo(TileRequest other) {
+            int compare = Double.compare(scaleDistance, other.scaleDistance);
+            if (compare == 0) {
+                compare = Double.compare(centerDistance, other.centerDistance);
+            }
+            if (compare == 0) {
+                compare = order < other.order ? -1 : (order == other.order ? 0 : 1);
+            }
+            return compare;
+        }
+    }
 }
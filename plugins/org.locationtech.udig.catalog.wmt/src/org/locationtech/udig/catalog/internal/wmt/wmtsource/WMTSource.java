@@ -11,9 +11,11 @@ package org.locationtech.udig.catalog.internal.wmt.wmtsource;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.locationtech.udig.catalog.internal.wmt.Trace;
@@ -423,6 +425,21 @@ public abstract class WMTSource {
                 
         WMTZoomLevel zoomLevel = tileFactory.getZoomLevel(getZoomLevelToUse(renderJob.getZoomLevelMatcher(), 
                 scaleFactor, recommendedZoomLevel, layerProperties), this);
+        
+        return cutExtentIntoTiles(extent, zoomLevel, tileLimitWarning);
+    }
+    
+    /**
+     * Finds all tiles of the given zoom-level that are within the (normalized) extent.
+     *
+     * @param extent The extent which should be cut, in the tile CRS.
+     * @param zoomLevel The zoom-level of the tiles.
+     * @param tileLimitWarning If more tiles are found an empty list is returned.
+     * @return The list of found tiles.
+     */
+    protected Map<String, Tile> cutExtentIntoTiles(ReferencedEnvelope extent, 
+            WMTZoomLevel zoomLevel, int tileLimitWarning) {
+        WMTTileFactory tileFactory = getTileFactory();
         long maxNumberOfTiles = zoomLevel.getMaxTileNumber();
                 
         Map<String, Tile> tileList = new HashMap<String, Tile>();
@@ -482,6 +499,86 @@ public abstract class WMTSource {
         return tileList;
     }
     
+    /**
+     * Finds the tiles that are worth fetching in advance of the user panning or zooming.
+     * <p>
+     * The tiles are returned in groups, in the order they should be fetched:
+     * <ol>
+     * <li>a ring of tiles around the visible tiles on the same zoom-level</li>
+     * <li>the visible area on the zoom-level the user is most likely to switch to next;
+     * this is predicted with the {@link WMTScaleZoomLevelMatcher} by comparing the current
+     * map scale with the optimum scales of the parent and child zoom-levels</li>
+     * <li>the visible area on the other neighbouring zoom-level</li>
+     * </ol>
+     * When zooming in only the tiles covering the center of the view are included.
+     *
+     * @param renderJob The render job used for the visible tiles.
+     * @param visibleTiles The visible tiles (these are not included).
+     * @param ringSize Number of tiles to add around the visible tiles (0 for none).
+     * @param tileLimit Maximum number of tiles for each group; larger groups are skipped.
+     * @return The groups of tiles, may be empty.
+     */
+    public List<Map<String, Tile>> cutExtentIntoPrefetchTiles(WMTRenderJob renderJob,
+            Map<String, Tile> visibleTiles, int ringSize, int tileLimit) {
+        List<Map<String, Tile>> groups = new ArrayList<Map<String, Tile>>();
+        if (visibleTiles.isEmpty()) {
+            return groups;
+        }
+        WMTTile sample = (WMTTile) visibleTiles.values().iterator().next();
+        int zoom = (int) sample.getScale();
+        ReferencedEnvelope mapExtent = renderJob.getMapExtentTileCrs();
+        WMTTileFactory tileFactory = getTileFactory();
+        
+        // ring around the visible tiles
+        if (ringSize > 0) {
+            ReferencedEnvelope ringExtent = new ReferencedEnvelope(mapExtent);
+            ringExtent.expandBy(ringSize * sample.getExtent().getWidth(), 
+                    ringSize * sample.getExtent().getHeight());
+            Map<String, Tile> ring = cutExtentIntoTiles(normalizeExtent(ringExtent), 
+                    tileFactory.getZoomLevel(zoom, this), tileLimit + visibleTiles.size());
+            ring.keySet().removeAll(visibleTiles.keySet());
+            addPrefetchGroup(groups, ring, tileLimit);
+        }
+        
+        // the neighbouring zoom-levels, the most likely one first
+        int parent = zoom - 1;
+        int child = zoom + 1;
+        WMTScaleZoomLevelMatcher zoomLevelMatcher = renderJob.getZoomLevelMatcher();
+        double scale = zoomLevelMatcher.getScale();
+        double parentDistance = parent >= getMinZoomLevel()
+                ? Math.abs(Math.log(scale / zoomLevelMatcher.getOptimumScaleFromZoomLevel(parent, this)))
+                : Double.NaN;
+        double childDistance = child <= getMaxZoomLevel()
+                ? Math.abs(Math.log(scale / zoomLevelMatcher.getOptimumScaleFromZoomLevel(child, this)))
+                : Double.NaN;
+        
+        ReferencedEnvelope extent = normalizeExtent(mapExtent);
+        ReferencedEnvelope center = new ReferencedEnvelope(extent);
+        center.expandBy(-extent.getWidth() / 4, -extent.getHeight() / 4);
+        
+        Map<String, Tile> parentTiles = Double.isNaN(parentDistance) ? null
+                : cutExtentIntoTiles(extent, tileFactory.getZoomLevel(parent, this), tileLimit);
+        Map<String, Tile> childTiles = Double.isNaN(childDistance) ? null
+                : cutExtentIntoTiles(center, tileFactory.getZoomLevel(child, this), tileLimit);
+        
+        if (Double.isNaN(parentDistance) || childDistance < parentDistance) {
+            addPrefetchGroup(groups, childTiles, tileLimit);
+            addPrefetchGroup(groups, parentTiles, tileLimit);
+        } else {
+            addPrefetchGroup(groups, parentTiles, tileLimit);
+            addPrefetchGroup(groups, childTiles, tileLimit);
+        }
+        
+        return groups;
+    }
+    
+    private static void addPrefetchGroup(List<Map<String, Tile>> groups, Map<String, Tile> tiles,
+            int tileLimit) {
+        if (tiles != null && !tiles.isEmpty() && tiles.size() <= tileLimit) {
+            groups.add(tiles);
+        }
+    }
+    
     /**
      * The extent from the viewport may look like this:
      * MaxY: 110° (=-70°)   MinY: -110°
@@ -17,12 +17,13 @@ import static org.locationtech.udig.catalog.worldimage.internal.Messages.InMemor
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.text.MessageFormat;
 import java.util.Hashtable;
+import java.util.concurrent.Callable;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
@@ -40,6 +41,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.locationtech.udig.catalog.rasterings.AbstractRasterGeoResource;
 import org.locationtech.udig.catalog.rasterings.GridCoverageLoader;
+import org.locationtech.udig.catalog.rasterings.RasterMemoryPool;
 import org.locationtech.udig.catalog.rasterings.RasteringsPlugin;
 import org.locationtech.udig.internal.ui.UiPlugin;
 import org.opengis.coverage.grid.GridCoverage;
@@ -47,7 +49,8 @@ import org.opengis.coverage.grid.GridEnvelope;
 import org.opengis.geometry.Envelope;
 
 /**
- * Keeps the full coverage in memory and returns the same instance
+ * Keeps the full coverage in memory, in the {@link RasterMemoryPool}, and returns the same
+ * instance while it stays there
  * 
  * @author jeichar
  * @since 1.1.0
@@ -66,8 +69,10 @@ public class InMemoryCoverageLoader extends GridCoverageLoader {
                 "placeholder", image, envelope); //$NON-NLS-1$
 
     }
-    private volatile SoftReference<GridCoverage> coverage = new SoftReference<GridCoverage>(null);
-    private String fileName;
+    private final String fileName;
+
+    /** set once loading failed, so the image is not loaded again on every render */
+    private volatile boolean failed;
 
     public InMemoryCoverageLoader( AbstractRasterGeoResource resource, String fileName )
             throws IOException {
@@ -75,38 +80,61 @@ public class InMemoryCoverageLoader extends GridCoverageLoader {
         this.fileName = fileName;
     }
 
+    /**
+     * Returns the whole image, decoded into memory.
+     * <p>
+     * The image is kept in the {@link RasterMemoryPool}, so it stays loaded until the pool needs
+     * the room for images used more recently. Different images load at the same time.
+     * </p>
+     */
     @Override
-    public synchronized GridCoverage load( GeneralGridGeometry geom, IProgressMonitor monitor )
+    public GridCoverage load( GeneralGridGeometry geom, final IProgressMonitor monitor )
             throws IOException {
+        if (failed) {
+            return EMPTY_COVERAGE;
+        }
+        try {
+            final AbstractGridCoverage2DReader reader = resource.resolve(
+                    AbstractGridCoverage2DReader.class, monitor);
+            final GridEnvelope range = reader.getOriginalGridRange();
+            // decoded world images are mostly RGB or RGBA
+            long expectedSize = RasterMemoryPool.sizeOf(range.getSpan(0), range.getSpan(1), 4,
+                    DataBuffer.TYPE_BYTE);
+            return RasterMemoryPool.getDefault().get(getPoolKey(), expectedSize,
+                    new Callable<GridCoverage2D>(){
+                        public GridCoverage2D call() throws Exception {
+                            return loadImage(reader, range, monitor);
+                        }
+                    });
+        } catch (OutOfMemoryError e) {
+            updateMemoryLevel();
+        } catch (Exception t) {
+            updateMemoryLevel();
+        }
+        return EMPTY_COVERAGE;
+    }
 
-        if (coverage.get() == null) {
-            try {
-                AbstractGridCoverage2DReader reader = resource.resolve(AbstractGridCoverage2DReader.class, monitor);
-
-                GridEnvelope range = reader.getOriginalGridRange();
-                GeneralEnvelope env = reader.getOriginalEnvelope();
-                GridGeometry2D all = new GridGeometry2D(range, env);
-                GridCoverage2D coverage2d = (GridCoverage2D) super.load(all, monitor);
-                RenderedImage image = coverage2d.getRenderedImage();
+    @Override
+    public Object getPoolKey() {
+        return resource.getIdentifier().toString();
+    }
 
-				RasteringsPlugin
-						.log("WARNING.  Loading image fully into memory.  It is about " + size(image) + " MB in size decompressed", null); //$NON-NLS-1$//$NON-NLS-2$
+    private GridCoverage2D loadImage( AbstractGridCoverage2DReader reader, GridEnvelope range,
+            IProgressMonitor monitor ) throws IOException {
+        GeneralEnvelope env = reader.getOriginalEnvelope();
+        GridGeometry2D all = new GridGeometry2D(range, env);
+        GridCoverage2D coverage2d = (GridCoverage2D) super.load(all, monitor);
+        RenderedImage image = coverage2d.getRenderedImage();
 
-                @SuppressWarnings("rawtypes")
-                BufferedImage bi = new BufferedImage(image.getColorModel(), (WritableRaster) image
-                        .getData(), false, new Hashtable());
-                GridCoverageFactory fac = new GridCoverageFactory();
+        RasteringsPlugin
+                .log("WARNING.  Loading image fully into memory.  It is about " + size(image) + " MB in size decompressed", null); //$NON-NLS-1$//$NON-NLS-2$
 
-                GridCoverage2D c = fac.create(fileName, bi, env);
-                coverage = new SoftReference<GridCoverage>(c);
+        @SuppressWarnings("rawtypes")
+        BufferedImage bi = new BufferedImage(image.getColorModel(), (WritableRaster) image
+                .getData(), false, new Hashtable());
+        GridCoverageFactory fac = new GridCoverageFactory();
 
-            } catch (OutOfMemoryError e) {
-                updateMemoryLevel();
-            } catch (Exception t) {
-                updateMemoryLevel();
-            }
-        }
-        return coverage.get();
+        return fac.create(fileName, bi, env);
     }
 
     private void updateMemoryLevel() throws IOException {
@@ -127,7 +155,7 @@ public class InMemoryCoverageLoader extends GridCoverageLoader {
         }
         
         final int finalHeap = heap;
-        coverage = new SoftReference<GridCoverage>(EMPTY_COVERAGE);
+        failed = true;
 
         Display.getDefault().asyncExec(new Runnable(){
 
@@ -30,6 +30,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.locationtech.udig.catalog.internal.CatalogImpl;
 import org.locationtech.udig.catalog.internal.Messages;
+import org.locationtech.udig.catalog.internal.PreferenceConstants;
 import org.locationtech.udig.catalog.internal.ResolveManager;
 import org.locationtech.udig.catalog.internal.ResolveManager2;
 import org.locationtech.udig.catalog.internal.ServiceFactoryImpl;
@@ -97,6 +98,11 @@ public class CatalogPlugin extends Plugin {
      */
     private volatile IResolveManager resolveManager;
 
+    /**
+     * Snapshots of service and resource info kept between sessions.
+     */
+    private InfoCache infoCache;
+
 
     /** Lock used to protect map of available services; for the last call? */
     private Lock registeredLock = new ReentrantLock();
@@ -127,6 +133,13 @@ public class CatalogPlugin extends Plugin {
         // ensure a preference store is around so we can save to it in the shutdown hook
         preferenceStore = new ScopedPreferenceStore(new InstanceScope(), getBundle().getSymbolicName());
 
+        infoCache = new InfoCache(new File(getStateLocation().toFile(), "info.cache")); //$NON-NLS-1$
+        int timeToLive = preferenceStore.getInt(PreferenceConstants.P_INFO_CACHE_TTL);
+        if (timeToLive > 0) {
+            infoCache.setTimeToLive(timeToLive);
+        }
+        local.addCatalogListener(infoCache);
+
         try {
             if (Display.getCurrent() != null) {
                 CatalogPlugin.trace("Restoring Local Catalog", null);
@@ -214,6 +227,9 @@ public class CatalogPlugin extends Plugin {
      * @throws Exception
      */
     public void stop( BundleContext context ) throws Exception {
+        if (resolveManager instanceof ResolveManager2) {
+            ((ResolveManager2) resolveManager).dispose();
+        }
         super.stop(context);
         plugin = null;
         resourceBundle = null;
@@ -262,6 +278,9 @@ public class CatalogPlugin extends Plugin {
             IOException {
         ((CatalogImpl) getLocalCatalog()).saveToFile(getLocalCatalogFile(), getServiceFactory(),
                 monitor);
+        if (infoCache != null) {
+            infoCache.save();
+        }
     }
     /**
      * File used to load/save the local catalog.
@@ -575,4 +594,13 @@ public class CatalogPlugin extends Plugin {
         return resolveManager;
     }
 
+    /**
+     * Snapshots of the info of services and resources, used to show them without connecting.
+     * 
+     * @return InfoCache
+     */
+    public InfoCache getInfoCache() {
+        return infoCache;
+    }
+
 }
@@ -222,6 +222,11 @@ public abstract class IGeoResource implements IResolve {
                         // could not connect or INFO_UNAVAILABLE
                         info = INFO_UNAVAILABLE;
                     } else {
+                        // keep a snapshot for when we are next offline
+                        CatalogPlugin plugin = CatalogPlugin.getDefault();
+                        if (plugin != null && plugin.getInfoCache() != null) {
+                            plugin.getInfoCache().put(this, info);
+                        }
                         // could issue a catalog event indicating new information is available
                         // this delta describes what has changed
                         /*
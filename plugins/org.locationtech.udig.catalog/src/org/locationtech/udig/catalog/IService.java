@@ -344,6 +344,11 @@ public abstract class IService implements IResolve {
                         info = INFO_UNAVAILABLE;
                     }
                     else {
+                        // keep a snapshot for when we are next offline
+                        CatalogPlugin plugin = CatalogPlugin.getDefault();
+                        if (plugin != null && plugin.getInfoCache() != null) {
+                            plugin.getInfoCache().put(this, info);
+                        }
                         // broadcast the change - code taken from ArcServiceImpl
 
                         // this delta describes what has changed
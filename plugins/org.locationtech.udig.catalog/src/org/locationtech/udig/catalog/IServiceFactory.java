@@ -94,6 +94,23 @@ public abstract class IServiceFactory {
      */
     public abstract List<IService> createService( URL dragNdrop );
 
+    /**
+     * Generate a list of candidate services using the ServiceExtension that created the service
+     * before; used when restoring the catalog so that every ServiceExtension is not asked in turn.
+     * <p>
+     * The default implementation ignores the extension and calls
+     * {@link #createService(Map)}.
+     * 
+     * @param extension class name of the ServiceExtension, may be null if unknown
+     * @param connectionParameters
+     * @return List of candidate IService handles, list may be empty but is never null
+     * @see ServiceParameterPersister#EXTENSION_KEY
+     */
+    public List<IService> createService( String extension,
+            Map<String, Serializable> connectionParameters ) {
+        return createService(connectionParameters);
+    }
+
     /**
      * Helper method used to clean up "unused" services in a list returned by createService.
      * <p>
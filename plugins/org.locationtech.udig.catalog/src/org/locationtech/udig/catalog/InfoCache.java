@@ -0,0 +1,531 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Snapshots of the {@link IServiceInfo} and {@link IGeoResourceInfo} of services and resources,
+ * kept between sessions so that titles, keywords, bounds and icons can be shown without
+ * connecting.
+ * <p>
+ * A snapshot is taken whenever a handle creates its info. {@link #getInfo(IService)} and
+ * {@link #getInfo(IGeoResource)} return the info of a connected handle, or else the snapshot:
+ * <ul>
+ * <li>a snapshot older than the time to live is still returned, and the handle is asked for its
+ * info in the background so the snapshot is refreshed (stale while revalidate)</li>
+ * <li>a snapshot of a file whose modification time changed is not returned</li>
+ * </ul>
+ * The snapshots are objects of the base info classes; code that needs the info subclass of a
+ * service should call getInfo on the handle as before.
+ * </p>
+ * <p>
+ * Registered as a listener of the local catalog, the cache drops the snapshots of services that
+ * are removed or replaced, along with those of their resources.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class InfoCache implements IResolveChangeListener {
+
+    private static final int VERSION = 1;
+
+    /**
+     * Default time to live of a snapshot in hours.
+     */
+    public static final int DEFAULT_TTL = 24;
+
+    private static final byte SERVICE = 0;
+
+    private static final byte RESOURCE = 1;
+
+    /**
+     * The stored fields of an info.
+     */
+    static final class Snapshot {
+        byte kind;
+
+        long time;
+
+        /** modification time of the file of the handle, 0 if it is not a file */
+        long validator;
+
+        String title, name, description, _abstract;
+
+        String schema, source, publisher;
+
+        String[] keywords;
+
+        /** bounds and WKT of their CRS, for resources */
+        Envelope bounds;
+
+        String crs;
+
+        /** PNG of the icon */
+        byte[] icon;
+
+        /** info created from the fields, shared by the callers */
+        volatile Object info;
+    }
+
+    private final File file;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+
+    /** handles waiting to be refreshed */
+    private final Set<IResolve> refreshing = Collections
+            .newSetFromMap(new ConcurrentHashMap<IResolve, Boolean>());
+
+    private volatile long timeToLive = DEFAULT_TTL * 3600000L;
+
+    private volatile boolean loaded;
+
+    private volatile boolean dirty;
+
+    /**
+     * @param file file the snapshots are saved to
+     */
+    public InfoCache( File file ) {
+        this.file = file;
+    }
+
+    /**
+     * @param hours time after which a snapshot is refreshed when it is used
+     */
+    public void setTimeToLive( int hours ) {
+        timeToLive = hours * 3600000L;
+    }
+
+    private static String key( IResolve handle ) {
+        ID id = handle.getID();
+        if (id == null)
+            return null;
+        return id.getTypeQualifier() == null ? id.toString() : id.toString() + '|'
+                + id.getTypeQualifier();
+    }
+
+    /**
+     * Returns the info of the service without connecting to it.
+     *
+     * @param service
+     * @return the info if the service is connected, a snapshot, or null if neither is available
+     */
+    public IServiceInfo getInfo( IService service ) {
+        if (service.info != null && service.info != IService.INFO_UNAVAILABLE)
+            return service.info;
+        Snapshot snapshot = get(service);
+        if (snapshot == null || snapshot.kind != SERVICE)
+            return null;
+        if (snapshot.info == null) {
+            snapshot.info = new IServiceInfo(snapshot.title, snapshot.description,
+                    snapshot._abstract, toURI(snapshot.source), toURI(snapshot.publisher),
+                    toURI(snapshot.schema), snapshot.keywords, toImage(snapshot.icon));
+        }
+        return (IServiceInfo) snapshot.info;
+    }
+
+    /**
+     * Returns the info of the resource without connecting to it.
+     *
+     * @param resource
+     * @return the info if the resource is connected, a snapshot, or null if neither is
+     *         available
+     */
+    public IGeoResourceInfo getInfo( IGeoResource resource ) {
+        if (resource.info != null && resource.info != IGeoResource.INFO_UNAVAILABLE)
+            return resource.info;
+        Snapshot snapshot = get(resource);
+        if (snapshot == null || snapshot.kind != RESOURCE)
+            return null;
+        if (snapshot.info == null) {
+            CoordinateReferenceSystem crs = null;
+            if (snapshot.crs != null) {
+                try {
+                    crs = CRS.parseWKT(snapshot.crs);
+                } catch (Exception e) {
+                    CatalogPlugin.trace("Unable to read cached CRS", e); //$NON-NLS-1$
+                }
+            }
+            snapshot.info = new IGeoResourceInfo(snapshot.title, snapshot.name,
+                    snapshot.description, toURI(snapshot.schema), snapshot.bounds == null
+                            ? new Envelope() : snapshot.bounds, crs, snapshot.keywords,
+                    toImage(snapshot.icon));
+        }
+        return (IGeoResourceInfo) snapshot.info;
+    }
+
+    private Snapshot get( IResolve handle ) {
+        load();
+        String key = key(handle);
+        Snapshot snapshot = key == null ? null : snapshots.get(key);
+        if (snapshot == null)
+            return null;
+        if (snapshot.validator != validator(handle)) {
+            // the file changed; the snapshot is out of date
+            snapshots.remove(key);
+            dirty = true;
+            return null;
+        }
+        if (System.currentTimeMillis() - snapshot.time > timeToLive)
+            refresh(handle);
+        return snapshot;
+    }
+
+    /**
+     * Asks the handle for its info in the background; the handle takes a new snapshot.
+     */
+    private void refresh( final IResolve handle ) {
+        if (!refreshing.add(handle))
+            return;
+        Job job = new Job("Refresh " + handle.getIdentifier()){ //$NON-NLS-1$
+            @Override
+            protected IStatus run( IProgressMonitor monitor ) {
+                try {
+                    if (handle instanceof IService) {
+                        IService service = (IService) handle;
+                        if (service.info != null)
+                            put(service, service.info);
+                        else
+                            service.getInfo(monitor);
+                    } else if (handle instanceof IGeoResource) {
+                        IGeoResource resource = (IGeoResource) handle;
+                        if (resource.info != null)
+                            put(resource, resource.info);
+                        else
+                            resource.getInfo(monitor);
+                    }
+                } catch (Throwable e) {
+                    CatalogPlugin.trace("Unable to refresh info of " + handle.getIdentifier(), e); //$NON-NLS-1$
+                } finally {
+                    refreshing.remove(handle);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+
+    /**
+     * Takes a snapshot of the info of the service.
+     */
+    public void put( IService service, IServiceInfo info ) {
+        String key = key(service);
+        if (key == null || info == null || info == IService.INFO_UNAVAILABLE)
+            return;
+        Snapshot snapshot = new Snapshot();
+        snapshot.kind = SERVICE;
+        snapshot.title = info.getTitle();
+        snapshot.description = info.getDescription();
+        snapshot._abstract = info.getAbstract();
+        snapshot.schema = toString(info.getSchema());
+        snapshot.source = toString(info.getSource());
+        snapshot.publisher = toString(info.getPublisher());
+        snapshot.keywords = info.getKeywords() == null ? null : info.getKeywords().toArray(
+                new String[0]);
+        snapshot.icon = toPNG(info.getImageDescriptor());
+        put(service, key, snapshot);
+    }
+
+    /**
+     * Takes a snapshot of the info of the resource.
+     */
+    public void put( IGeoResource resource, IGeoResourceInfo info ) {
+        String key = key(resource);
+        if (key == null || info == null || info == IGeoResource.INFO_UNAVAILABLE)
+            return;
+        Snapshot snapshot = new Snapshot();
+        snapshot.kind = RESOURCE;
+        snapshot.title = info.getTitle();
+        snapshot.name = info.getName();
+        snapshot.description = info.getDescription();
+        snapshot.schema = toString(info.getSchema());
+        snapshot.keywords = info.getKeywords() == null ? null : info.getKeywords().toArray(
+                new String[0]);
+        ReferencedEnvelope bounds = info.getBounds();
+        if (bounds != null) {
+            snapshot.bounds = new Envelope(bounds);
+            if (bounds.getCoordinateReferenceSystem() != null) {
+                try {
+                    snapshot.crs = bounds.getCoordinateReferenceSystem().toWKT();
+                } catch (UnsupportedOperationException e) {
+                    // the CRS can not be written; the bounds are kept without it
+                }
+            }
+        }
+        snapshot.icon = toPNG(info.getImageDescriptor());
+        put(resource, key, snapshot);
+    }
+
+    private void put( IResolve handle, String key, Snapshot snapshot ) {
+        load();
+        snapshot.time = System.currentTimeMillis();
+        snapshot.validator = validator(handle);
+        snapshots.put(key, snapshot);
+        dirty = true;
+    }
+
+    /**
+     * Drops the snapshot of the handle; for a service the snapshots of its resources are dropped
+     * as well.
+     */
+    public void remove( IResolve handle ) {
+        load();
+        String key = key(handle);
+        if (key == null)
+            return;
+        if (snapshots.remove(key) != null)
+            dirty = true;
+        if (handle instanceof IService) {
+            // the ids of the resources are the id of the service with a reference
+            String prefix = handle.getID().toString() + '#';
+            for( Iterator<String> iter = snapshots.keySet().iterator(); iter.hasNext(); ) {
+                if (iter.next().startsWith(prefix)) {
+                    iter.remove();
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the snapshots of services removed from or replaced in the catalog.
+     */
+    public void changed( IResolveChangeEvent event ) {
+        IResolveDelta delta = event.getDelta();
+        if (delta == null)
+            return;
+        try {
+            delta.accept(new IResolveDeltaVisitor(){
+                public boolean visit( IResolveDelta child ) throws IOException {
+                    switch( child.getKind() ) {
+                    case REMOVED:
+                    case REPLACED:
+                        if (child.getResolve() != null)
+                            remove(child.getResolve());
+                        return false;
+                    default:
+                        return true;
+                    }
+                }
+            });
+        } catch (IOException e) {
+            CatalogPlugin.trace("Unable to drop cached info", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * For files the modification time tells if a snapshot is still valid.
+     */
+    private static long validator( IResolve handle ) {
+        ID id = handle.getID();
+        if (id == null || !id.isFile())
+            return 0;
+        File handleFile = id.toFile();
+        return handleFile == null ? 0 : handleFile.lastModified();
+    }
+
+    /**
+     * Writes the snapshots to the file if any changed.
+     */
+    public void save() throws IOException {
+        if (!dirty)
+            return;
+        dirty = false;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists())
+            parent.mkdirs();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(snapshots.size());
+            for( Map.Entry<String, Snapshot> entry : snapshots.entrySet() ) {
+                writeString(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (file == null || !file.exists())
+            return;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    file)));
+            try {
+                if (in.readInt() != VERSION)
+                    return;
+                int count = in.readInt();
+                for( int i = 0; i < count; i++ ) {
+                    String key = readString(in);
+                    Snapshot snapshot = read(in);
+                    if (!snapshots.containsKey(key))
+                        snapshots.put(key, snapshot);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            CatalogPlugin.log("Unable to read the info cache " + file, e); //$NON-NLS-1$
+        }
+    }
+
+    private static void write( DataOutputStream out, Snapshot snapshot ) throws IOException {
+        out.writeByte(snapshot.kind);
+        out.writeLong(snapshot.time);
+        out.writeLong(snapshot.validator);
+        writeString(out, snapshot.title);
+        writeString(out, snapshot.name);
+        writeString(out, snapshot.description);
+        writeString(out, snapshot._abstract);
+        writeString(out, snapshot.schema);
+        writeString(out, snapshot.source);
+        writeString(out, snapshot.publisher);
+        out.writeInt(snapshot.keywords == null ? -1 : snapshot.keywords.length);
+        if (snapshot.keywords != null) {
+            for( String keyword : snapshot.keywords ) {
+                writeString(out, keyword);
+            }
+        }
+        out.writeBoolean(snapshot.bounds != null);
+        if (snapshot.bounds != null) {
+            out.writeDouble(snapshot.bounds.getMinX());
+            out.writeDouble(snapshot.bounds.getMaxX());
+            out.writeDouble(snapshot.bounds.getMinY());
+            out.writeDouble(snapshot.bounds.getMaxY());
+        }
+        writeString(out, snapshot.crs);
+        out.writeInt(snapshot.icon == null ? -1 : snapshot.icon.length);
+        if (snapshot.icon != null)
+            out.write(snapshot.icon);
+    }
+
+    private static Snapshot read( DataInputStream in ) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.kind = in.readByte();
+        snapshot.time = in.readLong();
+        snapshot.validator = in.readLong();
+        snapshot.title = readString(in);
+        snapshot.name = readString(in);
+        snapshot.description = readString(in);
+        snapshot._abstract = readString(in);
+        snapshot.schema = readString(in);
+        snapshot.source = readString(in);
+        snapshot.publisher = readString(in);
+        int keywords = in.readInt();
+        if (keywords != -1) {
+            snapshot.keywords = new String[keywords];
+            for( int i = 0; i < keywords; i++ ) {
+                snapshot.keywords[i] = readString(in);
+            }
+        }
+        if (in.readBoolean()) {
+            snapshot.bounds = new Envelope(in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble());
+        }
+        snapshot.crs = readString(in);
+        int icon = in.readInt();
+        if (icon != -1) {
+            snapshot.icon = new byte[icon];
+            in.readFully(snapshot.icon);
+        }
+        return snapshot;
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value.length() > 16000 ? value.substring(0, 16000) : value);
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static String toString( URI uri ) {
+        return uri == null ? null : uri.toString();
+    }
+
+    private static URI toURI( String text ) {
+        if (text == null)
+            return null;
+        try {
+            return new URI(text);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static byte[] toPNG( ImageDescriptor icon ) {
+        if (icon == null)
+            return null;
+        try {
+            ImageData data = icon.getImageData();
+            if (data == null)
+                return null;
+            ImageLoader loader = new ImageLoader();
+            loader.data = new ImageData[]{data};
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            loader.save(bytes, SWT.IMAGE_PNG);
+            return bytes.toByteArray();
+        } catch (Throwable e) {
+            CatalogPlugin.trace("Unable to cache icon", e); //$NON-NLS-1$
+            return null;
+        }
+    }
+
+    private static ImageDescriptor toImage( byte[] png ) {
+        if (png == null)
+            return null;
+        try {
+            ImageData data = new ImageData(new ByteArrayInputStream(png));
+            return ImageDescriptor.createFromImageData(data);
+        } catch (Throwable e) {
+            CatalogPlugin.trace("Unable to read cached icon", e); //$NON-NLS-1$
+            return null;
+        }
+    }
+}
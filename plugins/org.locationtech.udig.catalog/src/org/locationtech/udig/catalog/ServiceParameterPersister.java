@@ -13,12 +13,18 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.locationtech.udig.catalog.IResolve.Status;
 import org.locationtech.udig.core.internal.CorePlugin;
@@ -54,11 +60,33 @@ public class ServiceParameterPersister {
     private static final String TYPE_ID = "type"; //$NON-NLS-1$
     private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
 
+    /**
+     * Persistent property holding the class name of the ServiceExtension that created the
+     * service; the service is restored with that extension only.
+     */
+    public static final String EXTENSION_KEY = "_extension"; //$NON-NLS-1$
+
+    /**
+     * Most services created at once while restoring.
+     */
+    private static final int MAX_THREADS = 4;
+
     protected final ICatalog localCatalog;
     protected final IServiceFactory serviceFactory;
     /** reference directory to consider when making relative files? */
     private File reference;
 
+    /** services created in parallel by restore, waiting for locateService */
+    private final Map<ID, List<IService>> prepared = new ConcurrentHashMap<ID, List<IService>>();
+
+    /** A service read from the preferences */
+    private static class Persisted {
+        ID id;
+        Map<String, Serializable> connectionParams;
+        Map<String, Serializable> properties;
+        Map<ID, Map<String, Serializable>> resourcePropertyMap;
+    }
+
     public ServiceParameterPersister(final ICatalog localCatalog, final IServiceFactory serviceFactory) {
         this(localCatalog, serviceFactory, null);
     }
@@ -108,6 +136,7 @@ public class ServiceParameterPersister {
      * @param node
      */
     public void restore(Preferences node) {
+        List<Persisted> persisted = new ArrayList<Persisted>();
         try {
             SERVICE: for (String id : node.childrenNames()) {
                 if( id == null ){
@@ -152,7 +181,12 @@ public class ServiceParameterPersister {
                             mapAsObject(servicePref, connectionParams, childName);
                         }
                     }
-                    locateService(url, connectionParams, properties, resourcePropertyMap);
+                    Persisted entry = new Persisted();
+                    entry.id = url;
+                    entry.connectionParams = connectionParams;
+                    entry.properties = properties;
+                    entry.resourcePropertyMap = resourcePropertyMap;
+                    persisted.add(entry);
                 } catch (Throwable t) {
                     CatalogPlugin.log(null, new Exception(t));
                 }
@@ -161,6 +195,74 @@ public class ServiceParameterPersister {
         } catch (Throwable t) {
             CatalogPlugin.log(null, new Exception(t));
         }
+        prepare(persisted);
+        try {
+            // services are added one at a time so the catalog keeps the saved order
+            for( Persisted entry : persisted ) {
+                try {
+                    locateService(entry.id, entry.connectionParams, entry.properties,
+                            entry.resourcePropertyMap);
+                } catch (Throwable t) {
+                    CatalogPlugin.log(null, new Exception(t));
+                }
+            }
+        } finally {
+            // clean up after a locateService that did not use the prepared services
+            for( List<IService> unused : prepared.values() ) {
+                serviceFactory.dispose(unused, null);
+            }
+            prepared.clear();
+        }
+    }
+
+    /**
+     * Creates the services in parallel; creating a service may involve reading files or
+     * connecting to a server to check the connection parameters.
+     */
+    private void prepare( List<Persisted> persisted ) {
+        if (persisted.size() < 2) {
+            return;
+        }
+        int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+            public Thread newThread( Runnable runnable ) {
+                Thread thread = new Thread(runnable, "Restore catalog"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+            for( final Persisted entry : persisted ) {
+                tasks.add(new Callable<Object>(){
+                    public Object call() throws Exception {
+                        try {
+                            prepared.put(entry.id, createServices(entry.connectionParams,
+                                    entry.properties));
+                        } catch (Throwable t) {
+                            CatalogPlugin.log(null, new Exception(t));
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Asks the service factory for the services; if the properties name the ServiceExtension
+     * that created the service only that extension is asked.
+     */
+    private List<IService> createServices( Map<String, Serializable> connectionParameters,
+            Map<String, Serializable> properties ) {
+        Serializable extension = properties == null ? null : properties.get(EXTENSION_KEY);
+        return serviceFactory.createService(extension == null ? null : extension.toString(),
+                connectionParameters);
     }
     
     private String encodeID( ID id ){
@@ -234,7 +336,10 @@ public class ServiceParameterPersister {
     protected void locateService(ID targetID, Map<String, Serializable> connectionParameters,  Map<String,Serializable> properties, Map<ID, Map<String, Serializable>> resourcePropertyMap) {
         IService found = localCatalog.getById( IService.class,targetID, null );
         
-        List<IService> newServices = serviceFactory.createService(connectionParameters);
+        List<IService> newServices = prepared.remove(targetID);
+        if (newServices == null) {
+            newServices = createServices(connectionParameters, properties);
+        }
         try {
             if( !newServices.isEmpty() ){
                 for( Iterator<IService> iter = newServices.iterator(); iter.hasNext(); ){
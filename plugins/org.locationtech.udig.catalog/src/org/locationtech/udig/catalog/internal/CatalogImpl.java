@@ -102,6 +102,12 @@ public class CatalogImpl extends ICatalog {
     /** @see getTemporaryDescriptorClasses */
     private String[] descriptors;
 
+    /** Text and bounds of the services used by search */
+    private final CatalogIndex index = new CatalogIndex(this);
+
+    /** Services and resources by id used by find and getById */
+    private final CatalogLookup lookup = new CatalogLookup();
+
     public CatalogImpl() {
         CatalogInfoImpl metadata = new CatalogInfoImpl();
         metadata.setTitle(Messages.CatalogImpl_localCatalog_title);
@@ -113,6 +119,8 @@ public class CatalogImpl extends ICatalog {
 
         this.metadata = metadata;
         catalogListeners = Collections.synchronizedSet(new WeakHashSet<IResolveChangeListener>());
+        catalogListeners.add(index);
+        catalogListeners.add(lookup);
     }
 
     public CatalogImpl( ICatalogInfo metadata ) {
@@ -160,6 +168,7 @@ public class CatalogImpl extends ICatalog {
         }
 
         services.add(service);
+        lookup.add(service);
         runInterceptor(service, ServiceInterceptor.ADDED_ID);
         
         IResolveDelta deltaAdded = new ResolveDelta(service, IResolveDelta.Kind.ADDED);
@@ -184,6 +193,7 @@ public class CatalogImpl extends ICatalog {
                 deltaChanged));
         
         services.remove(entry);
+        lookup.remove(entry, services);
         runInterceptor(entry, ServiceInterceptor.REMOVED_ID);
         
         fire(new ResolveChangeEvent(CatalogImpl.this, IResolveChangeEvent.Type.POST_CHANGE,
@@ -222,6 +232,7 @@ public class CatalogImpl extends ICatalog {
                 IResolveChangeEvent.Type.PRE_DELETE, deltas);
         fire(event);
         services.remove(service);
+        lookup.remove(service, services);
         runInterceptor(service, ServiceInterceptor.REMOVED_ID);
 
         PlatformGIS.run(new IRunnableWithProgress(){
@@ -238,6 +249,7 @@ public class CatalogImpl extends ICatalog {
         });
 
         services.add(replacement);
+        lookup.add(replacement);
         runInterceptor(replacement, ServiceInterceptor.ADDED_ID);
         event = new ResolveChangeEvent(this, IResolveChangeEvent.Type.POST_CHANGE, deltas);
 
@@ -245,6 +257,7 @@ public class CatalogImpl extends ICatalog {
             // the service has actually moved
             IService moved = new MovedService(id, replacement.getID());
             services.add(moved);
+            lookup.add(moved);
             runInterceptor(moved, ServiceInterceptor.ADDED_ID);
         }
         fire(event);
@@ -377,11 +390,12 @@ public class CatalogImpl extends ICatalog {
     public List<IResolve> find( ID id, IProgressMonitor monitor ) {
         URL query = id.toURL();
         Set<IResolve> found = new LinkedHashSet<IResolve>();
+        List<IService> candidates = candidates(id);
         
         //ID id1 = new ID(query);
 
         // first pass 1.1- use urlEquals on CONNECTED service for subset check
-        for( IService service : services ) {
+        for( IService service : candidates ) {
             if (service.getStatus() != CONNECTED)
                 continue; // skip non connected service
             
@@ -394,7 +408,7 @@ public class CatalogImpl extends ICatalog {
                     found.add(service);
                     found.addAll(friends(service));
                 } else {
-                    IResolve res = getChildById(service, id, true, monitor);
+                    IResolve res = findChildById(service, id, true, monitor);
                     if (res != null) {
                         found.add(res);
                         found.addAll(friends(res));
@@ -403,7 +417,7 @@ public class CatalogImpl extends ICatalog {
             }
         }
         // first pass 1.2 - use urlEquals on unCONNECTED service for subset check
-        for( IService service : services ) {
+        for( IService service : candidates ) {
             if (service.getStatus() == CONNECTED)
                 continue; // already checked in pass 1.1
             URL identifier = service.getIdentifier();
@@ -414,7 +428,7 @@ public class CatalogImpl extends ICatalog {
                     found.add(service);
                     found.addAll(friends(service));
                 } else {
-                    IResolve res = getChildById(service, id, true, monitor);
+                    IResolve res = findChildById(service, id, true, monitor);
                     if (res != null) {
                         found.add(res);
                         found.addAll(friends(res));
@@ -425,7 +439,7 @@ public class CatalogImpl extends ICatalog {
         // first pass 1.3 - use urlEquals on BROKEN or RESTRICTED_ACCESS service for subset check
         // the hope here is that a "friend" will still have data! May be tough for friends
         // to negotiate a match w/ a broken services - but there is still hope...
-        for( IService service : services ) {
+        for( IService service : candidates ) {
             if (service.getStatus() == CONNECTED || service.getStatus() == NOTCONNECTED) {
                 continue; // already checked in pass 1.1-1.2
             }
@@ -435,7 +449,7 @@ public class CatalogImpl extends ICatalog {
                     found.add(service);
                     found.addAll(friends(service));
                 } else {
-                    IResolve res = getChildById(service, id, true, monitor);
+                    IResolve res = findChildById(service, id, true, monitor);
                     if (res != null) {
                         found.add(res);
                         found.addAll(friends(res));
@@ -469,6 +483,55 @@ public class CatalogImpl extends ICatalog {
         return new ArrayList<IResolve>(found);
     }
 
+    /**
+     * The services whose identifier or id may match the id, in catalog order; the services are
+     * only all visited the first time an id is looked up after the catalog changed.
+     */
+    private List<IService> candidates( ID id ) {
+        List<IService> candidates = lookup.getServices(id);
+        if (candidates != null) {
+            return candidates;
+        }
+        long generation = lookup.getGeneration();
+        URL query = id.toURL();
+        candidates = new ArrayList<IService>();
+        for( IService service : services ) {
+            if (URLUtils.urlEquals(query, service.getIdentifier(), true)
+                    || (service.getID() != null && service.getID().equals(id, true))) {
+                candidates.add(service);
+            }
+        }
+        lookup.putServices(id, candidates, generation);
+        return candidates;
+    }
+
+    /**
+     * Same as {@link #getChildById(IResolve, ID, boolean, IProgressMonitor)} on a service of the
+     * catalog; the child found is remembered so that the members of the service are not visited
+     * again for the same id.
+     */
+    private IResolve findChildById( IService service, ID id, boolean roughMatch,
+            IProgressMonitor monitor ) {
+        IResolve child = lookup.getResource(service, id, roughMatch);
+        if (child != null) {
+            return child;
+        }
+        child = getChildById(service, id, roughMatch, monitor);
+        if (child != null && child != service) {
+            lookup.putResource(service, id, roughMatch, child);
+        }
+        return child;
+    }
+
+    /**
+     * Counters and tables used to look up services and resources by id.
+     * 
+     * @return lookup tables of the catalog
+     */
+    public CatalogLookup getLookup() {
+        return lookup;
+    }
+
     /**
      * Quick search by url match.
      * 
@@ -557,12 +620,7 @@ public class CatalogImpl extends ICatalog {
     private IService getServiceById( final ID id ) {
         if (id == null)
             return null;
-        for( IService service : services ) {
-            if (id.equals(service.getID())) {
-                return service;
-            }
-        }
-        return null;
+        return lookup.getService(id);
     }
 
     public <T extends IResolve> T getById( Class<T> type, final ID id, IProgressMonitor monitor ) {
@@ -582,9 +640,9 @@ public class CatalogImpl extends ICatalog {
 
         URL url = id.toURL();
         if (IResolve.class.isAssignableFrom(type)) {
-            for( IService service : services ) {
+            for( IService service : candidates(id) ) {
                 if (URLUtils.urlEquals(url, service.getIdentifier(), true)) {
-                    IResolve child = getChildById(service, id, false, monitor2);
+                    IResolve child = findChildById(service, id, false, monitor2);
                     if (child != null)
                         return type.cast(child);
                 }
@@ -671,7 +729,7 @@ public class CatalogImpl extends ICatalog {
      * @param bbox used for an intersection test
      * @return
      */
-    public synchronized List<IResolve> search( String pattern, Envelope bbox,
+    public List<IResolve> search( String pattern, Envelope bbox,
             IProgressMonitor monitor2 ) {
         
         if( CatalogPlugin.getDefault().isDebugging() ){
@@ -687,45 +745,31 @@ public class CatalogImpl extends ICatalog {
                 && (bbox == null || bbox.isNull())) {
             return new LinkedList<IResolve>();
         }
-        List<IResolve> result = new LinkedList<IResolve>();
         AST ast = ASTFactory.parse(pattern);
         if (ast == null) {
-            return result;
+            return new LinkedList<IResolve>();
         }
-        HashSet<IService> searchScope = new HashSet<IService>();
-        searchScope.addAll(this.services);
+        List<IService> searchScope = new ArrayList<IService>(this.services);
         try {
-            monitor.beginTask(Messages.CatalogImpl_finding, searchScope.size() * 10);
-            SERVICE: for( IService service : searchScope ) {
-                ID serviceID = service.getID();
-                if (check(service, ast)) {
-                    result.add(service);
+            monitor.beginTask(Messages.CatalogImpl_finding, searchScope.size() * 10 + 10);
+            // services are indexed in the background when added; index any that are not ready
+            for( IService service : searchScope ) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+                if (index.contains(service)) {
+                    monitor.worked(10);
+                    continue;
                 }
-                //Iterator< ? extends IGeoResource> resources;
                 SubProgressMonitor submonitor = new SubProgressMonitor(monitor, 10);
                 try {
-                    List< ? extends IGeoResource> members = service.resources(submonitor);
-                    if (members == null) {
-                        continue SERVICE;
-                    }
-                    for( IGeoResource resource : members ) {
-                        ID resoruceID = resource.getID();
-                        try {
-                            if (check(resource, ast, bbox)) {
-                                result.add(resource);
-                            }
-                        } catch (Throwable t) {
-                            CatalogPlugin.log("Could not search in resource:" + resoruceID, t);
-                        }
-                    }
-                } catch (IOException e) {
-                    CatalogPlugin.log("Could not search in service:" + serviceID, e);
+                    index.index(service, submonitor);
                 } finally {
                     submonitor.done();
                 }
-                Thread.yield(); // allow other threads to have a go... makes search view more responsive
             }
-            return result;
+            return new LinkedList<IResolve>(index.search(searchScope, ast, bbox,
+                    new SubProgressMonitor(monitor, 10)));
         } finally {
             monitor.done();
         }
@@ -1005,6 +1049,8 @@ public class CatalogImpl extends ICatalog {
             ServiceParameterPersister persister = new ServiceParameterPersister(this, factory, catalogLocation);
             Preferences parameterNode = findParameterNode(paramsNode);
             
+            // read before the services are added so they are not connected to again
+            loadIndex(catalogLocation);
             persister.restore(parameterNode);
         } catch (Throwable e) {
             CatalogPlugin.trace("Unable to restore catalog:"+e, e); //$NON-NLS-1$
@@ -1067,6 +1113,33 @@ public class CatalogImpl extends ICatalog {
         } catch (Throwable t) {
             CatalogPlugin.log("Error saving services for the local catalog", t); //$NON-NLS-1$ 
         }
+        try {
+            index.save(getIndexFile(catalogLocation));
+        } catch (IOException e) {
+            CatalogPlugin.log("Error saving the search index of the local catalog", e); //$NON-NLS-1$
+        }
+    }
+
+    private void loadIndex( File catalogLocation ) {
+        try {
+            index.load(getIndexFile(catalogLocation));
+        } catch (IOException e) {
+            CatalogPlugin.log("Unable to read the search index of the local catalog", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * @return the file the search index is saved to, next to the catalog file
+     */
+    static File getIndexFile( File catalogLocation ) {
+        return new File(catalogLocation.getParentFile(), catalogLocation.getName() + ".index"); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the search index of the catalog
+     */
+    CatalogIndex getIndex() {
+        return index;
     }
     //
     // Interceptors
@@ -0,0 +1,823 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.locationtech.udig.catalog.CatalogPlugin;
+import org.locationtech.udig.catalog.ID;
+import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.catalog.IGeoResourceInfo;
+import org.locationtech.udig.catalog.IResolve;
+import org.locationtech.udig.catalog.IResolveChangeEvent;
+import org.locationtech.udig.catalog.IResolveChangeListener;
+import org.locationtech.udig.catalog.IResolveDelta;
+import org.locationtech.udig.catalog.IResolveDeltaVisitor;
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.IServiceInfo;
+import org.locationtech.udig.catalog.util.AST;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * The text and bounds of the services and resources of a {@link CatalogImpl}, so that a search
+ * does not connect to every service.
+ * <p>
+ * For each service the index keeps the fields {@link CatalogImpl#check(IService, AST)} and
+ * {@link CatalogImpl#check(IGeoResource, AST)} look at, an inverted index from the words of
+ * those fields to the entries that contain them, and an STRtree over the WGS84 bounds of the
+ * resources. A search narrows the entries down with the words and the tree and then runs the
+ * pattern against the fields of the remaining entries, so it matches the same handles as
+ * checking the services one by one.
+ * </p>
+ * <p>
+ * Services are indexed in the background when they are added to the catalog and indexed again
+ * when the catalog reports that they (or their resources) changed. The index is saved next to
+ * the catalog file so that services do not have to be connected to again on the next start.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class CatalogIndex implements IResolveChangeListener {
+
+    private static final int VERSION = 1;
+
+    private static final byte BOUNDS_UNKNOWN = 0;
+
+    private static final byte BOUNDS_KNOWN = 1;
+
+    private static final byte BOUNDS_INVALID = 2;
+
+    /**
+     * Time in milliseconds before a service whose resources could not be listed is indexed
+     * again by a search.
+     */
+    static final long RETRY_DELAY = 5 * 60 * 1000;
+
+    /**
+     * A service or a resource.
+     */
+    static final class Entry {
+        final String id;
+
+        final String qualifier;
+
+        /**
+         * The values the pattern is run against, in the order the catalog checks them; may
+         * contain nulls.
+         */
+        final String[] texts;
+
+        final byte boundsState;
+
+        /**
+         * WGS84 bounds of a resource if the bounds are known.
+         */
+        final Envelope bounds;
+
+        /**
+         * The handle; null when the entry was read from disk and has not been found yet.
+         */
+        volatile IResolve handle;
+
+        Entry( String id, String qualifier, String[] texts, byte boundsState, Envelope bounds ) {
+            this.id = id;
+            this.qualifier = qualifier;
+            this.texts = texts;
+            this.boundsState = boundsState;
+            this.bounds = bounds;
+        }
+
+        boolean accept( AST pattern ) {
+            for( String text : texts ) {
+                if (pattern.accept(text))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A service and its resources.
+     */
+    static final class ServiceEntry {
+        final Entry service;
+
+        final List<Entry> resources;
+
+        /**
+         * False if the resources could not be listed; the service is indexed again once
+         * {@link CatalogIndex#RETRY_DELAY} has passed.
+         */
+        final boolean complete;
+
+        /**
+         * When the service was indexed.
+         */
+        final long time;
+
+        ServiceEntry( Entry service, List<Entry> resources, boolean complete ) {
+            this.service = service;
+            this.resources = resources;
+            this.complete = complete;
+            this.time = System.currentTimeMillis();
+        }
+
+        /**
+         * @return true if the entry is up to date or failed recently enough that indexing the
+         *         service again would fail the same way
+         */
+        boolean isIndexed() {
+            return complete || System.currentTimeMillis() - time < RETRY_DELAY;
+        }
+    }
+
+    private final CatalogImpl catalog;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** service id to its entries */
+    private final Map<String, ServiceEntry> services = new HashMap<String, ServiceEntry>();
+
+    /** word to the entries that contain it */
+    private final Map<String, Set<Entry>> words = new HashMap<String, Set<Entry>>();
+
+    /** resource id to the service that holds it */
+    private final Map<String, String> resourceServices = new HashMap<String, String>();
+
+    /** built when needed; null after a change */
+    private volatile STRtree tree;
+
+    /** resources with unknown bounds; they match any box */
+    private final Set<Entry> unbounded = new HashSet<Entry>();
+
+    private final Set<IService> queue = new LinkedHashSet<IService>();
+
+    private final Job job = new Job(Messages.CatalogIndex_jobName){
+        @Override
+        protected IStatus run( IProgressMonitor monitor ) {
+            indexQueued(monitor);
+            return Status.OK_STATUS;
+        }
+    };
+
+    public CatalogIndex( CatalogImpl catalog ) {
+        this.catalog = catalog;
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+    }
+
+    static String key( ID id ) {
+        String qualifier = id.getTypeQualifier();
+        return qualifier == null ? id.toString() : id.toString() + '|' + qualifier;
+    }
+
+    /**
+     * @return true if the service has been indexed; a service that could not be listed counts as
+     *         indexed for a while so searches do not connect to it every time
+     */
+    public boolean contains( IService service ) {
+        lock.readLock().lock();
+        try {
+            ServiceEntry entry = services.get(key(service.getID()));
+            return entry != null && entry.isIndexed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the fields of the service and its resources; this connects to the service.
+     *
+     * @param service
+     * @param monitor
+     */
+    public void index( IService service, IProgressMonitor monitor ) {
+        IServiceInfo info;
+        try {
+            info = service.getInfo(monitor);
+        } catch (IOException e) {
+            info = null;
+            CatalogPlugin.log(null, e);
+        }
+        Entry serviceEntry = new Entry(service.getID().toString(), service.getID()
+                .getTypeQualifier(), serviceTexts(info), BOUNDS_UNKNOWN, null);
+        serviceEntry.handle = service;
+
+        List<Entry> resourceEntries = new ArrayList<Entry>();
+        boolean complete = true;
+        try {
+            List< ? extends IGeoResource> members = service.resources(monitor);
+            if (members != null) {
+                for( IGeoResource resource : members ) {
+                    try {
+                        resourceEntries.add(createEntry(resource));
+                    } catch (Throwable t) {
+                        CatalogPlugin.log("Could not search in resource:" + resource.getID(), t); //$NON-NLS-1$
+                    }
+                }
+            }
+        } catch (IOException e) {
+            complete = false;
+            CatalogPlugin.log("Could not search in service:" + service.getID(), e); //$NON-NLS-1$
+        }
+        put(new ServiceEntry(serviceEntry, resourceEntries, complete));
+    }
+
+    private Entry createEntry( IGeoResource resource ) {
+        IGeoResourceInfo info;
+        try {
+            info = resource.getInfo(null);
+        } catch (IOException e) {
+            CatalogPlugin.log(null, e);
+            info = null;
+        }
+        byte boundsState = BOUNDS_UNKNOWN;
+        Envelope bounds = null;
+        if (info != null && info.getBounds() != null) {
+            try {
+                ReferencedEnvelope wgs84 = info.getBounds().transform(DefaultGeographicCRS.WGS84,
+                        true);
+                bounds = new Envelope(wgs84);
+                boundsState = BOUNDS_KNOWN;
+            } catch (Throwable e) {
+                CatalogPlugin.log(null, e);
+                boundsState = BOUNDS_INVALID;
+            }
+        }
+        Entry entry = new Entry(resource.getID().toString(), resource.getID().getTypeQualifier(),
+                resourceTexts(info), boundsState, bounds);
+        entry.handle = resource;
+        return entry;
+    }
+
+    /**
+     * The values {@link CatalogImpl#check(IService, AST)} runs the pattern against.
+     */
+    private static String[] serviceTexts( IServiceInfo info ) {
+        List<String> texts = new ArrayList<String>();
+        if (info != null) {
+            if (info.getTitle() != null)
+                texts.add(info.getTitle());
+            if (info.getKeywords() != null) {
+                for( String keyword : info.getKeywords() ) {
+                    if (keyword != null)
+                        texts.add(keyword);
+                }
+            }
+            if (info.getSchema() != null)
+                texts.add(info.getSchema().toString());
+            if (info.getAbstract() != null)
+                texts.add(info.getAbstract());
+            if (info.getDescription() != null)
+                texts.add(info.getDescription());
+        }
+        return texts.toArray(new String[texts.size()]);
+    }
+
+    /**
+     * The values {@link CatalogImpl#check(IGeoResource, AST)} runs the pattern against; null
+     * values are kept since a NOT pattern accepts them.
+     */
+    private static String[] resourceTexts( IGeoResourceInfo info ) {
+        List<String> texts = new ArrayList<String>();
+        if (info != null) {
+            texts.add(info.getTitle());
+            texts.add(info.getName());
+            if (info.getKeywords() != null)
+                texts.addAll(info.getKeywords());
+            if (info.getSchema() != null)
+                texts.add(info.getSchema().toString());
+            texts.add(info.getDescription());
+        }
+        return texts.toArray(new String[texts.size()]);
+    }
+
+    private void put( ServiceEntry entry ) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(entry.service.id, entry.service.qualifier);
+            services.put(key(entry.service), entry);
+            addWords(entry.service);
+            for( Entry resource : entry.resources ) {
+                addWords(resource);
+                resourceServices.put(key(resource), key(entry.service));
+                if (resource.boundsState == BOUNDS_UNKNOWN)
+                    unbounded.add(resource);
+            }
+            tree = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String key( Entry entry ) {
+        return entry.qualifier == null ? entry.id : entry.id + '|' + entry.qualifier;
+    }
+
+    /**
+     * Removes the service and its resources from the index.
+     *
+     * @param id service id
+     */
+    public void remove( ID id ) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id.toString(), id.getTypeQualifier());
+            tree = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal( String id, String qualifier ) {
+        ServiceEntry old = services.remove(qualifier == null ? id : id + '|' + qualifier);
+        if (old == null)
+            return;
+        removeWords(old.service);
+        for( Entry resource : old.resources ) {
+            removeWords(resource);
+            resourceServices.remove(key(resource));
+            unbounded.remove(resource);
+        }
+    }
+
+    private void addWords( Entry entry ) {
+        for( String text : entry.texts ) {
+            for( String word : words(text) ) {
+                Set<Entry> entries = words.get(word);
+                if (entries == null) {
+                    entries = new HashSet<Entry>();
+                    words.put(word, entries);
+                }
+                entries.add(entry);
+            }
+        }
+    }
+
+    private void removeWords( Entry entry ) {
+        for( String text : entry.texts ) {
+            for( String word : words(text) ) {
+                Set<Entry> entries = words.get(word);
+                if (entries != null) {
+                    entries.remove(entry);
+                    if (entries.isEmpty())
+                        words.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the text into upper case words of letters and digits; the pattern literals are
+     * compared in upper case.
+     */
+    static Set<String> words( String text ) {
+        if (text == null)
+            return Collections.emptySet();
+        Set<String> words = new HashSet<String>();
+        String upper = text.toUpperCase();
+        int start = -1;
+        for( int i = 0; i <= upper.length(); i++ ) {
+            boolean letter = i < upper.length() && Character.isLetterOrDigit(upper.charAt(i));
+            if (letter && start == -1) {
+                start = i;
+            } else if (!letter && start != -1) {
+                words.add(upper.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Finds the services and resources matching the pattern.
+     *
+     * @param scope services to search, in the order of the results
+     * @param pattern search pattern
+     * @param bbox WGS84 box the resources must intersect, may be null
+     * @param monitor
+     * @return the services and resources that match; services are followed by their resources
+     */
+    public List<IResolve> search( Collection<IService> scope, AST pattern, Envelope bbox,
+            IProgressMonitor monitor ) {
+        boolean checkBounds = bbox != null && !bbox.isNull();
+        List<IService> matchedServices = new ArrayList<IService>();
+        Map<IService, List<Entry>> matchedResources = new HashMap<IService, List<Entry>>();
+
+        lock.readLock().lock();
+        try {
+            Set<Entry> candidates = candidates(pattern);
+            Set<Entry> inBounds = checkBounds ? inBounds(bbox) : null;
+            for( IService service : scope ) {
+                if (monitor.isCanceled())
+                    break;
+                ServiceEntry entry = services.get(key(service.getID()));
+                if (entry == null)
+                    continue;
+                if ((candidates == null || candidates.contains(entry.service))
+                        && entry.service.accept(pattern)) {
+                    matchedServices.add(service);
+                }
+                List<Entry> resources = new ArrayList<Entry>();
+                for( Entry resource : entry.resources ) {
+                    if (candidates != null && !candidates.contains(resource))
+                        continue;
+                    if (inBounds != null && !inBounds.contains(resource))
+                        continue;
+                    if (resource.accept(pattern))
+                        resources.add(resource);
+                }
+                if (!resources.isEmpty())
+                    matchedResources.put(service, resources);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<IResolve> result = new ArrayList<IResolve>();
+        for( IService service : scope ) {
+            if (matchedServices.contains(service))
+                result.add(service);
+            List<Entry> resources = matchedResources.get(service);
+            if (resources == null)
+                continue;
+            for( Entry resource : resources ) {
+                IResolve handle = resource.handle;
+                if (handle == null) {
+                    // read from disk; only services with matching resources are connected to
+                    handle = catalog.getChildById(service, new ID(resource.id, resource.qualifier),
+                            false, monitor);
+                    resource.handle = handle;
+                }
+                if (handle != null)
+                    result.add(handle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the entries that may match the pattern, or null if any entry may match
+     */
+    private Set<Entry> candidates( AST pattern ) {
+        if (pattern == null)
+            return null;
+        switch( pattern.type() ) {
+        case AST.LITERAL:
+            return literalCandidates(pattern.toString());
+        case AST.AND: {
+            Set<Entry> left = candidates(pattern.getLeft());
+            Set<Entry> right = candidates(pattern.getRight());
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            Set<Entry> both = new HashSet<Entry>(left);
+            both.retainAll(right);
+            return both;
+        }
+        case AST.OR: {
+            Set<Entry> left = candidates(pattern.getLeft());
+            Set<Entry> right = candidates(pattern.getRight());
+            if (left == null || right == null)
+                return null;
+            Set<Entry> either = new HashSet<Entry>(left);
+            either.addAll(right);
+            return either;
+        }
+        default:
+            // NOT matches entries that do not contain a word
+            return null;
+        }
+    }
+
+    /**
+     * A value contains the literal only if each word of the literal is part of a word of the
+     * value.
+     */
+    private Set<Entry> literalCandidates( String literal ) {
+        Set<String> literalWords = words(literal);
+        if (literalWords.isEmpty())
+            return null;
+        Set<Entry> result = null;
+        for( String literalWord : literalWords ) {
+            Set<Entry> entries = new HashSet<Entry>();
+            for( Map.Entry<String, Set<Entry>> word : words.entrySet() ) {
+                if (word.getKey().contains(literalWord))
+                    entries.addAll(word.getValue());
+            }
+            if (result == null) {
+                result = entries;
+            } else {
+                result.retainAll(entries);
+            }
+        }
+        return result;
+    }
+
+    private Set<Entry> inBounds( Envelope bbox ) {
+        STRtree index = tree;
+        if (index == null) {
+            index = new STRtree();
+            for( ServiceEntry service : services.values() ) {
+                for( Entry resource : service.resources ) {
+                    if (resource.boundsState == BOUNDS_KNOWN)
+                        index.insert(resource.bounds, resource);
+                }
+            }
+            index.build();
+            tree = index;
+        }
+        Set<Entry> result = new HashSet<Entry>(unbounded);
+        @SuppressWarnings("unchecked")
+        List<Entry> hits = index.query(bbox);
+        for( Entry hit : hits ) {
+            if (bbox.intersects(hit.bounds))
+                result.add(hit);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of services in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return services.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the service in the background.
+     */
+    void queue( IService service ) {
+        synchronized (queue) {
+            queue.add(service);
+        }
+        job.schedule();
+    }
+
+    private void indexQueued( IProgressMonitor monitor ) {
+        while( !monitor.isCanceled() ) {
+            IService service;
+            synchronized (queue) {
+                if (queue.isEmpty())
+                    return;
+                service = queue.iterator().next();
+                queue.remove(service);
+            }
+            if (catalog.getById(IService.class, service.getID(), new NullProgressMonitor()) != service)
+                continue; // removed while it was waiting
+            index(service, monitor);
+        }
+    }
+
+    /**
+     * Waits for the services queued for indexing.
+     */
+    void join() throws InterruptedException {
+        job.join();
+    }
+
+    /**
+     * Stops indexing services in the background.
+     */
+    public void dispose() {
+        synchronized (queue) {
+            queue.clear();
+        }
+        job.cancel();
+    }
+
+    /**
+     * Keeps the index up to date with the catalog.
+     */
+    public void changed( IResolveChangeEvent event ) {
+        IResolveDelta delta = event.getDelta();
+        if (delta == null)
+            return;
+        final boolean preDelete = event.getType() == IResolveChangeEvent.Type.PRE_DELETE;
+        try {
+            delta.accept(new IResolveDeltaVisitor(){
+                public boolean visit( IResolveDelta child ) throws IOException {
+                    IResolve resolve = child.getResolve();
+                    switch( child.getKind() ) {
+                    case ADDED:
+                        if (resolve instanceof IService && !preDelete) {
+                            if (contains((IService) resolve))
+                                attach((IService) resolve); // restored from disk
+                            else
+                                queue((IService) resolve);
+                        }
+                        return false;
+                    case REMOVED:
+                        if (resolve instanceof IService)
+                            remove(resolve.getID());
+                        return false;
+                    case REPLACED:
+                        if (resolve instanceof IService)
+                            remove(resolve.getID());
+                        if (!preDelete && child.getNewResolve() instanceof IService)
+                            queue((IService) child.getNewResolve());
+                        return false;
+                    case CHANGED:
+                        if (!(resolve instanceof IService) && !(resolve instanceof IGeoResource))
+                            return true; // the catalog or a folder
+                        if (!preDelete)
+                            reindex(resolve);
+                        return false;
+                    default:
+                        return true;
+                    }
+                }
+            });
+        } catch (IOException e) {
+            CatalogPlugin.log("Unable to update the catalog index", e); //$NON-NLS-1$
+        }
+    }
+
+    private void reindex( IResolve resolve ) {
+        if (resolve instanceof IService) {
+            queue((IService) resolve);
+            return;
+        }
+        ServiceEntry entry;
+        lock.readLock().lock();
+        try {
+            String serviceKey = resourceServices.get(key(resolve.getID()));
+            entry = serviceKey == null ? null : services.get(serviceKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (entry == null)
+            return;
+        IService service = catalog.getById(IService.class, new ID(entry.service.id,
+                entry.service.qualifier), new NullProgressMonitor());
+        if (service != null)
+            queue(service);
+    }
+
+    /**
+     * Writes the index to the file.
+     *
+     * @param file
+     */
+    public void save( File file ) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        lock.readLock().lock();
+        try {
+            out.writeInt(VERSION);
+            // entries read from disk whose service was not restored are dropped
+            List<ServiceEntry> saved = new ArrayList<ServiceEntry>();
+            for( ServiceEntry service : services.values() ) {
+                if (service.complete && service.service.handle != null)
+                    saved.add(service);
+            }
+            out.writeInt(saved.size());
+            for( ServiceEntry service : saved ) {
+                write(out, service.service);
+                out.writeInt(service.resources.size());
+                for( Entry resource : service.resources ) {
+                    write(out, resource);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the index written by {@link #save(File)}; entries for services that are not in the
+     * catalog are ignored by searches. Nothing is read if the file is missing or was written
+     * by another version.
+     *
+     * @param file
+     */
+    public void load( File file ) throws IOException {
+        if (!file.exists())
+            return;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                file)));
+        try {
+            if (in.readInt() != VERSION)
+                return;
+            int count = in.readInt();
+            for( int i = 0; i < count; i++ ) {
+                Entry service = read(in);
+                int resourceCount = in.readInt();
+                List<Entry> resources = new ArrayList<Entry>(resourceCount);
+                for( int j = 0; j < resourceCount; j++ ) {
+                    resources.add(read(in));
+                }
+                put(new ServiceEntry(service, resources, true));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gives the entry of a restored service its handle.
+     */
+    void attach( IService service ) {
+        lock.readLock().lock();
+        try {
+            ServiceEntry entry = services.get(key(service.getID()));
+            if (entry != null)
+                entry.service.handle = service;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void write( DataOutputStream out, Entry entry ) throws IOException {
+        writeString(out, entry.id);
+        writeString(out, entry.qualifier);
+        out.writeInt(entry.texts.length);
+        for( String text : entry.texts ) {
+            writeString(out, text);
+        }
+        out.writeByte(entry.boundsState);
+        if (entry.boundsState == BOUNDS_KNOWN) {
+            out.writeDouble(entry.bounds.getMinX());
+            out.writeDouble(entry.bounds.getMaxX());
+            out.writeDouble(entry.bounds.getMinY());
+            out.writeDouble(entry.bounds.getMaxY());
+        }
+    }
+
+    private static Entry read( DataInputStream in ) throws IOException {
+        String id = readString(in);
+        String qualifier = readString(in);
+        String[] texts = new String[in.readInt()];
+        for( int i = 0; i < texts.length; i++ ) {
+            texts[i] = readString(in);
+        }
+        byte boundsState = in.readByte();
+        Envelope bounds = null;
+        if (boundsState == BOUNDS_KNOWN) {
+            bounds = new Envelope(in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble());
+        }
+        return new Entry(id, qualifier, texts, boundsState, bounds);
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8"); //$NON-NLS-1$
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8"); //$NON-NLS-1$
+    }
+}
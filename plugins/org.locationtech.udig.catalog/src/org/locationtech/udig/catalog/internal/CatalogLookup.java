@@ -0,0 +1,278 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.catalog.internal;
+
+import java.net.URL;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.locationtech.udig.catalog.ID;
+import org.locationtech.udig.catalog.IResolve;
+import org.locationtech.udig.catalog.IResolveChangeEvent;
+import org.locationtech.udig.catalog.IResolveChangeListener;
+import org.locationtech.udig.catalog.IResolveDelta;
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.URLUtils;
+
+/**
+ * Hash tables used by {@link CatalogImpl} to look up services and resources without visiting
+ * the members of every service in the catalog.
+ * <p>
+ * Services are kept by {@link ID}. For each id looked up the catalog remembers the services whose
+ * identifier may match it, so later lookups of the id only check those services; an empty list
+ * remembers that no service matched. These lists are dropped whenever a service is added,
+ * removed, replaced or changed. The resources found in a service are remembered by id for that
+ * service, so a service that matches a query is only asked for its members once per id.
+ * </p>
+ * <p>
+ * The counters are for profiling; see {@link #toString()}.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class CatalogLookup implements IResolveChangeListener {
+
+    /** Ids whose services are remembered at most; the table is emptied when it grows beyond */
+    private static final int MAX_QUERIES = 1024;
+
+    private final Map<ID, IService> servicesById = new ConcurrentHashMap<ID, IService>();
+
+    /** Maps a looked up id --> the services that may match it, in catalog order */
+    private final Map<ID, List<IService>> servicesByQuery = new ConcurrentHashMap<ID, List<IService>>();
+
+    /** Incremented whenever the services change, so lists gathered meanwhile are not kept */
+    private long generation;
+
+    private final Map<IService, Map<ID, IResolve>> resources = new ConcurrentHashMap<IService, Map<ID, IResolve>>();
+
+    private final Map<IService, Map<ID, IResolve>> roughResources = new ConcurrentHashMap<IService, Map<ID, IResolve>>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    private final AtomicLong scans = new AtomicLong();
+
+    /**
+     * The key of the services a resource of the url may belong to: the url without its
+     * reference, in lower case.
+     */
+    static String key( URL url ) {
+        if (url == null)
+            return null;
+        return URLUtils.urlToString(url, true).replace("%20", " ").toLowerCase(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    void add( IService service ) {
+        ID id = service.getID();
+        if (id != null && !servicesById.containsKey(id))
+            servicesById.put(id, service);
+        forgetQueries();
+    }
+
+    void remove( IService service, Iterable<IService> remaining ) {
+        ID id = service.getID();
+        if (id != null && servicesById.get(id) == service) {
+            servicesById.remove(id);
+            // another service may share the id (see MovedService)
+            for( IService other : remaining ) {
+                if (other != service && id.equals(other.getID())) {
+                    servicesById.put(id, other);
+                    break;
+                }
+            }
+        }
+        resources.remove(service);
+        roughResources.remove(service);
+        forgetQueries();
+    }
+
+    /**
+     * Drops the services remembered for the ids looked up.
+     */
+    private synchronized void forgetQueries() {
+        generation++;
+        servicesByQuery.clear();
+    }
+
+    /**
+     * Drops the resources remembered for the services with the key.
+     */
+    private void forget( String key ) {
+        if (key == null)
+            return;
+        forget(resources, key);
+        forget(roughResources, key);
+    }
+
+    private static void forget( Map<IService, Map<ID, IResolve>> cache, String key ) {
+        for( Iterator<IService> iter = cache.keySet().iterator(); iter.hasNext(); ) {
+            if (key.equals(key(iter.next().getIdentifier())))
+                iter.remove();
+        }
+    }
+
+    /**
+     * @return the service with the id or null
+     */
+    IService getService( ID id ) {
+        lookups.incrementAndGet();
+        IService service = servicesById.get(id);
+        if (service != null)
+            hits.incrementAndGet();
+        return service;
+    }
+
+    /**
+     * @param id the id looked up
+     * @return the services that may match the id, in catalog order, or null if they are not known
+     */
+    List<IService> getServices( ID id ) {
+        lookups.incrementAndGet();
+        List<IService> services = servicesByQuery.get(id);
+        if (services != null) {
+            hits.incrementAndGet();
+            if (services.isEmpty())
+                negativeHits.incrementAndGet();
+        }
+        return services;
+    }
+
+    /**
+     * @return the current generation of the services, to be passed to
+     *         {@link #putServices(ID, List, long)}
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Remembers the services that may match the id, found by visiting every service.
+     *
+     * @param generation the generation of the services before they were visited; the list is
+     *        not kept if the services changed meanwhile
+     */
+    synchronized void putServices( ID id, List<IService> services, long generation ) {
+        scans.incrementAndGet();
+        if (generation != this.generation)
+            return;
+        if (servicesByQuery.size() >= MAX_QUERIES)
+            servicesByQuery.clear();
+        servicesByQuery.put(id, services);
+    }
+
+    /**
+     * @param service the service the resource belongs to
+     * @param rough true if the resource was found ignoring the type qualifier
+     * @return the resource of the service found for the id or null
+     */
+    IResolve getResource( IService service, ID id, boolean rough ) {
+        lookups.incrementAndGet();
+        Map<ID, IResolve> found = (rough ? roughResources : resources).get(service);
+        IResolve resource = found == null ? null : found.get(id);
+        if (resource != null)
+            hits.incrementAndGet();
+        return resource;
+    }
+
+    void putResource( IService service, ID id, boolean rough, IResolve resource ) {
+        Map<IService, Map<ID, IResolve>> cache = rough ? roughResources : resources;
+        Map<ID, IResolve> found = cache.get(service);
+        if (found == null) {
+            found = new ConcurrentHashMap<ID, IResolve>();
+            cache.put(service, found);
+        }
+        found.put(id, resource);
+    }
+
+    /**
+     * Forgets the services remembered for the ids when services are added, removed or changed, and
+     * the resources of services that changed.
+     */
+    public void changed( IResolveChangeEvent event ) {
+        IResolveDelta delta = event.getDelta();
+        if (delta == null)
+            return;
+        forget(delta);
+    }
+
+    private void forget( IResolveDelta delta ) {
+        if (delta.getKind() != IResolveDelta.Kind.NO_CHANGE
+                && delta.getResolve() instanceof IService) {
+            forgetQueries();
+        }
+        if (delta.getKind() != IResolveDelta.Kind.NO_CHANGE
+                && delta.getKind() != IResolveDelta.Kind.ADDED && delta.getResolve() != null
+                && !(delta.getResolve() instanceof CatalogImpl)) {
+            forget(key(delta.getResolve().getIdentifier()));
+            return;
+        }
+        for( IResolveDelta child : delta.getChildren() ) {
+            forget(child);
+        }
+    }
+
+    /**
+     * @return the number of lookups of services and resources by id
+     */
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    /**
+     * @return the number of lookups answered from the tables
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups answered by remembering no service matched the id
+     */
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    /**
+     * @return the number of lookups that visited every service
+     */
+    public long getScanCount() {
+        return scans.get();
+    }
+
+    /**
+     * Sets the counters back to zero.
+     */
+    public void resetCounters() {
+        lookups.set(0);
+        hits.set(0);
+        negativeHits.set(0);
+        scans.set(0);
+    }
+
+    @Override
+    public String toString() {
+        int count = 0;
+        for( Map<ID, IResolve> found : resources.values() ) {
+            count += found.size();
+        }
+        for( Map<ID, IResolve> found : roughResources.values() ) {
+            count += found.size();
+        }
+        return "CatalogLookup[lookups=" + lookups + ", hits=" + hits + ", negativeHits=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                + negativeHits + ", scans=" + scans + ", services=" + servicesById.size() //$NON-NLS-1$ //$NON-NLS-2$
+                + ", queries=" + servicesByQuery.size() + ", resources=" + count + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+}
@@ -20,6 +20,7 @@ public class Messages extends NLS {
 	public static String CatalogImpl_resolving;
 	public static String CatalogImpl_finding;
 	public static String CatalogImpl_localCatalog_title;
+	public static String CatalogIndex_jobName;
     public static String CatalogPlugin__ErrorLoadingMessage;
     public static String CatalogPlugin_ErrorLoading;
     public static String CatalogPlugin_SavingCatalog;
@@ -17,6 +17,11 @@ public class PreferenceConstants {
 
 
 	public static final String P_TEMP_FT = "SaveTemporaryDataTypes"; //$NON-NLS-1$
+
+    /**
+     * Hours after which a cached service or resource info is refreshed in the background
+     */
+    public static final String P_INFO_CACHE_TTL = "P_INFO_CACHE_TTL"; //$NON-NLS-1$
     /**
      * WMS-C Tile Preference constants
      */
@@ -26,4 +31,21 @@ public class PreferenceConstants {
     
     public static final String P_WMSCTILE_MAX_CON_REQUESTS = "P_WMSCTILE_MAX_CON_REQUESTS"; //$NON-NLS-1$
     
+    public static final String P_WMSCTILE_MAX_HOST_REQUESTS = "P_WMSCTILE_MAX_HOST_REQUESTS"; //$NON-NLS-1$
+    
+    /**
+     * Maximum size (in megabytes) of the indexed tile store
+     */
+    public static final String P_WMSCTILE_STORE_SIZE = "P_WMSCTILE_STORE_SIZE"; //$NON-NLS-1$
+    
+    /**
+     * Fetch tiles around the view and on the neighbouring zoom levels when the request queue is idle
+     */
+    public static final String P_WMSCTILE_PREFETCH = "P_WMSCTILE_PREFETCH"; //$NON-NLS-1$
+    
+    /**
+     * Number of tiles fetched in advance on each side of the view
+     */
+    public static final String P_WMSCTILE_PREFETCH_RING = "P_WMSCTILE_PREFETCH_RING"; //$NON-NLS-1$
+    
 }
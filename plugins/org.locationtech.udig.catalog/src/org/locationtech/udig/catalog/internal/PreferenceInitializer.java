@@ -11,6 +11,7 @@
 package org.locationtech.udig.catalog.internal;
 
 import org.locationtech.udig.catalog.CatalogPlugin;
+import org.locationtech.udig.catalog.InfoCache;
 
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -29,7 +30,12 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 		IPreferenceStore store = CatalogPlugin.getDefault().getPreferenceStore();
 		
 		store.setDefault(PreferenceConstants.P_TEMP_FT, false);
+		store.setDefault(PreferenceConstants.P_INFO_CACHE_TTL, InfoCache.DEFAULT_TTL);
 		store.setDefault(PreferenceConstants.P_WMSCTILE_MAX_CON_REQUESTS, 16);
+		store.setDefault(PreferenceConstants.P_WMSCTILE_MAX_HOST_REQUESTS, 6);
+		store.setDefault(PreferenceConstants.P_WMSCTILE_STORE_SIZE, 512);
+		store.setDefault(PreferenceConstants.P_WMSCTILE_PREFETCH, false);
+		store.setDefault(PreferenceConstants.P_WMSCTILE_PREFETCH_RING, 1);
 	}
 
 }
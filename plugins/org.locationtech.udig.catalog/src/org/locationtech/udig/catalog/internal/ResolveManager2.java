@@ -18,6 +18,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.IResolve;
@@ -28,8 +31,12 @@ import org.locationtech.udig.core.internal.ExtensionPointList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionDelta;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IRegistryChangeEvent;
+import org.eclipse.core.runtime.IRegistryChangeListener;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 
 /**
  * Second implementation of IResolveManager optimized based on review of AdapterManager.
@@ -42,6 +49,10 @@ import org.eclipse.core.runtime.NullProgressMonitor;
  * <li>
  * <li>(pending) Explicit control over if a plugin should be loaded in order to provide a needed
  * factory</li>
+ * <li>The factories used for a resolve class and target class are looked up once and kept in an
+ * immutable table, so resolve and canResolve do not lock. The table is cleared when a factory is
+ * registered or unregistered, or when the extension registry changes.</li>
+ * <li>The time spent by each factory adapting is recorded; see {@link #getTimings()}.</li>
  * </ul>
  * 
  * @author Jody Garnett
@@ -51,6 +62,32 @@ public class ResolveManager2 implements IResolveManager {
 
     private static final String RESOLVE_FACTORY_EXTENSION_POINT = "org.locationtech.udig.catalog.resolvers"; //$NON-NLS-1$
 
+    private static final String RESOLVE_FACTORY_EXTENSION_NAME = "resolvers"; //$NON-NLS-1$
+
+    /** Adapting slower than this is traced */
+    private static final long SLOW_ADAPTER = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final Chain NO_FACTORIES = new Chain(new IResolveAdapterFactory[0], false);
+
+    /**
+     * Maps resolve class --> (target class --> factories to try); never modified, a new table is
+     * published when an entry is added.
+     */
+    private volatile Map<Class<?>, Map<Class<?>, Chain>> table = Collections.emptyMap();
+
+    /** Maps factory name --> time spent adapting */
+    private final ConcurrentHashMap<String, AdapterTiming> timings = new ConcurrentHashMap<String, AdapterTiming>();
+
+    private final IRegistryChangeListener registryListener = new IRegistryChangeListener(){
+        public void registryChanged( IRegistryChangeEvent event ) {
+            IExtensionDelta[] deltas = event.getExtensionDeltas(CatalogPlugin.ID,
+                    RESOLVE_FACTORY_EXTENSION_NAME);
+            if (deltas.length > 0) {
+                extensionsChanged(deltas);
+            }
+        }
+    };
+
     // Maps resolve class name --> Map (target class name --> factory instance )
     Map<String, Map<String, IResolveAdapterFactory>> adapterLookup;
 
@@ -70,23 +107,64 @@ public class ResolveManager2 implements IResolveManager {
         List<IConfigurationElement> extensionList = ExtensionPointList
                 .getExtensionPointList(RESOLVE_FACTORY_EXTENSION_POINT);
         for (IConfigurationElement element : extensionList) {
-            try {
-                ResolveAdapterFactoryProxy proxy = new ResolveAdapterFactoryProxy(element);
-                register(proxy);
+            registerExtension(element);
+        }
+        if (Platform.getExtensionRegistry() != null) {
+            Platform.getExtensionRegistry().addRegistryChangeListener(registryListener,
+                    CatalogPlugin.ID);
+        }
+    }
+
+    private void registerExtension(IConfigurationElement element) {
+        try {
+            ResolveAdapterFactoryProxy proxy = new ResolveAdapterFactoryProxy(element);
+            register(proxy);
+        }
+        catch (Throwable t){
+            CatalogPlugin.log(element.getNamespaceIdentifier()+" failed:"+t, t);
+        }
+    }
+
+    /**
+     * Registers the factories of added extensions and drops the factories of removed ones.
+     */
+    private synchronized void extensionsChanged(IExtensionDelta[] deltas) {
+        for (IExtensionDelta delta : deltas) {
+            if (delta.getKind() == IExtensionDelta.ADDED) {
+                for (IConfigurationElement element : delta.getExtension().getConfigurationElements()) {
+                    registerExtension(element);
+                }
             }
-            catch (Throwable t){
-                CatalogPlugin.log(element.getNamespaceIdentifier()+" failed:"+t, t);
+        }
+        // elements of removed extensions are no longer valid
+        for (List<IResolveAdapterFactory> register : factories.values()) {
+            for (IResolveAdapterFactory factory : new ArrayList<IResolveAdapterFactory>(register)) {
+                if (factory instanceof ResolveAdapterFactoryProxy) {
+                    IConfigurationElement config = ((ResolveAdapterFactoryProxy) factory).config;
+                    if (config != null && !config.isValid()) {
+                        register.remove(factory);
+                    }
+                }
             }
         }
+        invalidate();
+    }
+
+    /**
+     * Stops listening to the extension registry.
+     */
+    public void dispose() {
+        if (Platform.getExtensionRegistry() != null) {
+            Platform.getExtensionRegistry().removeRegistryChangeListener(registryListener);
+        }
     }
 
     @Override
     public boolean canResolve(IResolve resolve, Class<?> targetClass) {
-        Map<String, IResolveAdapterFactory> available = getFactories(resolve.getClass());
-        String targetTypeName = targetClass.getName();
-        IResolveAdapterFactory factory = available.get(targetTypeName);
-        if (factory != null){
+        Chain chain = lookup(resolve.getClass(), targetClass);
+        if (chain.direct){
             // we found a factory directly responsible for this connection
+            IResolveAdapterFactory factory = chain.factories[0];
             try {
                 return factory.canAdapt(resolve, targetClass);
             } catch (Throwable t) {
@@ -99,19 +177,16 @@ public class ResolveManager2 implements IResolveManager {
         else {
             // factories that were not registered against a specific targetClass
             //
-            List<IResolveAdapterFactory> genericFactories = factories.get(null);
-            if( genericFactories != null ){
-                for( IResolveAdapterFactory fallback : genericFactories ){
-                    try {
-                        if( fallback.canAdapt( resolve, targetClass ) ){
-                            return true; // found one!
-                        }
-                    }
-                    catch( Throwable t ){
-                        String factoryName = fallback.getClass().getName();
-                        CatalogPlugin.trace( "IResolveFactory "+factoryName+" unable to test for "+targetTypeName+":"+t, t);
+            for( IResolveAdapterFactory fallback : chain.factories ){
+                try {
+                    if( fallback.canAdapt( resolve, targetClass ) ){
+                        return true; // found one!
                     }
                 }
+                catch( Throwable t ){
+                    String factoryName = fallback.getClass().getName();
+                    CatalogPlugin.trace( "IResolveFactory "+factoryName+" unable to test for "+targetClass.getName()+":"+t, t);
+                }
             }
             return false; 
         }
@@ -120,21 +195,16 @@ public class ResolveManager2 implements IResolveManager {
     @Override
     public <T> T resolve(IResolve resolve, Class<T> targetClass, IProgressMonitor monitor)
             throws IOException {
-        String targetTypeName = targetClass.getName();
-        
-        Map<String, IResolveAdapterFactory> available = getFactories(resolve.getClass());
-        IResolveAdapterFactory factory = available.get(targetTypeName);
-        if (factory != null) {
+        Chain chain = lookup(resolve.getClass(), targetClass);
+        if (chain.direct) {
             // we found a factory directly responsible for this connection
-            T connected = factory.adapt(resolve, targetClass, monitor);
-            return connected;
+            return adapt(chain.factories[0], resolve, targetClass, monitor);
         }
         else {
-            List<IResolveAdapterFactory> genericFactories = factories.get(null);
-            for( IResolveAdapterFactory fallback : genericFactories ){
+            for( IResolveAdapterFactory fallback : chain.factories ){
                 try {
                     if( fallback.canAdapt( resolve, targetClass ) ){
-                        T connected = fallback.adapt( resolve, targetClass, monitor );
+                        T connected = adapt( fallback, resolve, targetClass, monitor );
                         if( connected != null ){
                             return connected;
                         }
@@ -142,15 +212,121 @@ public class ResolveManager2 implements IResolveManager {
                 }
                 catch( Throwable t ){
                     String factoryName = fallback.getClass().getName();
-                    CatalogPlugin.trace( "IResolveFactory "+factoryName+" unable to convert to "+targetTypeName+":"+t, t);
+                    CatalogPlugin.trace( "IResolveFactory "+factoryName+" unable to convert to "+targetClass.getName()+":"+t, t);
                 }
             }
             return null; // unable to convert
         }
     }
 
+    /**
+     * Adapts with the factory, recording the time it took.
+     */
+    private <T> T adapt(IResolveAdapterFactory factory, IResolve resolve, Class<T> targetClass,
+            IProgressMonitor monitor) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return factory.adapt(resolve, targetClass, monitor);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            String name = factoryName(factory);
+            AdapterTiming timing = timings.get(name);
+            if (timing == null) {
+                timing = new AdapterTiming(name);
+                AdapterTiming existing = timings.putIfAbsent(name, timing);
+                if (existing != null) {
+                    timing = existing;
+                }
+            }
+            timing.record(elapsed);
+            if (elapsed > SLOW_ADAPTER && CatalogPlugin.getDefault() != null) {
+                CatalogPlugin.trace("IResolveAdapterFactory " + name + " took " //$NON-NLS-1$ //$NON-NLS-2$
+                        + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms to adapt " //$NON-NLS-1$
+                        + resolve.getIdentifier() + " to " + targetClass.getName(), null); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private static String factoryName(IResolveAdapterFactory factory) {
+        if (factory instanceof ResolveAdapterFactoryProxy) {
+            ResolveAdapterFactoryProxy proxy = (ResolveAdapterFactoryProxy) factory;
+            if (proxy.config != null && proxy.config.isValid()) {
+                return proxy.config.getAttribute("class"); //$NON-NLS-1$
+            }
+            if (proxy.factory != null) {
+                return proxy.factory.getClass().getName();
+            }
+        }
+        if (factory instanceof GenericResolveAdapterFactory) {
+            return ((GenericResolveAdapterFactory) factory).getFactory().getClass().getName();
+        }
+        return factory.getClass().getName();
+    }
+
+    /**
+     * Time spent adapting by each factory, by factory class name.
+     * 
+     * @return timings of the factories used so far
+     */
+    public Map<String, AdapterTiming> getTimings() {
+        return Collections.unmodifiableMap(timings);
+    }
+
+    /**
+     * Sets the recorded timings back to zero.
+     */
+    public void resetTimings() {
+        timings.clear();
+    }
+
+    /**
+     * Looks up the factories to try for the resolve class and target class without locking.
+     */
+    private Chain lookup(Class<?> resolveClass, Class<?> targetClass) {
+        Map<Class<?>, Chain> targets = table.get(resolveClass);
+        if (targets != null) {
+            Chain chain = targets.get(targetClass);
+            if (chain != null) {
+                return chain;
+            }
+        }
+        return computeChain(resolveClass, targetClass);
+    }
+
+    private synchronized Chain computeChain(Class<?> resolveClass, Class<?> targetClass) {
+        Map<Class<?>, Map<Class<?>, Chain>> current = table;
+        Map<Class<?>, Chain> targets = current.get(resolveClass);
+        if (targets != null && targets.containsKey(targetClass)) {
+            return targets.get(targetClass); // added while we waited
+        }
+        Chain chain;
+        IResolveAdapterFactory factory = getFactories(resolveClass).get(targetClass.getName());
+        if (factory != null) {
+            chain = new Chain(new IResolveAdapterFactory[]{factory}, true);
+        } else {
+            List<IResolveAdapterFactory> genericFactories = factories.get(null);
+            chain = genericFactories == null || genericFactories.isEmpty() ? NO_FACTORIES
+                    : new Chain(genericFactories.toArray(new IResolveAdapterFactory[genericFactories.size()]), false);
+        }
+        Map<Class<?>, Chain> newTargets = targets == null ? new HashMap<Class<?>, Chain>()
+                : new HashMap<Class<?>, Chain>(targets);
+        newTargets.put(targetClass, chain);
+        Map<Class<?>, Map<Class<?>, Chain>> newTable = new HashMap<Class<?>, Map<Class<?>, Chain>>(current);
+        newTable.put(resolveClass, Collections.unmodifiableMap(newTargets));
+        table = Collections.unmodifiableMap(newTable);
+        return chain;
+    }
+
+    /**
+     * Clears the cached lookups after the registered factories change.
+     */
+    private void invalidate() {
+        adapterLookup = null;
+        table = Collections.emptyMap();
+    }
+
     @Override
-    public void register(ResolveAdapterFactory factory) {
+    public synchronized void register(ResolveAdapterFactory factory) {
         String className = factory.getResolveName();
         
         List<IResolveAdapterFactory> register = factories.get(className);
@@ -159,6 +335,7 @@ public class ResolveManager2 implements IResolveManager {
             factories.put(className, register);
         }
         register.add(factory);
+        invalidate();
     }
 
     @Override
@@ -171,7 +348,7 @@ public class ResolveManager2 implements IResolveManager {
         }
     }
 
-    private void registerGeneric(IResolveAdapterFactory factory) {
+    private synchronized void registerGeneric(IResolveAdapterFactory factory) {
         List<IResolveAdapterFactory> register = factories.get(null);
         if (register == null) {
             register = new ArrayList<IResolveAdapterFactory>(2);
@@ -179,6 +356,7 @@ public class ResolveManager2 implements IResolveManager {
         }
         GenericResolveAdapterFactory item = new GenericResolveAdapterFactory(factory);
         register.add(item);
+        invalidate();
     }
 
     @Override
@@ -192,12 +370,13 @@ public class ResolveManager2 implements IResolveManager {
     }
 
     @Override
-    public void unregister(ResolveAdapterFactory factory) {
+    public synchronized void unregister(ResolveAdapterFactory factory) {
         String className = factory.getResolveName();
         List<IResolveAdapterFactory> register = factories.get(className);
         if (register != null) {
             register.remove( factory );
         }
+        invalidate();
     }
     
     @Override
@@ -206,12 +385,13 @@ public class ResolveManager2 implements IResolveManager {
         item.getExcludes().add( resolveType );
     }
 
-    private void unregisterGeneric(IResolveAdapterFactory factory) {
+    private synchronized void unregisterGeneric(IResolveAdapterFactory factory) {
         List<IResolveAdapterFactory> register = factories.get(null);
         if (register != null) {
             GenericResolveAdapterFactory item = lookupGenericFactory(factory);
             register.remove( item );
         }
+        invalidate();
     }
 
     private GenericResolveAdapterFactory lookupGenericFactory(IResolveAdapterFactory factory) {
@@ -335,6 +515,76 @@ public class ResolveManager2 implements IResolveManager {
         }
     }
 
+    /**
+     * The factories to try, in order, to adapt a resolve class to a target class.
+     */
+    static final class Chain {
+        final IResolveAdapterFactory[] factories;
+
+        /** true if the factory is registered for the target class and is the only one asked */
+        final boolean direct;
+
+        Chain(IResolveAdapterFactory[] factories, boolean direct) {
+            this.factories = factories;
+            this.direct = direct;
+        }
+    }
+
+    /**
+     * Time spent adapting by a factory.
+     * 
+     * @since 2.1.0
+     */
+    public static final class AdapterTiming {
+        private final String name;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong total = new AtomicLong();
+
+        private final AtomicLong max = new AtomicLong();
+
+        AdapterTiming(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long previous = max.get();
+            while (nanos > previous && !max.compareAndSet(previous, nanos)) {
+                previous = max.get();
+            }
+        }
+
+        /** @return class name of the factory */
+        public String getName() {
+            return name;
+        }
+
+        /** @return number of times the factory adapted */
+        public long getCount() {
+            return count.get();
+        }
+
+        /** @return total time spent adapting in nanoseconds */
+        public long getTotalTime() {
+            return total.get();
+        }
+
+        /** @return longest time spent adapting in nanoseconds */
+        public long getMaxTime() {
+            return max.get();
+        }
+
+        @Override
+        public String toString() {
+            return name + " count=" + count + " total=" //$NON-NLS-1$ //$NON-NLS-2$
+                    + TimeUnit.NANOSECONDS.toMillis(total.get()) + "ms max=" //$NON-NLS-1$
+                    + TimeUnit.NANOSECONDS.toMillis(max.get()) + "ms"; //$NON-NLS-1$
+        }
+    }
+
     /**
      * Class cache design based on AdapterManager (monkey see monkey do).
      * 
@@ -23,6 +23,7 @@ import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.IService;
 import org.locationtech.udig.catalog.IServiceFactory;
 import org.locationtech.udig.catalog.ServiceExtension;
+import org.locationtech.udig.catalog.ServiceParameterPersister;
 import org.locationtech.udig.catalog.interceptor.ServiceInterceptor;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -152,8 +153,7 @@ public class ServiceFactoryImpl extends IServiceFactory {
                     if (sevice == null) {
                         continue;
                     }
-                    CatalogImpl.runInterceptor(sevice, ServiceInterceptor.CREATED_ID);
-                    candidates.add(sevice);
+                    candidates.add(created(sevice, serviceExtension));
 //                    List<IService> service = createService(connectionParameters);
 //                    if (service != null && !service.isEmpty()) {
 //                        for( IService created : service ){
@@ -173,8 +173,9 @@ public class ServiceFactoryImpl extends IServiceFactory {
                     Map<String, Serializable> connectionParameters = serviceExtension.createParams(targetUrl);
                     if (connectionParameters != null) {
                         IService service = serviceExtension.createService(null, connectionParameters);
-                        CatalogImpl.runInterceptor(service, ServiceInterceptor.CREATED_ID);
-                        candidates.add(service);
+                        if (service != null) {
+                            candidates.add(created(service, serviceExtension));
+                        }
     //                    List<IService> service = createService(connectionParameters);
     //                    if (service != null && !service.isEmpty()) {                    
     //                        for( IService created : service ){
@@ -205,8 +206,7 @@ public class ServiceFactoryImpl extends IServiceFactory {
                 // Put a break point here to watch every serviceExtension try and connect
                 IService service = serviceExtension.createService(null, connectionParameters);
                 if (service != null) {
-                    CatalogImpl.runInterceptor(service, ServiceInterceptor.CREATED_ID);
-                    services.add(service);                    
+                    services.add(created(service, serviceExtension));
                 }
             } catch (Throwable deadService) {
                 CatalogPlugin.log(name + " could not create service", deadService); //$NON-NLS-1$
@@ -222,8 +222,7 @@ public class ServiceFactoryImpl extends IServiceFactory {
                     // Attempt to construct a service, and add to the list if available.
                     IService service = serviceExtension.createService(null, connectionParameters);
                     if (service != null) {
-                        CatalogImpl.runInterceptor(service, ServiceInterceptor.CREATED_ID);
-                        services.add(service);
+                        services.add(created(service, serviceExtension));
                     }
                 } catch (Throwable deadService) {
                     deadService.printStackTrace();
@@ -234,6 +233,45 @@ public class ServiceFactoryImpl extends IServiceFactory {
         return services;
     }
 
+    /**
+     * Asks only the named ServiceExtension to create the service; all of them are asked if it is
+     * not registered or can not create the service.
+     */
+    @Override
+    public List<IService> createService( String extension,
+            Map<String, Serializable> connectionParameters ) {
+        if (extension != null) {
+            for( ServiceExtension serviceExtension : CatalogPlugin.getDefault().getServiceExtensions() ) {
+                if (!extension.equals(serviceExtension.getClass().getName())) {
+                    continue;
+                }
+                try {
+                    IService service = serviceExtension.createService(null, connectionParameters);
+                    if (service != null) {
+                        List<IService> services = new LinkedList<IService>();
+                        services.add(created(service, serviceExtension));
+                        return services;
+                    }
+                } catch (Throwable deadService) {
+                    CatalogPlugin.trace(extension + " could not create service", deadService); //$NON-NLS-1$
+                }
+                break;
+            }
+        }
+        return createService(connectionParameters);
+    }
+
+    /**
+     * Runs the interceptors on a new service and notes which extension created it so that it
+     * can be restored without asking every extension.
+     */
+    private IService created( IService service, ServiceExtension serviceExtension ) {
+        CatalogImpl.runInterceptor(service, ServiceInterceptor.CREATED_ID);
+        service.getPersistentProperties().put(ServiceParameterPersister.EXTENSION_KEY,
+                serviceExtension.getClass().getName());
+        return service;
+    }
+
     public void dispose( List<IService> list, IProgressMonitor monitor ) {
         if (list == null)
             return;
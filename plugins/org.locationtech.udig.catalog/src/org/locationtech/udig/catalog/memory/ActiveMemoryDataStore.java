@@ -13,12 +13,18 @@ package org.locationtech.udig.catalog.memory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.locationtech.udig.catalog.memory.internal.MemoryServiceListener;
 
 import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
 import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.feature.FeatureCollection;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -29,6 +35,11 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * of MemoryDataStore for use in the MemoryService extension
  * should sub-class this class, as that will permit the Catalog
  * to be notified by events.
+ * <p>
+ * Features are indexed by bounds and feature id the first time they are queried with a filter,
+ * so bounding box and selection queries on large scratch layers do not visit every feature. The
+ * index of a type is updated as its features change and built again after many changes.
+ * </p>
  * 
  * @author mleslie
  * @author rgould
@@ -37,6 +48,9 @@ import org.opengis.feature.simple.SimpleFeatureType;
 public class ActiveMemoryDataStore extends MemoryDataStore {
     List<MemoryServiceListener> list = new ArrayList<MemoryServiceListener>();
 
+    /** Maps type name --> index; null while the super constructor adds the initial features */
+    private Map<String, MemoryFeatureIndex> indexes = new ConcurrentHashMap<String, MemoryFeatureIndex>();
+
     /**
      * Construct <code>AnotherMemoryDataStore</code>.
      *
@@ -73,6 +87,87 @@ public class ActiveMemoryDataStore extends MemoryDataStore {
         super(reader);
     }
     
+    @Override
+    protected ContentFeatureSource createFeatureSource( ContentEntry entry ) throws IOException {
+        return new IndexedMemoryFeatureStore(entry, Query.ALL);
+    }
+
+    MemoryFeatureIndex getIndex( String typeName ) {
+        return indexes == null ? null : indexes.get(typeName);
+    }
+
+    void putIndex( String typeName, MemoryFeatureIndex index ) {
+        indexes.put(typeName, index);
+    }
+
+    /**
+     * Drops the index of the type; it is built again when next needed.
+     */
+    void invalidate( String typeName ) {
+        if (indexes != null)
+            indexes.remove(typeName);
+    }
+
+    private void indexAdded( SimpleFeature feature ) {
+        MemoryFeatureIndex index = getIndex(feature.getFeatureType().getTypeName());
+        if (index != null)
+            index.write(feature);
+    }
+
+    @Override
+    public void addFeature( SimpleFeature feature ) {
+        super.addFeature(feature);
+        indexAdded(feature);
+    }
+
+    @Override
+    public void addFeatures( Collection<SimpleFeature> collection ) {
+        super.addFeatures(collection);
+        for( SimpleFeature feature : collection ) {
+            indexAdded(feature);
+        }
+    }
+
+    @Override
+    public void addFeatures( SimpleFeature[] features ) {
+        super.addFeatures(features);
+        for( SimpleFeature feature : features ) {
+            indexAdded(feature);
+        }
+    }
+
+    /**
+     * Estimates the memory used by the features of the type and their index.
+     * <p>
+     * The features are indexed if they have not been yet.
+     * </p>
+     * 
+     * @param typeName
+     * @return estimated size in bytes
+     * @throws IOException
+     */
+    public long getMemorySize( String typeName ) throws IOException {
+        ContentFeatureSource source = getFeatureSource(typeName);
+        if (source instanceof IndexedMemoryFeatureStore) {
+            return ((IndexedMemoryFeatureStore) source).index().getMemorySize();
+        }
+        return 0;
+    }
+
+    /**
+     * Estimates the memory used by the features of every type and their indexes.
+     * 
+     * @return estimated size in bytes
+     * @throws IOException
+     */
+    public long getMemorySize() throws IOException {
+        long size = 0;
+        for( String typeName : getTypeNames() ) {
+            size += getMemorySize(typeName);
+        }
+        return size;
+    }
+
     /**
      * TODO summary sentence for addFeatureListener ...
      * 
@@ -94,6 +189,7 @@ public class ActiveMemoryDataStore extends MemoryDataStore {
     
     public void createSchema(SimpleFeatureType featureType) throws IOException {
        super.createSchema(featureType);
+       invalidate(featureType.getTypeName());
        for(MemoryServiceListener listener : this.list) {
            listener.schemaChanged();
        }
@@ -102,6 +198,7 @@ public class ActiveMemoryDataStore extends MemoryDataStore {
     public void removeSchema( String typeName ) {
         try {
 			super.removeSchema(typeName);
+			invalidate(typeName);
 			for(MemoryServiceListener listener : this.list) {
 			    listener.schemaChanged();
 			}
@@ -0,0 +1,220 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ *
+ */
+package org.locationtech.udig.catalog.memory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.CollectionFeatureReader;
+import org.geotools.data.EmptyFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FilteringFeatureReader;
+import org.geotools.data.FilteringFeatureWriter;
+import org.geotools.data.Query;
+import org.geotools.data.memory.MemoryEntry;
+import org.geotools.data.memory.MemoryFeatureStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * MemoryFeatureStore that answers bounding box and feature id filters from the
+ * {@link MemoryFeatureIndex} kept by its {@link ActiveMemoryDataStore}.
+ * <p>
+ * Other filters are evaluated against every feature, as MemoryFeatureStore does. Features
+ * written or removed through this store are updated in the index in place.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+class IndexedMemoryFeatureStore extends MemoryFeatureStore {
+
+    IndexedMemoryFeatureStore( ContentEntry entry, Query query ) {
+        super(entry, query);
+    }
+
+    private ActiveMemoryDataStore store() {
+        return (ActiveMemoryDataStore) getDataStore();
+    }
+
+    /**
+     * Returns the index of the features, reading them if the index is missing or out of date.
+     */
+    MemoryFeatureIndex index() throws IOException {
+        String typeName = getSchema().getTypeName();
+        ActiveMemoryDataStore store = store();
+        synchronized (store) {
+            MemoryFeatureIndex index = store.getIndex(typeName);
+            if (index != null && index.needsRebuild()) {
+                index = null;
+            }
+            if (index != null) {
+                // features may have been added to the datastore directly
+                int count = super.getCountInternal(new Query(typeName));
+                if (count >= 0 && count != index.size()) {
+                    index = null;
+                }
+            }
+            if (index == null) {
+                index = new MemoryFeatureIndex(getSchema(),
+                        ((MemoryEntry) getEntry()).getMemory());
+                store.putIndex(typeName, index);
+            }
+            return index;
+        }
+    }
+
+    @Override
+    protected boolean canFilter() {
+        return true;
+    }
+
+    @Override
+    protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal( Query query )
+            throws IOException {
+        Filter filter = query.getFilter();
+        if (filter == null || filter == Filter.INCLUDE) {
+            return super.getReaderInternal(query);
+        }
+        if (filter == Filter.EXCLUDE) {
+            return new EmptyFeatureReader<SimpleFeatureType, SimpleFeature>(getSchema());
+        }
+        List<SimpleFeature> candidates = candidates(filter);
+        if (candidates == null) {
+            // no help from the index; check every feature
+            return new FilteringFeatureReader<SimpleFeatureType, SimpleFeature>(
+                    super.getReaderInternal(query), filter);
+        }
+        List<SimpleFeature> matches = new ArrayList<SimpleFeature>();
+        for( SimpleFeature feature : candidates ) {
+            if (filter.evaluate(feature)) {
+                matches.add(SimpleFeatureBuilder.copy(feature));
+            }
+        }
+        return new CollectionFeatureReader(matches, getSchema());
+    }
+
+    /**
+     * @return the features that may match the filter, or null if the index can not narrow them
+     */
+    private List<SimpleFeature> candidates( Filter filter ) throws IOException {
+        if (filter instanceof Id) {
+            return index().query(((Id) filter).getIdentifiers());
+        }
+        MemoryFeatureIndex index = index();
+        if (!index.isSpatial()) {
+            return null;
+        }
+        Envelope bounds = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                null);
+        if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                || Double.isInfinite(bounds.getHeight())) {
+            return null;
+        }
+        return index.query(bounds);
+    }
+
+    @Override
+    protected int getCountInternal( Query query ) throws IOException {
+        Filter filter = query.getFilter();
+        if (filter == null || filter == Filter.INCLUDE) {
+            return super.getCountInternal(query);
+        }
+        int count = 0;
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReaderInternal(query);
+        try {
+            while( reader.hasNext() ) {
+                reader.next();
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        if (query.getStartIndex() != null) {
+            count = Math.max(0, count - query.getStartIndex());
+        }
+        if (!query.isMaxFeaturesUnlimited()) {
+            count = Math.min(count, query.getMaxFeatures());
+        }
+        return count;
+    }
+
+    @Override
+    protected ReferencedEnvelope getBoundsInternal( Query query ) throws IOException {
+        Filter filter = query.getFilter();
+        if (filter == null || filter == Filter.INCLUDE) {
+            return super.getBoundsInternal(query);
+        }
+        ReferencedEnvelope bounds = new ReferencedEnvelope(getSchema()
+                .getCoordinateReferenceSystem());
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReaderInternal(query);
+        try {
+            while( reader.hasNext() ) {
+                bounds.include(reader.next().getBounds());
+            }
+        } finally {
+            reader.close();
+        }
+        return bounds;
+    }
+
+    @Override
+    protected FeatureWriter<SimpleFeatureType, SimpleFeature> getWriterInternal( Query query,
+            int flags ) throws IOException {
+        FeatureWriter<SimpleFeatureType, SimpleFeature> writer = super.getWriterInternal(query,
+                flags);
+        // we claim to filter, so the writer has to
+        if (query.getFilter() != null && query.getFilter() != Filter.INCLUDE) {
+            writer = new FilteringFeatureWriter(writer, query.getFilter());
+        }
+        final FeatureWriter<SimpleFeatureType, SimpleFeature> delegate = writer;
+        final String typeName = getSchema().getTypeName();
+        return new FeatureWriter<SimpleFeatureType, SimpleFeature>(){
+            private SimpleFeature current;
+
+            public SimpleFeatureType getFeatureType() {
+                return delegate.getFeatureType();
+            }
+            public SimpleFeature next() throws IOException {
+                current = delegate.next();
+                return current;
+            }
+            public void remove() throws IOException {
+                delegate.remove();
+                MemoryFeatureIndex index = store().getIndex(typeName);
+                if (index != null && current != null)
+                    index.remove(current.getID());
+            }
+            public void write() throws IOException {
+                delegate.write();
+                MemoryFeatureIndex index = store().getIndex(typeName);
+                if (index != null && current != null)
+                    index.write(current);
+            }
+            public boolean hasNext() throws IOException {
+                return delegate.hasNext();
+            }
+            public void close() throws IOException {
+                delegate.close();
+            }
+        };
+    }
+}
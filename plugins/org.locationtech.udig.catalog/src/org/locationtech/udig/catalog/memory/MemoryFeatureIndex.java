@@ -0,0 +1,256 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ *
+ */
+package org.locationtech.udig.catalog.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.identity.Identifier;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Index over the features of one type held by an {@link ActiveMemoryDataStore}.
+ * <p>
+ * The feature ids are kept in the order they were read, with an STRtree of the default geometry
+ * bounds and a table of the positions of the ids, so bounding box and id queries visit only the
+ * features that may match. The features themselves stay in the memory of the datastore entry
+ * and are looked up by id, so they are not held twice.
+ * </p>
+ * <p>
+ * Features written or removed through the store are updated in place: the STRtree can not be
+ * changed once built, so written features are kept in a pending list that bounding box queries
+ * check one by one, and removed features are left out of the results. Once the pending and
+ * removed features pass {@link #needsRebuild() a threshold} the store builds a new index.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+class MemoryFeatureIndex {
+
+    /** Estimated size of an object header and reference */
+    private static final int OBJECT = 16;
+
+    /** Changes that are always kept in place, however few features there are */
+    private static final int MIN_CHANGES = 1024;
+
+    /** features of the datastore entry by id */
+    private final Map<String, SimpleFeature> memory;
+
+    /** feature ids in the order they were read; null once removed */
+    private final List<String> fids;
+
+    private final Map<String, Integer> ids;
+
+    private final STRtree tree;
+
+    /** positions written since the tree was built; their bounds in the tree may be wrong */
+    private final Set<Integer> pending = new TreeSet<Integer>();
+
+    private int removed;
+
+    /** true if the type has one geometry, the only one a bounds filter can be about */
+    private final boolean spatial;
+
+    /**
+     * Indexes the features of a datastore entry.
+     *
+     * @param schema type of the features
+     * @param memory the features of the entry by id; looked up again by the queries
+     */
+    MemoryFeatureIndex( SimpleFeatureType schema, Map<String, SimpleFeature> memory ) {
+        this.memory = memory;
+        int geometries = 0;
+        for( AttributeDescriptor descriptor : schema.getAttributeDescriptors() ) {
+            if (descriptor instanceof GeometryDescriptor)
+                geometries++;
+        }
+        spatial = geometries == 1 && schema.getGeometryDescriptor() != null;
+
+        fids = new ArrayList<String>(memory.size());
+        ids = new HashMap<String, Integer>(memory.size() * 4 / 3 + 1);
+        tree = new STRtree();
+        for( SimpleFeature feature : memory.values() ) {
+            int position = fids.size();
+            fids.add(feature.getID());
+            ids.put(feature.getID(), position);
+            Object geometry = feature.getDefaultGeometry();
+            if (geometry instanceof Geometry) {
+                Envelope bounds = ((Geometry) geometry).getEnvelopeInternal();
+                if (!bounds.isNull())
+                    tree.insert(bounds, position);
+            }
+        }
+        tree.build();
+    }
+
+    /**
+     * Notes a feature written to the store, added or modified.
+     *
+     * @param feature the feature as stored
+     */
+    synchronized void write( SimpleFeature feature ) {
+        Integer position = ids.get(feature.getID());
+        if (position == null) {
+            position = fids.size();
+            fids.add(feature.getID());
+            ids.put(feature.getID(), position);
+        }
+        pending.add(position);
+    }
+
+    /**
+     * Notes a feature removed from the store.
+     */
+    synchronized void remove( String fid ) {
+        Integer position = ids.remove(fid);
+        if (position == null)
+            return;
+        fids.set(position, null);
+        pending.remove(position);
+        removed++;
+    }
+
+    /**
+     * @return true if so many features changed since the index was built that building it again
+     *         is cheaper than checking them on every query
+     */
+    synchronized boolean needsRebuild() {
+        return pending.size() + removed > Math.max(MIN_CHANGES, fids.size() / 4);
+    }
+
+    /**
+     * Rough estimate of the memory used by the feature: coordinates, strings and boxed values.
+     */
+    private static long sizeOf( SimpleFeature feature ) {
+        long size = OBJECT * 2 + feature.getID().length() * 2;
+        for( Object value : feature.getAttributes() ) {
+            size += sizeOfValue(value);
+        }
+        return size;
+    }
+
+    private static long sizeOfValue( Object value ) {
+        if (value == null)
+            return 4;
+        if (value instanceof Geometry)
+            return OBJECT * 4 + ((Geometry) value).getNumPoints() * 3L * 8L;
+        if (value instanceof CharSequence)
+            return OBJECT * 2 + ((CharSequence) value).length() * 2L;
+        if (value instanceof Double || value instanceof Long || value instanceof Date)
+            return OBJECT + 8;
+        return OBJECT + 4;
+    }
+
+    /**
+     * @return number of features indexed
+     */
+    synchronized int size() {
+        return fids.size() - removed;
+    }
+
+    /**
+     * @return estimated bytes used by the features and the index
+     */
+    synchronized long getMemorySize() {
+        // the index itself: an id entry, a tree entry and an array slot for each position
+        long size = OBJECT * 4 + fids.size() * (OBJECT * 6L);
+        for( SimpleFeature feature : memory.values() ) {
+            size += sizeOf(feature);
+        }
+        return size;
+    }
+
+    /**
+     * @return true if bounds can be looked up in the index
+     */
+    boolean isSpatial() {
+        return spatial;
+    }
+
+    /**
+     * Features whose default geometry bounds intersect the bounds, in the order they were read.
+     */
+    synchronized List<SimpleFeature> query( Envelope bounds ) {
+        @SuppressWarnings("unchecked")
+        List<Object> found = tree.query(bounds);
+        int[] positions = new int[found.size() + pending.size()];
+        int count = 0;
+        for( Object position : found ) {
+            if (!pending.contains(position))
+                positions[count++] = (Integer) position;
+        }
+        for( Integer position : pending ) {
+            SimpleFeature feature = feature(position);
+            Object geometry = feature == null ? null : feature.getDefaultGeometry();
+            if (geometry instanceof Geometry
+                    && ((Geometry) geometry).getEnvelopeInternal().intersects(bounds))
+                positions[count++] = position;
+        }
+        return collect(positions, count);
+    }
+
+    /**
+     * Features with the ids, in the order they were read.
+     */
+    synchronized List<SimpleFeature> query( Collection< ? extends Identifier> identifiers ) {
+        int[] positions = new int[identifiers.size()];
+        int count = 0;
+        for( Identifier identifier : identifiers ) {
+            Integer position = ids.get(String.valueOf(identifier.getID()));
+            if (position != null)
+                positions[count++] = position;
+        }
+        return collect(positions, count);
+    }
+
+    /**
+     * The features at the positions in the order they were read, without duplicates and removed
+     * features.
+     */
+    private List<SimpleFeature> collect( int[] positions, int count ) {
+        positions = Arrays.copyOf(positions, count);
+        Arrays.sort(positions);
+        List<SimpleFeature> result = new ArrayList<SimpleFeature>(count);
+        int previous = -1;
+        for( int position : positions ) {
+            if (position != previous) {
+                SimpleFeature feature = feature(position);
+                if (feature != null)
+                    result.add(feature);
+            }
+            previous = position;
+        }
+        return result;
+    }
+
+    /**
+     * @return the feature at the position from the datastore entry, null if it was removed
+     */
+    private SimpleFeature feature( int position ) {
+        String fid = fids.get(position);
+        return fid == null ? null : memory.get(fid);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.locationtech.udig.omsbox.exchange.MappedRaster;
+
+/**
+ * Test writing and reading {@link MappedRaster mapped rasters}.
+ */
+@SuppressWarnings("nls")
+public class MappedRasterTest {
+
+    private static final double NOVALUE = -9999.0;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("mapped", "." + MappedRaster.EXTENSION);
+        file.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        // not a multiple of the tile size, so the last tiles are partly empty
+        int width = MappedRaster.TILE_SIZE + 188;
+        int height = MappedRaster.TILE_SIZE + 88;
+        float[][] matrix = new float[height][width];
+        for( int y = 0; y < height; y++ ) {
+            for( int x = 0; x < width; x++ ) {
+                matrix[y][x] = (x + y) % 7 == 0 ? (float) NOVALUE : y * width + x;
+            }
+        }
+        ReferencedEnvelope envelope = new ReferencedEnvelope(10.0, 17.0, 45.0, 51.0, DefaultGeographicCRS.WGS84);
+        GridCoverage2D coverage = new GridCoverageFactory().create("test", matrix, envelope);
+
+        MappedRaster.write(coverage, NOVALUE, file);
+        assertTrue(MappedRaster.isMappedRaster(file));
+
+        // header
+        assertEquals(new Rectangle(0, 0, width, height), MappedRaster.readSize(file));
+        ReferencedEnvelope readEnvelope = MappedRaster.readEnvelope(file);
+        assertEquals(envelope.getMinX(), readEnvelope.getMinX(), 1E-9);
+        assertEquals(envelope.getMinY(), readEnvelope.getMinY(), 1E-9);
+        assertEquals(envelope.getMaxX(), readEnvelope.getMaxX(), 1E-9);
+        assertEquals(envelope.getMaxY(), readEnvelope.getMaxY(), 1E-9);
+        assertTrue(CRS.equalsIgnoreMetadata(DefaultGeographicCRS.WGS84, readEnvelope.getCoordinateReferenceSystem()));
+
+        // tiles, with the no values as NaN
+        GridCoverage2D read = MappedRaster.read(file, "read");
+        RenderedImage image = read.getRenderedImage();
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        assertEquals(MappedRaster.TILE_SIZE, image.getTileWidth());
+        assertEquals(2, image.getNumXTiles());
+        assertEquals(2, image.getNumYTiles());
+        Raster data = image.getData();
+        for( int y = 0; y < height; y++ ) {
+            for( int x = 0; x < width; x++ ) {
+                float value = data.getSampleFloat(x, y, 0);
+                if (matrix[y][x] == NOVALUE) {
+                    assertTrue("novalue at " + x + "," + y, Float.isNaN(value));
+                } else {
+                    assertEquals("value at " + x + "," + y, matrix[y][x], value, 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWriteFromReader() throws Exception {
+        // larger than the preview coverages of the raster resources
+        int width = 700;
+        int height = 300;
+        float[][] matrix = new float[height][width];
+        for( int y = 0; y < height; y++ ) {
+            for( int x = 0; x < width; x++ ) {
+                matrix[y][x] = y * width + x;
+            }
+        }
+        ReferencedEnvelope envelope = new ReferencedEnvelope(10.0, 17.0, 45.0, 48.0, DefaultGeographicCRS.WGS84);
+        GridCoverage2D coverage = new GridCoverageFactory().create("test", matrix, envelope);
+        File tiff = File.createTempFile("source", ".tif");
+        try {
+            GeoTiffWriter writer = new GeoTiffWriter(tiff);
+            try {
+                writer.write(coverage, null);
+            } finally {
+                writer.dispose();
+            }
+
+            GeoTiffReader reader = new GeoTiffReader(tiff);
+            try {
+                assertTrue(MappedRaster.write(reader, NOVALUE, file));
+            } finally {
+                reader.dispose();
+            }
+            assertEquals(new Rectangle(0, 0, width, height), MappedRaster.readSize(file));
+            Raster data = MappedRaster.read(file, "read").getRenderedImage().getData();
+            assertEquals(matrix[height - 1][width - 1], data.getSampleFloat(width - 1, height - 1, 0), 0f);
+        } finally {
+            tiff.delete();
+        }
+    }
+
+    @Test
+    public void testIncompleteFile() throws Exception {
+        // the magic number is written last, a file without it was not completely written
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(4096);
+        } finally {
+            raf.close();
+        }
+        assertFalse(MappedRaster.isMappedRaster(file));
+    }
+}
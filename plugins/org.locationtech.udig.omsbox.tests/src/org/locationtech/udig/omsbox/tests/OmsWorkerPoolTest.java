@@ -0,0 +1,109 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.locationtech.udig.omsbox.core.OmsWorker;
+import org.locationtech.udig.omsbox.core.OmsWorkerPool;
+
+/**
+ * Test the protocol between the {@link OmsWorkerPool} and its workers.
+ *
+ * <p>The worker is a shell script following the {@link OmsWorker} protocol, which prints
+ * the "script" it is asked to run as the output of the module.
+ */
+@SuppressWarnings("nls")
+public class OmsWorkerPoolTest {
+
+    private static final String WORKER = "echo " + OmsWorker.READY + "\n" //
+            + "while read -r run token path; do\n" //
+            + "  cat \"$path\"\n" //
+            + "  echo \"" + OmsWorker.DONE + "$token\" 1>&2\n" //
+            + "  echo \"" + OmsWorker.DONE + "$token\"\n" //
+            + "done\n";
+
+    private File scriptFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(new File("/bin/sh").exists());
+        scriptFile = File.createTempFile("omsworker", ".oms");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        OmsWorkerPool.getInstance().shutdown();
+        if (scriptFile != null) {
+            scriptFile.delete();
+        }
+    }
+
+    @Test
+    public void testOutputWithMarkers() throws Exception {
+        // module output looking like the end of a run, and a last line left open
+        String output = "first\n" + OmsWorker.DONE + "\n" + OmsWorker.DONE + "0123456789abcdef\nlast";
+        write(output);
+        List<String> command = Arrays.asList("sh", "-c", WORKER);
+
+        // twice, the second run goes to the idle worker
+        for( int i = 0; i < 2; i++ ) {
+            Process process = OmsWorkerPool.getInstance().run(command, scriptFile);
+            assertEquals(output + "\n", read(process.getInputStream()));
+            assertEquals("", read(process.getErrorStream()));
+            assertEquals(0, process.waitFor());
+        }
+    }
+
+    @Test
+    public void testWorkerNotStarting() throws Exception {
+        write("output");
+        List<String> command = Arrays.asList("sh", "-c", "echo broken 1>&2; exit 3");
+        try {
+            OmsWorkerPool.getInstance().run(command, scriptFile);
+            fail("the worker did not start");
+        } catch (IOException e) {
+            // the caller starts a process instead
+        }
+    }
+
+    private void write( String text ) throws IOException {
+        FileOutputStream out = new FileOutputStream(scriptFile);
+        try {
+            out.write(text.getBytes());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read( InputStream in ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while( (read = in.read(buffer)) != -1 ) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray());
+    }
+}
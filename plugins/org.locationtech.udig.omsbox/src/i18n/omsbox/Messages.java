@@ -13,6 +13,9 @@ import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
     private static final String BUNDLE_NAME = "i18n.omsbox.messages"; //$NON-NLS-1$
+    public static String MappedRasterServiceExtension_badExt;
+    public static String MappedRasterServiceExtension_notFile;
+    public static String MappedRasterServiceExtension_notMappedRaster;
     public static String OmsBoxView_Load_Experimental;
     public static String OmsBoxView_Modules;
     public static String OmsBoxView_No_module_selected;
@@ -39,6 +39,7 @@ import org.geotools.data.DataUtilities;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 
+import org.locationtech.udig.omsbox.core.OmsWorkerPool;
 import org.locationtech.udig.omsbox.processingregion.ProcessingRegionMapGraphic;
 import org.locationtech.udig.omsbox.utils.ImageCache;
 import org.locationtech.udig.omsbox.utils.OmsBoxConstants;
@@ -76,6 +77,7 @@ public class OmsBoxPlugin extends AbstractUIPlugin {
     public void stop( BundleContext context ) throws Exception {
         plugin = null;
 
+        OmsWorkerPool.getInstance().shutdown();
         ImageCache.getInstance().dispose();
         super.stop(context);
     }
@@ -550,6 +552,51 @@ public class OmsBoxPlugin extends AbstractUIPlugin {
         preferenceStore.setValue(OmsBoxConstants.GRASS_ENVIRONMENT_SHELL_KEY, shell);
     }
 
+    /**
+     * Utility method to get the worker preference.
+     * 
+     * @return <code>true</code> if scripts are run by persistent worker jvms.
+     */
+    public boolean getWorkerPreference() {
+        IPreferenceStore preferenceStore = OmsBoxPlugin.getDefault().getPreferenceStore();
+        return preferenceStore.getBoolean(OmsBoxConstants.WORKER_KEY);
+    }
+
+    /**
+     * Save the worker preference, stopping the idle workers if they are not used anymore.
+     * 
+     * @param useWorker <code>true</code> to run scripts in persistent worker jvms.
+     */
+    public void setWorkerPreference( final boolean useWorker ) {
+        IPreferenceStore preferenceStore = OmsBoxPlugin.getDefault().getPreferenceStore();
+        preferenceStore.setValue(OmsBoxConstants.WORKER_KEY, useWorker);
+        if (!useWorker) {
+            OmsWorkerPool.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Utility method to get the raster exchange preference.
+     * 
+     * @return <code>true</code> if rasters of the map are handed to the modules through memory
+     *              mapped files.
+     */
+    public boolean getExchangePreference() {
+        IPreferenceStore preferenceStore = OmsBoxPlugin.getDefault().getPreferenceStore();
+        return preferenceStore.getBoolean(OmsBoxConstants.EXCHANGE_KEY);
+    }
+
+    /**
+     * Save the raster exchange preference.
+     * 
+     * @param exchange <code>true</code> to hand rasters of the map to the modules through memory
+     *              mapped files.
+     */
+    public void setExchangePreference( final boolean exchange ) {
+        IPreferenceStore preferenceStore = OmsBoxPlugin.getDefault().getPreferenceStore();
+        preferenceStore.setValue(OmsBoxConstants.EXCHANGE_KEY, exchange);
+    }
+
     /**
      * Utility method to get the mapcalc history.
      * 
@@ -584,6 +631,10 @@ public class OmsBoxPlugin extends AbstractUIPlugin {
         getDefault().getLog().log(new Status(IStatus.INFO, PLUGIN_ID, message));
     }
 
+    public static void log( String message, Throwable t ) {
+        getDefault().getLog().log(new Status(IStatus.WARNING, PLUGIN_ID, message, t));
+    }
+
     /**
      * @return the working folder set in the preferences.
      */
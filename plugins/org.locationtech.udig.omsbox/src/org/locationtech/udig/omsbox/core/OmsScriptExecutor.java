@@ -142,44 +142,33 @@ public class OmsScriptExecutor {
             arguments.add("-D" + OmsBoxConstants.GRASS_ENVIRONMENT_SHELL_KEY + "=" + grassShell);
         }
 
-        // all the arguments
-        arguments.add("-cp");
-        arguments.add(classPath);
-        arguments.add(CLI.class.getCanonicalName());
-        arguments.add("-r ");
-        arguments.add("\"" + scriptFile.getAbsolutePath() + "\"");
-
-        String homeDir = System.getProperty("java.io.tmpdir");
-        File homeFile = new File(homeDir);
-        StringBuilder runSb = new StringBuilder();
-        for( String arg : arguments ) {
-            runSb.append(arg).append(" ");
+        Process process = null;
+        List<String> command = null;
+        Map<String, String> environment = null;
+        if (OmsBoxPlugin.getDefault().getWorkerPreference()) {
+            // same jvm, without the quotes needed by the shell
+            List<String> workerCommand = new ArrayList<String>(arguments);
+            workerCommand.set(0, OmsBoxPlugin.getUdigJava());
+            workerCommand.set(2, "-Doms.sim.resources=" + modulesJarsString);
+            workerCommand.add("-cp");
+            workerCommand.add(classPath.replace("\"", ""));
+            workerCommand.add(OmsWorker.class.getCanonicalName());
+            try {
+                process = OmsWorkerPool.getInstance().run(workerCommand, scriptFile);
+                command = workerCommand;
+                environment = System.getenv();
+            } catch (IOException e) {
+                errorStream.println("Unable to run the script in a worker, starting a new process: " + e.getLocalizedMessage());
+            }
         }
 
-        String[] args;
-        if (Platform.getOS().equals(Platform.OS_WIN32)) {
-            File tmpRunFile = new File(homeFile, "udig_spatialtoolbox.bat");
-            FileUtils.writeStringToFile(tmpRunFile, "@echo off\n" + runSb.toString());
-            args = new String[]{"cmd", "/c", tmpRunFile.getAbsolutePath()};
-        } else {
-            File tmpRunFile = new File(homeFile, "udig_spatialtoolbox.sh");
-            FileUtils.writeStringToFile(tmpRunFile, runSb.toString());
-            args = new String[]{"sh", tmpRunFile.getAbsolutePath()};
+        if (process == null) {
+            ProcessBuilder processBuilder = createProcessBuilder(arguments, scriptFile);
+            process = processBuilder.start();
+            command = processBuilder.command();
+            environment = processBuilder.environment();
         }
-
-        // {javaFile, ramExpr, resourcesFlag, "-cp", classPath,
-        // CLI.class.getCanonicalName(), "-r",
-        // scriptFile.getAbsolutePath()};
-
-        ProcessBuilder processBuilder = new ProcessBuilder(args);
-        // work in home
-        // processBuilder.directory(homeFile);
-
-        // environment
-        Map<String, String> environment = processBuilder.environment();
-        // environment.put("CLASSPATH", classPath);
-
-        final Process process = processBuilder.start();
+        final Process runProcess = process;
         internalStream.println("Process started: " + new DateTime().toString(OmsBoxConstants.dateTimeFormatterYYYYMMDDHHMMSS));
         internalStream.println("");
 
@@ -188,7 +177,6 @@ public class OmsScriptExecutor {
             internalStream.println("------------------------------>8----------------------------");
             internalStream.println("Launching command: ");
             internalStream.println("------------------");
-            List<String> command = processBuilder.command();
             for( String arg : command ) {
                 internalStream.print(arg);
                 internalStream.print(" ");
@@ -224,7 +212,7 @@ public class OmsScriptExecutor {
             public void run() {
                 BufferedReader br = null;
                 try {
-                    InputStream is = process.getInputStream();
+                    InputStream is = runProcess.getInputStream();
                     InputStreamReader isr = new InputStreamReader(is);
                     br = new BufferedReader(isr);
                     String line;
@@ -255,7 +243,7 @@ public class OmsScriptExecutor {
             public void run() {
                 BufferedReader br = null;
                 try {
-                    InputStream is = process.getErrorStream();
+                    InputStream is = runProcess.getErrorStream();
                     InputStreamReader isr = new InputStreamReader(is);
                     br = new BufferedReader(isr);
                     String line;
@@ -285,6 +273,55 @@ public class OmsScriptExecutor {
 
         return process;
     }
+
+    /**
+     * Creates the builder of a new jvm running the script.
+     * 
+     * @param arguments the jvm arguments.
+     * @param scriptFile the script to run.
+     * @return the process builder.
+     * @throws IOException
+     */
+    private ProcessBuilder createProcessBuilder( List<String> arguments, File scriptFile ) throws IOException {
+        arguments = new ArrayList<String>(arguments);
+        // all the arguments
+        arguments.add("-cp");
+        arguments.add(classPath);
+        arguments.add(CLI.class.getCanonicalName());
+        arguments.add("-r ");
+        arguments.add("\"" + scriptFile.getAbsolutePath() + "\"");
+
+        String homeDir = System.getProperty("java.io.tmpdir");
+        File homeFile = new File(homeDir);
+        StringBuilder runSb = new StringBuilder();
+        for( String arg : arguments ) {
+            runSb.append(arg).append(" ");
+        }
+
+        String[] args;
+        if (Platform.getOS().equals(Platform.OS_WIN32)) {
+            File tmpRunFile = new File(homeFile, "udig_spatialtoolbox.bat");
+            FileUtils.writeStringToFile(tmpRunFile, "@echo off\n" + runSb.toString());
+            args = new String[]{"cmd", "/c", tmpRunFile.getAbsolutePath()};
+        } else {
+            File tmpRunFile = new File(homeFile, "udig_spatialtoolbox.sh");
+            FileUtils.writeStringToFile(tmpRunFile, runSb.toString());
+            args = new String[]{"sh", tmpRunFile.getAbsolutePath()};
+        }
+
+        // {javaFile, ramExpr, resourcesFlag, "-cp", classPath,
+        // CLI.class.getCanonicalName(), "-r",
+        // scriptFile.getAbsolutePath()};
+
+        ProcessBuilder processBuilder = new ProcessBuilder(args);
+        // work in home
+        // processBuilder.directory(homeFile);
+
+        // environment
+        // processBuilder.environment().put("CLASSPATH", classPath);
+        return processBuilder;
+    }
+
     public boolean isRunning() {
         return isRunning;
     }
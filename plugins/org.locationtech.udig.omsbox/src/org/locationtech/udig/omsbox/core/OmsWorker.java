@@ -0,0 +1,78 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.core;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+
+import oms3.CLI;
+
+/**
+ * Main class of a persistent worker jvm.
+ *
+ * <p>The worker prints {@link #READY} once it is started, then reads the scripts to run
+ * from its standard input, one per line: {@link #RUN}, a token chosen for the run and the
+ * path of the script, separated by spaces. It runs them one after the other in the
+ * same jvm, so that the modules classes are loaded and compiled only once.
+ * The output of each run goes to the standard output and error of the worker
+ * and is closed by {@link #DONE} followed by the token of the run, at the end of a line
+ * on both streams. Since the token is new for every run, the output of a module can't
+ * close the run. The worker ends when its standard input is closed.
+ *
+ * <p>This class runs outside of uDig and must only use the jdk and the oms libraries.
+ *
+ * @see OmsWorkerPool
+ */
+@SuppressWarnings("nls")
+public class OmsWorker {
+
+    /**
+     * Line printed on the standard output once the worker is started.
+     */
+    public static final String READY = "@@@OMSBOX_READY@@@";
+
+    /**
+     * First word of the line asking to run a script.
+     */
+    public static final String RUN = "@@@OMSBOX_RUN@@@";
+
+    /**
+     * Closes the output of a run when followed by its token, at the end of the last line.
+     */
+    public static final String DONE = "@@@OMSBOX_DONE@@@";
+
+    public static void main( String[] args ) throws Exception {
+        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        System.out.println(READY);
+        System.out.flush();
+        String line;
+        while( (line = br.readLine()) != null ) {
+            if (!line.startsWith(RUN + " ")) {
+                continue;
+            }
+            String run = line.substring(RUN.length() + 1);
+            int split = run.indexOf(' ');
+            if (split == -1) {
+                continue;
+            }
+            String token = run.substring(0, split);
+            String scriptPath = run.substring(split + 1);
+            try {
+                CLI.main(new String[]{"-r", scriptPath});
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+            System.err.println(DONE + token);
+            System.err.flush();
+            System.out.println(DONE + token);
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of persistent worker jvms running OMS scripts.
+ *
+ * <p>Starting a jvm, loading the modules and compiling them takes seconds, which is
+ * most of the time of a short module run. The workers of the pool ({@link OmsWorker})
+ * stay alive between runs, so only the first run pays for it. A worker runs one
+ * script at a time: concurrent runs get workers of their own, and a few idle
+ * workers are kept for the next runs.
+ *
+ * <p>Each run is handed out as a {@link Process} streaming the output of that run only,
+ * so it is logged and cancelled like a process started for the run. Cancelling a run
+ * kills its worker, since a module can't be stopped safely otherwise.
+ *
+ * <p>A worker that doesn't report to be ready within {@link #STARTUP_TIMEOUT} is
+ * stopped and the run fails with an {@link IOException}, so that the caller can start
+ * a process for the run instead.
+ */
+@SuppressWarnings("nls")
+public class OmsWorkerPool {
+
+    /**
+     * The maximum number of idle workers kept.
+     */
+    private static final int MAX_IDLE = 2;
+
+    /**
+     * The time a worker has to start, in milliseconds.
+     */
+    private static final long STARTUP_TIMEOUT = 60000;
+
+    private static OmsWorkerPool instance;
+
+    private final List<Worker> idleWorkers = new ArrayList<Worker>();
+
+    /**
+     * The command the idle workers have been started with.
+     */
+    private List<String> idleCommand;
+
+    private OmsWorkerPool() {
+    }
+
+    public synchronized static OmsWorkerPool getInstance() {
+        if (instance == null) {
+            instance = new OmsWorkerPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a script in a worker, starting one if none is idle.
+     *
+     * @param command the command starting a worker jvm. Workers started with a different
+     *              command (heap, libraries or properties changed) are not reused.
+     * @param scriptFile the script to run.
+     * @return the process giving the output of the run.
+     * @throws IOException if the worker could not be started.
+     */
+    public Process run( List<String> command, File scriptFile ) throws IOException {
+        Worker worker = takeIdle(command);
+        if (worker != null) {
+            try {
+                return worker.run(scriptFile);
+            } catch (IOException e) {
+                // the worker died while idle, a new one is started
+                worker.kill();
+            }
+        }
+        worker = new Worker(command);
+        try {
+            return worker.run(scriptFile);
+        } catch (IOException e) {
+            worker.kill();
+            throw e;
+        }
+    }
+
+    /**
+     * @return an idle worker started with the command or <code>null</code> if there is none.
+     */
+    private Worker takeIdle( List<String> command ) {
+        Worker worker = null;
+        synchronized (this) {
+            if (!command.equals(idleCommand)) {
+                shutdown();
+                idleCommand = new ArrayList<String>(command);
+            }
+            while( worker == null && idleWorkers.size() > 0 ) {
+                Worker idleWorker = idleWorkers.remove(idleWorkers.size() - 1);
+                if (idleWorker.isAlive()) {
+                    worker = idleWorker;
+                } else {
+                    idleWorker.kill();
+                }
+            }
+        }
+        return worker;
+    }
+
+    /**
+     * Stops the idle workers. Running workers stop once their run is done.
+     */
+    public synchronized void shutdown() {
+        for( Worker worker : idleWorkers ) {
+            worker.kill();
+        }
+        idleWorkers.clear();
+        idleCommand = null;
+    }
+
+    private synchronized void release( Worker worker ) {
+        if (worker.isAlive() && worker.command.equals(idleCommand) && idleWorkers.size() < MAX_IDLE) {
+            idleWorkers.add(worker);
+        } else {
+            worker.kill();
+        }
+    }
+
+    /**
+     * A worker jvm.
+     */
+    private class Worker {
+        private final List<String> command;
+        private final Process process;
+        private final BufferedWriter stdin;
+        private WorkerProcess currentRun;
+        private boolean started = false;
+        private boolean dead = false;
+        /** what the worker printed before being ready, to tell why it didn't start */
+        private final StringBuilder startupOutput = new StringBuilder();
+
+        Worker( List<String> command ) throws IOException {
+            this.command = command;
+            process = new ProcessBuilder(command).start();
+            stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            pump(process.getInputStream(), true);
+            pump(process.getErrorStream(), false);
+            waitStarted();
+        }
+
+        /**
+         * Waits for the worker to be ready.
+         *
+         * @throws IOException if the worker ended or didn't get ready in time.
+         */
+        private synchronized void waitStarted() throws IOException {
+            long end = System.currentTimeMillis() + STARTUP_TIMEOUT;
+            try {
+                long left = STARTUP_TIMEOUT;
+                while( !started && !dead && left > 0 ) {
+                    wait(left);
+                    left = end - System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!started) {
+                kill();
+                throw new IOException("The worker did not start. " + startupOutput.toString().trim());
+            }
+        }
+
+        synchronized boolean isAlive() {
+            return !dead && process.isAlive();
+        }
+
+        synchronized Process run( File scriptFile ) throws IOException {
+            // a new token for each run, so that the output of a module can't end the run
+            String token = UUID.randomUUID().toString().replace("-", "");
+            currentRun = new WorkerProcess(this, OmsWorker.DONE + token);
+            stdin.write(OmsWorker.RUN + " " + token + " " + scriptFile.getAbsolutePath());
+            stdin.newLine();
+            stdin.flush();
+            return currentRun;
+        }
+
+        void kill() {
+            synchronized (this) {
+                dead = true;
+            }
+            process.destroy();
+        }
+
+        /**
+         * Forwards the lines of a stream of the worker to the current run.
+         */
+        private void pump( final InputStream stream, final boolean isOutput ) {
+            Thread pumpThread = new Thread("OmsBox worker " + (isOutput ? "output" : "error")){
+                public void run() {
+                    BufferedReader br = new BufferedReader(new InputStreamReader(stream));
+                    try {
+                        String line;
+                        while( (line = br.readLine()) != null ) {
+                            WorkerProcess run;
+                            synchronized (Worker.this) {
+                                if (!started) {
+                                    if (isOutput && line.equals(OmsWorker.READY)) {
+                                        started = true;
+                                        Worker.this.notifyAll();
+                                    } else if (startupOutput.length() < 4096) {
+                                        startupOutput.append(line).append('\n');
+                                    }
+                                    continue;
+                                }
+                                run = currentRun;
+                            }
+                            if (run == null) {
+                                continue;
+                            }
+                            if (line.endsWith(run.doneMarker)) {
+                                // the module may have left its last line open
+                                String lastLine = line.substring(0, line.length() - run.doneMarker.length());
+                                if (lastLine.length() > 0) {
+                                    run.write(lastLine, isOutput);
+                                }
+                                if (run.streamDone(isOutput, 0)) {
+                                    runDone(run);
+                                }
+                            } else {
+                                run.write(line, isOutput);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // the worker died, handled below
+                    } finally {
+                        try {
+                            br.close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                        WorkerProcess run;
+                        synchronized (Worker.this) {
+                            dead = true;
+                            run = currentRun;
+                            Worker.this.notifyAll();
+                        }
+                        if (run != null && run.streamDone(isOutput, exitValue())) {
+                            runDone(run);
+                        }
+                    }
+                }
+            };
+            pumpThread.setDaemon(true);
+            pumpThread.start();
+        }
+
+        /**
+         * @return the exit value of the worker once its streams are closed, 1 if it doesn't end.
+         */
+        private int exitValue() {
+            try {
+                if (process.waitFor(10, TimeUnit.SECONDS)) {
+                    return process.exitValue();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        }
+
+        private void runDone( WorkerProcess run ) {
+            synchronized (this) {
+                if (currentRun != run) {
+                    return;
+                }
+                currentRun = null;
+            }
+            // back in the pool before the run is seen as finished
+            release(this);
+            run.finish();
+        }
+    }
+
+    /**
+     * A run in a worker, seen as a process.
+     */
+    private static class WorkerProcess extends Process {
+        private final Worker worker;
+        /** ends the output of the run */
+        private final String doneMarker;
+        private final PipedOutputStream outputSink = new PipedOutputStream();
+        private final PipedOutputStream errorSink = new PipedOutputStream();
+        private final PipedInputStream outputStream;
+        private final PipedInputStream errorStream;
+        private boolean outputDone = false;
+        private boolean errorDone = false;
+        private boolean finished = false;
+        private int exitValue = 0;
+
+        WorkerProcess( Worker worker, String doneMarker ) throws IOException {
+            this.worker = worker;
+            this.doneMarker = doneMarker;
+            outputStream = new PipedInputStream(outputSink, 65536);
+            errorStream = new PipedInputStream(errorSink, 65536);
+        }
+
+        void write( String line, boolean isOutput ) {
+            PipedOutputStream sink = isOutput ? outputSink : errorSink;
+            try {
+                sink.write((line + "\n").getBytes());
+                sink.flush();
+            } catch (IOException e) {
+                // nobody is reading the run anymore
+            }
+        }
+
+        /**
+         * Marks one of the streams of the run as done.
+         *
+         * @return <code>true</code> if the run is done, the caller has to {@link #finish()} it.
+         */
+        synchronized boolean streamDone( boolean isOutput, int exitValue ) {
+            if (outputDone && errorDone) {
+                return false;
+            }
+            if (isOutput) {
+                outputDone = true;
+            } else {
+                errorDone = true;
+            }
+            this.exitValue = Math.max(this.exitValue, exitValue);
+            return outputDone && errorDone;
+        }
+
+        /**
+         * Closes the streams of the run.
+         */
+        synchronized void finish() {
+            try {
+                outputSink.close();
+                errorSink.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            finished = true;
+            notifyAll();
+        }
+
+        public OutputStream getOutputStream() {
+            return new OutputStream(){
+                public void write( int b ) throws IOException {
+                    // the input of the worker is reserved to the scripts to run
+                }
+            };
+        }
+
+        public InputStream getInputStream() {
+            return outputStream;
+        }
+
+        public InputStream getErrorStream() {
+            return errorStream;
+        }
+
+        public synchronized int waitFor() throws InterruptedException {
+            while( !finished ) {
+                wait();
+            }
+            return exitValue;
+        }
+
+        public synchronized int exitValue() {
+            if (!finished) {
+                throw new IllegalThreadStateException("The script is still running.");
+            }
+            return exitValue;
+        }
+
+        public void destroy() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+            }
+            // closes the streams of the run once the worker is gone
+            worker.kill();
+        }
+    }
+}
@@ -10,7 +10,9 @@
 package org.locationtech.udig.omsbox.core;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -23,26 +25,34 @@ import org.locationtech.udig.catalog.IGeoResource;
 import org.locationtech.udig.catalog.IService;
 import org.locationtech.udig.catalog.IServiceFactory;
 import org.locationtech.udig.catalog.URLUtils;
+import org.locationtech.udig.project.ILayer;
 import org.locationtech.udig.project.IMap;
 import org.locationtech.udig.project.internal.Layer;
 import org.locationtech.udig.project.internal.LayerFactory;
 import org.locationtech.udig.project.internal.commands.AddLayerCommand;
 import org.locationtech.udig.project.ui.ApplicationGIS;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.console.IConsole;
 import org.eclipse.ui.console.IConsoleManager;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.gce.grassraster.JGrassConstants;
+import org.opengis.coverage.grid.GridEnvelope;
 
 import org.locationtech.udig.catalog.jgrass.core.JGrassMapGeoResource;
 import org.locationtech.udig.catalog.jgrass.core.JGrassService;
 import org.locationtech.udig.catalog.jgrass.utils.JGrassCatalogUtilities;
 import org.locationtech.udig.omsbox.OmsBoxPlugin;
+import org.locationtech.udig.omsbox.exchange.MappedRaster;
+import org.locationtech.udig.omsbox.exchange.OmsMappedRasterReader;
+import org.locationtech.udig.omsbox.exchange.OmsMappedRasterWriter;
 import org.locationtech.udig.omsbox.utils.OmsBoxConstants;
 import org.locationtech.udig.omsbox.utils.OmsBoxUtils;
 import org.locationtech.udig.omsbox.view.widgets.ModuleGui;
@@ -57,6 +67,11 @@ import org.locationtech.udig.omsbox.view.widgets.ModuleGuiElement;
 public class ScriptHandler {
     private static final String QUOTE = "'";
 
+    /**
+     * Time after which an unused exchange file is deleted, in milliseconds.
+     */
+    private static final long EXCHANGE_MAX_AGE = 24 * 60 * 60 * 1000L;
+
     private AtomicInteger counter = new AtomicInteger();
 
     /**
@@ -64,6 +79,12 @@ public class ScriptHandler {
      */
     private HashMap<ModuleDescription, String> variableNamesMap = new HashMap<ModuleDescription, String>();
 
+    /**
+     * Map of the raster reader and writer modules replaced by the {@link MappedRaster} modules,
+     * bound to the mapped raster file they use.
+     */
+    private HashMap<ModuleDescription, String> mappedModulesMap = new HashMap<ModuleDescription, String>();
+
     private ModuleDescription mainModuleDescription;
 
     /**
@@ -74,7 +95,22 @@ public class ScriptHandler {
      * @throws Exception
      */
     public String genereateScript( ModuleGui moduleGui ) throws Exception {
+        return genereateScript(moduleGui, false);
+    }
+
+    /**
+     * Generates the script from the supplied gui.
+     * 
+     * @param moduleGui the gui object for which to generate the script.
+     * @param exchangeRasters if <code>true</code>, the input rasters that are layers of the 
+     *              current map are handed to the module through {@link MappedRaster mapped rasters}.
+     *              The files are only valid on this machine, so this is for scripts that are run.
+     * @return the oms3 script.
+     * @throws Exception
+     */
+    public String genereateScript( ModuleGui moduleGui, boolean exchangeRasters ) throws Exception {
         variableNamesMap.clear();
+        mappedModulesMap.clear();
 
         mainModuleDescription = moduleGui.getModuleDescription();
         // input
@@ -102,6 +138,8 @@ public class ScriptHandler {
             return null;
         }
 
+        collectMappedModules(modulesInputGuiList, modulesOutputGuiList, exchangeRasters);
+
         String loggerLevelGui = OmsBoxPlugin.getDefault().retrieveSavedLogLevel();
         String loggerLevelOms = OmsBoxConstants.LOGLEVELS_MAP.get(loggerLevelGui);
         StringBuilder scriptSb = new StringBuilder();
@@ -332,6 +370,241 @@ public class ScriptHandler {
         }
     }
 
+    /**
+     * Finds the raster reader and writer modules to replace by the {@link MappedRaster} modules.
+     * 
+     * <p>Readers and writers of mapped raster files are always replaced, since the other modules
+     * don't know the format. If asked, the rasters read from layers of the current map are
+     * written to mapped rasters first, so that the module doesn't decode them again.
+     * 
+     * @param modulesInputGuiList the inputs of the main module.
+     * @param modulesOutputGuiList the outputs of the main module.
+     * @param exchangeRasters if <code>true</code>, map layers are handed through mapped rasters.
+     * @throws InterruptedException
+     * @throws InvocationTargetException
+     */
+    private void collectMappedModules( List<ModuleGuiElement> modulesInputGuiList,
+            List<ModuleGuiElement> modulesOutputGuiList, boolean exchangeRasters ) throws InvocationTargetException,
+            InterruptedException {
+        final List<ModuleDescription> exchangeReaders = new ArrayList<ModuleDescription>();
+        for( ModuleGuiElement inElement : modulesInputGuiList ) {
+            if (!inElement.hasData()) {
+                continue;
+            }
+            FieldData fieldData = inElement.getFieldData();
+            String filePath = getRasterFilePath(fieldData, OmsBoxConstants.FILEIN_UI_HINT);
+            if (filePath == null) {
+                continue;
+            }
+            if (isMappedRasterPath(filePath)) {
+                mappedModulesMap.put(fieldData.otherModule, filePath);
+            } else if (exchangeRasters && canExchange(fieldData.otherModule)) {
+                exchangeReaders.add(fieldData.otherModule);
+            }
+        }
+        for( ModuleGuiElement outElement : modulesOutputGuiList ) {
+            if (!outElement.hasData()) {
+                continue;
+            }
+            FieldData fieldData = outElement.getFieldData();
+            String filePath = getRasterFilePath(fieldData, OmsBoxConstants.FILEOUT_UI_HINT);
+            if (filePath != null && isMappedRasterPath(filePath)) {
+                mappedModulesMap.put(fieldData.otherModule, filePath);
+            }
+        }
+
+        if (exchangeReaders.size() == 0) {
+            return;
+        }
+        final HashMap<ModuleDescription, String> exchangedMap = new HashMap<ModuleDescription, String>();
+        PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress(){
+            public void run( IProgressMonitor pm ) throws InvocationTargetException, InterruptedException {
+                pm.beginTask("Handing the map rasters to the module...", exchangeReaders.size());
+                for( ModuleDescription reader : exchangeReaders ) {
+                    try {
+                        File exchangeFile = exchangeLayer(reader);
+                        if (exchangeFile != null) {
+                            exchangedMap.put(reader, exchangeFile.getAbsolutePath());
+                        }
+                    } catch (Exception e) {
+                        // the module reads the file itself
+                        OmsBoxPlugin.log("Unable to hand the map raster to the module", e);
+                    }
+                    pm.worked(1);
+                }
+                pm.done();
+            }
+        });
+        mappedModulesMap.putAll(exchangedMap);
+    }
+
+    /**
+     * Gets the file of the reader or writer module connected to a raster field.
+     * 
+     * @param fieldData the field of the main module.
+     * @param fileHint the ui hint of the file field of the connected module.
+     * @return the path of the file or <code>null</code> if the field is not a raster
+     *              connected to a module with a file.
+     */
+    private String getRasterFilePath( FieldData fieldData, String fileHint ) {
+        if (fieldData.otherModule == null || !fieldData.fieldType.equals(GridCoverage2D.class.getCanonicalName())) {
+            return null;
+        }
+        for( FieldData otherField : fieldData.otherModule.getInputsList() ) {
+            if (otherField.guiHints != null && otherField.guiHints.contains(fileHint)
+                    && otherField.fieldType.equals(String.class.getCanonicalName()) && otherField.fieldValue != null
+                    && otherField.fieldValue.length() > 0) {
+                return otherField.fieldValue;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMappedRasterPath( String filePath ) {
+        return filePath.toLowerCase().endsWith("." + MappedRaster.EXTENSION);
+    }
+
+    /**
+     * Checks if a reader module only reads its file as it is, so that the raster of the
+     * map can be handed over instead.
+     * 
+     * @param reader the reader module.
+     * @return <code>true</code> if the reader neither reads a region nor sets a no value.
+     */
+    private boolean canExchange( ModuleDescription reader ) {
+        for( FieldData readerField : reader.getInputsList() ) {
+            if (readerField.fieldValue == null || readerField.fieldValue.length() == 0) {
+                continue;
+            }
+            if (readerField.isProcessingRegionRelated()) {
+                return false;
+            }
+            if (readerField.fieldName.equals("geodataNovalue")) {
+                try {
+                    if (!Double.isNaN(Double.parseDouble(readerField.fieldValue))) {
+                        return false;
+                    }
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return getFieldValue(reader, "fileNovalue") != null;
+    }
+
+    private static String getFieldValue( ModuleDescription module, String fieldName ) {
+        for( FieldData fieldData : module.getInputsList() ) {
+            if (fieldData.fieldName.equals(fieldName) && fieldData.fieldValue != null
+                    && fieldData.fieldValue.length() > 0) {
+                return fieldData.fieldValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the raster of the map layer read by a reader module to a mapped raster.
+     * 
+     * <p>The raster is read at full resolution through the reader of the layer. The mapped
+     * rasters are kept in the temporary folder and reused as long as the file of the layer
+     * doesn't change.
+     * 
+     * @param reader the reader module.
+     * @return the mapped raster or <code>null</code> if the file is not a single band 
+     *              raster layer of the current map.
+     * @throws IOException
+     */
+    private File exchangeLayer( ModuleDescription reader ) throws IOException {
+        IMap map = ApplicationGIS.getActiveMap();
+        if (map == null) {
+            return null;
+        }
+        String filePath = null;
+        for( FieldData readerField : reader.getInputsList() ) {
+            if (readerField.guiHints != null && readerField.guiHints.contains(OmsBoxConstants.FILEIN_UI_HINT)) {
+                filePath = readerField.fieldValue;
+                break;
+            }
+        }
+        if (filePath == null || filePath.length() == 0) {
+            return null;
+        }
+        File file = new File(filePath).getCanonicalFile();
+        double novalue = Double.parseDouble(getFieldValue(reader, "fileNovalue"));
+
+        for( ILayer layer : map.getMapLayers() ) {
+            IGeoResource geoResource = layer.getGeoResource();
+            // the coverage a raster resource resolves to is only a preview, the full raster
+            // is read through the reader
+            if (geoResource == null || !geoResource.canResolve(AbstractGridCoverage2DReader.class)) {
+                continue;
+            }
+            File layerFile = URLUtils.urlToFile(geoResource.getIdentifier());
+            if (layerFile == null || !layerFile.getCanonicalFile().equals(file)) {
+                continue;
+            }
+
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot > 0) {
+                name = name.substring(0, dot);
+            }
+            AbstractGridCoverage2DReader coverageReader = geoResource.resolve(AbstractGridCoverage2DReader.class,
+                    new NullProgressMonitor());
+            if (coverageReader == null) {
+                return null;
+            }
+            GridEnvelope range = coverageReader.getOriginalGridRange();
+            String prefix = name + "_" + Integer.toHexString(file.getPath().hashCode()) + "_";
+            String key = "" + file.lastModified() + file.length() + novalue + range.getSpan(0) + "x" + range.getSpan(1);
+            File exchangeFolder = new File(System.getProperty("java.io.tmpdir") + File.separator + "oms"
+                    + File.separator + "exchange");
+            if (!exchangeFolder.exists()) {
+                exchangeFolder.mkdirs();
+            }
+            File exchangeFile = new File(exchangeFolder, prefix + Integer.toHexString(key.hashCode()) + "."
+                    + MappedRaster.EXTENSION);
+            deleteStaleExchangeFiles(exchangeFolder, prefix, exchangeFile);
+            if (MappedRaster.isMappedRaster(exchangeFile)) {
+                exchangeFile.setLastModified(System.currentTimeMillis());
+                return exchangeFile;
+            }
+
+            if (!MappedRaster.write(coverageReader, novalue, exchangeFile)) {
+                return null;
+            }
+            return exchangeFile;
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the exchange files of older versions of the same file and the exchange files 
+     * that have not been used for {@link #EXCHANGE_MAX_AGE}.
+     * 
+     * <p>Files still mapped by a module can't be deleted on some systems, they are
+     * left for the next time.
+     * 
+     * @param exchangeFolder the folder of the exchange files.
+     * @param prefix the prefix of the exchange files of the same file.
+     * @param exchangeFile the current exchange file of the file.
+     */
+    private static void deleteStaleExchangeFiles( File exchangeFolder, String prefix, File exchangeFile ) {
+        File[] files = exchangeFolder.listFiles();
+        if (files == null) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - EXCHANGE_MAX_AGE;
+        for( File other : files ) {
+            if (other.equals(exchangeFile) || !isMappedRasterPath(other.getName())) {
+                continue;
+            }
+            if (other.getName().startsWith(prefix) || other.lastModified() < oldest) {
+                other.delete();
+            }
+        }
+    }
+
     /**
      * Adds to the script a tail part to dump the outputs that are not connected to any module.
      * 
@@ -434,6 +707,14 @@ public class ScriptHandler {
      */
     private String module2ComponenDescription( ModuleDescription moduleDescription ) {
         StringBuilder sb = new StringBuilder();
+        String scriptName = moduleDescription.getScriptName();
+        if (mappedModulesMap.containsKey(moduleDescription)) {
+            if (isRasterReader(moduleDescription)) {
+                scriptName = OmsMappedRasterReader.class.getCanonicalName();
+            } else {
+                scriptName = OmsMappedRasterWriter.class.getCanonicalName();
+            }
+        }
         String varName = moduleDescription.getScriptName() + counter.getAndIncrement();
 
         variableNamesMap.put(moduleDescription, varName);
@@ -443,12 +724,21 @@ public class ScriptHandler {
         sb.append(QUOTE);
         sb.append("\t\t");
         sb.append(QUOTE);
-        sb.append(moduleDescription.getScriptName());
+        sb.append(scriptName);
         sb.append(QUOTE);
         sb.append("\n");
         return sb.toString();
     }
 
+    private static boolean isRasterReader( ModuleDescription moduleDescription ) {
+        for( FieldData fieldData : moduleDescription.getOutputsList() ) {
+            if (fieldData.fieldType.equals(GridCoverage2D.class.getCanonicalName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Converts module fields to their oms3 script description as needed in the parameters part. 
      * 
@@ -477,6 +767,18 @@ public class ScriptHandler {
             sb.append(fieldValue);
             sb.append(TMPQUOTE);
             sb.append("\n");
+        } else if (field.otherModule != null && mappedModulesMap.containsKey(field.otherModule)) {
+            // the mapped raster modules only need their file
+            sb.append("\t");
+            sb.append(QUOTE);
+            sb.append(variableNamesMap.get(field.otherModule));
+            sb.append(".file");
+            sb.append(QUOTE);
+            sb.append("\t\t");
+            sb.append(QUOTE);
+            sb.append(mappedModulesMap.get(field.otherModule));
+            sb.append(QUOTE);
+            sb.append("\n");
         } else if (field.otherModule != null) {
             ModuleDescription otherModule = field.otherModule;
             List<FieldData> inputsList = otherModule.getInputsList();
@@ -511,7 +813,11 @@ public class ScriptHandler {
         sb.append(QUOTE);
         sb.append(variableNamesMap.get(otherModule));
         sb.append(".");
-        sb.append(inData.otherFieldName);
+        if (mappedModulesMap.containsKey(otherModule)) {
+            sb.append("outRaster");
+        } else {
+            sb.append(inData.otherFieldName);
+        }
         sb.append(QUOTE);
         sb.append("\t\t");
         sb.append(QUOTE);
@@ -544,7 +850,11 @@ public class ScriptHandler {
         sb.append(QUOTE);
         sb.append(variableNamesMap.get(otherModule));
         sb.append(".");
-        sb.append(outData.otherFieldName);
+        if (mappedModulesMap.containsKey(otherModule)) {
+            sb.append("inRaster");
+        } else {
+            sb.append(outData.otherFieldName);
+        }
         sb.append(QUOTE);
         sb.append("\n");
     }
@@ -0,0 +1,379 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Raster file shared through memory mapping by uDig and the OMS modules.
+ *
+ * <p>The file holds the first band of a raster as raw 32 bit floats, in tiles of
+ * {@link #TILE_SIZE} pixels, after a header with the size, the envelope and the crs.
+ * No value pixels are NaN. Both sides map the file, so a raster written by one process
+ * is read by the other from the operating system cache, without encoding or decoding.
+ * Tiles are copied from the mapping only when they are used.
+ *
+ * <p>The header starts with {@link #MAGIC}, which is written last, so a file whose
+ * writing was interrupted is not read.
+ *
+ * <p>This class is also used outside of uDig by the modules, it must only use the jdk
+ * and the geotools libraries.
+ */
+@SuppressWarnings("nls")
+public class MappedRaster {
+
+    /**
+     * The extension of mapped raster files.
+     */
+    public static final String EXTENSION = "mraster";
+
+    /**
+     * The width and height of the tiles.
+     */
+    public static final int TILE_SIZE = 512;
+
+    /**
+     * "UDIGMRST" in ascii.
+     */
+    public static final long MAGIC = 0x554449474D525354L;
+
+    private static final int VERSION = 1;
+
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * The number of tiles kept by an image read from a file.
+     */
+    private static final int TILE_CACHE_SIZE = 32;
+
+    private MappedRaster() {
+    }
+
+    /**
+     * @param file the file to check.
+     * @return <code>true</code> if the file is a complete mapped raster.
+     */
+    public static boolean isMappedRaster( File file ) {
+        if (!file.isFile() || file.length() < 8) {
+            return false;
+        }
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return raf.readLong() == MAGIC;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the first band of a coverage to a mapped raster file.
+     *
+     * <p>An existing file is deleted first and not overwritten, since another process
+     * may still have it mapped.
+     *
+     * @param coverage the coverage to write.
+     * @param novalue the value of the no value pixels of the coverage, written as NaN.
+     * @param file the file to write.
+     * @throws IOException
+     */
+    public static void write( GridCoverage2D coverage, double novalue, File file ) throws IOException {
+        RenderedImage image = coverage.getRenderedImage();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Envelope2D envelope = coverage.getEnvelope2D();
+        CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem();
+        byte[] wkt = crs == null ? new byte[0] : crs.toWKT().getBytes("UTF-8");
+
+        long dataOffset = (76 + wkt.length + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+        int tileCols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        long tileRowBytes = (long) tileCols * TILE_SIZE * TILE_SIZE * 4;
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to replace the mapped raster: " + file);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            raf.setLength(dataOffset + tileRows * tileRowBytes);
+
+            float[] tile = new float[TILE_SIZE * TILE_SIZE];
+            float[] row = new float[TILE_SIZE];
+            boolean checkNovalue = !Double.isNaN(novalue);
+            for( int tileRow = 0; tileRow < tileRows; tileRow++ ) {
+                MappedByteBuffer mapped = channel.map(MapMode.READ_WRITE, dataOffset + tileRow * tileRowBytes,
+                        tileRowBytes);
+                FloatBuffer floats = mapped.order(ByteOrder.nativeOrder()).asFloatBuffer();
+                for( int tileCol = 0; tileCol < tileCols; tileCol++ ) {
+                    Arrays.fill(tile, Float.NaN);
+                    Rectangle bounds = new Rectangle(image.getMinX() + tileCol * TILE_SIZE, image.getMinY() + tileRow
+                            * TILE_SIZE, TILE_SIZE, TILE_SIZE).intersection(new Rectangle(image.getMinX(), image
+                            .getMinY(), width, height));
+                    Raster data = image.getData(bounds);
+                    for( int y = 0; y < bounds.height; y++ ) {
+                        data.getSamples(bounds.x, bounds.y + y, bounds.width, 1, 0, row);
+                        if (checkNovalue) {
+                            for( int x = 0; x < bounds.width; x++ ) {
+                                if (row[x] == novalue) {
+                                    row[x] = Float.NaN;
+                                }
+                            }
+                        }
+                        System.arraycopy(row, 0, tile, y * TILE_SIZE, bounds.width);
+                    }
+                    floats.put(tile);
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(76 + wkt.length);
+            header.putLong(0);
+            header.putInt(VERSION);
+            header.putInt(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 1 : 0);
+            header.putInt(width);
+            header.putInt(height);
+            header.putInt(TILE_SIZE);
+            header.putInt(TILE_SIZE);
+            header.putDouble(envelope.getMinX());
+            header.putDouble(envelope.getMinY());
+            header.putDouble(envelope.getMaxX());
+            header.putDouble(envelope.getMaxY());
+            header.putLong(dataOffset);
+            header.putInt(wkt.length);
+            header.put(wkt);
+            header.flip();
+            channel.write(header, 0);
+
+            // the file is complete
+            ByteBuffer magic = ByteBuffer.allocate(8);
+            magic.putLong(MAGIC);
+            magic.flip();
+            channel.write(magic, 0);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the first band of the raster of a reader, at its full resolution, to a mapped
+     * raster file.
+     *
+     * @param reader the reader of the raster.
+     * @param novalue the value of the no value pixels of the raster, written as NaN.
+     * @param file the file to write.
+     * @return <code>false</code> if the raster has more than one band and was not written.
+     * @throws IOException if the raster could not be read at full resolution.
+     */
+    public static boolean write( AbstractGridCoverage2DReader reader, double novalue, File file ) throws IOException {
+        GridEnvelope range = reader.getOriginalGridRange();
+        ParameterValue<GridGeometry2D> geometry = AbstractGridFormat.READ_GRIDGEOMETRY2D.createValue();
+        geometry.setValue(new GridGeometry2D(range, reader.getOriginalEnvelope()));
+        GridCoverage2D coverage = reader.read(new GeneralParameterValue[]{geometry});
+        if (coverage == null) {
+            throw new IOException("Unable to read the raster.");
+        }
+        try {
+            RenderedImage image = coverage.getRenderedImage();
+            if (image.getWidth() != range.getSpan(0) || image.getHeight() != range.getSpan(1)) {
+                throw new IOException("The raster was not read at full resolution.");
+            }
+            if (coverage.getNumSampleDimensions() != 1) {
+                return false;
+            }
+            write(coverage, novalue, file);
+            return true;
+        } finally {
+            coverage.dispose(true);
+        }
+    }
+
+    /**
+     * Reads a mapped raster file.
+     *
+     * @param file the file to read.
+     * @param name the name of the coverage.
+     * @return the coverage, reading its tiles from the mapping when they are used.
+     * @throws IOException
+     */
+    public static GridCoverage2D read( File file, String name ) throws IOException {
+        MappedImage image = new MappedImage(file);
+        GridCoverageFactory factory = new GridCoverageFactory();
+        return factory.create(name, image, image.getEnvelope());
+    }
+
+    /**
+     * Reads the envelope of a mapped raster file.
+     *
+     * @param file the file to read.
+     * @return the envelope.
+     * @throws IOException
+     */
+    public static ReferencedEnvelope readEnvelope( File file ) throws IOException {
+        return new MappedImage(file).getEnvelope();
+    }
+
+    /**
+     * Reads the size of a mapped raster file.
+     *
+     * @param file the file to read.
+     * @return the width and height in pixels.
+     * @throws IOException
+     */
+    public static Rectangle readSize( File file ) throws IOException {
+        MappedImage image = new MappedImage(file);
+        return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Image reading its tiles from a mapped raster file.
+     */
+    private static class MappedImage extends PlanarImage {
+        private final File file;
+        private final ByteOrder order;
+        private final long dataOffset;
+        private final int tileCols;
+        private final ReferencedEnvelope envelope;
+        private final MappedByteBuffer[] tileRowBuffers;
+        private final Map<Point, Raster> tiles = new LinkedHashMap<Point, Raster>(16, 0.75f, true);
+
+        MappedImage( File file ) throws IOException {
+            this.file = file;
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                if (raf.readLong() != MAGIC) {
+                    throw new IOException("Not a mapped raster: " + file);
+                }
+                if (raf.readInt() != VERSION) {
+                    throw new IOException("Unsupported mapped raster version: " + file);
+                }
+                order = raf.readInt() == 1 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+                width = raf.readInt();
+                height = raf.readInt();
+                tileWidth = raf.readInt();
+                tileHeight = raf.readInt();
+                double minX = raf.readDouble();
+                double minY = raf.readDouble();
+                double maxX = raf.readDouble();
+                double maxY = raf.readDouble();
+                dataOffset = raf.readLong();
+                byte[] wkt = new byte[raf.readInt()];
+                raf.readFully(wkt);
+                envelope = new ReferencedEnvelope(minX, maxX, minY, maxY, parseCrs(new String(wkt, "UTF-8")));
+            } finally {
+                raf.close();
+            }
+            minX = 0;
+            minY = 0;
+            tileGridXOffset = 0;
+            tileGridYOffset = 0;
+            tileCols = (width + tileWidth - 1) / tileWidth;
+            tileRowBuffers = new MappedByteBuffer[(height + tileHeight - 1) / tileHeight];
+            sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT, tileWidth, tileHeight, 1);
+            colorModel = PlanarImage.createColorModel(sampleModel);
+        }
+
+        private static CoordinateReferenceSystem parseCrs( String wkt ) {
+            if (wkt.length() > 0) {
+                try {
+                    return CRS.parseWKT(wkt);
+                } catch (FactoryException e) {
+                    // unknown crs
+                }
+            }
+            return DefaultEngineeringCRS.GENERIC_2D;
+        }
+
+        ReferencedEnvelope getEnvelope() {
+            return envelope;
+        }
+
+        public synchronized Raster getTile( int tileX, int tileY ) {
+            Point key = new Point(tileX, tileY);
+            Raster tile = tiles.get(key);
+            if (tile != null) {
+                return tile;
+            }
+            float[] data = new float[tileWidth * tileHeight];
+            FloatBuffer floats = tileRow(tileY).duplicate().order(order).asFloatBuffer();
+            floats.position(tileX * data.length);
+            floats.get(data);
+            tile = Raster.createWritableRaster(sampleModel, new DataBufferFloat(data, data.length), new Point(
+                    tileXToX(tileX), tileYToY(tileY)));
+
+            tiles.put(key, tile);
+            if (tiles.size() > TILE_CACHE_SIZE) {
+                Iterator<Raster> iterator = tiles.values().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+            return tile;
+        }
+
+        private MappedByteBuffer tileRow( int tileY ) {
+            MappedByteBuffer buffer = tileRowBuffers[tileY];
+            if (buffer == null) {
+                long tileRowBytes = (long) tileCols * tileWidth * tileHeight * 4;
+                try {
+                    RandomAccessFile raf = new RandomAccessFile(file, "r");
+                    try {
+                        // the mapping stays valid once the file is closed
+                        buffer = raf.getChannel().map(MapMode.READ_ONLY, dataOffset + tileY * tileRowBytes,
+                                tileRowBytes);
+                    } finally {
+                        raf.close();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to map the mapped raster: " + file, e);
+                }
+                tileRowBuffers[tileY] = buffer;
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.imageio.GeoToolsWriteParams;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.Hints;
+import org.geotools.parameter.DefaultParameterDescriptorGroup;
+import org.geotools.parameter.ParameterGroup;
+import org.opengis.coverage.grid.GridCoverageWriter;
+import org.opengis.parameter.GeneralParameterDescriptor;
+
+/**
+ * Grid format of the {@link MappedRaster} files.
+ */
+@SuppressWarnings("nls")
+public class MappedRasterFormat extends AbstractGridFormat {
+
+    public MappedRasterFormat() {
+        mInfo = new HashMap<String, String>();
+        mInfo.put("name", "MappedRaster");
+        mInfo.put("description", "Raster shared through a memory mapped file");
+        mInfo.put("vendor", "uDig");
+        mInfo.put("docURL", "");
+        mInfo.put("version", "1.0");
+        readParameters = new ParameterGroup(new DefaultParameterDescriptorGroup(mInfo,
+                new GeneralParameterDescriptor[]{READ_GRIDGEOMETRY2D}));
+        writeParameters = null;
+    }
+
+    public AbstractGridCoverage2DReader getReader( Object source ) {
+        return getReader(source, null);
+    }
+
+    public AbstractGridCoverage2DReader getReader( Object source, Hints hints ) {
+        File file = toFile(source);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new MappedRasterReader(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public boolean accepts( Object source, Hints hints ) {
+        File file = toFile(source);
+        return file != null && file.getName().toLowerCase().endsWith("." + MappedRaster.EXTENSION)
+                && MappedRaster.isMappedRaster(file);
+    }
+
+    public GridCoverageWriter getWriter( Object destination ) {
+        throw new UnsupportedOperationException("Mapped rasters are written by the modules.");
+    }
+
+    public GridCoverageWriter getWriter( Object destination, Hints hints ) {
+        return getWriter(destination);
+    }
+
+    public GeoToolsWriteParams getDefaultImageIOWriteParameters() {
+        throw new UnsupportedOperationException("Mapped rasters are written by the modules.");
+    }
+
+    private static File toFile( Object source ) {
+        if (source instanceof File) {
+            return (File) source;
+        }
+        if (source instanceof URL) {
+            return DataUtilities.urlToFile((URL) source);
+        }
+        if (source instanceof String) {
+            return new File((String) source);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.awt.RenderingHints.Key;
+import java.util.Collections;
+import java.util.Map;
+
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridFormatFactorySpi;
+
+/**
+ * Factory of the {@link MappedRasterFormat}.
+ */
+public class MappedRasterFormatFactory implements GridFormatFactorySpi {
+
+    public AbstractGridFormat createFormat() {
+        return new MappedRasterFormat();
+    }
+
+    public boolean isAvailable() {
+        return true;
+    }
+
+    public Map<Key, ? > getImplementationHints() {
+        return Collections.emptyMap();
+    }
+}
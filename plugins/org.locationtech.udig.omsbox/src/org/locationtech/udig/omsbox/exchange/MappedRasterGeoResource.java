@@ -0,0 +1,33 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.io.IOException;
+
+import org.locationtech.udig.catalog.rasterings.AbstractRasterGeoResource;
+import org.locationtech.udig.catalog.rasterings.AbstractRasterGeoResourceInfo;
+import org.locationtech.udig.catalog.rasterings.AbstractRasterService;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The raster of a {@link MappedRaster} file.
+ */
+public class MappedRasterGeoResource extends AbstractRasterGeoResource {
+
+    public MappedRasterGeoResource( AbstractRasterService service, String name ) {
+        super(service, name);
+    }
+
+    @Override
+    protected AbstractRasterGeoResourceInfo createInfo( IProgressMonitor monitor ) throws IOException {
+        return new AbstractRasterGeoResourceInfo(this, MappedRasterServiceExtension.TYPE, "." + MappedRaster.EXTENSION); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.coverage.grid.Format;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.referencing.datum.PixelInCell;
+
+/**
+ * Reader of a {@link MappedRaster} file.
+ *
+ * <p>Reads return the whole raster: its tiles are only copied from the mapping when
+ * they are drawn, so there is nothing to gain reading a part of it.
+ */
+public class MappedRasterReader extends AbstractGridCoverage2DReader {
+
+    private final File file;
+
+    private GridCoverage2D coverage;
+
+    /**
+     * @param file the mapped raster file.
+     * @throws IOException if the file is not a mapped raster.
+     */
+    public MappedRasterReader( File file ) throws IOException {
+        this.file = file;
+        this.source = file;
+        String name = file.getName();
+        this.coverageName = name.substring(0, name.lastIndexOf('.'));
+
+        ReferencedEnvelope envelope = MappedRaster.readEnvelope(file);
+        Rectangle size = MappedRaster.readSize(file);
+        this.crs = envelope.getCoordinateReferenceSystem();
+        this.originalEnvelope = new GeneralEnvelope(envelope);
+        this.originalGridRange = new GridEnvelope2D(size);
+        GridGeometry2D gridGeometry = new GridGeometry2D(originalGridRange, originalEnvelope);
+        this.raster2Model = gridGeometry.getGridToCRS(PixelInCell.CELL_CENTER);
+        this.highestRes = new double[]{envelope.getWidth() / size.width, envelope.getHeight() / size.height};
+    }
+
+    public Format getFormat() {
+        return new MappedRasterFormat();
+    }
+
+    @Override
+    public synchronized GridCoverage2D read( GeneralParameterValue[] parameters ) throws IOException {
+        if (coverage == null) {
+            coverage = MappedRaster.read(file, coverageName);
+        }
+        return coverage;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        coverage = null;
+        super.dispose();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.udig.catalog.rasterings.AbstractRasterGeoResource;
+import org.locationtech.udig.catalog.rasterings.AbstractRasterService;
+import org.locationtech.udig.catalog.rasterings.AbstractRasterServiceInfo;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.geotools.coverage.grid.io.GridFormatFactorySpi;
+
+/**
+ * Service of a {@link MappedRaster} file.
+ */
+public class MappedRasterService extends AbstractRasterService {
+
+    public MappedRasterService( URL url, GridFormatFactorySpi factory ) {
+        super(url, MappedRasterServiceExtension.TYPE, factory);
+    }
+
+    @Override
+    public synchronized List<AbstractRasterGeoResource> resources( IProgressMonitor monitor ) throws IOException {
+        List<AbstractRasterGeoResource> list = new ArrayList<AbstractRasterGeoResource>();
+        list.add(new MappedRasterGeoResource(this, getHandle()));
+        return list;
+    }
+
+    @Override
+    public Map<String, Serializable> getConnectionParams() {
+        return new MappedRasterServiceExtension().createParams(getIdentifier());
+    }
+
+    @Override
+    protected AbstractRasterServiceInfo createInfo( IProgressMonitor monitor ) throws IOException {
+        return new AbstractRasterServiceInfo(this, MappedRasterServiceExtension.TYPE, MappedRaster.EXTENSION);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import i18n.omsbox.Messages;
+
+import java.io.File;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.locationtech.udig.catalog.IService;
+import org.locationtech.udig.catalog.ServiceExtension2;
+import org.locationtech.udig.catalog.URLUtils;
+
+/**
+ * Service extension loading the {@link MappedRaster} files written by the modules as layers.
+ */
+public class MappedRasterServiceExtension implements ServiceExtension2 {
+
+    public final static String URL_PARAM = "URL"; //$NON-NLS-1$
+
+    public static final String TYPE = "mappedraster"; //$NON-NLS-1$
+
+    private static MappedRasterFormatFactory factory;
+
+    public synchronized static MappedRasterFormatFactory getFactory() {
+        if (factory == null) {
+            factory = new MappedRasterFormatFactory();
+        }
+        return factory;
+    }
+
+    public IService createService( URL id, Map<String, Serializable> params ) {
+        URL url = extractID(params);
+        if (reasonForFailure(url) != null) {
+            return null;
+        }
+        return new MappedRasterService(url, getFactory());
+    }
+
+    public Map<String, Serializable> createParams( URL url ) {
+        if (reasonForFailure(url) != null) {
+            return null;
+        }
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(URL_PARAM, url);
+        return params;
+    }
+
+    public String reasonForFailure( Map<String, Serializable> params ) {
+        return reasonForFailure(extractID(params));
+    }
+
+    public String reasonForFailure( URL url ) {
+        if (url == null) {
+            return Messages.MappedRasterServiceExtension_notFile;
+        }
+        File file = URLUtils.urlToFile(url);
+        if (file == null) {
+            return Messages.MappedRasterServiceExtension_notFile;
+        }
+        if (!file.getName().toLowerCase().endsWith("." + MappedRaster.EXTENSION)) { //$NON-NLS-1$
+            return Messages.MappedRasterServiceExtension_badExt;
+        }
+        if (!MappedRaster.isMappedRaster(file)) {
+            return Messages.MappedRasterServiceExtension_notMappedRaster;
+        }
+        return null;
+    }
+
+    private URL extractID( Map<String, Serializable> params ) {
+        if (params == null) {
+            return null;
+        }
+        Serializable param = params.get(URL_PARAM);
+        if (param instanceof URL) {
+            return (URL) param;
+        }
+        if (param instanceof String) {
+            try {
+                return new URL((String) param);
+            } catch (MalformedURLException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.io.File;
+
+import oms3.annotations.Description;
+import oms3.annotations.Execute;
+import oms3.annotations.In;
+import oms3.annotations.Label;
+import oms3.annotations.Name;
+import oms3.annotations.Out;
+import oms3.annotations.UI;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+
+/**
+ * Module reading a {@link MappedRaster} handed over by uDig.
+ */
+@Description("Reads a raster shared by uDig through a memory mapped file.")
+@Label("Raster Reader")
+@Name("mappedrasterreader")
+@UI("hide")
+@SuppressWarnings("nls")
+public class OmsMappedRasterReader {
+
+    @Description("The mapped raster file.")
+    @UI("infile")
+    @In
+    public String file = null;
+
+    @Description("The read raster.")
+    @Out
+    public GridCoverage2D outRaster = null;
+
+    @Execute
+    public void process() throws Exception {
+        File mappedFile = new File(file);
+        String name = mappedFile.getName();
+        outRaster = MappedRaster.read(mappedFile, name.substring(0, name.lastIndexOf('.')));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * uDig - User Friendly Desktop Internet GIS client
+ * (C) HydroloGIS - www.hydrologis.com
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the HydroloGIS BSD
+ * License v1.0 (http://udig.refractions.net/files/hsd3-v10.html).
+ */
+package org.locationtech.udig.omsbox.exchange;
+
+import java.io.File;
+
+import oms3.annotations.Description;
+import oms3.annotations.Execute;
+import oms3.annotations.In;
+import oms3.annotations.Label;
+import oms3.annotations.Name;
+import oms3.annotations.UI;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+
+/**
+ * Module writing a {@link MappedRaster} that uDig loads as a layer.
+ */
+@Description("Writes a raster to a memory mapped file read by uDig.")
+@Label("Raster Writer")
+@Name("mappedrasterwriter")
+@UI("hide")
+@SuppressWarnings("nls")
+public class OmsMappedRasterWriter {
+
+    @Description("The raster to write.")
+    @In
+    public GridCoverage2D inRaster = null;
+
+    @Description("The mapped raster file.")
+    @UI("outfile")
+    @In
+    public String file = null;
+
+    @Execute
+    public void process() throws Exception {
+        // the modules use NaN as no value
+        MappedRaster.write(inRaster, Double.NaN, new File(file));
+    }
+}
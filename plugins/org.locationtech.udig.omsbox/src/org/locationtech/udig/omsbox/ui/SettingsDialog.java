@@ -93,6 +93,7 @@ public class SettingsDialog {
                 librariesPanel.setLayout(new GridLayout(2, true));
 
                 createWorkingFolderText(librariesPanel);
+                createExecutionGroup(librariesPanel);
 
                 final Group librariesGroup = new Group(librariesPanel, SWT.None);
                 GridData librariesGroupGD = new GridData(SWT.FILL, SWT.FILL, true, true);
@@ -184,6 +185,35 @@ public class SettingsDialog {
         });
     }
 
+    private void createExecutionGroup( Composite librariesPanel ) {
+        final Group workerGroup = new Group(librariesPanel, SWT.None);
+        GridData workerGroupGD = new GridData(SWT.FILL, SWT.FILL, true, false);
+        workerGroupGD.horizontalSpan = 2;
+        workerGroup.setLayoutData(workerGroupGD);
+        workerGroup.setLayout(new GridLayout(1, false));
+        workerGroup.setText("Execution");
+
+        final Button workerButton = new Button(workerGroup, SWT.CHECK);
+        workerButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        workerButton.setText("Keep the java process alive between runs (faster start of the modules)");
+        workerButton.setSelection(OmsBoxPlugin.getDefault().getWorkerPreference());
+        workerButton.addSelectionListener(new org.eclipse.swt.events.SelectionAdapter(){
+            public void widgetSelected( org.eclipse.swt.events.SelectionEvent e ) {
+                OmsBoxPlugin.getDefault().setWorkerPreference(workerButton.getSelection());
+            }
+        });
+
+        final Button exchangeButton = new Button(workerGroup, SWT.CHECK);
+        exchangeButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        exchangeButton.setText("Hand the rasters of the map to the modules through memory mapped files");
+        exchangeButton.setSelection(OmsBoxPlugin.getDefault().getExchangePreference());
+        exchangeButton.addSelectionListener(new org.eclipse.swt.events.SelectionAdapter(){
+            public void widgetSelected( org.eclipse.swt.events.SelectionEvent e ) {
+                OmsBoxPlugin.getDefault().setExchangePreference(exchangeButton.getSelection());
+            }
+        });
+    }
+
     private void createGrassPanel( Composite grassPanel ) {
 
         final Group gisbaseGroup = new Group(grassPanel, SWT.NONE);
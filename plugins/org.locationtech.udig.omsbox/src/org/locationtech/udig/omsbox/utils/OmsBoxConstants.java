@@ -88,6 +88,17 @@ public class OmsBoxConstants {
     public static String GRASS_ENVIRONMENT_GISBASE_KEY = "jgt-grass.gisbase";
     public static String GRASS_ENVIRONMENT_SHELL_KEY = "jgt-grass.shell";
 
+    /**
+     * Key used to set and retrieve whether scripts are run by a persistent worker jvm.
+     */
+    public static String WORKER_KEY = "omsbox-persistent-worker";
+
+    /**
+     * Key used to set and retrieve whether rasters of the map are handed to the modules through
+     * memory mapped files.
+     */
+    public static String EXCHANGE_KEY = "omsbox-mapped-exchange";
+
     public static String MAPCALCHISTORY_KEY = "mapcalc-history";
     public static String MAPCALCHISTORY_SEPARATOR = "@@@";
 
@@ -393,7 +393,8 @@ public class OmsBoxView extends ViewPart {
      */
     public void runSelectedModule() throws Exception {
         ScriptHandler handler = new ScriptHandler();
-        String script = handler.genereateScript(currentSelectedModuleGui);
+        boolean exchangeRasters = OmsBoxPlugin.getDefault().getExchangePreference();
+        String script = handler.genereateScript(currentSelectedModuleGui, exchangeRasters);
         if (script == null) {
             return;
         }
@@ -0,0 +1,90 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.Identifier;
+
+@SuppressWarnings("nls")
+public class SelectionModelTest {
+
+    private FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    @Test
+    public void testContains() {
+        SelectionModel selection = SelectionModel.create(Arrays.asList("roads.1", "roads.7",
+                "roads.007", "new0"));
+        assertEquals(4, selection.size());
+        assertTrue(selection.contains("roads.7"));
+        assertTrue(selection.contains("roads.007"));
+        assertTrue(selection.contains("new0"));
+        assertFalse(selection.contains("roads.2"));
+        assertFalse(selection.contains("rivers.1"));
+        assertEquals(new HashSet<Object>(Arrays.asList("roads.1", "roads.7", "roads.007", "new0")),
+                selection.getIDs());
+    }
+
+    @Test
+    public void testSetOperations() {
+        SelectionModel a = SelectionModel.create(Arrays.asList("roads.1", "roads.2", "x"));
+        SelectionModel b = SelectionModel.create(Arrays.asList("roads.2", "roads.3", "rivers.4"));
+
+        assertEquals(ids("roads.1", "roads.2", "roads.3", "rivers.4", "x"), a.union(b).getIDs());
+        assertEquals(ids("roads.1", "x"), a.subtract(b).getIDs());
+        assertEquals(ids("roads.2"), a.intersect(b).getIDs());
+        assertTrue(a.intersect(SelectionModel.EMPTY).isEmpty());
+
+        SelectionModel rivers = SelectionModel.create(Arrays.asList("rivers.4"));
+        assertEquals(ids("rivers.4"), rivers.intersect(b).getIDs());
+        assertTrue(b.subtract(rivers).contains("roads.3"));
+        assertFalse(b.subtract(rivers).contains("rivers.4"));
+    }
+
+    @Test
+    public void testCreateFromFilter() {
+        Id one = ff.id(identifiers("roads.1", "roads.2"));
+        Id two = ff.id(identifiers("roads.2", "roads.3"));
+
+        assertEquals(ids("roads.1", "roads.2", "roads.3"), SelectionModel
+                .create(ff.or(one, two)).getIDs());
+        assertEquals(ids("roads.1"), SelectionModel.create(ff.and(one, ff.not(two))).getIDs());
+        assertTrue(SelectionModel.create(Filter.EXCLUDE).isEmpty());
+        assertNull(SelectionModel.create(ff.equals(ff.property("name"), ff.literal("x"))));
+
+        SelectionModel selection = SelectionModel.create(one);
+        assertEquals(selection, one);
+        assertEquals(2, selection.getIdentifiers().size());
+    }
+
+    private Set<Object> ids( String... fids ) {
+        return new HashSet<Object>(Arrays.asList(fids));
+    }
+
+    private Set<Identifier> identifiers( String... fids ) {
+        Set<Identifier> ids = new HashSet<Identifier>();
+        for( String fid : fids ) {
+            ids.add(ff.featureId(fid));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,112 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.render.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Test;
+
+public class RenderSchedulerTest {
+
+    private CountDownLatch blocked = new CountDownLatch(1);
+
+    @After
+    public void tearDown() throws Exception {
+        blocked.countDown();
+    }
+
+    @Test
+    public void testParallelism() throws Exception {
+        RenderScheduler scheduler = new RenderScheduler(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(6);
+        for( int i = 0; i < 6; i++ ) {
+            scheduler.schedule(new Job("test"){ //$NON-NLS-1$
+                        protected IStatus run( IProgressMonitor monitor ) {
+                            int now = running.incrementAndGet();
+                            synchronized (maxRunning) {
+                                maxRunning.set(Math.max(maxRunning.get(), now));
+                            }
+                            try {
+                                Thread.sleep(20);
+                            } catch (InterruptedException e) {
+                                // ignore
+                            }
+                            running.decrementAndGet();
+                            done.countDown();
+                            return Status.OK_STATUS;
+                        }
+                    }, i);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testCheapestFirst() throws Exception {
+        RenderScheduler scheduler = new RenderScheduler(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.schedule(new Job("blocker"){ //$NON-NLS-1$
+                    protected IStatus run( IProgressMonitor monitor ) {
+                        started.countDown();
+                        try {
+                            blocked.await();
+                        } catch (InterruptedException e) {
+                            // ignore
+                        }
+                        return Status.OK_STATUS;
+                    }
+                }, 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(3);
+        scheduler.schedule(record("network", order, done), 500); //$NON-NLS-1$
+        scheduler.schedule(record("local", order, done), 10); //$NON-NLS-1$
+        Job removed = record("removed", order, done); //$NON-NLS-1$
+        scheduler.schedule(removed, 1);
+        scheduler.schedule(record("memory", order, done), 0); //$NON-NLS-1$
+        assertEquals(4, scheduler.getWaitingCount());
+        assertTrue(scheduler.remove(removed));
+        assertFalse(scheduler.remove(removed));
+
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("memory", order.get(0)); //$NON-NLS-1$
+        assertEquals("local", order.get(1)); //$NON-NLS-1$
+        assertEquals("network", order.get(2)); //$NON-NLS-1$
+    }
+
+    private static Job record( final String name, final List<String> order,
+            final CountDownLatch done ) {
+        return new Job(name){
+            protected IStatus run( IProgressMonitor monitor ) {
+                order.add(name);
+                done.countDown();
+                return Status.OK_STATUS;
+            }
+        };
+    }
+}
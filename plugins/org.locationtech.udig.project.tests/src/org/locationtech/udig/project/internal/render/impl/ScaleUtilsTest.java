@@ -4,11 +4,14 @@
 package org.locationtech.udig.project.internal.render.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
 
 import org.locationtech.udig.project.render.displayAdapter.IMapDisplay;
 
@@ -251,5 +254,36 @@ public class ScaleUtilsTest {
 		
 		assertEquals(env, result);
 	}
+
+	@Test
+	public void testCalculatePanOffset() throws Exception {
+		Dimension size = new Dimension(100, 50);
+		Envelope oldBounds = new Envelope(0, 100, 0, 50);
+
+		// panned right by 10 pixels and up by 5: the old image moves left and down
+		Point offset = ScaleUtils.calculatePanOffset(oldBounds, new Envelope(10, 110, 5, 55), size);
+		assertEquals(new Point(-10, 5), offset);
+
+		// zoomed
+		assertNull(ScaleUtils.calculatePanOffset(oldBounds, new Envelope(0, 50, 0, 25), size));
+		// not a whole number of pixels
+		assertNull(ScaleUtils.calculatePanOffset(oldBounds, new Envelope(0.5, 100.5, 0, 50), size));
+		// nothing left on screen
+		assertNull(ScaleUtils.calculatePanOffset(oldBounds, new Envelope(100, 200, 0, 50), size));
+	}
+
+	@Test
+	public void testCalculateExposedAreas() throws Exception {
+		Dimension size = new Dimension(100, 50);
+
+		List<Rectangle> areas = ScaleUtils.calculateExposedAreas(new Point(-10, 5), size);
+		assertEquals(2, areas.size());
+		assertEquals(new Rectangle(90, 0, 10, 50), areas.get(0));
+		assertEquals(new Rectangle(0, 0, 90, 5), areas.get(1));
+
+		areas = ScaleUtils.calculateExposedAreas(new Point(0, -20), size);
+		assertEquals(1, areas.size());
+		assertEquals(new Rectangle(0, 30, 100, 20), areas.get(0));
+	}
 	
 }
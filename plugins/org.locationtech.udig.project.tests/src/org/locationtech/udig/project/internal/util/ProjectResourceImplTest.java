@@ -0,0 +1,113 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Collections;
+
+import org.locationtech.udig.project.internal.Project;
+import org.locationtech.udig.project.internal.ProjectFactory;
+import org.locationtech.udig.project.internal.ProjectPlugin;
+import org.locationtech.udig.project.preferences.PreferenceConstants;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectResourceImplTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("project", ".uprj"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testBinaryAndXMI() throws Exception {
+        URI uri = URI.createFileURI(file.getAbsolutePath());
+        Resource resource = ProjectResourceFactoryImpl.register(new ResourceSetImpl())
+                .createResource(uri);
+        assertTrue(resource instanceof ProjectResourceImpl);
+        Project project = ProjectFactory.eINSTANCE.createProject();
+        project.setName("binary"); //$NON-NLS-1$
+        resource.getContents().add(project);
+        assertTrue(resource.isModified());
+
+        resource.save(Collections.singletonMap(ProjectResourceImpl.OPTION_BINARY, Boolean.TRUE));
+        assertFalse(resource.isModified());
+        assertEquals(0211, firstByte());
+        assertEquals("binary", load(uri).getName()); //$NON-NLS-1$
+
+        // export as XMI; it still loads
+        project.setName("xmi"); //$NON-NLS-1$
+        assertTrue(resource.isModified());
+        resource.save(Collections.singletonMap(ProjectResourceImpl.OPTION_BINARY, Boolean.FALSE));
+        assertEquals('<', firstByte());
+        assertEquals("xmi", load(uri).getName()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testExportWithBinaryPreference() throws Exception {
+        IPreferenceStore store = ProjectPlugin.getPlugin().getPreferenceStore();
+        boolean binary = store.getBoolean(PreferenceConstants.P_BINARY_PROJECT_FILES);
+        store.setValue(PreferenceConstants.P_BINARY_PROJECT_FILES, true);
+        try {
+            URI uri = URI.createFileURI(file.getAbsolutePath());
+            Resource resource = ProjectResourceFactoryImpl.register(new ResourceSetImpl())
+                    .createResource(uri);
+            Project project = ProjectFactory.eINSTANCE.createProject();
+            project.setName("saved"); //$NON-NLS-1$
+            resource.getContents().add(project);
+
+            // saved as the preference says
+            resource.save(null);
+            assertEquals(0211, firstByte());
+
+            // exported as XMI, the way ExportProjectUtils saves the copy
+            project.setName("exported"); //$NON-NLS-1$
+            resource.save(Collections.singletonMap(ProjectResourceImpl.OPTION_BINARY, Boolean.FALSE));
+            assertEquals('<', firstByte());
+            assertEquals("exported", load(uri).getName()); //$NON-NLS-1$
+        } finally {
+            store.setValue(PreferenceConstants.P_BINARY_PROJECT_FILES, binary);
+        }
+    }
+
+    private Project load( URI uri ) {
+        Resource resource = ProjectResourceFactoryImpl.register(new ResourceSetImpl())
+                .getResource(uri, true);
+        return (Project) resource.getContents().get(0);
+    }
+
+    private int firstByte() throws Exception {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return in.read();
+        } finally {
+            in.close();
+        }
+    }
+}
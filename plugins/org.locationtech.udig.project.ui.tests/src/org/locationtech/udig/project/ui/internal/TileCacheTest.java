@@ -0,0 +1,113 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.ui.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TileCacheTest {
+
+    private Set<String> pinned;
+
+    private List<String> evicted;
+
+    private TileCache<String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        pinned = new HashSet<String>();
+        evicted = new ArrayList<String>();
+        cache = new TileCache<String>(300){
+            protected long sizeOf( String tile ) {
+                return 100;
+            }
+
+            protected boolean isPinned( String tile ) {
+                return pinned.contains(tile);
+            }
+
+            protected void evicted( String tile ) {
+                evicted.add(tile);
+            }
+        };
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        cache.put(key(0, 0), "a"); //$NON-NLS-1$
+        assertEquals("a", cache.get(new TileCache.Key(0, 0, 1))); //$NON-NLS-1$
+        assertNull(cache.get(key(1, 0)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void testEvictFurthestFromFocus() {
+        cache.setFocus(key(0, 0));
+        cache.put(key(0, 0), "center"); //$NON-NLS-1$
+        cache.put(key(5, 5), "far"); //$NON-NLS-1$
+        cache.put(key(1, 0), "near"); //$NON-NLS-1$
+        cache.put(key(0, 1), "near2"); //$NON-NLS-1$
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("far", evicted.get(0)); //$NON-NLS-1$
+        assertNull(cache.peek(key(5, 5)));
+        assertEquals(300, cache.getSize());
+    }
+
+    @Test
+    public void testOtherResolutionEvictedFirst() {
+        cache.setFocus(key(0, 0));
+        cache.put(new TileCache.Key(0, 0, 2), "zoomed"); //$NON-NLS-1$
+        cache.put(key(3, 3), "far"); //$NON-NLS-1$
+        cache.put(key(0, 0), "center"); //$NON-NLS-1$
+        cache.put(key(1, 1), "near"); //$NON-NLS-1$
+
+        assertEquals("zoomed", evicted.get(0)); //$NON-NLS-1$
+        assertNotNull(cache.peek(key(3, 3)));
+    }
+
+    @Test
+    public void testPinnedTilesKept() {
+        cache.setFocus(key(0, 0));
+        pinned.add("far"); //$NON-NLS-1$
+        cache.put(key(9, 9), "far"); //$NON-NLS-1$
+        cache.put(key(0, 0), "a"); //$NON-NLS-1$
+        cache.put(key(1, 0), "b"); //$NON-NLS-1$
+        cache.put(key(2, 0), "c"); //$NON-NLS-1$
+
+        assertNotNull(cache.peek(key(9, 9)));
+        assertEquals("c", evicted.get(0)); //$NON-NLS-1$
+
+        // everything pinned; the cache may go over budget
+        pinned.add("a"); //$NON-NLS-1$
+        pinned.add("b"); //$NON-NLS-1$
+        pinned.add("d"); //$NON-NLS-1$
+        cache.put(key(3, 0), "d"); //$NON-NLS-1$
+        assertEquals(4, cache.getTileCount());
+        assertTrue(cache.getSize() > cache.getMaxSize());
+    }
+
+    private static TileCache.Key key( long column, long row ) {
+        return new TileCache.Key(column, row, 1);
+    }
+}
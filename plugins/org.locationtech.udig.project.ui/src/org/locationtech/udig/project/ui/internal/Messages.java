@@ -332,6 +332,11 @@ public class Messages extends NLS {
 
     public static String RenderPreferences_tiledRendering;
 
+    public static String RenderPreferences_tileCacheSize;
+    public static String RenderPreferences_renderThreads;
+    public static String RenderPreferences_generalizationScale;
+    public static String RenderPreferences_rasterCacheSize;
+
     public static String RenderPreferences_tilingRendererPref;
 
     public static String RenderPreferences_transparencies;
@@ -537,6 +542,7 @@ public class Messages extends NLS {
     public static String ToolProxy_unnamed;
 
     public static String ProjectPreferencePage_deleteFiles;
+    public static String ProjectPreferencePage_binaryFiles;
 
     public static String ExportMapToImageWizard_3;
 
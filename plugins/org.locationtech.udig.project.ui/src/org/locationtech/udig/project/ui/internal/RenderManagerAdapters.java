@@ -82,6 +82,11 @@ public class RenderManagerAdapters {
             }
 
             private void refreshDirtyArea( Notification msg ) {
+                if (msg.getOldValue() instanceof Envelope && msg.getNewValue() instanceof Envelope
+                        && manager.refreshPan((Envelope) msg.getOldValue(), (Envelope) msg.getNewValue())) {
+                    // only the strips uncovered by the pan are being rendered
+                    return;
+                }
                 manager.refresh(null);
             }
         };
@@ -0,0 +1,355 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.ui.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache of rendered tiles limited by the memory used by the tile images rather than by the
+ * number of tiles.
+ * <p>
+ * Tiles are identified by their position in the tile grid ({@link Key}); a column, a row and the
+ * size of the tile in world units. When the cache is over its budget the tiles furthest away
+ * from the focus (usually the center of the viewport) are removed first; tiles at a different
+ * resolution than the focus are removed before anything else. Pinned tiles (such as the ones on
+ * screen) are never removed, even if that means going over the budget.
+ * <p>
+ * Subclasses work out the memory used by a tile, whether it is pinned and what to do with a tile
+ * once it has been removed.
+ *
+ * @since 2.1.0
+ */
+public abstract class TileCache<T> {
+
+    /**
+     * Position of a tile in the tile grid.
+     */
+    public static final class Key {
+        private final long column;
+        private final long row;
+        private final long resolution;
+
+        /**
+         * @param column column of the tile
+         * @param row row of the tile
+         * @param resolution identifies the size of the tile in world units (for example the bits
+         *        of the double value)
+         */
+        public Key( long column, long row, long resolution ) {
+            this.column = column;
+            this.row = row;
+            this.resolution = resolution;
+        }
+
+        public long getColumn() {
+            return column;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public long getResolution() {
+            return resolution;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return column == other.column && row == other.row && resolution == other.resolution;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = column * 31 + row;
+            hash = hash * 31 + resolution;
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + column + "," + row + "@" + resolution + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+    }
+
+    private static class Entry<T> {
+        T tile;
+        long size;
+    }
+
+    /**
+     * Entries in access order; the first entry is the least recently used.
+     */
+    private final LinkedHashMap<Key, Entry<T>> entries = new LinkedHashMap<Key, Entry<T>>(64,
+            0.75f, true);
+
+    private long maxSize;
+
+    private long size;
+
+    private Key focus;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * @param maxSize memory budget in bytes
+     */
+    public TileCache( long maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Estimates the memory used by the tile.
+     *
+     * @param tile
+     * @return size in bytes
+     */
+    protected abstract long sizeOf( T tile );
+
+    /**
+     * @param tile
+     * @return true if the tile may not be removed from the cache
+     */
+    protected abstract boolean isPinned( T tile );
+
+    /**
+     * Called (outside of any lock on the cache) for each tile removed to stay within budget.
+     *
+     * @param tile
+     */
+    protected void evicted( T tile ) {
+    }
+
+    /**
+     * Looks up a tile, counting a hit or a miss.
+     *
+     * @param key
+     * @return the tile or null if it is not in the cache
+     */
+    public synchronized T get( Key key ) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.tile;
+    }
+
+    /**
+     * Looks up a tile without changing the statistics.
+     *
+     * @param key
+     * @return the tile or null if it is not in the cache
+     */
+    public synchronized T peek( Key key ) {
+        Entry<T> entry = entries.get(key);
+        return entry == null ? null : entry.tile;
+    }
+
+    /**
+     * Adds a tile to the cache, removing tiles far away from the focus if the cache is over
+     * budget.
+     *
+     * @param key
+     * @param tile
+     */
+    public void put( Key key, T tile ) {
+        List<T> removed;
+        synchronized (this) {
+            Entry<T> entry = new Entry<T>();
+            entry.tile = tile;
+            entry.size = sizeOf(tile);
+            Entry<T> old = entries.put(key, entry);
+            if (old != null) {
+                size -= old.size;
+            }
+            size += entry.size;
+            removed = evict();
+        }
+        notifyEvicted(removed);
+    }
+
+    /**
+     * Removes a tile from the cache; the tile is not passed to {@link #evicted(Object)}.
+     *
+     * @param key
+     * @return the removed tile or null
+     */
+    public synchronized T remove( Key key ) {
+        Entry<T> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        size -= entry.size;
+        return entry.tile;
+    }
+
+    /**
+     * Removes all tiles; the tiles are not passed to {@link #evicted(Object)}.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the keys of the cached tiles
+     */
+    public synchronized Set<Key> getKeys() {
+        return new HashSet<Key>(entries.keySet());
+    }
+
+    /**
+     * @return a copy of the cached tiles
+     */
+    public synchronized List<T> getTiles() {
+        List<T> tiles = new ArrayList<T>(entries.size());
+        for( Entry<T> entry : entries.values() ) {
+            tiles.add(entry.tile);
+        }
+        return tiles;
+    }
+
+    /**
+     * Sets the tile the user is looking at; eviction goes by distance from this tile.
+     *
+     * @param key
+     */
+    public synchronized void setFocus( Key key ) {
+        this.focus = key;
+    }
+
+    /**
+     * Measures all the tiles again (the memory used by a tile changes as layers are added or
+     * removed) and removes tiles if the cache is over budget.
+     */
+    public void update() {
+        List<T> removed;
+        synchronized (this) {
+            size = 0;
+            for( Entry<T> entry : entries.values() ) {
+                entry.size = sizeOf(entry.tile);
+                size += entry.size;
+            }
+            removed = evict();
+        }
+        notifyEvicted(removed);
+    }
+
+    /**
+     * Changes the memory budget, removing tiles if needed.
+     *
+     * @param maxSize budget in bytes
+     */
+    public void setMaxSize( long maxSize ) {
+        List<T> removed;
+        synchronized (this) {
+            this.maxSize = maxSize;
+            removed = evict();
+        }
+        notifyEvicted(removed);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return estimated memory used by the cached tiles in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getTileCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Distance (in tiles) from the focus; tiles of a different resolution are as far away as
+     * possible.
+     */
+    private long distance( Key key ) {
+        if (focus == null) {
+            return 0;
+        }
+        if (key.resolution != focus.resolution) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(Math.abs(key.column - focus.column), Math.abs(key.row - focus.row));
+    }
+
+    /**
+     * Removes the furthest unpinned tiles until the cache is within budget; the least recently
+     * used tile goes first when tiles are the same distance away. Must be called holding the lock.
+     *
+     * @return removed tiles
+     */
+    private List<T> evict() {
+        List<T> removed = new ArrayList<T>();
+        while( size > maxSize ) {
+            Map.Entry<Key, Entry<T>> furthest = null;
+            long furthestDistance = -1;
+            for( Map.Entry<Key, Entry<T>> candidate : entries.entrySet() ) {
+                if (isPinned(candidate.getValue().tile)) {
+                    continue;
+                }
+                long distance = distance(candidate.getKey());
+                if (distance > furthestDistance) {
+                    furthest = candidate;
+                    furthestDistance = distance;
+                }
+            }
+            if (furthest == null) {
+                // everything left is pinned
+                break;
+            }
+            entries.remove(furthest.getKey());
+            size -= furthest.getValue().size;
+            evictions++;
+            removed.add(furthest.getValue().tile);
+        }
+        return removed;
+    }
+
+    private void notifyEvicted( List<T> removed ) {
+        for( T tile : removed ) {
+            evicted(tile);
+        }
+    }
+}
@@ -18,7 +18,6 @@ import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -48,12 +47,12 @@ import org.locationtech.udig.project.internal.render.impl.TiledCompositeRenderer
 import org.locationtech.udig.project.internal.render.impl.TiledRendererCreatorImpl;
 import org.locationtech.udig.project.internal.render.impl.UDIGLabelCache;
 import org.locationtech.udig.project.internal.render.impl.TiledCompositeRendererImpl.RenderInfo;
+import org.locationtech.udig.project.preferences.PreferenceConstants;
 import org.locationtech.udig.project.render.AbstractRenderMetrics;
 import org.locationtech.udig.project.render.ILabelPainter;
 import org.locationtech.udig.project.render.IRenderContext;
 import org.locationtech.udig.project.render.IRenderer;
 import org.locationtech.udig.project.render.Tile;
-import org.locationtech.udig.project.render.TileStateChangedListener;
 import org.locationtech.udig.project.render.displayAdapter.IMapDisplay;
 import org.locationtech.udig.project.ui.ApplicationGIS;
 import org.locationtech.udig.project.ui.internal.render.displayAdapter.impl.ViewportPaneTiledSWT;
@@ -70,8 +69,7 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.renderer.label.LabelCacheImpl;
-import org.geotools.util.ObjectCache;
-import org.geotools.util.ObjectCaches;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
@@ -151,54 +149,30 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
     
 
     /**
-     * This is a weak reference to all the tiles.
-     * 
-     */
-    ObjectCache tileCache = ObjectCaches.create("soft", 50); //Tiles that are on the screen //$NON-NLS-1$
-
-    /**
-     * This is a strong reference to the "important" tiles.  "Important" tiles and tiles
-     * classified to be on screen or waiting to be on screen.
-     */
-    Set<Tile> importantTiles = Collections.synchronizedSet(new HashSet<Tile>());
-    
-    /**
-     * This is our tile state changed listener what is responsible for maintaining
-     * the important tiles collections.
+     * The rendered tiles, limited by the memory used by their images (see the
+     * P_TILE_CACHE_SIZE preference).  Tiles that are on screen or were validated by the last
+     * refresh are pinned; other tiles are removed furthest from the viewport first.
      */
-    TileStateChangedListener tileStateListener = new TileStateChangedListener(){
-        
-        public void screenStateChanged(Tile t){
-            updateImportantTileList(t);
-        }
-        
-        public void validationStateChanged(Tile t){
-            updateImportantTileList(t);
+    TileCache<Tile> tileCache = new TileCache<Tile>(getTileCacheBudget()){
+        protected long sizeOf( Tile tile ) {
+            return getTileMemory(tile);
         }
-        
-        public void renderStateChanged(Tile t){
-            //this doesn't effect important tile list
-        }
-        
-        public void contextStateChanged(Tile t){
-            //this doesn't affect important tile list
+
+        protected boolean isPinned( Tile tile ) {
+            return tile.getScreenState() == Tile.ScreenState.ONSCREEN
+                    || tile.getTileState() == Tile.ValidatedState.VALIDATED;
         }
-        
-        /**
-         * Updates the important tile list.  Either adds it or removes
-         * it depending on the tile state.
-         *
-         * @param t
-         */
-        private void updateImportantTileList( Tile t ) {
-            if (t.getScreenState() == Tile.ScreenState.ONSCREEN
-                    || t.getTileState() == Tile.ValidatedState.VALIDATED) {
-                importantTiles.add(t);
-            } else {
-                importantTiles.remove(t);
-            }
+
+        protected void evicted( Tile tile ) {
+            removeAdapters(tile.getRenderExecutor());
+            tile.dispose();
         }
     };
+
+    /**
+     * Lock used so a tile is only created once.
+     */
+    private final Object tileCreationLock = new Object();
     
     /**
      * Creates a new TiledRenderManagerDynamice and sets the render creator to null.  The render creator will
@@ -247,25 +221,22 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      * @return
      */
     private Tile getOrCreateTile(ReferencedEnvelope env){
-        
-        Tile tile = (Tile) tileCache.get(env);
+        TileCache.Key key = getTileKey(env);
+        Tile tile = tileCache.get(key);
         if (tile == null) {
-            try {
-                tileCache.writeLock(env);
-                tile = (Tile) tileCache.peek(env);
+            synchronized (tileCreationLock) {
+                tile = tileCache.peek(key);
                 if (tile == null) {
                     tile = createTile(env);
-                    tileCache.put(env, tile);           
+                    tileCache.put(key, tile);           
                 }
-            } finally {
-                tileCache.writeUnLock(env);
             }
         }
         return tile;
     }
     
     /**
-     * Creates a new tile adding the listeners and putting it in the important tiles list.
+     * Creates a new tile adding the listeners.
      *
      * @param key
      * @return
@@ -273,8 +244,6 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
     private Tile createTile(ReferencedEnvelope key){
         RenderExecutorComposite newRE = createRenderExecutor(key);
         Tile tile = new Tile(key, newRE, getTileSize());
-        tile.setStateChangedListener(tileStateListener);
-        importantTiles.add(tile);
         ((RenderContextImpl)newRE.getContext()).setLabelPainterLocal(newRE.getContext().getLabelPainter());
         return tile;
     }
@@ -496,10 +465,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      */
     private void setTileStateToOld( Collection<ReferencedEnvelope> validTiles ) {
         // mark all tiles as offscreen
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope key = (ReferencedEnvelope) iterator.next();
-            Tile t = (Tile) tileCache.get(key);
-            if (t != null && !validTiles.contains(key)) {
+        Set<TileCache.Key> validKeys = getTileKeys(validTiles);
+        for( Tile t : tileCache.getTiles() ) {
+            if (!validKeys.contains(getTileKey(t.getReferencedEnvelope()))) {
                 t.setTileState(Tile.ValidatedState.OLD);
             }
         }
@@ -611,6 +579,8 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         
         ReferencedEnvelope viewportbounds = getMap().getViewportModel().getBounds();
         double resolution = viewportbounds.getWidth() / getMapDisplay().getWidth();
+        tileCache.setMaxSize(getTileCacheBudget());
+        tileCache.setFocus(getTileKey(viewportbounds.centre(), resolution));
 
         Collection<ReferencedEnvelope> tileBounds = computeTileBounds(areaOfInterest, resolution);
         //update tile states
@@ -669,6 +639,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         if (!getMapInternal().getContextModel().eAdapters().contains(contextModelAdapter)){
             getMapInternal().getContextModel().eAdapters().add(contextModelAdapter);
         }
+        
+        // the tiles may have gained or lost layers; measure them again
+        tileCache.update();
 
         refreshImage();
     }
@@ -695,7 +668,6 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         //remove all existing images so everything will be recreated
         disposeAllTiles();
         tileCache.clear();
-        importantTiles.clear();
         
         //now recreate everything
         softRefresh(bounds);
@@ -758,41 +730,113 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
     @Override
     public Collection<ReferencedEnvelope> computeTileBounds(ReferencedEnvelope viewBounds, double worldunitsperpixel){
         
-        double unittilesize = worldunitsperpixel * getTileSize();
-        double minx = viewBounds.getMinX();
-        double minxtile = Math.floor((minx - tileCenter.x) / unittilesize) * unittilesize + tileCenter.x;
-        
-        double maxx = viewBounds.getMaxX();
-        double maxxtile = (Math.floor((maxx - tileCenter.x) / unittilesize) + 1) * unittilesize + tileCenter.x;
-        
-        double miny = viewBounds.getMinY();
-        double minytile = Math.floor((miny - tileCenter.y) / unittilesize) * unittilesize + tileCenter.y;
+        double unittilesize = getUnitTileSize(worldunitsperpixel);
+        long resolution = Double.doubleToLongBits(unittilesize);
         
-        double maxy = viewBounds.getMaxY();
-        double maxytile = (Math.floor((maxy - tileCenter.y) / unittilesize) + 1) * unittilesize + tileCenter.y;
+        long mincolumn = (long) Math.floor((viewBounds.getMinX() - tileCenter.x) / unittilesize);
+        long maxcolumn = (long) Math.floor((viewBounds.getMaxX() - tileCenter.x) / unittilesize);
+        long minrow = (long) Math.floor((viewBounds.getMinY() - tileCenter.y) / unittilesize);
+        long maxrow = (long) Math.floor((viewBounds.getMaxY() - tileCenter.y) / unittilesize);
 
         ArrayList<ReferencedEnvelope> tileBounds = new ArrayList<ReferencedEnvelope>();
-        int numberx = (int)Math.round( (maxxtile - minxtile)/unittilesize );
-        int numbery = (int)Math.round( (maxytile - minytile)/unittilesize); 
-        
-        for (int x = 0; x < numberx; x ++){
-            double xvalue = x * unittilesize + minxtile;
-            double xvaluemax = (x + 1) * unittilesize + minxtile;
-            xvalue = roundDouble(xvalue);
-            xvaluemax = roundDouble(xvaluemax);
-            for (int y = 0; y < numbery; y ++){
-                double yvalue = y * unittilesize + minytile;
-                double yvaluemax = (y + 1) * unittilesize + minytile;
-                yvalue = roundDouble(yvalue);
-                yvaluemax = roundDouble(yvaluemax);
+        for (long x = mincolumn; x <= maxcolumn; x ++){
+            // the tile corners are computed from the grid position so the same tile
+            // always gets exactly the same bounds
+            double xvalue = x * unittilesize + tileCenter.x;
+            double xvaluemax = (x + 1) * unittilesize + tileCenter.x;
+            for (long y = minrow; y <= maxrow; y ++){
+                double yvalue = y * unittilesize + tileCenter.y;
+                double yvaluemax = (y + 1) * unittilesize + tileCenter.y;
                 
-                ReferencedEnvelope env = new ReferencedEnvelope(xvalue, xvaluemax, yvalue, yvaluemax, viewBounds.getCoordinateReferenceSystem());
-                tileBounds.add(env);
+                tileBounds.add(new TileBounds(new TileCache.Key(x, y, resolution), xvalue,
+                        xvaluemax, yvalue, yvaluemax, viewBounds.getCoordinateReferenceSystem()));
             }
         }        
         return tileBounds;
     }
     
+    /**
+     * The size of a tile in world units; the lower bits are dropped so small
+     * differences in the viewport resolution still result in the same tiles.
+     *
+     * @param worldunitsperpixel resolution
+     * @return size of a tile in world units
+     */
+    private double getUnitTileSize(double worldunitsperpixel){
+        return roundDouble(worldunitsperpixel * getTileSize());
+    }
+    
+    /**
+     * Finds the key of the tile containing the given coordinate.
+     *
+     * @param coordinate
+     * @param worldunitsperpixel resolution
+     * @return key of the tile in the tile grid
+     */
+    private TileCache.Key getTileKey(Coordinate coordinate, double worldunitsperpixel){
+        double unittilesize = getUnitTileSize(worldunitsperpixel);
+        return new TileCache.Key(
+                (long) Math.floor((coordinate.x - tileCenter.x) / unittilesize),
+                (long) Math.floor((coordinate.y - tileCenter.y) / unittilesize),
+                Double.doubleToLongBits(unittilesize));
+    }
+    
+    /**
+     * Finds the key of a tile from its bounds.  Bounds created by computeTileBounds know their key;
+     * for other bounds the key is worked out from the center of the bounds.
+     *
+     * @param env bounds of a tile
+     * @return key of the tile in the tile grid
+     */
+    private TileCache.Key getTileKey(ReferencedEnvelope env){
+        if (env instanceof TileBounds) {
+            return ((TileBounds) env).key;
+        }
+        return getTileKey(env.centre(), env.getWidth() / getTileSize());
+    }
+    
+    private Set<TileCache.Key> getTileKeys(Collection<ReferencedEnvelope> bounds){
+        Set<TileCache.Key> keys = new HashSet<TileCache.Key>();
+        for( ReferencedEnvelope env : bounds ) {
+            keys.add(getTileKey(env));
+        }
+        return keys;
+    }
+    
+    /**
+     * Estimates the memory used by a tile; the tile and each of its layers
+     * have their own ARGB image.
+     *
+     * @param tile
+     * @return size in bytes
+     */
+    private long getTileMemory(Tile tile){
+        long imageSize = (long) tile.getTileSize() * tile.getTileSize() * 4;
+        int images = 1;
+        RenderExecutorComposite re = tile.getRenderExecutor();
+        if (re != null && re.getRenderer() instanceof TiledCompositeRendererImpl) {
+            images += ((TiledCompositeRendererImpl) re.getRenderer()).getChildren().size();
+        }
+        return imageSize * images;
+    }
+    
+    /**
+     * @return the memory budget for the tile cache in bytes
+     */
+    private static long getTileCacheBudget(){
+        return ProjectPlugin.getPlugin().getPreferenceStore().getLong(
+                PreferenceConstants.P_TILE_CACHE_SIZE) * 1024 * 1024;
+    }
+    
+    /**
+     * The cache of rendered tiles; mostly useful to look at the hit, miss and eviction counts.
+     *
+     * @return the tile cache
+     */
+    public TileCache<Tile> getTileCache(){
+        return tileCache;
+    }
+    
     /**
      * This function takes the last two digits (8 bits) of a double and 0's them. 
      * 
@@ -839,7 +883,6 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         //dispose of all tiles
         disposeAllTiles();
         tileCache.clear();
-        importantTiles.clear();
 
         super.dispose();
     }
@@ -848,13 +891,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      * Disposes all tiles
      */
     private void disposeAllTiles(){
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope key = (ReferencedEnvelope) iterator.next();
-            Tile t = (Tile)tileCache.get(key);
-            if (t != null){
-                removeAdapters(t.getRenderExecutor());
-                t.dispose();
-            }
+        for( Tile t : tileCache.getTiles() ) {
+            removeAdapters(t.getRenderExecutor());
+            t.dispose();
         }    
     }
     
@@ -1101,7 +1140,7 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      */
     public boolean areLayersRelatedByContext(ILayer layer, ILayer contained){
         
-       if (tileCache.getKeys().size() == 0){
+       if (tileCache.getTileCount() == 0){
             //no contexts built to check against so return false;
             return false;
         }
@@ -1110,11 +1149,8 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         if (layer == contained) return true;
         
         
-        Tile t = null;
-        Iterator<Object> keys = tileCache.getKeys().iterator();
-        while( t == null && keys.hasNext()){
-            t = (Tile)tileCache.get((ReferencedEnvelope)keys.next());
-        }
+        List<Tile> tiles = tileCache.getTiles();
+        Tile t = tiles.isEmpty() ? null : tiles.get(0);
         if (t == null){
             //no tile found
             return false;
@@ -1191,11 +1227,14 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
     @Override
     public java.util.Map<ReferencedEnvelope, Tile> getTiles(
 			Collection<ReferencedEnvelope> bounds) {
+    	ReferencedEnvelope viewportbounds = getViewportModelInternal().getBounds();
+    	double resolution = viewportbounds.getWidth() / getMapDisplay().getWidth();
     	// if no tile bounds were passed, calculate them from the current viewport bounds
     	if (bounds == null) {
-    		ReferencedEnvelope viewportbounds = getViewportModelInternal().getBounds();
-    		bounds = computeTileBounds(viewportbounds, viewportbounds.getWidth() / getMapDisplay().getWidth());
+    		bounds = computeTileBounds(viewportbounds, resolution);
     	}
+    	// tiles closest to the middle of the viewport are kept the longest
+    	tileCache.setFocus(getTileKey(viewportbounds.centre(), resolution));
     	
     	// loop through the tile bounds and return a tile for each
         java.util.Map<ReferencedEnvelope, Tile> newTiles = new HashMap<ReferencedEnvelope, Tile>();
@@ -1214,10 +1253,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
             }
             
             //update the other tiles to an offscreen state
-            for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-                ReferencedEnvelope referencedEnvelope = (ReferencedEnvelope) iterator.next();
-                Tile t = (Tile)tileCache.get(referencedEnvelope);
-                if (t != null && !newTiles.containsKey(referencedEnvelope)){
+            Set<TileCache.Key> onscreen = getTileKeys(newTiles.keySet());
+            for( Tile t : tileCache.getTiles() ) {
+                if (!onscreen.contains(getTileKey(t.getReferencedEnvelope()))){
                     t.setScreenState(Tile.ScreenState.OFFSCREEN);
                 }
             }
@@ -1234,12 +1272,8 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      * 
      */
     private void invalidateAllTilesRenderState(){
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope key = (ReferencedEnvelope)iterator.next();
-            Tile t = (Tile)tileCache.get(key);
-            if (t != null){
-                t.setRenderState(Tile.RenderState.INVALID);
-            }
+        for( Tile t : tileCache.getTiles() ) {
+            t.setRenderState(Tile.RenderState.INVALID);
         }
     }
     
@@ -1249,12 +1283,8 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
      * and modifications made as necessary.
      */
     private void invalidateAllTileContext(){
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope key = (ReferencedEnvelope)iterator.next();
-            Tile t = (Tile)tileCache.get(key);
-            if (t != null){
-                t.setContextState(Tile.ContextState.INVALID);
-            }
+        for( Tile t : tileCache.getTiles() ) {
+            t.setContextState(Tile.ContextState.INVALID);
         }
     }
 
@@ -1286,10 +1316,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         g.clearRect(0,0, getMapDisplay().getWidth(), getMapDisplay().getHeight());
         
         //update screen tile states
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope referencedEnvelope = (ReferencedEnvelope) iterator.next();
-            Tile t = (Tile)tileCache.get(referencedEnvelope);
-            if (t != null && !tileBounds.contains(referencedEnvelope)){
+        Set<TileCache.Key> onscreen = getTileKeys(tileBounds);
+        for( Tile t : tileCache.getTiles() ) {
+            if (!onscreen.contains(getTileKey(t.getReferencedEnvelope()))){
                 t.setScreenState(Tile.ScreenState.OFFSCREEN);
             }
         }
@@ -1414,7 +1443,6 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         //remove all existing images so everything will be recreated
         disposeAllTiles();
         tileCache.clear();
-        importantTiles.clear();
         
         softRefresh(null);
     }
@@ -1486,10 +1514,9 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         double resolution = viewportbounds.getWidth() / getMapDisplay().getWidth();
         Collection<ReferencedEnvelope> tileBounds = computeTileBounds(areaOfInterest, resolution);
         
-        for( Iterator<Object> iterator = tileCache.getKeys().iterator(); iterator.hasNext(); ) {
-            ReferencedEnvelope key = (ReferencedEnvelope)iterator.next();
-            Tile t = (Tile)tileCache.get(key);
-            if (!tileBounds.contains(key)){
+        Set<TileCache.Key> onscreen = getTileKeys(tileBounds);
+        for( Tile t : tileCache.getTiles() ) {
+            if (!onscreen.contains(getTileKey(t.getReferencedEnvelope()))){
                 //we can't assume that all layers have been rendered outside of the current tile bounds
                 //really we only need to do this when tiles are made visible...
                 t.setRenderState(Tile.RenderState.INVALID);
@@ -1497,6 +1524,22 @@ public class TiledRenderManagerDynamic extends RenderManagerImpl {
         }
     }
     
+    /**
+     * Bounds of a tile that remember the position of the tile in the tile grid, so
+     * tiles can be looked up without comparing envelopes.
+     */
+    private static class TileBounds extends ReferencedEnvelope {
+        private static final long serialVersionUID = 1L;
+
+        private final TileCache.Key key;
+
+        TileBounds( TileCache.Key key, double x1, double x2, double y1, double y2,
+                CoordinateReferenceSystem crs ) {
+            super(x1, x2, y1, y2, crs);
+            this.key = key;
+        }
+    }
+    
     /**
      * This is job to render tiles in a separate thread.
      * 
@@ -213,7 +213,14 @@ public class ViewportPaneJava extends Panel implements ViewportPane {
             Graphics2D graphics = vImage.createGraphics();
             if (clearImage)
                 graphics.clearRect(0, 0, vImage.getWidth(), vImage.getHeight());
-            graphics.drawRenderedImage(getImage(), IDENTITY);
+            // the renderer reuses the images of incremental updates; it draws holding the context
+            RenderExecutor executor = renderManager.getRenderExecutor();
+            Object lock = executor != null && executor.getContext() != null
+                    ? executor.getContext()
+                    : this;
+            synchronized (lock) {
+                graphics.drawRenderedImage(getImage(), IDENTITY);
+            }
             graphics.dispose();
         } while( vImage.contentsLost() );
     }
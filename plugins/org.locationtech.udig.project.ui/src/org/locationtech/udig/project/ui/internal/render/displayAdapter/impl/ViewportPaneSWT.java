@@ -18,6 +18,7 @@ import java.awt.image.RenderedImage;
 
 import org.locationtech.udig.internal.ui.UiPlugin;
 import org.locationtech.udig.project.internal.ProjectPlugin;
+import org.locationtech.udig.project.internal.render.RenderExecutor;
 import org.locationtech.udig.project.internal.render.RenderManager;
 import org.locationtech.udig.project.preferences.PreferenceConstants;
 import org.locationtech.udig.project.render.displayAdapter.IMapDisplayListener;
@@ -366,12 +367,19 @@ public class ViewportPaneSWT extends Canvas implements ViewportPane {
      */
     private org.eclipse.swt.graphics.Image createImage() {
         org.eclipse.swt.graphics.Image newImage;
-        RenderedImage image = renderManager.getImage();
-        
-        if (image != null)
-            newImage = AWTSWTImageUtils.createSWTImage(image, false);
-        else {
-            newImage = new Image(getDisplay(), getWidth(), getHeight());
+        // the renderer reuses the images of incremental updates; it draws holding the context
+        RenderExecutor executor = renderManager.getRenderExecutor();
+        Object lock = executor != null && executor.getContext() != null
+                ? executor.getContext()
+                : this;
+        synchronized (lock) {
+            RenderedImage image = renderManager.getImage();
+
+            if (image != null)
+                newImage = AWTSWTImageUtils.createSWTImage(image, false);
+            else {
+                newImage = new Image(getDisplay(), getWidth(), getHeight());
+            }
         }
         return newImage;
     }
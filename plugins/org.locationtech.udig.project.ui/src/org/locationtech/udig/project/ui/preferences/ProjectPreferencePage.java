@@ -45,6 +45,11 @@ public class ProjectPreferencePage extends FieldEditorPreferencePage
                 Messages.ProjectPreferencePage_maxundo,
                 getFieldEditorParent());
         addField(maxUndo);
+        BooleanFieldEditor binaryFiles = new BooleanFieldEditor(
+                PreferenceConstants.P_BINARY_PROJECT_FILES, 
+                Messages.ProjectPreferencePage_binaryFiles,
+                getFieldEditorParent());
+        addField(binaryFiles);
     }
 
     public void init( IWorkbench workbench ) {
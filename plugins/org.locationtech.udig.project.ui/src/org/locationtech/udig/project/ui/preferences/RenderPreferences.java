@@ -16,6 +16,7 @@ import org.locationtech.udig.project.ui.internal.Messages;
 
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
@@ -60,6 +61,26 @@ public class RenderPreferences extends FieldEditorPreferencePage implements
         addField(new BooleanFieldEditor(org.locationtech.udig.project.preferences.PreferenceConstants.P_TILED_RENDERING, 
                 Messages.RenderPreferences_tiledRendering,
                 getFieldEditorParent()));
+        IntegerFieldEditor tileCacheSize = new IntegerFieldEditor(org.locationtech.udig.project.preferences.PreferenceConstants.P_TILE_CACHE_SIZE,
+                Messages.RenderPreferences_tileCacheSize,
+                getFieldEditorParent());
+        tileCacheSize.setValidRange(16, 4096);
+        addField(tileCacheSize);
+        IntegerFieldEditor renderThreads = new IntegerFieldEditor(org.locationtech.udig.project.preferences.PreferenceConstants.P_RENDER_THREADS,
+                Messages.RenderPreferences_renderThreads,
+                getFieldEditorParent());
+        renderThreads.setValidRange(1, 32);
+        addField(renderThreads);
+        IntegerFieldEditor generalizationScale = new IntegerFieldEditor(org.locationtech.udig.project.preferences.PreferenceConstants.P_GENERALIZATION_SCALE,
+                Messages.RenderPreferences_generalizationScale,
+                getFieldEditorParent());
+        generalizationScale.setValidRange(0, Integer.MAX_VALUE);
+        addField(generalizationScale);
+        IntegerFieldEditor rasterCacheSize = new IntegerFieldEditor(org.locationtech.udig.project.preferences.PreferenceConstants.P_RASTER_CACHE_SIZE,
+                Messages.RenderPreferences_rasterCacheSize,
+                getFieldEditorParent());
+        rasterCacheSize.setValidRange(0, 4096);
+        addField(rasterCacheSize);
 	}
 
 	/*
@@ -15,11 +15,13 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.locationtech.udig.project.internal.Messages;
 import org.locationtech.udig.project.internal.Project;
+import org.locationtech.udig.project.internal.util.ProjectResourceImpl;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.emf.common.util.URI;
@@ -65,7 +67,8 @@ public class ExportProjectUtils {
 
     private static void saveResource( Resource copy ) {
         try {
-            copy.save(null);
+            // exported projects are always XMI, whatever the project files are saved as
+            copy.save(Collections.singletonMap(ProjectResourceImpl.OPTION_BINARY, Boolean.FALSE));
         } catch (IOException e) {
             throw (RuntimeException) new RuntimeException().initCause(e);
         }
@@ -25,6 +25,7 @@ import org.eclipse.emf.common.notify.Notifier;
 import org.eclipse.emf.common.util.ResourceLocator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.InternalEList;
 import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
@@ -76,21 +77,32 @@ public final class ProjectPlugin extends EMFPlugin {
     }
 
     /**
-     * Save the collection of projects
+     * Save the collection of projects.
+     * <p>
+     * Only the resources changed since they were last saved are written. Elements that have not
+     * been loaded are left alone.
+     * </p>
      *
      * @param projects projects to save
      * @return Collection of error messages or empty collection
      */
+    @SuppressWarnings("unchecked")
     public static Collection<String> saveProjects(Collection<Project> projects) {
         ArrayList<String> errors = new ArrayList<String>();
         for (Project project : projects) {
             try {
-                Resource eResource = project.eResource();
                 Map<String, String> saveOptions = getPlugin().saveOptions;
-                eResource.save(saveOptions);
+                saveIfModified(project.eResource(), saveOptions);
                 List<ProjectElement> elementsInternal = project.getElementsInternal();
-                for (ProjectElement projectElement : elementsInternal) {
-                    projectElement.eResource().save(saveOptions);
+                Iterator<ProjectElement> elements = elementsInternal instanceof InternalEList
+                        ? ((InternalEList<ProjectElement>) elementsInternal).basicIterator()
+                        : elementsInternal.iterator();
+                while (elements.hasNext()) {
+                    ProjectElement projectElement = elements.next();
+                    // a proxy has not been loaded so it has not changed either
+                    if (!projectElement.eIsProxy()) {
+                        saveIfModified(projectElement.eResource(), saveOptions);
+                    }
                 }
             } catch (Exception e) {
                 log("Error while saving resource", e);
@@ -102,6 +114,13 @@ public final class ProjectPlugin extends EMFPlugin {
         return errors;
     }
 
+    private static void saveIfModified(Resource resource, Map<String, String> saveOptions)
+            throws IOException {
+        if (resource != null && (resource.isModified() || !resource.isTrackingModification())) {
+            resource.save(saveOptions);
+        }
+    }
+
     /**
      * Returns the singleton instance of the Eclipse plugin.
      * <!-- begin-user-doc --> <!--
@@ -56,6 +56,7 @@ import org.locationtech.udig.project.internal.StyleBlackboard;
 import org.locationtech.udig.project.internal.Trace;
 import org.locationtech.udig.project.internal.render.RenderManager;
 import org.locationtech.udig.project.internal.render.RendererCreator;
+import org.locationtech.udig.project.internal.render.SelectionModel;
 import org.locationtech.udig.project.render.AbstractRenderMetrics;
 import org.locationtech.udig.ui.PlatformGIS;
 import org.locationtech.udig.ui.ProgressManager;
@@ -106,6 +107,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Id;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
@@ -889,10 +891,13 @@ public class LayerImpl extends EObjectImpl implements Layer {
     }
 
     /**
-     * <!-- begin-user-doc --> <!-- end-user-doc -->
-     * @generated
+     * <!-- begin-user-doc --> Id filters are kept as a {@link SelectionModel}. <!-- end-user-doc -->
+     * @generated NOT
      */
     public void setFilter(Filter newFilter) {
+        if (newFilter instanceof Id && !(newFilter instanceof SelectionModel)) {
+            newFilter = SelectionModel.create(newFilter);
+        }
         Filter oldFilter = filter;
         filter = newFilter;
         if (eNotificationRequired())
@@ -51,6 +51,7 @@ import org.locationtech.udig.project.internal.commands.DefaultErrorHandler;
 import org.locationtech.udig.project.internal.render.RenderFactory;
 import org.locationtech.udig.project.internal.render.RenderManager;
 import org.locationtech.udig.project.internal.render.RenderPackage;
+import org.locationtech.udig.project.internal.render.SelectionModel;
 import org.locationtech.udig.project.internal.render.ViewportModel;
 import org.locationtech.udig.project.preferences.PreferenceConstants;
 import org.locationtech.udig.project.render.IRenderManager;
@@ -1907,17 +1908,26 @@ public class MapImpl extends EObjectImpl implements Map {
                         || oldFilter.equals(Filter.EXCLUDE)) {
                     layer.setFilter(target(layer, filter));
                 } else {
+                    Filter newFilter = target(layer, filter);
+                    SelectionModel oldSelection = SelectionModel.create(oldFilter);
+                    SelectionModel newSelection = SelectionModel.create(newFilter);
+                    if (oldSelection != null && newSelection != null) {
+                        // both pick features by id; combine the ids rather than the filters
+                        layer.setFilter(and ? oldSelection.union(newSelection) : oldSelection
+                                .intersect(newSelection));
+                        continue;
+                    }
 
                     FilterFactory createFilterFactory = CommonFactoryFinder
                             .getFilterFactory(GeoTools.getDefaultHints());
 
                     if (!and) {
                         Filter logicFilter;
-                        logicFilter = createFilterFactory.and(oldFilter, target(layer, filter));
+                        logicFilter = createFilterFactory.and(oldFilter, newFilter);
                         layer.setFilter(logicFilter);
                     } else {
                         Filter logicFilter;
-                        logicFilter = createFilterFactory.or(oldFilter, target(layer, filter));
+                        logicFilter = createFilterFactory.or(oldFilter, newFilter);
                         layer.setFilter(logicFilter);
                     }
                 }
@@ -20,6 +20,7 @@ import org.locationtech.udig.project.internal.ProjectFactory;
 import org.locationtech.udig.project.internal.ProjectPackage;
 import org.locationtech.udig.project.internal.ProjectPlugin;
 import org.locationtech.udig.project.internal.ProjectRegistry;
+import org.locationtech.udig.project.internal.util.ProjectResourceFactoryImpl;
 import org.locationtech.udig.ui.PlatformGIS;
 
 import org.eclipse.core.runtime.IPath;
@@ -480,7 +481,7 @@ public class ProjectRegistryImpl extends EObjectImpl implements ProjectRegistry
             if (projectRegistry == null) {
 
                 // Load the resource through the editing domain.
-                resourceSet = new ResourceSetImpl();
+                resourceSet = ProjectResourceFactoryImpl.register(new ResourceSetImpl());
 
                 if (registrypath.toFile().exists()) {
                     Resource resource = resourceSet.getResource(uri, true);
@@ -534,13 +535,13 @@ public class ProjectRegistryImpl extends EObjectImpl implements ProjectRegistry
         URI olduri = URI.createURI("file://" + oldregistrypath.toOSString()); //$NON-NLS-1$
 
         if (oldregistrypath.toFile().exists()) {
-            resourceSet = new ResourceSetImpl();
+            resourceSet = ProjectResourceFactoryImpl.register(new ResourceSetImpl());
             Resource resource = resourceSet.getResource(olduri, true);
             resourceSet.eSetDeliver(false);
             projectRegistry = (ProjectRegistry) resource.getContents().get(0);
 
             if (projectRegistry != null) {
-                resourceSet = new ResourceSetImpl();
+                resourceSet = ProjectResourceFactoryImpl.register(new ResourceSetImpl());
                 resource = resourceSet.createResource(uri);
                 resource.getContents().add(projectRegistry);
                 oldregistrypath.toFile().deleteOnExit();
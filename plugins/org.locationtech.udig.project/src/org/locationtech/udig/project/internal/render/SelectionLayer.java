@@ -9,6 +9,10 @@
  */
 package org.locationtech.udig.project.internal.render;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.locationtech.udig.project.ILayer;
 import org.locationtech.udig.project.internal.Layer;
 import org.locationtech.udig.project.internal.LayerDecorator;
@@ -21,7 +25,14 @@ import org.locationtech.udig.ui.graphics.SLDs;
 
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.Query;
+import org.geotools.data.collection.SpatialIndexFeatureCollection;
+import org.geotools.data.collection.SpatialIndexFeatureSource;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.styling.Style;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.Filter;
 
 /**
@@ -38,6 +49,25 @@ public class SelectionLayer extends LayerDecorator {
 
     private String message;
 
+    /**
+     * Most features kept in memory for drawing the selection; larger selections are read from
+     * the datastore each time they are drawn.
+     */
+    public static final int MAX_CACHED_FEATURES = 250000;
+
+    /** selection the cached features were read for */
+    private Filter cachedFilter;
+
+    /** the layer's feature changes when the features were read */
+    private int cachedChanges;
+
+    private FeatureEvent cachedLastChange;
+
+    /** type the features were read from; the source itself may be wrapped anew for each draw */
+    private String cachedTypeName;
+
+    private SimpleFeatureSource cachedFeatures;
+
     /**
      * Construct <code>SelectionLayer</code>.
      * 
@@ -47,6 +77,72 @@ public class SelectionLayer extends LayerDecorator {
         super(layer);
     }
 
+    /**
+     * Returns the selected features of the layer, indexed in memory, so drawing the selection
+     * does not query the datastore with the selection filter again.
+     * <p>
+     * The features are read again when the selection changes or the features of the layer are
+     * edited.
+     * </p>
+     * 
+     * @param source features of the layer
+     * @return the selected features or null if there is no selection to cache, or it is larger
+     *         than {@link #MAX_CACHED_FEATURES}
+     * @throws IOException
+     */
+    public synchronized SimpleFeatureSource getSelectedFeatures( SimpleFeatureSource source )
+            throws IOException {
+        Filter filter = getFilter();
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE) {
+            clearSelectedFeatures();
+            return null;
+        }
+        List<FeatureEvent> changes = getFeatureChanges();
+        int changeCount = changes.size();
+        FeatureEvent lastChange = changeCount == 0 ? null : changes.get(changeCount - 1);
+        String typeName = source.getSchema().getTypeName();
+        if (filter == cachedFilter && typeName.equals(cachedTypeName)
+                && changeCount == cachedChanges && lastChange == cachedLastChange) {
+            return cachedFeatures;
+        }
+        if (filter instanceof SelectionModel
+                && ((SelectionModel) filter).size() > MAX_CACHED_FEATURES) {
+            clearSelectedFeatures();
+            return null;
+        }
+        Query query = new Query(typeName, filter);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator iter = source.getFeatures(query).features();
+        try {
+            while( iter.hasNext() ) {
+                if (features.size() == MAX_CACHED_FEATURES) {
+                    clearSelectedFeatures();
+                    return null;
+                }
+                features.add(iter.next());
+            }
+        } finally {
+            iter.close();
+        }
+        SpatialIndexFeatureCollection collection = new SpatialIndexFeatureCollection(source
+                .getSchema());
+        collection.addAll(features);
+
+        cachedFilter = filter;
+        cachedTypeName = typeName;
+        cachedChanges = changeCount;
+        cachedLastChange = lastChange;
+        cachedFeatures = new SpatialIndexFeatureSource(collection);
+        return cachedFeatures;
+    }
+
+    private void clearSelectedFeatures() {
+        cachedFilter = null;
+        cachedTypeName = null;
+        cachedLastChange = null;
+        cachedFeatures = null;
+    }
+
     /**
      * @see org.locationtech.udig.project.internal.Layer#isVisible()
      */
@@ -0,0 +1,428 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.render;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.feature.Feature;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.Id;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+
+/**
+ * The features selected on a layer, kept as a compact set of feature ids.
+ * <p>
+ * Most datastores number their features, giving ids such as "roads.1234". The numbers of the ids
+ * that share a prefix are kept in a bit set and any other ids in a hash set, so a selection of
+ * hundreds of thousands of features stays small and adding, removing and intersecting selections
+ * does not build ever deeper Or and And filters.
+ * </p>
+ * <p>
+ * The model is an {@link Id} filter, so it is set as the filter of the layer and understood by
+ * everything that understands an Id filter. It is immutable; the set operations return new
+ * models. The identifiers are only created when a datastore asks for them.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public final class SelectionModel implements Id {
+
+    /** Nothing selected */
+    public static final SelectionModel EMPTY = new SelectionModel(null, new BitSet(),
+            Collections.<String> emptySet());
+
+    /** Larger numbers are kept in the hash set so the bit set stays under 8MB */
+    static final int MAX_ROW = 1 << 26;
+
+    /**
+     * prefix of the ids numbered in rows, null if no id was numbered. No id in others starts with
+     * the prefix and ends in a number that could go in rows.
+     */
+    private final String prefix;
+
+    private final BitSet rows;
+
+    private final Set<String> others;
+
+    private final int size;
+
+    private volatile Set<Identifier> identifiers;
+
+    private SelectionModel( String prefix, BitSet rows, Set<String> others ) {
+        this.prefix = prefix;
+        this.rows = rows;
+        this.others = others;
+        this.size = rows.cardinality() + others.size();
+    }
+
+    /**
+     * Creates a selection of the features with the ids.
+     *
+     * @param fids feature ids, their toString() is used
+     * @return the selection
+     */
+    public static SelectionModel create( Iterable< ? > fids ) {
+        Builder builder = new Builder(null);
+        for( Object fid : fids ) {
+            builder.add(String.valueOf(fid));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the selection a filter makes, if the filter only picks features by id.
+     * <p>
+     * Id filters, {@link Filter#EXCLUDE} and the Or, And and Not of them are understood.
+     * </p>
+     *
+     * @param filter
+     * @return the selection or null if the filter selects features by other means
+     */
+    public static SelectionModel create( Filter filter ) {
+        if (filter instanceof SelectionModel) {
+            return (SelectionModel) filter;
+        }
+        if (filter == Filter.EXCLUDE) {
+            return EMPTY;
+        }
+        if (filter instanceof Id) {
+            return create(((Id) filter).getIDs());
+        }
+        if (filter instanceof Or) {
+            SelectionModel union = EMPTY;
+            for( Filter child : ((Or) filter).getChildren() ) {
+                SelectionModel selection = create(child);
+                if (selection == null)
+                    return null;
+                union = union.union(selection);
+            }
+            return union;
+        }
+        if (filter instanceof And) {
+            List<Filter> children = ((And) filter).getChildren();
+            SelectionModel result = null;
+            // the features selected by one child and not excluded by the others
+            for( Filter child : children ) {
+                if (!(child instanceof Not)) {
+                    SelectionModel selection = create(child);
+                    if (selection == null)
+                        return null;
+                    result = result == null ? selection : result.intersect(selection);
+                }
+            }
+            if (result == null)
+                return null;
+            for( Filter child : children ) {
+                if (child instanceof Not) {
+                    SelectionModel excluded = create(((Not) child).getFilter());
+                    if (excluded == null)
+                        return null;
+                    result = result.subtract(excluded);
+                }
+            }
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * @param fid
+     * @return true if the feature with the id is selected
+     */
+    public boolean contains( String fid ) {
+        if (fid == null)
+            return false;
+        if (prefix != null) {
+            int row = row(prefix, fid);
+            if (row >= 0)
+                return rows.get(row);
+        }
+        return others.contains(fid);
+    }
+
+    /**
+     * @return number of features selected
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param selection
+     * @return the features selected in either selection
+     */
+    public SelectionModel union( SelectionModel selection ) {
+        if (selection.isEmpty())
+            return this;
+        if (isEmpty())
+            return selection;
+        if (sharesPrefix(selection)) {
+            BitSet union = (BitSet) rows.clone();
+            union.or(selection.rows);
+            Set<String> unionOthers = new HashSet<String>(others);
+            unionOthers.addAll(selection.others);
+            return new SelectionModel(prefix(selection), union, unionOthers);
+        }
+        Builder builder = new Builder(this);
+        for( String fid : selection.fids() ) {
+            builder.add(fid);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param selection
+     * @return the features of this selection that are not in the other selection
+     */
+    public SelectionModel subtract( SelectionModel selection ) {
+        if (isEmpty() || selection.isEmpty())
+            return this;
+        if (sharesPrefix(selection)) {
+            BitSet difference = (BitSet) rows.clone();
+            difference.andNot(selection.rows);
+            Set<String> differenceOthers = new HashSet<String>(others);
+            differenceOthers.removeAll(selection.others);
+            return new SelectionModel(prefix, difference, differenceOthers);
+        }
+        Builder builder = new Builder(null);
+        for( String fid : fids() ) {
+            if (!selection.contains(fid))
+                builder.add(fid);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param selection
+     * @return the features selected in both selections
+     */
+    public SelectionModel intersect( SelectionModel selection ) {
+        if (isEmpty() || selection.isEmpty())
+            return EMPTY;
+        if (sharesPrefix(selection)) {
+            BitSet intersection = (BitSet) rows.clone();
+            intersection.and(selection.rows);
+            Set<String> intersectionOthers = new HashSet<String>(others);
+            intersectionOthers.retainAll(selection.others);
+            return new SelectionModel(prefix(selection), intersection, intersectionOthers);
+        }
+        SelectionModel smaller = size <= selection.size ? this : selection;
+        SelectionModel larger = smaller == this ? selection : this;
+        Builder builder = new Builder(null);
+        for( String fid : smaller.fids() ) {
+            if (larger.contains(fid))
+                builder.add(fid);
+        }
+        return builder.build();
+    }
+
+    private boolean sharesPrefix( SelectionModel selection ) {
+        return prefix == null || selection.prefix == null || prefix.equals(selection.prefix);
+    }
+
+    private String prefix( SelectionModel selection ) {
+        return prefix != null ? prefix : selection.prefix;
+    }
+
+    /**
+     * @return the selected ids, numbered ones first
+     */
+    private Iterable<String> fids() {
+        return new Iterable<String>(){
+            public Iterator<String> iterator() {
+                final Iterator<String> iter = others.iterator();
+                return new Iterator<String>(){
+                    int next = rows.nextSetBit(0);
+
+                    public boolean hasNext() {
+                        return next >= 0 || iter.hasNext();
+                    }
+
+                    public String next() {
+                        if (next >= 0) {
+                            String fid = prefix + next;
+                            next = next == Integer.MAX_VALUE ? -1 : rows.nextSetBit(next + 1);
+                            return fid;
+                        }
+                        if (!iter.hasNext())
+                            throw new NoSuchElementException();
+                        return iter.next();
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A read only view of the selected ids; nothing is copied.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Object> getIDs() {
+        return (Set<Object>) (Set< ? >) new AbstractSet<String>(){
+            public Iterator<String> iterator() {
+                return fids().iterator();
+            }
+
+            public int size() {
+                return size;
+            }
+
+            public boolean contains( Object o ) {
+                return o instanceof String && SelectionModel.this.contains((String) o);
+            }
+        };
+    }
+
+    public Set<Identifier> getIdentifiers() {
+        Set<Identifier> result = identifiers;
+        if (result == null) {
+            FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+            result = new LinkedHashSet<Identifier>();
+            for( String fid : fids() ) {
+                result.add(ff.featureId(fid));
+            }
+            result = Collections.unmodifiableSet(result);
+            identifiers = result;
+        }
+        return result;
+    }
+
+    public boolean evaluate( Object object ) {
+        if (object instanceof Feature) {
+            FeatureId id = ((Feature) object).getIdentifier();
+            return id != null && contains(id.getID());
+        }
+        return false;
+    }
+
+    public Object accept( FilterVisitor visitor, Object extraData ) {
+        return visitor.visit(this, extraData);
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof Id))
+            return false;
+        return getIDs().equals(((Id) obj).getIDs());
+    }
+
+    @Override
+    public int hashCode() {
+        return getIDs().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SelectionModel[" + size + " features]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Returns the number at the end of the id if it starts with the prefix, -1 otherwise.
+     */
+    static int row( String prefix, String fid ) {
+        int length = fid.length();
+        if (length <= prefix.length() || !fid.startsWith(prefix))
+            return -1;
+        return number(fid, prefix.length());
+    }
+
+    /**
+     * Returns the number starting at the index, -1 if the rest of the id is not a number that
+     * reads back the same or is larger than {@link #MAX_ROW}.
+     */
+    private static int number( String fid, int start ) {
+        int length = fid.length();
+        if (start >= length || (fid.charAt(start) == '0' && length - start > 1))
+            return -1;
+        long value = 0;
+        for( int i = start; i < length; i++ ) {
+            char c = fid.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+            if (value > MAX_ROW)
+                return -1;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Collects ids into a new model.
+     */
+    private static class Builder {
+        private String prefix;
+
+        private final BitSet rows;
+
+        private final Set<String> others;
+
+        /**
+         * @param start model whose ids the new one starts with, may be null
+         */
+        Builder( SelectionModel start ) {
+            if (start == null) {
+                rows = new BitSet();
+                others = new HashSet<String>();
+            } else {
+                prefix = start.prefix;
+                rows = (BitSet) start.rows.clone();
+                others = new HashSet<String>(start.others);
+            }
+        }
+
+        void add( String fid ) {
+            if (prefix == null) {
+                // the first numbered id decides the prefix
+                int end = fid.length();
+                while( end > 0 && Character.isDigit(fid.charAt(end - 1)) ) {
+                    end--;
+                }
+                if (end < fid.length() && number(fid, end) >= 0) {
+                    prefix = fid.substring(0, end);
+                }
+            }
+            int row = prefix == null ? -1 : row(prefix, fid);
+            if (row >= 0) {
+                rows.set(row);
+            } else {
+                others.add(fid);
+            }
+        }
+
+        SelectionModel build() {
+            return new SelectionModel(prefix, rows, others);
+        }
+    }
+}
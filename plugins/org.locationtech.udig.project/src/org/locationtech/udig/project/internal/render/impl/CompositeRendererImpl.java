@@ -20,6 +20,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.locationtech.udig.project.IMap;
 import org.locationtech.udig.project.ProjectBlackboardConstants;
@@ -35,6 +36,7 @@ import org.locationtech.udig.project.internal.render.Renderer;
 import org.locationtech.udig.project.internal.render.RendererCreator;
 import org.locationtech.udig.project.internal.render.SelectionLayer;
 import org.locationtech.udig.project.preferences.PreferenceConstants;
+import org.locationtech.udig.project.render.AbstractRenderMetrics;
 import org.locationtech.udig.project.render.ILabelPainter;
 import org.locationtech.udig.project.render.IRenderContext;
 import org.locationtech.udig.project.render.RenderException;
@@ -124,6 +126,50 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
         renderExecutors=new CopyOnWriteArraySet<RenderExecutor>();
     }
 
+    /**
+     * Counts the notifications of the executors; an incremental update is skipped when nothing
+     * has changed since the last one.
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    private long compositedChanges = -1;
+
+    /**
+     * The layers at the bottom of the map that have finished rendering, composited once so
+     * incremental updates only have to draw the layers above them.
+     */
+    private volatile BaseImage base;
+
+    /**
+     * Images reused by incremental updates; the final image of a render is always a new image.
+     * They are only drawn into holding the lock on the context, and the viewport panes read the
+     * image of the context holding the same lock, so an update never draws into an image that is
+     * being painted.
+     */
+    private final BufferedImage[] buffers = new BufferedImage[2];
+
+    private int buffer;
+
+    /**
+     * The composite of the bottom layers of the map and what it was made from.
+     */
+    private static class BaseImage {
+        BufferedImage image;
+        List<RenderExecutor> executors;
+        List<Float> alphas;
+        Color background;
+
+        boolean isValid( List<RenderExecutor> layers, List<Float> layerAlphas, int finished,
+                Color color, BufferedImage current ) {
+            int size = executors.size();
+            return size <= finished && color.equals(background)
+                    && image.getWidth() == current.getWidth()
+                    && image.getHeight() == current.getHeight()
+                    && layers.subList(0, size).equals(executors)
+                    && layerAlphas.subList(0, size).equals(alphas);
+        }
+    }
+
     /**
      * <!-- begin-user-doc --> <!-- end-user-doc -->
      * 
@@ -159,6 +205,7 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
              * @see org.locationtech.udig.project.internal.render.RenderListenerAdapter#renderDisposed(org.eclipse.emf.common.notify.Notification)
              */
             protected void renderDisposed( Notification msg ) {
+                changed(executor);
                 EObject obj = (EObject) getTarget();
                 obj.eAdapters().remove(this);
             }
@@ -167,16 +214,19 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
              * @see org.locationtech.udig.project.internal.render.RenderListenerAdapter#renderDone()
              */
             protected void renderDone() {
+               changed(executor);
                setState(DONE);
             }
 
             protected void renderRequest() {
+                changed(executor);
                 setRenderBounds(executor.getRenderBounds());
                 setState(RENDER_REQUEST);
             }
 
             @Override
             protected void renderStarting() {
+                changed(executor);
 //                setState(STARTING);
             }
 
@@ -184,6 +234,7 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
              * @see org.locationtech.udig.project.internal.render.RenderListenerAdapter#renderUpdate()
              */
             protected void renderUpdate() {
+                changed(executor);
                 synchronized (CompositeRendererImpl.this) {
 //                    try {
 //                        refreshImage();
@@ -194,9 +245,50 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
                 }
             }
         });
+        if (executor instanceof RenderExecutorImpl && !(executor instanceof RenderExecutorComposite)) {
+            ((RenderExecutorImpl) executor).setRenderScheduler(RenderScheduler.getDefault(),
+                    getRenderCost(renderer));
+        }
         return executor;
     }
 
+    /**
+     * Estimates the time it takes to render the layer of the renderer from the metrics of the
+     * renderer; the latency and the drawing time are added up.
+     * 
+     * @return the estimated cost, lower costs are rendered first
+     */
+    long getRenderCost( Renderer renderer ) {
+        if (renderer instanceof PlaceHolder) {
+            return 0;
+        }
+        try {
+            RenderContext context = (RenderContext) renderer.getContext();
+            // the metrics are in the order the renderer creator picks the renderer in
+            Collection<AbstractRenderMetrics> available = getRendererCreator(context)
+                    .getAvailableRendererMetrics(context.getLayerInternal());
+            for( AbstractRenderMetrics metrics : available ) {
+                if (metrics.getRenderMetricsFactory().canRender(context)) {
+                    return metrics.getLatencyMetric() + metrics.getDrawingTimeMetric();
+                }
+            }
+        } catch (Exception e) {
+            ProjectPlugin.log("Unable to estimate the render cost of " + renderer.getName(), e); //$NON-NLS-1$
+        }
+        return RenderScheduler.UNKNOWN_COST;
+    }
+
+    /**
+     * Notes that the image of the executor may have changed.
+     */
+    private void changed( RenderExecutor executor ) {
+        changes.incrementAndGet();
+        BaseImage current = base;
+        if (current != null && current.executors.contains(executor)) {
+            base = null;
+        }
+    }
+
     /**
      * @see org.locationtech.udig.project.internal.render.impl.RendererImpl#dispose()
      */
@@ -205,6 +297,9 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
             renderer.dispose();
         }
         getRenderExecutors().clear();
+        base = null;
+        buffers[0] = null;
+        buffers[1] = null;
     }
 
     /**
@@ -320,25 +415,15 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
             return;
         }
         synchronized (getContext()) {
+            long changeCount = changes.get();
+            if (!paintLabels && changeCount == compositedChanges) {
+                // nothing has been drawn since the last update
+                return;
+            }
             Graphics2D g = null;
             try {
                 BufferedImage current = getContext().getImage();
                 
-                //create a copy of the image to draw into
-            
-                BufferedImage copy = new BufferedImage(current.getWidth(), current.getHeight(),current.getType() );
-            
-                g = (Graphics2D)copy.getGraphics();
-                
-                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-                g.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
-                g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
-                g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-                g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-                g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-                
                 IMap map = getContext().getMap();
                 Object object = map.getBlackboard().get(ProjectBlackboardConstants.MAP__BACKGROUND_COLOR);
                 if( object==null ){
@@ -347,8 +432,7 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
                     map.getBlackboard().put(ProjectBlackboardConstants.MAP__BACKGROUND_COLOR, new Color(background.red, background.green, background.blue ));
                     object = map.getBlackboard().get(ProjectBlackboardConstants.MAP__BACKGROUND_COLOR);
                 }
-                g.setBackground((Color) object);
-                g.clearRect(0,0,copy.getWidth(), copy.getHeight());
+                Color background = (Color) object;
                 
                 SortedSet<RenderExecutor> executors;
                 synchronized (renderExecutors) {
@@ -357,6 +441,10 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
                 }
                 ILabelPainter cache = getContext().getLabelPainter();
                 
+                // work out what to draw; the layers at the bottom that are done can be reused
+                List<RenderExecutor> layers = new ArrayList<RenderExecutor>(executors.size());
+                List<Float> alphas = new ArrayList<Float>(executors.size());
+                int finished = 0;
                 RENDERERS: for( RenderExecutor executor : executors ) {
 
                     if (!executor.getContext().isVisible()){
@@ -368,18 +456,40 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
                     }
                         
 
-                    if (executor.getState() == NEVER || executor.getState() == STARTING || executor.getState() == RENDER_REQUEST) {
+                    int state = executor.getState();
+                    if (state == NEVER || state == STARTING || state == RENDER_REQUEST) {
                         continue RENDERERS;
                     } 
-                    if( isFullAlphaUsed(executor) ){
-                        g.setComposite(AlphaComposite.getInstance(
-                                AlphaComposite.SRC_OVER, 1.0f));
-                    }else{
-                        g.setComposite(AlphaComposite.getInstance(
-                                AlphaComposite.SRC_OVER, 0.5f));                        
+                    if (state == DONE && finished == layers.size()) {
+                        finished++;
                     }
-                    g.drawRenderedImage(executor.getContext().getImage(), IDENTITY);
+                    layers.add(executor);
+                    alphas.add(isFullAlphaUsed(executor) ? 1.0f : 0.5f);
+                }
+                BaseImage baseImage = getBaseImage(layers, alphas, finished, background, current);
+                
+                //draw into a new image for the final result and reuse a buffer for updates
+                BufferedImage copy;
+                if (paintLabels) {
+                    copy = new BufferedImage(current.getWidth(), current.getHeight(), current.getType());
+                } else {
+                    copy = getBuffer(current);
+                }
+            
+                g = (Graphics2D)copy.getGraphics();
+                setRenderingHints(g);
+                
+                int first = 0;
+                if (baseImage != null) {
+                    g.setComposite(AlphaComposite.Src);
+                    g.drawRenderedImage(baseImage.image, IDENTITY);
+                    first = baseImage.executors.size();
+                } else {
+                    g.setBackground(background);
+                    g.clearRect(0,0,copy.getWidth(), copy.getHeight());
                 }
+                drawLayers(g, layers, alphas, first, layers.size());
+                
                 if(paintLabels){
                     RenderingHints hints = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                     g.setRenderingHints(hints);
@@ -394,6 +504,7 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
 
                 //update the context with the new image
                 ((RenderContextImpl)getContext()).setImage(copy);
+                compositedChanges = changeCount;
                 
 
             } catch (IllegalStateException e) {
@@ -407,6 +518,87 @@ public class CompositeRendererImpl extends RendererImpl implements MultiLayerRen
         }
     }
 
+    /**
+     * Returns the composite of the layers at the bottom of the map that are done, creating it if
+     * needed. Must be called holding the lock on the context.
+     * 
+     * @param layers the layers to draw, from the bottom up
+     * @param alphas the alpha of each of the layers
+     * @param finished the number of layers at the bottom that are done
+     * @return the composite or null if there are too few layers to make it worthwhile
+     */
+    private BaseImage getBaseImage( List<RenderExecutor> layers, List<Float> alphas, int finished,
+            Color background, BufferedImage current ) {
+        BaseImage baseImage = base;
+        if (baseImage != null
+                && baseImage.isValid(layers, alphas, finished, background, current)) {
+            return baseImage;
+        }
+        if (finished < 2) {
+            base = null;
+            return null;
+        }
+        BufferedImage image = baseImage != null ? baseImage.image : null;
+        if (image == null || image.getWidth() != current.getWidth()
+                || image.getHeight() != current.getHeight() || image.getType() != current.getType()) {
+            image = new BufferedImage(current.getWidth(), current.getHeight(), current.getType());
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            setRenderingHints(g);
+            g.setBackground(background);
+            g.clearRect(0, 0, image.getWidth(), image.getHeight());
+            drawLayers(g, layers, alphas, 0, finished);
+        } finally {
+            g.dispose();
+        }
+        baseImage = new BaseImage();
+        baseImage.image = image;
+        baseImage.executors = new ArrayList<RenderExecutor>(layers.subList(0, finished));
+        baseImage.alphas = new ArrayList<Float>(alphas.subList(0, finished));
+        baseImage.background = background;
+        base = baseImage;
+        return baseImage;
+    }
+
+    /**
+     * Returns the next of the update images, creating it if the size of the map changed. Never
+     * returns the image the context holds.
+     */
+    private BufferedImage getBuffer( BufferedImage current ) {
+        buffer = (buffer + 1) % buffers.length;
+        BufferedImage image = buffers[buffer];
+        if (image == current) {
+            buffer = (buffer + 1) % buffers.length;
+            image = buffers[buffer];
+        }
+        if (image == null || image.getWidth() != current.getWidth()
+                || image.getHeight() != current.getHeight() || image.getType() != current.getType()) {
+            image = new BufferedImage(current.getWidth(), current.getHeight(), current.getType());
+            buffers[buffer] = image;
+        }
+        return image;
+    }
+
+    private void drawLayers( Graphics2D g, List<RenderExecutor> layers, List<Float> alphas,
+            int start, int end ) {
+        for( int i = start; i < end; i++ ) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alphas.get(i)));
+            g.drawRenderedImage(layers.get(i).getContext().getImage(), IDENTITY);
+        }
+    }
+
+    private static void setRenderingHints( Graphics2D g ) {
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
+        g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+        g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
     /**
      * <!-- begin-user-doc --> <!-- end-user-doc -->
      * 
@@ -41,6 +41,7 @@ import org.eclipse.emf.common.notify.impl.AdapterImpl;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
@@ -275,6 +276,16 @@ public class RenderExecutorImpl extends RendererImpl implements RenderExecutor {
             getRenderer().setState(DISPOSED);
     }
 
+    /**
+     * Has the render job wait for a free slot in the scheduler rather than starting right away.
+     * 
+     * @param scheduler the scheduler or null to start rendering right away
+     * @param cost estimated cost of rendering the layer, cheaper layers are rendered first
+     */
+    public void setRenderScheduler( RenderScheduler scheduler, long cost ) {
+        renderJob.setScheduler(scheduler, cost);
+    }
+
     /**
      * @see org.locationtech.udig.project.internal.render.impl.RendererImpl#setState(int)
      */
@@ -288,6 +299,7 @@ public class RenderExecutorImpl extends RendererImpl implements RenderExecutor {
      * @generated NOT
      */
     public void stopRendering() {
+        renderJob.dequeue();
         if (renderJob.cancel())
             return;
         final AtomicBoolean done = new AtomicBoolean(renderJob.cancel());
@@ -534,6 +546,25 @@ public class RenderExecutorImpl extends RendererImpl implements RenderExecutor {
         renderJob.addRequest(getRenderBounds());
     }
 
+    /**
+     * Renders the strips of the map exposed by a pan one after the other; the renderer is DONE
+     * once the last strip has been drawn.
+     * 
+     * @param strips areas in the viewport CRS
+     */
+    public synchronized void renderStrips(List<ReferencedEnvelope> strips) {
+        if (getState() == DISPOSED || !getRenderer().getContext().isVisible()) {
+            render();
+            return;
+        }
+
+        dirty = false;
+        if (getRenderer().getState() != STARTING) {
+            getRenderer().setState(IRenderer.STARTING);
+        }
+        renderJob.addPanRequests(strips);
+    }
+
     /**
      * @see org.locationtech.udig.project.internal.render.impl.RendererImpl#render(com.vividsolutions.jts.geom.Envelope,
      *      org.eclipse.core.runtime.IProgressMonitor)
@@ -13,6 +13,7 @@ package org.locationtech.udig.project.internal.render.impl;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -59,6 +60,19 @@ public class RenderJob extends Job {
      */
     private Queue<ReferencedEnvelope> requests = new LinkedBlockingQueue<ReferencedEnvelope>(); 
 
+    /**
+     * Strips of the map exposed by a pan; they are rendered one after the other rather than as the
+     * area covering them all, unless a request for more of the map comes in.
+     */
+    private Queue<ReferencedEnvelope> strips = new LinkedBlockingQueue<ReferencedEnvelope>();
+
+    /**
+     * If not null the job waits its turn in the scheduler rather than being scheduled right away.
+     */
+    private volatile RenderScheduler scheduler;
+
+    private volatile long cost = RenderScheduler.UNKNOWN_COST;
+
     /**
      * Creates an new instance of AbstractRenderer.RenderThread
      */
@@ -82,6 +96,40 @@ public class RenderJob extends Job {
         return executor;
     }
 
+    /**
+     * Has the job wait for a free slot in the scheduler before it is scheduled.
+     * 
+     * @param scheduler the scheduler or null to schedule the job right away
+     * @param cost estimated cost of rendering, cheaper jobs are run first
+     */
+    public void setScheduler( RenderScheduler scheduler, long cost ) {
+        this.scheduler = scheduler;
+        this.cost = cost;
+    }
+
+    /**
+     * @return the scheduler the job waits in or null
+     */
+    public RenderScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Removes the job from the scheduler if it is still waiting for a slot; the pending requests
+     * are dropped.
+     * 
+     * @return true if the job was waiting
+     */
+    public synchronized boolean dequeue() {
+        RenderScheduler current = scheduler;
+        if (current != null && current.remove(this)) {
+            requests.clear();
+            strips.clear();
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Returns the progress monitor or null if not rendering.
      * 
@@ -105,9 +153,9 @@ public class RenderJob extends Job {
         
         clearBounds(bounds);
 
-        // If the start of the renderer is a render request then 
-        if( executor.getRenderer().getState()!=IRenderer.RENDER_REQUEST)
-            executor.getRenderer().setRenderBounds(bounds);
+        // the strips of a pan are rendered one at a time so the bounds of the last render
+        // request may not be the area being rendered now
+        executor.getRenderer().setRenderBounds(bounds);
         
         monitor.beginTask(Messages.RenderExecutorImpl_1, IProgressMonitor.UNKNOWN);
         if( context2.getLayer()!=null ) {
@@ -196,6 +244,10 @@ public class RenderJob extends Job {
             executor.setState(RenderExecutorImpl.CANCELLED);
             return;
         }
+        if (!strips.isEmpty()) {
+            // the layer is done once the last strip of the pan is drawn
+            return;
+        }
         executor.getRenderer().setState(IRenderer.DONE);
     }
 
@@ -211,9 +263,9 @@ public class RenderJob extends Job {
         setThread(Thread.currentThread());
 
         this.monitor = monitor;
-        while( !requests.isEmpty() && !monitor.isCanceled() ) {
+        while( (!requests.isEmpty() || !strips.isEmpty()) && !monitor.isCanceled() ) {
             try {
-                bounds = combineRequests();
+                bounds = nextRequest();
                 if( bounds.isNull() || bounds.isEmpty()){
                 	// nothing to draw! Should we draw everything?
                 	System.out.println("We combined requests down to nothing?");
@@ -224,12 +276,27 @@ public class RenderJob extends Job {
             } catch (Throwable renderError) {
                 handleException(renderError);
                 renderError.printStackTrace();
-                getExecutor().getRenderer().setState(IRenderer.DONE);
+                if (strips.isEmpty())
+                    getExecutor().getRenderer().setState(IRenderer.DONE);
             }
         }
         return Status.OK_STATUS;
     }
     
+    /**
+     * Returns the area to render next: the requests combined, or the next strip of a pan if there
+     * are only strips waiting.
+     */
+    private synchronized ReferencedEnvelope nextRequest() throws TransformException, FactoryException {
+        if (requests.isEmpty()) {
+            return strips.poll();
+        }
+        // the area covering the requests is rendered anyway, the strips go with it
+        requests.addAll(strips);
+        strips.clear();
+        return combineRequests();
+    }
+
     private synchronized ReferencedEnvelope combineRequests() throws TransformException, FactoryException {
         CoordinateReferenceSystem targetCRS = getExecutor().getContext().getCRS();
     	ReferencedEnvelope bounds = new ReferencedEnvelope( targetCRS );
@@ -307,7 +374,27 @@ public class RenderJob extends Job {
     	else {
             requests.add(envelope);
         }
-        schedule();
+        scheduleRequests();
+    }
+
+    /**
+     * Adds requests to draw the strips of the screen exposed by a pan. The strips are drawn one
+     * after the other and the renderer is only set to DONE after the last one.
+     * 
+     * @param exposed the strips in the viewport CRS
+     */
+    public synchronized void addPanRequests( List<ReferencedEnvelope> exposed ) {
+        strips.addAll(exposed);
+        scheduleRequests();
+    }
+
+    private void scheduleRequests() {
+        RenderScheduler current = scheduler;
+        if (current != null) {
+            current.schedule(this, cost);
+        } else {
+            schedule();
+        }
     }
     
     /**
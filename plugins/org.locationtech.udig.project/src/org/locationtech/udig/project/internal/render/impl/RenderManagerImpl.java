@@ -3,6 +3,11 @@
  */
 package org.locationtech.udig.project.internal.render.impl;
 
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -14,6 +19,7 @@ import java.util.List;
 
 import org.locationtech.udig.project.ILayer;
 import org.locationtech.udig.project.IMap;
+import org.locationtech.udig.project.IStyleBlackboard;
 import org.locationtech.udig.project.internal.Map;
 import org.locationtech.udig.project.internal.ProjectPackage;
 import org.locationtech.udig.project.internal.ProjectPlugin;
@@ -31,6 +37,7 @@ import org.locationtech.udig.project.internal.render.ViewportModel;
 import org.locationtech.udig.project.render.IRenderContext;
 import org.locationtech.udig.project.render.IRenderManager;
 import org.locationtech.udig.project.render.IRenderer;
+import org.locationtech.udig.project.render.RenderException;
 import org.locationtech.udig.project.render.Tile;
 import org.locationtech.udig.project.render.displayAdapter.IMapDisplay;
 
@@ -43,6 +50,12 @@ import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.eclipse.emf.ecore.impl.EObjectImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.TextSymbolizer;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Envelope;
 
@@ -633,6 +646,135 @@ public class RenderManagerImpl extends EObjectImpl implements RenderManager {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Renders the map after the viewport has been panned, reusing the pixels that are still on the
+     * screen.
+     * <p>
+     * The image of each layer is moved by the distance the map moved and the layer is only asked
+     * to render the strips of the screen that have been exposed. Layers with labels and
+     * multi-layer renderers (such as map graphics) are rendered completely, so the labels are
+     * placed again over the whole map once rendering is done.
+     * </p>
+     * 
+     * @param oldBounds the viewport bounds before the pan
+     * @param newBounds the viewport bounds after the pan
+     * @return false if the change could not be treated as a pan; the whole map should be
+     *         refreshed instead
+     */
+    public boolean refreshPan(Envelope oldBounds, Envelope newBounds) {
+        checkState();
+        if (!renderingEnabled || getMapDisplay() == null
+                || !(getRenderExecutor() instanceof RenderExecutorComposite)) {
+            return false;
+        }
+        Dimension displaySize = getMapDisplay().getDisplaySize();
+        Point offset = ScaleUtils.calculatePanOffset(oldBounds, newBounds, displaySize);
+        if (offset == null || (offset.x == 0 && offset.y == 0)) {
+            return false;
+        }
+        RenderExecutorComposite composite = (RenderExecutorComposite) getRenderExecutor();
+        List<RenderExecutor> executors = new ArrayList<RenderExecutor>(composite.getRenderer()
+                .getRenderExecutors());
+        for (RenderExecutor executor : executors) {
+            if (executor instanceof RenderExecutorComposite) {
+                return false;
+            }
+            if (!executor.getContext().isVisible()) {
+                continue;
+            }
+            // an image that is still being drawn or has been drawn for another size can't be reused
+            if (executor.getState() != IRenderer.DONE
+                    || !displaySize.equals(executor.getContext().getImageSize())) {
+                return false;
+            }
+        }
+
+        List<Rectangle> exposed = ScaleUtils.calculateExposedAreas(offset, displaySize);
+        CoordinateReferenceSystem crs = getViewportModelInternal().getCRS();
+        double pixelWidth = newBounds.getWidth() / displaySize.width;
+        double pixelHeight = newBounds.getHeight() / displaySize.height;
+        List<ReferencedEnvelope> strips = new ArrayList<ReferencedEnvelope>(exposed.size());
+        for (Rectangle area : exposed) {
+            double minx = newBounds.getMinX() + area.x * pixelWidth;
+            double maxy = newBounds.getMaxY() - area.y * pixelHeight;
+            strips.add(new ReferencedEnvelope(minx, minx + area.width * pixelWidth, maxy
+                    - area.height * pixelHeight, maxy, crs));
+        }
+
+        synchronized (composite.getContext()) {
+            shiftImage(composite.getContext(), offset, exposed);
+        }
+        for (RenderExecutor executor : executors) {
+            if (!executor.getContext().isVisible()) {
+                // marks the layer as needing a render when it is shown again
+                try {
+                    executor.render();
+                } catch (RenderException e) {
+                    // won't happen
+                    ProjectPlugin.log("", e); //$NON-NLS-1$
+                }
+                continue;
+            }
+            shiftImage(executor.getContext(), offset, exposed);
+            Renderer renderer = executor.getRenderer();
+            if (executor instanceof RenderExecutorImpl
+                    && !(executor instanceof RenderExecutorMultiLayer)
+                    && !hasLabels(executor.getContext())) {
+                ((RenderExecutorImpl) executor).renderStrips(strips);
+            } else {
+                renderer.setRenderBounds((Envelope) null);
+                renderer.setState(IRenderer.RENDER_REQUEST);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the image of the context by the offset and clears the exposed areas.
+     */
+    private static void shiftImage(IRenderContext context, Point offset, List<Rectangle> exposed) {
+        BufferedImage image = context.getImage();
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.copyArea(0, 0, image.getWidth(), image.getHeight(), offset.x, offset.y);
+        } finally {
+            graphics.dispose();
+        }
+        for (Rectangle area : exposed) {
+            context.clearImage(area);
+        }
+    }
+
+    /**
+     * Checks if the style of the layer places labels; labels can only be placed over the whole
+     * map so such layers can't be rendered a strip at a time.
+     */
+    private static boolean hasLabels(IRenderContext context) {
+        if (context.getLayer() == null || context.getLayer() instanceof SelectionLayer) {
+            return false;
+        }
+        IStyleBlackboard blackboard = context.getLayer().getStyleBlackboard();
+        if (blackboard == null) {
+            return false;
+        }
+        for (String key : blackboard.keySet()) {
+            Object value = blackboard.get(key);
+            if (!(value instanceof Style)) {
+                continue;
+            }
+            for (FeatureTypeStyle featureTypeStyle : ((Style) value).featureTypeStyles()) {
+                for (Rule rule : featureTypeStyle.rules()) {
+                    for (Symbolizer symbolizer : rule.symbolizers()) {
+                        if (symbolizer instanceof TextSymbolizer) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * @see org.locationtech.udig.project.render.IRenderManager#getMap()
      */
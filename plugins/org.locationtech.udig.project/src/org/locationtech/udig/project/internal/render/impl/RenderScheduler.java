@@ -0,0 +1,244 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.render.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.locationtech.udig.project.internal.ProjectPlugin;
+import org.locationtech.udig.project.preferences.PreferenceConstants;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Limits the number of layers that are rendered at the same time.
+ * <p>
+ * Layer render jobs are handed to the scheduler rather than scheduled directly; the scheduler
+ * only passes a job on to the Eclipse job manager when fewer than {@link #getParallelism()} of
+ * its jobs are running. Waiting jobs are started in order of their cost (usually the latency
+ * plus the drawing time estimated by the renderer's
+ * {@link org.locationtech.udig.project.render.AbstractRenderMetrics}) so that quick layers show up
+ * first. A job whose scheduling rule conflicts with a running job is passed over, rather than
+ * holding a slot while it waits for the rule.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class RenderScheduler {
+
+    /**
+     * Cost used when the metrics of a renderer are not known.
+     */
+    public static final long UNKNOWN_COST = 1000;
+
+    private static RenderScheduler instance;
+
+    private static final class Entry {
+        final Job job;
+        final long cost;
+        final long sequence;
+
+        Entry( Job job, long cost, long sequence ) {
+            this.job = job;
+            this.cost = cost;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Entry> CHEAPEST_FIRST = new Comparator<Entry>(){
+        public int compare( Entry e1, Entry e2 ) {
+            if (e1.cost != e2.cost) {
+                return e1.cost < e2.cost ? -1 : 1;
+            }
+            return e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1);
+        }
+    };
+
+    private final int parallelism;
+
+    private final TreeSet<Entry> waiting = new TreeSet<Entry>(CHEAPEST_FIRST);
+
+    private final Map<Job, Entry> waitingJobs = new HashMap<Job, Entry>();
+
+    /**
+     * Running jobs and their cost.
+     */
+    private final Map<Job, Long> running = new HashMap<Job, Long>();
+
+    /**
+     * Running jobs that were asked to run again; they are queued once they are done.
+     */
+    private final Set<Job> rerun = new HashSet<Job>();
+
+    private long sequence;
+
+    private final IJobChangeListener listener = new JobChangeAdapter(){
+        @Override
+        public void done( IJobChangeEvent event ) {
+            finished(event.getJob());
+        }
+    };
+
+    /**
+     * @return the scheduler shared by all the maps; the parallelism is taken from the preferences
+     */
+    public static synchronized RenderScheduler getDefault() {
+        if (instance == null) {
+            instance = new RenderScheduler(0);
+        }
+        return instance;
+    }
+
+    /**
+     * @param parallelism the number of jobs that may run at the same time or 0 to use the
+     *        {@link PreferenceConstants#P_RENDER_THREADS} preference.
+     */
+    public RenderScheduler( int parallelism ) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the number of jobs that may run at the same time
+     */
+    public int getParallelism() {
+        if (parallelism > 0) {
+            return parallelism;
+        }
+        int threads = ProjectPlugin.getPlugin().getPreferenceStore()
+                .getInt(PreferenceConstants.P_RENDER_THREADS);
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Queues the job; the job is scheduled once it is the cheapest waiting job and a slot is
+     * free. If the job is already waiting its cost is updated; if it is running it is queued
+     * again once it is done.
+     *
+     * @param job job to schedule
+     * @param cost estimated cost of running the job, lower costs are run first
+     */
+    public void schedule( Job job, long cost ) {
+        List<Job> start;
+        synchronized (this) {
+            if (running.containsKey(job)) {
+                running.put(job, cost);
+                rerun.add(job);
+                return;
+            }
+            Entry old = waitingJobs.remove(job);
+            if (old != null) {
+                waiting.remove(old);
+            }
+            Entry entry = new Entry(job, cost, old != null ? old.sequence : sequence++);
+            waiting.add(entry);
+            waitingJobs.put(job, entry);
+            start = next();
+        }
+        start(start);
+    }
+
+    /**
+     * Removes a job that has not been started yet.
+     *
+     * @param job
+     * @return true if the job was waiting and has been removed
+     */
+    public synchronized boolean remove( Job job ) {
+        rerun.remove(job);
+        Entry entry = waitingJobs.remove(job);
+        if (entry == null) {
+            return false;
+        }
+        waiting.remove(entry);
+        return true;
+    }
+
+    /**
+     * @return the number of jobs waiting for a slot
+     */
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * @return the number of jobs that have been scheduled and are not done yet
+     */
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    private void finished( Job job ) {
+        List<Job> start;
+        synchronized (this) {
+            Long cost = running.remove(job);
+            if (cost == null) {
+                return;
+            }
+            if (rerun.remove(job)) {
+                Entry entry = new Entry(job, cost, sequence++);
+                waiting.add(entry);
+                waitingJobs.put(job, entry);
+            }
+            start = next();
+        }
+        start(start);
+    }
+
+    /**
+     * Picks the jobs to start, cheapest first; must be called holding the lock.
+     */
+    private List<Job> next() {
+        List<Job> start = new ArrayList<Job>();
+        int limit = getParallelism();
+        for( Iterator<Entry> iter = waiting.iterator(); iter.hasNext() && running.size() < limit; ) {
+            Entry entry = iter.next();
+            if (isBlocked(entry.job)) {
+                continue;
+            }
+            iter.remove();
+            waitingJobs.remove(entry.job);
+            running.put(entry.job, entry.cost);
+            start.add(entry.job);
+        }
+        return start;
+    }
+
+    private boolean isBlocked( Job job ) {
+        ISchedulingRule rule = job.getRule();
+        if (rule == null) {
+            return false;
+        }
+        for( Job other : running.keySet() ) {
+            ISchedulingRule otherRule = other.getRule();
+            if (otherRule != null && rule.isConflicting(otherRule)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void start( List<Job> jobs ) {
+        for( Job job : jobs ) {
+            job.addJobChangeListener(listener);
+            job.schedule();
+        }
+    }
+}
@@ -11,8 +11,11 @@ package org.locationtech.udig.project.internal.render.impl;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -60,6 +63,11 @@ public final class ScaleUtils {
     public static final double METERS_PER_DEGREE = 6378137.0 * 2.0 * Math.PI / 360.0;
     public static final double DEGREES_PER_METER = 360.0 / 6378137.0 * 2.0 * Math.PI;
     public static final double FEET_TO_METERS = 0.3048;
+
+    /**
+     * Fraction of a pixel two bounds may differ by and still be considered a pan.
+     */
+    private static final double PAN_TOLERANCE = 0.01;
     
 	private ScaleUtils() {/*no instance for you*/}
 
@@ -426,6 +434,74 @@ public final class ScaleUtils {
 		return new Point((int)Math.round(p.getX()), (int)Math.round(p.getY()));
 	}
 
+	/**
+	 * Works out how far the map image moves on the screen when the viewport is panned from
+	 * oldBounds to newBounds.
+	 * 
+	 * @param oldBounds the bounds before the pan
+	 * @param newBounds the bounds after the pan
+	 * @param displaySize size of the map display
+	 * @return the pixel location the old image has to be drawn at to line up with the new bounds,
+	 *         or null if the change is not a pan by a whole number of pixels that leaves part of
+	 *         the old image on the screen
+	 */
+	public static Point calculatePanOffset(Envelope oldBounds, Envelope newBounds,
+			Dimension displaySize) {
+		if (oldBounds == null || newBounds == null || oldBounds.isNull() || newBounds.isNull()
+				|| displaySize == null || displaySize.width < 1 || displaySize.height < 1) {
+			return null;
+		}
+		double pixelWidth = newBounds.getWidth() / displaySize.width;
+		double pixelHeight = newBounds.getHeight() / displaySize.height;
+		if (pixelWidth <= 0 || pixelHeight <= 0
+				|| Math.abs(oldBounds.getWidth() - newBounds.getWidth()) > pixelWidth * PAN_TOLERANCE
+				|| Math.abs(oldBounds.getHeight() - newBounds.getHeight()) > pixelHeight * PAN_TOLERANCE) {
+			return null; // zoomed or resized
+		}
+		double dx = (oldBounds.getMinX() - newBounds.getMinX()) / pixelWidth;
+		double dy = (newBounds.getMaxY() - oldBounds.getMaxY()) / pixelHeight;
+		long x = Math.round(dx);
+		long y = Math.round(dy);
+		if (Math.abs(dx - x) > PAN_TOLERANCE || Math.abs(dy - y) > PAN_TOLERANCE) {
+			return null; // the old pixels do not line up with the new ones
+		}
+		if (Math.abs(x) >= displaySize.width || Math.abs(y) >= displaySize.height) {
+			return null; // nothing of the old image is left on the screen
+		}
+		return new Point((int) x, (int) y);
+	}
+
+	/**
+	 * Works out the parts of the screen that are not covered by the old image once it has been
+	 * moved by the pan offset.
+	 * 
+	 * @param offset pan offset from {@link #calculatePanOffset(Envelope, Envelope, Dimension)}
+	 * @param displaySize size of the map display
+	 * @return up to two rectangles that do not overlap; a column along the left or right edge and a
+	 *         row along the top or bottom edge
+	 */
+	public static List<Rectangle> calculateExposedAreas(Point offset, Dimension displaySize) {
+		List<Rectangle> areas = new ArrayList<Rectangle>(2);
+		int width = displaySize.width;
+		int height = displaySize.height;
+		int dx = offset.x;
+		int dy = offset.y;
+		if (dx > 0) {
+			areas.add(new Rectangle(0, 0, dx, height));
+		} else if (dx < 0) {
+			areas.add(new Rectangle(width + dx, 0, -dx, height));
+		}
+		// the row leaves out the column so the two areas can be rendered separately
+		int x = Math.max(dx, 0);
+		int rowWidth = width - Math.abs(dx);
+		if (dy > 0) {
+			areas.add(new Rectangle(x, 0, rowWidth, dy));
+		} else if (dy < 0) {
+			areas.add(new Rectangle(x, height + dy, rowWidth, -dy));
+		}
+		return areas;
+	}
+
 
     /**
      * This method restricts the bounds so that the resulting bounding box is at a legal scale within the bounds.  The centers of
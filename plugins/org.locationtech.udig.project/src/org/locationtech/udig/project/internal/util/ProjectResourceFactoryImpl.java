@@ -0,0 +1,43 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.util;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceFactoryImpl;
+
+/**
+ * Creates {@link ProjectResourceImpl}s.
+ *
+ * @since 2.1.0
+ */
+public class ProjectResourceFactoryImpl extends ResourceFactoryImpl {
+
+    @Override
+    public Resource createResource( URI uri ) {
+        return new ProjectResourceImpl(uri);
+    }
+
+    /**
+     * Makes the resource set create {@link ProjectResourceImpl}s for every local file, whatever
+     * its extension.
+     *
+     * @param resourceSet
+     * @return the resource set
+     */
+    public static <T extends ResourceSet> T register( T resourceSet ) {
+        // the protocol is looked up before the extensions registered with the platform
+        resourceSet.getResourceFactoryRegistry().getProtocolToFactoryMap()
+                .put("file", new ProjectResourceFactoryImpl()); //$NON-NLS-1$
+        return resourceSet;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *    uDig - User Friendly Desktop Internet GIS client
+ *    http://udig.refractions.net
+ *    (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.project.internal.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.locationtech.udig.project.internal.ProjectPlugin;
+import org.locationtech.udig.project.preferences.PreferenceConstants;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+/**
+ * Resource used for projects, maps and the other project elements.
+ * <p>
+ * Resources are read in either format: EMF's binary format or XMI. They are written in the
+ * binary format when the {@link PreferenceConstants#P_BINARY_PROJECT_FILES} preference is set,
+ * otherwise in XMI. The {@link #OPTION_BINARY} save option picks the format for one save, so
+ * projects can still be exported as XMI.
+ * </p>
+ * <p>
+ * Modifications are tracked from the start so that only changed resources need to be saved.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class ProjectResourceImpl extends XMIResourceImpl {
+
+    /**
+     * Save option: {@link Boolean#TRUE} to write the binary format, {@link Boolean#FALSE} to write
+     * XMI. Without it the preference decides.
+     */
+    public static final String OPTION_BINARY = "BINARY"; //$NON-NLS-1$
+
+    /** First byte of the signature EMF starts binary resources with */
+    private static final int BINARY_SIGNATURE = 0211;
+
+    /**
+     * Creates the resource.
+     *
+     * @param uri
+     */
+    public ProjectResourceImpl( URI uri ) {
+        super(uri);
+        setTrackingModification(true);
+    }
+
+    @Override
+    public void doLoad( InputStream inputStream, Map< ? , ? > options ) throws IOException {
+        InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(
+                inputStream);
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+        if (first == BINARY_SIGNATURE) {
+            new BinaryResourceImpl.EObjectInputStream(in, options).loadResource(this);
+        } else {
+            super.doLoad(in, options);
+        }
+    }
+
+    @Override
+    public void doSave( OutputStream outputStream, Map< ? , ? > options ) throws IOException {
+        if (isBinary(options)) {
+            BinaryResourceImpl.EObjectOutputStream out = new BinaryResourceImpl.EObjectOutputStream(
+                    outputStream, options);
+            out.saveResource(this);
+            out.flush();
+        } else {
+            super.doSave(outputStream, options);
+        }
+    }
+
+    private static boolean isBinary( Map< ? , ? > options ) {
+        Object binary = options == null ? null : options.get(OPTION_BINARY);
+        if (binary instanceof Boolean) {
+            return (Boolean) binary;
+        }
+        ProjectPlugin.Implementation plugin = ProjectPlugin.getPlugin();
+        return plugin != null
+                && plugin.getPreferenceStore().getBoolean(
+                        PreferenceConstants.P_BINARY_PROJECT_FILES);
+    }
+}
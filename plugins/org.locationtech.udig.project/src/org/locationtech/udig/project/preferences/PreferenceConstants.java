@@ -64,6 +64,33 @@ public class PreferenceConstants {
      */
     public static final String P_TILED_RENDERING = "P_TILED_RENDERING";  //$NON-NLS-1$
     
+    /**
+     * The memory (in megabytes) the tiled rendering system may use to keep rendered tiles
+     */
+    public static final String P_TILE_CACHE_SIZE = "P_TILE_CACHE_SIZE";  //$NON-NLS-1$
+
+    /**
+     * The number of layers of a map that may be rendered at the same time
+     */
+    public static final String P_RENDER_THREADS = "P_RENDER_THREADS";  //$NON-NLS-1$
+
+    /**
+     * The scale denominator above which feature renderers draw simplified geometries; 0 turns
+     * generalization off
+     */
+    public static final String P_GENERALIZATION_SCALE = "P_GENERALIZATION_SCALE";  //$NON-NLS-1$
+
+    /**
+     * The memory (in megabytes) raster renderers may use to keep decoded raster tiles
+     */
+    public static final String P_RASTER_CACHE_SIZE = "P_RASTER_CACHE_SIZE";  //$NON-NLS-1$
+
+    /**
+     * If true projects and maps are saved in EMF's binary format rather than XMI; both formats
+     * are read either way
+     */
+    public static final String P_BINARY_PROJECT_FILES = "P_BINARY_PROJECT_FILES";  //$NON-NLS-1$
+    
     /**
      * The property value for the preferred scale to ZOOM IN when extents of the layer
      * are not really correct or too small to be zoomed and displayed.
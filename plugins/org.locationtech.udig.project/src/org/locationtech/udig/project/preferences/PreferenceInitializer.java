@@ -40,6 +40,11 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
         store.setDefault(PreferenceConstants.P_PROJECT_DELETE_FILES, true);
         store.setDefault(PreferenceConstants.P_SHOW_ANIMATIONS, true);
         store.setDefault(PreferenceConstants.P_MAX_UNDO, 10);
+        store.setDefault(PreferenceConstants.P_TILE_CACHE_SIZE, 128);
+        store.setDefault(PreferenceConstants.P_RENDER_THREADS, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        store.setDefault(PreferenceConstants.P_GENERALIZATION_SCALE, 100000);
+        store.setDefault(PreferenceConstants.P_RASTER_CACHE_SIZE, 64);
+        store.setDefault(PreferenceConstants.P_BINARY_PROJECT_FILES, false);
         store.setDefault(PreferenceConstants.P_DEFAULT_FEATURE_EDITOR, P_DEFAULT_FEATURE_EDITOR_VALUE );
         
         PreferenceConverter.setDefault(store, PreferenceConstants.P_BACKGROUND, new RGB(255,255,255));
@@ -0,0 +1,97 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.feature.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class GeneralizationCacheTest {
+
+    private GeneralizationCache cache = new GeneralizationCache();
+
+    @After
+    public void tearDown() throws Exception {
+        cache.dispose();
+    }
+
+    @Test
+    public void testGetLevel() {
+        assertEquals(-1, GeneralizationCache.getLevel(50000, 100000));
+        assertEquals(-1, GeneralizationCache.getLevel(5000000, 0));
+        assertEquals(0, GeneralizationCache.getLevel(100000, 100000));
+        assertEquals(0, GeneralizationCache.getLevel(150000, 100000));
+        assertEquals(1, GeneralizationCache.getLevel(200000, 100000));
+        assertEquals(GeneralizationCache.LEVELS - 1, GeneralizationCache.getLevel(1E9, 100000));
+    }
+
+    @Test
+    public void testTolerance() {
+        // one pixel at the largest scale of the level
+        assertEquals(10, GeneralizationCache.getTolerance(0, 100000, 100000, 10), 0.0001);
+        assertEquals(5, GeneralizationCache.getTolerance(0, 100000, 200000, 10), 0.0001);
+        assertEquals(10, GeneralizationCache.getTolerance(1, 100000, 200000, 10), 0.0001);
+    }
+
+    @Test
+    public void testSimplifyInBackground() throws Exception {
+        Geometry line = createLine(1000);
+        cache.request("fid.1", 0, line, 1); //$NON-NLS-1$
+        assertNull(cache.get("fid.1", 1)); //$NON-NLS-1$
+
+        Geometry simplified = waitFor("fid.1", 0); //$NON-NLS-1$
+        assertNotNull(simplified);
+        assertTrue(simplified.getNumPoints() < line.getNumPoints());
+        assertEquals(simplified.getNumPoints(), cache.getPointCount());
+
+        cache.invalidate("fid.1"); //$NON-NLS-1$
+        assertNull(cache.get("fid.1", 0)); //$NON-NLS-1$
+        assertEquals(0, cache.getPointCount());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        cache.request("fid.1", 0, createLine(100), 1); //$NON-NLS-1$
+        cache.request("fid.2", 2, createLine(100), 4); //$NON-NLS-1$
+        assertNotNull(waitFor("fid.1", 0)); //$NON-NLS-1$
+        assertNotNull(waitFor("fid.2", 2)); //$NON-NLS-1$
+
+        cache.invalidate();
+        assertNull(cache.get("fid.1", 0)); //$NON-NLS-1$
+        assertNull(cache.get("fid.2", 2)); //$NON-NLS-1$
+        assertEquals(0, cache.getPendingCount());
+    }
+
+    private Geometry waitFor( String fid, int level ) throws InterruptedException {
+        for( int i = 0; i < 100 && cache.get(fid, level) == null; i++ ) {
+            Thread.sleep(50);
+        }
+        return cache.get(fid, level);
+    }
+
+    /**
+     * A zig-zag line with small steps that disappear when simplified.
+     */
+    private static Geometry createLine( int points ) {
+        Coordinate[] coordinates = new Coordinate[points];
+        for( int i = 0; i < points; i++ ) {
+            coordinates[i] = new Coordinate(i, (i % 2) * 0.1);
+        }
+        return new GeometryFactory().createLineString(coordinates);
+    }
+}
@@ -22,6 +22,7 @@ public class Messages extends NLS {
 	public static String BasicFeatureRenderer_renderingProblem;
 	public static String BasicFeatureRenderer_request_timed_out;
     public static String BasicFeatureRenderer_warning1;
+    public static String GeneralizationCache_jobName;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
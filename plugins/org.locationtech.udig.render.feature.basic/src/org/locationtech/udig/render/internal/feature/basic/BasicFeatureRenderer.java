@@ -95,6 +95,12 @@ public class BasicFeatureRenderer extends RendererImpl {
      */
     protected BasicRenderListener listener = new BasicRenderListener();
 
+    /**
+     * Simplified geometries used when the map is zoomed out; created the first time they are
+     * needed.
+     */
+    private GeneralizationCache generalizationCache;
+
     public BasicFeatureRenderer() {
 
         ClassLoader current = Thread.currentThread().getContextClassLoader();
@@ -160,6 +166,15 @@ public class BasicFeatureRenderer extends RendererImpl {
             featureSource = layer.getResource(SimpleFeatureSource.class, new SubProgressMonitor(monitor,
                     0));
         }
+        featureSource = generalize(featureSource, layer);
+        if (layer instanceof SelectionLayer) {
+            // draw the selection from memory rather than querying the datastore by id again
+            SimpleFeatureSource selected = ((SelectionLayer) layer)
+                    .getSelectedFeatures(featureSource);
+            if (selected != null) {
+                featureSource = selected;
+            }
+        }
         Style style = getStyle(styleBlackboard, featureSource);
         layers = new Layer[1];
         CoordinateReferenceSystem layerCRS = layer.getCRS();
@@ -221,6 +236,44 @@ public class BasicFeatureRenderer extends RendererImpl {
         map.layers().addAll( Arrays.asList(layers));
     }
 
+    /**
+     * Wraps the feature source so that simplified geometries are drawn if the scale is above the
+     * {@link PreferenceConstants#P_GENERALIZATION_SCALE} preference.
+     *
+     * @param featureSource source of the layer
+     * @param layer layer being drawn
+     * @return the source to draw
+     */
+    private SimpleFeatureSource generalize( SimpleFeatureSource featureSource, ILayer layer ) {
+        IPreferenceStore store = ProjectPlugin.getPlugin().getPreferenceStore();
+        double threshold = store.getInt(PreferenceConstants.P_GENERALIZATION_SCALE);
+        double scale = getContext().getViewportModel().getScaleDenominator();
+        int level = GeneralizationCache.getLevel(scale, threshold);
+        if (level < 0 || layer instanceof SelectionLayer) {
+            return featureSource;
+        }
+        double pixelSize;
+        try {
+            ReferencedEnvelope bounds = getContext().getImageBounds().transform(layer.getCRS(),
+                    true);
+            pixelSize = bounds.getWidth() / getContext().getImageSize().width;
+        } catch (Exception e) {
+            // unable to work out the tolerance, draw the full geometries
+            RendererPlugin.trace("Unable to generalize " + layer.getName(), e); //$NON-NLS-1$
+            return featureSource;
+        }
+        if (Double.isNaN(pixelSize) || Double.isInfinite(pixelSize) || pixelSize <= 0) {
+            return featureSource;
+        }
+        if (generalizationCache == null) {
+            generalizationCache = new GeneralizationCache();
+        }
+        generalizationCache.listen(layer);
+        generalizationCache.setCRS(layer.getCRS());
+        double tolerance = GeneralizationCache.getTolerance(level, threshold, scale, pixelSize);
+        return new GeneralizingFeatureSource(featureSource, generalizationCache, level, tolerance);
+    }
+
     protected Style getStyle( StyleBlackboard styleBlackboard,
             FeatureSource<SimpleFeatureType, SimpleFeature> featureSource ) {
         // pull style information off the blackboard
@@ -302,6 +355,10 @@ public class BasicFeatureRenderer extends RendererImpl {
                 RendererPlugin.log("Error stop rendering Renderer (with State " + getState()+ ")", e); //$NON-NLS-1$
             }
         }
+        if (generalizationCache != null) {
+            generalizationCache.dispose();
+            generalizationCache = null;
+        }
     }
 
     @Override
@@ -0,0 +1,377 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.feature.basic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.locationtech.udig.project.EditManagerEvent;
+import org.locationtech.udig.project.IEditManager;
+import org.locationtech.udig.project.IEditManagerListener;
+import org.locationtech.udig.project.ILayer;
+import org.locationtech.udig.project.ILayerListener;
+import org.locationtech.udig.project.LayerEvent;
+import org.locationtech.udig.render.feature.basic.internal.Messages;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.geotools.data.FeatureEvent;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygonal;
+import com.vividsolutions.jts.simplify.DouglasPeuckerSimplifier;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Simplified geometries of the features of a layer, kept for a few zoom levels.
+ * <p>
+ * Levels start at the generalization threshold (a scale denominator); each level covers scales
+ * twice as small as the previous one. Geometries are looked up by feature id and level; a
+ * geometry that is not in the cache is drawn as is and handed to a background job that
+ * simplifies it for the next time the layer is drawn at that level.
+ * </p>
+ * <p>
+ * The cache is cleared when the edit manager commits or rolls back, and features are removed
+ * when the layer reports that they were edited.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class GeneralizationCache {
+
+    /**
+     * Number of zoom levels kept by the cache.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * Geometries with fewer points are not worth simplifying.
+     */
+    static final int MIN_POINTS = 16;
+
+    /**
+     * Maximum number of geometries waiting to be simplified.
+     */
+    private static final int MAX_PENDING = 10000;
+
+    /**
+     * Maximum number of points kept in the cache (all levels).
+     */
+    private static final long MAX_POINTS = 4000000;
+
+    private static final class Request {
+        final String fid;
+        final int level;
+        final Geometry geometry;
+        final double tolerance;
+
+        Request( String fid, int level, Geometry geometry, double tolerance ) {
+            this.fid = fid;
+            this.level = level;
+            this.geometry = geometry;
+            this.tolerance = tolerance;
+        }
+    }
+
+    private final List<Map<String, Geometry>> levels = new ArrayList<Map<String, Geometry>>(LEVELS);
+
+    private final long[] points = new long[LEVELS];
+
+    /**
+     * Geometries waiting to be simplified; keyed by level and feature id so a feature is only
+     * queued once.
+     */
+    private final LinkedHashMap<String, Request> pending = new LinkedHashMap<String, Request>();
+
+    /**
+     * Incremented every time the cache is invalidated so that geometries simplified from old
+     * data are thrown away.
+     */
+    private long generation;
+
+    private CoordinateReferenceSystem crs;
+
+    private ILayer layer;
+
+    private IEditManager editManager;
+
+    private final Job job = new Job(Messages.GeneralizationCache_jobName){
+        @Override
+        protected IStatus run( IProgressMonitor monitor ) {
+            simplifyPending(monitor);
+            return Status.OK_STATUS;
+        }
+    };
+
+    private final IEditManagerListener editListener = new IEditManagerListener(){
+        public void changed( EditManagerEvent event ) {
+            if (event.getType() == EditManagerEvent.POST_COMMIT
+                    || event.getType() == EditManagerEvent.POST_ROLLBACK) {
+                invalidate();
+            }
+        }
+    };
+
+    private final ILayerListener layerListener = new ILayerListener(){
+        public void refresh( LayerEvent event ) {
+            if (event.getType() == LayerEvent.EventType.RESOURCE
+                    || event.getType() == LayerEvent.EventType.ALL) {
+                invalidate();
+            } else if (event.getType() == LayerEvent.EventType.EDIT_EVENT) {
+                Object value = event.getNewValue();
+                Filter filter = value instanceof FeatureEvent ? ((FeatureEvent) value).getFilter() : null;
+                if (filter instanceof Id) {
+                    for( Object fid : ((Id) filter).getIDs() ) {
+                        invalidate(String.valueOf(fid));
+                    }
+                } else {
+                    invalidate();
+                }
+            }
+        }
+    };
+
+    public GeneralizationCache() {
+        for( int i = 0; i < LEVELS; i++ ) {
+            levels.add(new ConcurrentHashMap<String, Geometry>());
+        }
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+    }
+
+    /**
+     * Returns the zoom level used for the scale.
+     *
+     * @param scaleDenominator scale of the map
+     * @param threshold scale denominator above which geometries are generalized; 0 or less turns
+     *        generalization off
+     * @return the level or -1 if geometries should not be generalized at this scale
+     */
+    public static int getLevel( double scaleDenominator, double threshold ) {
+        if (threshold <= 0 || Double.isNaN(scaleDenominator) || scaleDenominator < threshold) {
+            return -1;
+        }
+        int level = (int) Math.floor(Math.log(scaleDenominator / threshold) / Math.log(2));
+        return Math.min(LEVELS - 1, level);
+    }
+
+    /**
+     * Returns the simplification tolerance for a level; one pixel at the largest scale of the
+     * level so that the simplified geometries never move by more than a pixel.
+     *
+     * @param level zoom level
+     * @param threshold generalization threshold
+     * @param scaleDenominator current scale
+     * @param pixelSize size of a pixel at the current scale in the units of the layer
+     * @return tolerance in the units of the layer
+     */
+    public static double getTolerance( int level, double threshold, double scaleDenominator,
+            double pixelSize ) {
+        return pixelSize * threshold * Math.pow(2, level) / scaleDenominator;
+    }
+
+    /**
+     * Simplifies the geometry; polygons keep their topology so that they stay valid.
+     *
+     * @param geometry
+     * @param tolerance distance tolerance
+     * @return simplified geometry
+     */
+    public static Geometry simplify( Geometry geometry, double tolerance ) {
+        if (geometry instanceof Polygonal) {
+            return TopologyPreservingSimplifier.simplify(geometry, tolerance);
+        }
+        return DouglasPeuckerSimplifier.simplify(geometry, tolerance);
+    }
+
+    /**
+     * Listens to the layer and the edit manager of its map so that edited features are
+     * removed from the cache.
+     *
+     * @param layer
+     */
+    public synchronized void listen( ILayer layer ) {
+        if (this.layer == layer) {
+            return;
+        }
+        dispose();
+        this.layer = layer;
+        layer.addListener(layerListener);
+        if (layer.getMap() != null) {
+            editManager = layer.getMap().getEditManager();
+            editManager.addListener(editListener);
+        }
+    }
+
+    /**
+     * Clears the cache if the geometries were in a different CRS.
+     *
+     * @param crs CRS of the features being drawn
+     */
+    public synchronized void setCRS( CoordinateReferenceSystem crs ) {
+        if (this.crs != null && !this.crs.equals(crs)) {
+            invalidate();
+        }
+        this.crs = crs;
+    }
+
+    /**
+     * @param fid feature id
+     * @param level zoom level
+     * @return the simplified geometry or null if it has not been simplified yet
+     */
+    public Geometry get( String fid, int level ) {
+        return levels.get(level).get(fid);
+    }
+
+    /**
+     * Queues a geometry to be simplified in the background; ignored if too many geometries are
+     * already waiting.
+     *
+     * @param fid feature id
+     * @param level zoom level
+     * @param geometry full resolution geometry
+     * @param tolerance see {@link #getTolerance(int, double, double, double)}
+     */
+    public void request( String fid, int level, Geometry geometry, double tolerance ) {
+        synchronized (this) {
+            if (pending.size() >= MAX_PENDING) {
+                return;
+            }
+            String key = level + ":" + fid; //$NON-NLS-1$
+            if (pending.containsKey(key)) {
+                return;
+            }
+            pending.put(key, new Request(fid, level, geometry, tolerance));
+        }
+        job.schedule();
+    }
+
+    /**
+     * Removes a feature from all levels.
+     *
+     * @param fid feature id
+     */
+    public synchronized void invalidate( String fid ) {
+        generation++;
+        for( int i = 0; i < LEVELS; i++ ) {
+            pending.remove(i + ":" + fid); //$NON-NLS-1$
+        }
+        for( int i = 0; i < LEVELS; i++ ) {
+            Geometry removed = levels.get(i).remove(fid);
+            if (removed != null) {
+                points[i] -= removed.getNumPoints();
+            }
+        }
+    }
+
+    /**
+     * Removes all the simplified geometries and the geometries waiting to be simplified.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        pending.clear();
+        for( int i = 0; i < LEVELS; i++ ) {
+            levels.get(i).clear();
+            points[i] = 0;
+        }
+    }
+
+    /**
+     * @return the number of points kept by the cache
+     */
+    public synchronized long getPointCount() {
+        long count = 0;
+        for( long levelPoints : points ) {
+            count += levelPoints;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of geometries waiting to be simplified
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops listening to the layer and clears the cache.
+     */
+    public synchronized void dispose() {
+        job.cancel();
+        if (layer != null) {
+            layer.removeListener(layerListener);
+            layer = null;
+        }
+        if (editManager != null) {
+            editManager.removeListener(editListener);
+            editManager = null;
+        }
+        invalidate();
+    }
+
+    private void simplifyPending( IProgressMonitor monitor ) {
+        while( !monitor.isCanceled() ) {
+            Request request;
+            long requestGeneration;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                String key = pending.keySet().iterator().next();
+                request = pending.remove(key);
+                requestGeneration = generation;
+            }
+            Geometry simplified;
+            try {
+                simplified = simplify(request.geometry, request.tolerance);
+            } catch (RuntimeException e) {
+                // keep drawing the original geometry
+                RendererPlugin.trace("Unable to simplify " + request.fid, e); //$NON-NLS-1$
+                continue;
+            }
+            put(request, simplified, requestGeneration);
+        }
+    }
+
+    private synchronized void put( Request request, Geometry simplified, long requestGeneration ) {
+        if (requestGeneration != generation) {
+            // the feature may have been edited while it was simplified
+            return;
+        }
+        int size = simplified.getNumPoints();
+        if (getPointCount() + size > MAX_POINTS) {
+            // make room by dropping the other levels; the user is looking at this one
+            for( int i = 0; i < LEVELS; i++ ) {
+                if (i != request.level) {
+                    levels.get(i).clear();
+                    points[i] = 0;
+                }
+            }
+            if (points[request.level] + size > MAX_POINTS) {
+                return;
+            }
+        }
+        Geometry old = levels.get(request.level).put(request.fid, simplified);
+        if (old != null) {
+            points[request.level] -= old.getNumPoints();
+        }
+        points[request.level] += size;
+    }
+}
@@ -0,0 +1,171 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.feature.basic;
+
+import java.awt.RenderingHints.Key;
+import java.io.IOException;
+import java.util.Set;
+
+import org.geotools.data.DataAccess;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.ResourceInfo;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.feature.collection.DecoratingSimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Puntal;
+
+/**
+ * Feature source handing out features with the simplified geometries of a
+ * {@link GeneralizationCache}.
+ * <p>
+ * Features whose geometry has not been simplified yet are returned unchanged and their geometry
+ * is queued in the cache. The features of the wrapped source are never modified; a copy is made
+ * when the geometry is replaced.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class GeneralizingFeatureSource implements SimpleFeatureSource {
+
+    private final SimpleFeatureSource delegate;
+
+    private final GeneralizationCache cache;
+
+    private final int level;
+
+    private final double tolerance;
+
+    /**
+     * @param delegate source of the full resolution features
+     * @param cache cache of the layer
+     * @param level zoom level, see {@link GeneralizationCache#getLevel(double, double)}
+     * @param tolerance simplification tolerance in the units of the features
+     */
+    public GeneralizingFeatureSource( SimpleFeatureSource delegate, GeneralizationCache cache,
+            int level, double tolerance ) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.level = level;
+        this.tolerance = tolerance;
+    }
+
+    public SimpleFeatureCollection getFeatures() throws IOException {
+        return generalize(delegate.getFeatures());
+    }
+
+    public SimpleFeatureCollection getFeatures( Filter filter ) throws IOException {
+        return generalize(delegate.getFeatures(filter));
+    }
+
+    public SimpleFeatureCollection getFeatures( Query query ) throws IOException {
+        return generalize(delegate.getFeatures(query));
+    }
+
+    public Name getName() {
+        return delegate.getName();
+    }
+
+    public ResourceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    public DataAccess<SimpleFeatureType, SimpleFeature> getDataStore() {
+        return delegate.getDataStore();
+    }
+
+    public QueryCapabilities getQueryCapabilities() {
+        return delegate.getQueryCapabilities();
+    }
+
+    public void addFeatureListener( FeatureListener listener ) {
+        delegate.addFeatureListener(listener);
+    }
+
+    public void removeFeatureListener( FeatureListener listener ) {
+        delegate.removeFeatureListener(listener);
+    }
+
+    public SimpleFeatureType getSchema() {
+        return delegate.getSchema();
+    }
+
+    public ReferencedEnvelope getBounds() throws IOException {
+        return delegate.getBounds();
+    }
+
+    public ReferencedEnvelope getBounds( Query query ) throws IOException {
+        return delegate.getBounds(query);
+    }
+
+    public int getCount( Query query ) throws IOException {
+        return delegate.getCount(query);
+    }
+
+    public Set<Key> getSupportedHints() {
+        return delegate.getSupportedHints();
+    }
+
+    private SimpleFeatureCollection generalize( SimpleFeatureCollection features ) {
+        return new DecoratingSimpleFeatureCollection(features){
+            @Override
+            public SimpleFeatureIterator features() {
+                return new DecoratingSimpleFeatureIterator(delegate.features()){
+                    @Override
+                    public SimpleFeature next() {
+                        return generalize(super.next());
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Replaces the default geometry of the feature by its simplified version.
+     *
+     * @param feature
+     * @return the feature with a simplified geometry, or the feature itself if the geometry has
+     *         not been simplified
+     */
+    SimpleFeature generalize( SimpleFeature feature ) {
+        GeometryDescriptor descriptor = feature.getFeatureType().getGeometryDescriptor();
+        if (descriptor == null || feature.getID() == null) {
+            return feature;
+        }
+        Object value = feature.getAttribute(descriptor.getLocalName());
+        if (!(value instanceof Geometry) || value instanceof Puntal) {
+            return feature;
+        }
+        Geometry geometry = (Geometry) value;
+        Geometry simplified = cache.get(feature.getID(), level);
+        if (simplified == null) {
+            if (geometry.getNumPoints() >= GeneralizationCache.MIN_POINTS) {
+                cache.request(feature.getID(), level, geometry, tolerance);
+            }
+            return feature;
+        }
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(feature.getFeatureType());
+        builder.init(feature);
+        builder.set(descriptor.getLocalName(), simplified);
+        return builder.buildFeature(feature.getID());
+    }
+}
@@ -0,0 +1,84 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.gridcoverage.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class CoverageTileCacheTest {
+
+    private GridCoverage2D tile() {
+        // 10x10 pixels of 4 bytes
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        return CoverageFactoryFinder.getGridCoverageFactory(null).create("tile", image,
+                new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84));
+    }
+
+    private CoverageTileCache.Key key( long column ) {
+        return new CoverageTileCache.Key("file:/ortho.tif", 0, 1, column, 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        CoverageTileCache cache = new CoverageTileCache(1000);
+        assertEquals(400, CoverageTileCache.sizeOf(tile()));
+
+        cache.put(key(0), tile());
+        cache.put(key(1), tile());
+        assertNotNull(cache.get(key(0)));
+        cache.put(key(2), tile());
+
+        assertEquals(2, cache.getTileCount());
+        assertEquals(800, cache.getSize());
+        assertNull(cache.get(key(1)));
+        assertNotNull(cache.get(key(0)));
+        assertNotNull(cache.get(key(2)));
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.setMaxSize(400);
+        assertEquals(1, cache.getTileCount());
+        assertNotNull(cache.get(key(2)));
+
+        cache.clear("file:/ortho.tif");
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testKey() {
+        assertEquals(key(3), new CoverageTileCache.Key("file:/ortho.tif", 0, 1, 3, 0));
+        assertEquals(key(3).hashCode(),
+                new CoverageTileCache.Key("file:/ortho.tif", 0, 1, 3, 0).hashCode());
+        assertNull(new CoverageTileCache(1000).get(new CoverageTileCache.Key("file:/ortho.tif",
+                1, 1, 3, 0)));
+    }
+
+    @Test
+    public void testOverviewLevel() {
+        double[][] levels = new double[][]{{1, 1}, {2, 2}, {4, 4}, {8, 8}};
+        assertEquals(0, GridCoverageReaderRenderer.overviewLevel(levels, 0.5));
+        assertEquals(0, GridCoverageReaderRenderer.overviewLevel(levels, 1.5));
+        assertEquals(2, GridCoverageReaderRenderer.overviewLevel(levels, 4));
+        assertEquals(3, GridCoverageReaderRenderer.overviewLevel(levels, 100));
+
+        assertEquals(1, GridCoverageReaderRenderer.decimation(8, 10));
+        assertEquals(8, GridCoverageReaderRenderer.decimation(8, 100));
+    }
+}
@@ -0,0 +1,85 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.gridcoverage.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.locationtech.udig.catalog.rasterings.RasterMemoryPool;
+
+@SuppressWarnings("nls")
+public class RasterMemoryPoolTest {
+
+    private int loads;
+
+    /** loads a 10x10 raster of 4 bytes a pixel */
+    private Callable<GridCoverage2D> loader = new Callable<GridCoverage2D>(){
+        public GridCoverage2D call() throws Exception {
+            loads++;
+            BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+            return CoverageFactoryFinder.getGridCoverageFactory(null).create("raster", image,
+                    new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84));
+        }
+    };
+
+    @Test
+    public void testLoadedOnceAndEvicted() throws Exception {
+        RasterMemoryPool pool = new RasterMemoryPool(1000);
+
+        GridCoverage2D a = pool.get("a", 400, loader);
+        assertSame(a, pool.get("a", 400, loader));
+        assertEquals(1, loads);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(400, pool.getSize());
+
+        pool.get("b", 400, loader);
+        pool.get("a", 400, loader);
+        // room is made for c before it is loaded; b is the least recently used
+        pool.get("c", 400, loader);
+        assertEquals(3, loads);
+        assertEquals(2, pool.getCount());
+        assertNull(pool.peek("b"));
+        assertNotNull(pool.peek("a"));
+        assertEquals(1, pool.getEvictionCount());
+
+        pool.remove("a");
+        assertEquals(400, pool.getSize());
+    }
+
+    @Test
+    public void testFailedLoad() throws Exception {
+        RasterMemoryPool pool = new RasterMemoryPool(1000);
+        try {
+            pool.get("a", 0, new Callable<GridCoverage2D>(){
+                public GridCoverage2D call() throws Exception {
+                    throw new IOException("broken");
+                }
+            });
+            fail("the load failed");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(0, pool.getCount());
+        assertNotNull(pool.get("a", 0, loader));
+    }
+}
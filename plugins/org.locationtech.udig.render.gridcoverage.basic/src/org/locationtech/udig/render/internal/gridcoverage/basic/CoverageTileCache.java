@@ -0,0 +1,268 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.render.internal.gridcoverage.basic;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+
+/**
+ * Decoded raster tiles shared by all the maps, limited by the memory used by their pixels.
+ * <p>
+ * A tile is identified by the resource it was read from, the overview level and decimation it was
+ * read at and its column and row in the tile grid of that resolution ({@link Key}). When the
+ * cache is over budget the least recently used tiles are removed.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class CoverageTileCache {
+
+    private static final CoverageTileCache DEFAULT = new CoverageTileCache(64 * 1024 * 1024);
+
+    /**
+     * Position of a tile in the tile grid of a resource.
+     */
+    public static final class Key {
+        private final String resource;
+
+        private final int level;
+
+        private final int decimation;
+
+        private final long column;
+
+        private final long row;
+
+        /**
+         * @param resource identifier of the resource
+         * @param level overview level, 0 is the full resolution image
+         * @param decimation power of two the overview is subsampled by
+         * @param column column of the tile
+         * @param row row of the tile, from the top
+         */
+        public Key( String resource, int level, int decimation, long column, long row ) {
+            this.resource = resource;
+            this.level = level;
+            this.decimation = decimation;
+            this.column = column;
+            this.row = row;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getDecimation() {
+            return decimation;
+        }
+
+        public long getColumn() {
+            return column;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return column == other.column && row == other.row && level == other.level
+                    && decimation == other.decimation && resource.equals(other.resource);
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = column * 31 + row;
+            hash = hash * 31 + level;
+            hash = hash * 31 + decimation;
+            return (int) (hash ^ (hash >>> 32)) * 31 + resource.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + resource + " " + level + "/" + decimation + " " + column + "," + row + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        }
+    }
+
+    private static class Entry {
+        GridCoverage2D tile;
+
+        long size;
+    }
+
+    /**
+     * Entries in access order; the first entry is the least recently used.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f,
+            true);
+
+    private long maxSize;
+
+    private long size;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * @param maxSize memory budget in bytes
+     */
+    public CoverageTileCache( long maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache shared by the renderers
+     */
+    public static CoverageTileCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Estimates the memory used by the pixels of a tile.
+     *
+     * @param tile
+     * @return size in bytes
+     */
+    public static long sizeOf( GridCoverage2D tile ) {
+        RenderedImage image = tile.getRenderedImage();
+        int bits = DataBuffer.getDataTypeSize(image.getSampleModel().getDataType());
+        return (long) image.getWidth() * image.getHeight() * image.getSampleModel().getNumBands()
+                * bits / 8;
+    }
+
+    /**
+     * Looks up a tile, counting a hit or a miss.
+     *
+     * @param key
+     * @return the tile or null if it is not in the cache
+     */
+    public synchronized GridCoverage2D get( Key key ) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.tile;
+    }
+
+    /**
+     * Adds a tile to the cache, removing the least recently used tiles if the cache is over
+     * budget. A tile larger than the whole budget is not kept.
+     *
+     * @param key
+     * @param tile a tile whose pixels are in memory
+     */
+    public synchronized void put( Key key, GridCoverage2D tile ) {
+        Entry entry = new Entry();
+        entry.tile = tile;
+        entry.size = sizeOf(tile);
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            size -= old.size;
+        }
+        size += entry.size;
+        evict();
+    }
+
+    /**
+     * Removes the tiles of a resource, for example after it changed on disk.
+     *
+     * @param resource identifier of the resource
+     */
+    public synchronized void clear( String resource ) {
+        for( Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator(); iter
+                .hasNext(); ) {
+            Map.Entry<Key, Entry> entry = iter.next();
+            if (entry.getKey().resource.equals(resource)) {
+                size -= entry.getValue().size;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all tiles.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Changes the memory budget, removing tiles if needed.
+     *
+     * @param maxSize budget in bytes
+     */
+    public synchronized void setMaxSize( long maxSize ) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return estimated memory used by the cached tiles in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getTileCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Removes the least recently used tiles until the cache is within budget. Must be called
+     * holding the lock.
+     */
+    private void evict() {
+        Iterator<Entry> iter = entries.values().iterator();
+        while( size > maxSize && iter.hasNext() ) {
+            Entry entry = iter.next();
+            iter.remove();
+            size -= entry.size;
+            evictions++;
+        }
+    }
+}
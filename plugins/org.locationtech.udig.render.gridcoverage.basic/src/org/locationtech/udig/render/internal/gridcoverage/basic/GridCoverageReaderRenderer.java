@@ -20,18 +20,22 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import javax.media.jai.InterpolationNearest;
 import javax.media.jai.JAI;
 import javax.media.jai.TileCache;
+import javax.media.jai.TiledImage;
 
 import org.locationtech.udig.catalog.IGeoResource;
 import org.locationtech.udig.project.ILayer;
 import org.locationtech.udig.project.internal.ProjectPlugin;
 import org.locationtech.udig.project.internal.StyleBlackboard;
 import org.locationtech.udig.project.internal.render.impl.RendererImpl;
+import org.locationtech.udig.project.preferences.PreferenceConstants;
 import org.locationtech.udig.project.render.IRenderContext;
 import org.locationtech.udig.project.render.RenderException;
 import org.locationtech.udig.project.render.displayAdapter.IMapDisplay;
@@ -45,10 +49,12 @@ import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.OverviewPolicy;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.DirectPosition2D;
 import org.geotools.geometry.Envelope2D;
+import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.image.ImageWorker;
 import org.geotools.referencing.CRS;
@@ -82,6 +88,10 @@ import com.vividsolutions.jts.geom.Envelope;
  * This renderer does not load the raster into memory and should by used when working with
  * massive images that perform well (ie not jpeg).
  * <p>
+ * Only the tiles covering the area being drawn are read, from the overview (and decimation of
+ * it) closest to the screen resolution. Decoded tiles are kept in the {@link CoverageTileCache}
+ * shared by all maps, so panning only reads the tiles that came into view.
+ * <p>
  * Initially the rendering system looks at the style for:
  * <ul>
  * <li>scale ranges (handled in the rendering metrics)</li>
@@ -97,6 +107,15 @@ import com.vividsolutions.jts.geom.Envelope;
  */
 public class GridCoverageReaderRenderer extends RendererImpl {
     
+    /** Width and height in pixels of the tiles read from the resource */
+    static final int TILE_SIZE = 512;
+
+    /** Largest number of tiles read for one area; larger areas are read in one go */
+    private static final int MAX_TILES = 100;
+
+    /** Largest subsampling of an overview */
+    private static final int MAX_DECIMATION = 1 << 16;
+
     /** Renderer using a simple JAI chain */
     public GridCoverageReaderRenderer(){
         
@@ -194,10 +213,20 @@ public class GridCoverageReaderRenderer extends RendererImpl {
 
              currentContext.setStatus(ILayer.WORKING);
              setState( STARTING );
-             
-             ParameterValue[] parameterValues = group.values().toArray(new ParameterValue[0]);
-            GridCoverage2D coverage = (GridCoverage2D) reader.read(parameterValues);
-             if(coverage!=null){	            
+
+             // read only the tiles covering the area being drawn, reusing the ones decoded before
+             List<GridCoverage2D> coverages = null;
+             if (CRS.getHorizontalCRS(destinationCRS) != null) {
+                 coverages = readTiles(reader, geoResource, group, new ReferencedEnvelope(
+                         envelope, destinationCRS), screenSize, monitor);
+             }
+             if (coverages == null) {
+                 ParameterValue[] parameterValues = group.values().toArray(new ParameterValue[0]);
+                 GridCoverage2D coverage = (GridCoverage2D) reader.read(parameterValues);
+                 coverages = coverage == null ? Collections.<GridCoverage2D> emptyList()
+                         : Collections.singletonList(coverage);
+             }
+             if(!coverages.isEmpty()){
 	            //setting rendering hints
                  //
 	            RenderingHints hints = new RenderingHints(new HashMap<RenderingHints.Key,Object>());
@@ -219,7 +248,7 @@ public class GridCoverageReaderRenderer extends RendererImpl {
 	            //hints.add( new Hints( Hints.RESAMPLE_TOLERANCE, 0.000000000001 )); 
                 
 	            if( CRS.getHorizontalCRS(destinationCRS) == null ){
-	                destinationCRS = coverage.getCoordinateReferenceSystem2D();
+	                destinationCRS = coverages.get(0).getCoordinateReferenceSystem2D();
 	            }
 	            //
 	            AffineTransform worldToScreen = null; // we are leting the GridCoverageRenderer sort that out
@@ -238,22 +267,13 @@ public class GridCoverageReaderRenderer extends RendererImpl {
 
 	                    // check if there is a color to mask
 	                    Object maskColor = getContext().getLayer().getStyleBlackboard().getString("raster-color-mask"); //$NON-NLS-1$	                    
-                        if (maskColor instanceof String) {
-                            // create a color mask
-                            String[] colorSplit = ((String) maskColor).split(":"); //$NON-NLS-1$
-                            Color color = new Color(Integer.parseInt(colorSplit[0]), Integer.parseInt(colorSplit[1]),
-                                    Integer.parseInt(colorSplit[2]));
-                            RenderedImage image = coverage.getRenderedImage();
-                            ImageWorker iw = new ImageWorker(image);
-                            iw.makeColorTransparent(color);
-                            image = iw.getRenderedImage();
-                            GridCoverageFactory gcF = CoverageFactoryFinder.getGridCoverageFactory(null);
-                            coverage = gcF.create(coverage.getName(), image, coverage.getCoordinateReferenceSystem(), coverage
-                                    .getGridGeometry().getGridToCRS(), coverage.getSampleDimensions(), null, null);
-                        }
-	                
-	                    //setState( RENDERING );
-	                    paint.paint( graphics, coverage, rasterSymbolizer );                        
+	                    for( GridCoverage2D coverage : coverages ) {
+	                        if (maskColor instanceof String) {
+	                            coverage = maskColor(coverage, (String) maskColor);
+	                        }
+	                        //setState( RENDERING );
+	                        paint.paint( graphics, coverage, rasterSymbolizer );
+	                    }
 	                    setState( DONE );
 	                }
 	                
@@ -262,7 +282,9 @@ public class GridCoverageReaderRenderer extends RendererImpl {
 	                RasterSymbolizer rasterSymbolizer = CommonFactoryFinder.getStyleFactory(null).createRasterSymbolizer();
 	                
 	                //setState( RENDERING );
-	                paint.paint( graphics, coverage, rasterSymbolizer );
+	                for( GridCoverage2D coverage : coverages ) {
+	                    paint.paint( graphics, coverage, rasterSymbolizer );
+	                }
                     setState( DONE );
 	            }
 	            //tempCache.flush();
@@ -276,6 +298,174 @@ public class GridCoverageReaderRenderer extends RendererImpl {
         }
     }
 
+    /**
+     * Makes the pixels of a color transparent.
+     *
+     * @param coverage
+     * @param maskColor color as "red:green:blue"
+     * @return the masked coverage
+     */
+    private static GridCoverage2D maskColor( GridCoverage2D coverage, String maskColor ) {
+        String[] colorSplit = maskColor.split(":"); //$NON-NLS-1$
+        Color color = new Color(Integer.parseInt(colorSplit[0]), Integer.parseInt(colorSplit[1]),
+                Integer.parseInt(colorSplit[2]));
+        RenderedImage image = coverage.getRenderedImage();
+        ImageWorker iw = new ImageWorker(image);
+        iw.makeColorTransparent(color);
+        image = iw.getRenderedImage();
+        GridCoverageFactory gcF = CoverageFactoryFinder.getGridCoverageFactory(null);
+        return gcF.create(coverage.getName(), image, coverage.getCoordinateReferenceSystem(),
+                coverage.getGridGeometry().getGridToCRS(), coverage.getSampleDimensions(), null,
+                null);
+    }
+
+    /**
+     * Reads the tiles of the resource covering an area, at the overview and decimation closest to
+     * the screen resolution. Tiles already in the {@link CoverageTileCache} are not read again;
+     * the tiles read are decoded and added to it.
+     *
+     * @param reader
+     * @param geoResource
+     * @param group read parameters of the resource, copied before they are changed
+     * @param area area to draw
+     * @param screenSize area on the screen
+     * @param monitor
+     * @return the tiles, or null if the area has to be read in one go
+     */
+    private List<GridCoverage2D> readTiles( AbstractGridCoverage2DReader reader,
+            IGeoResource geoResource, ParameterValueGroup group, ReferencedEnvelope area,
+            Rectangle screenSize, IProgressMonitor monitor ) throws Exception {
+        CoordinateReferenceSystem nativeCRS = reader.getCoordinateReferenceSystem();
+        GeneralEnvelope original = reader.getOriginalEnvelope();
+        double[][] levels = reader.getResolutionLevels();
+        if (nativeCRS == null || original == null || levels == null || levels.length == 0
+                || screenSize.width <= 0 || area.isEmpty()) {
+            return null;
+        }
+        ReferencedEnvelope extent = new ReferencedEnvelope(original.getMinimum(0), original
+                .getMaximum(0), original.getMinimum(1), original.getMaximum(1), nativeCRS);
+        ReferencedEnvelope nativeArea = area.transform(nativeCRS, true);
+        Envelope visible = nativeArea.intersection(extent);
+        if (visible.isNull() || visible.getWidth() == 0 || visible.getHeight() == 0) {
+            return Collections.emptyList();
+        }
+
+        double target = nativeArea.getWidth() / screenSize.width;
+        int level = overviewLevel(levels, target);
+        int decimation = decimation(levels[level][0], target);
+        double tileWidth = TILE_SIZE * levels[level][0] * decimation;
+        double tileHeight = TILE_SIZE * levels[level][1] * decimation;
+        long firstColumn = (long) Math.floor((visible.getMinX() - extent.getMinX()) / tileWidth);
+        long lastColumn = (long) Math.ceil((visible.getMaxX() - extent.getMinX()) / tileWidth) - 1;
+        long firstRow = (long) Math.floor((extent.getMaxY() - visible.getMaxY()) / tileHeight);
+        long lastRow = (long) Math.ceil((extent.getMaxY() - visible.getMinY()) / tileHeight) - 1;
+        long count = (Math.max(lastColumn, firstColumn) - firstColumn + 1)
+                * (Math.max(lastRow, firstRow) - firstRow + 1);
+        if (count > MAX_TILES) {
+            return null;
+        }
+
+        CoverageTileCache cache = CoverageTileCache.getDefault();
+        cache.setMaxSize(ProjectPlugin.getPlugin().getPreferenceStore().getLong(
+                PreferenceConstants.P_RASTER_CACHE_SIZE) * 1024 * 1024);
+        String resource = geoResource.getIdentifier().toString();
+
+        ParameterValueGroup tileGroup = group.clone();
+        try {
+            tileGroup.parameter(AbstractGridFormat.OVERVIEW_POLICY.getName().toString()).setValue(
+                    OverviewPolicy.QUALITY);
+        } catch (ParameterNotFoundException e) {
+            // the reader goes by the requested resolution alone
+        }
+        ParameterValue< ? > readGridGeometry = tileGroup
+                .parameter(AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().toString());
+        GridEnvelope2D tileRange = new GridEnvelope2D(0, 0, TILE_SIZE, TILE_SIZE);
+
+        List<GridCoverage2D> tiles = new ArrayList<GridCoverage2D>();
+        for( long row = firstRow; row <= lastRow; row++ ) {
+            for( long column = firstColumn; column <= lastColumn; column++ ) {
+                if (monitor != null && monitor.isCanceled()) {
+                    return tiles;
+                }
+                CoverageTileCache.Key key = new CoverageTileCache.Key(resource, level,
+                        decimation, column, row);
+                GridCoverage2D tile = cache.get(key);
+                if (tile == null) {
+                    double minX = extent.getMinX() + column * tileWidth;
+                    double maxY = extent.getMaxY() - row * tileHeight;
+                    readGridGeometry.setValue(new GridGeometry2D(tileRange,
+                            new ReferencedEnvelope(minX, minX + tileWidth, maxY - tileHeight, maxY,
+                                    nativeCRS)));
+                    GridCoverage2D read = (GridCoverage2D) reader.read(tileGroup.values().toArray(
+                            new ParameterValue[0]));
+                    if (read == null) {
+                        continue;
+                    }
+                    tile = load(read);
+                    cache.put(key, tile);
+                }
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Picks the coarsest level that is still at least as detailed as the target resolution.
+     *
+     * @param levels resolutions of the levels as returned by
+     *        {@link AbstractGridCoverage2DReader#getResolutionLevels()}
+     * @param target size of a screen pixel in the units of the resource
+     * @return the index of the level
+     */
+    static int overviewLevel( double[][] levels, double target ) {
+        int best = -1;
+        int finest = 0;
+        for( int i = 0; i < levels.length; i++ ) {
+            double resolution = levels[i][0];
+            if (resolution < levels[finest][0]) {
+                finest = i;
+            }
+            if (resolution <= target && (best < 0 || resolution > levels[best][0])) {
+                best = i;
+            }
+        }
+        // when even the full resolution is coarser than the screen use the most detailed level
+        return best < 0 ? finest : best;
+    }
+
+    /**
+     * Picks the largest power of two a level can be subsampled by and stay at least as detailed
+     * as the target resolution.
+     *
+     * @param resolution resolution of the level
+     * @param target size of a screen pixel in the units of the resource
+     * @return 1, 2, 4, ...
+     */
+    static int decimation( double resolution, double target ) {
+        int decimation = 1;
+        while( decimation < MAX_DECIMATION && resolution * decimation * 2 <= target ) {
+            decimation *= 2;
+        }
+        return decimation;
+    }
+
+    /**
+     * Copies the pixels of a coverage into memory, so the image is decoded once.
+     */
+    private static GridCoverage2D load( GridCoverage2D coverage ) {
+        RenderedImage image = coverage.getRenderedImage();
+        TiledImage copy = new TiledImage(image.getMinX(), image.getMinY(), image.getWidth(),
+                image.getHeight(), image.getMinX(), image.getMinY(), image.getSampleModel()
+                        .createCompatibleSampleModel(image.getWidth(), image.getHeight()), image
+                        .getColorModel());
+        copy.set(image);
+        GridCoverageFactory gcF = CoverageFactoryFinder.getGridCoverageFactory(null);
+        return gcF.create(coverage.getName(), copy, coverage.getCoordinateReferenceSystem(),
+                coverage.getGridGeometry().getGridToCRS(), coverage.getSampleDimensions(), null,
+                null);
+    }
+
     /**
      *  grab the style from the blackboard, otherwise return null
      */
@@ -18,9 +18,11 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.Callable;
 
 import javax.media.jai.InterpolationNearest;
 import javax.media.jai.JAI;
@@ -28,6 +30,7 @@ import javax.media.jai.TileCache;
 
 import org.locationtech.udig.catalog.IGeoResource;
 import org.locationtech.udig.catalog.rasterings.GridCoverageLoader;
+import org.locationtech.udig.catalog.rasterings.RasterMemoryPool;
 import org.locationtech.udig.project.ILayer;
 import org.locationtech.udig.project.internal.ProjectPlugin;
 import org.locationtech.udig.project.internal.StyleBlackboard;
@@ -180,17 +183,7 @@ public class MemoryGridCoverageRenderer extends RendererImpl {
                         // check if there is a color to mask
                         Object maskColor = getContext().getLayer().getStyleBlackboard().getString("raster-color-mask"); //$NON-NLS-1$                       
                         if (maskColor instanceof String) {
-                            // create a color mask
-                            String[] colorSplit = ((String) maskColor).split(":"); //$NON-NLS-1$
-                            Color color = new Color(Integer.parseInt(colorSplit[0]), Integer.parseInt(colorSplit[1]),
-                                    Integer.parseInt(colorSplit[2]));
-                            RenderedImage image = coverage.getRenderedImage();
-                            ImageWorker iw = new ImageWorker(image);
-                            iw.makeColorTransparent(color);
-                            image = iw.getRenderedImage();
-                            GridCoverageFactory gcF = CoverageFactoryFinder.getGridCoverageFactory(null);
-                            coverage = gcF.create(coverage.getName(), image, coverage.getCoordinateReferenceSystem(), coverage
-                                    .getGridGeometry().getGridToCRS(), coverage.getSampleDimensions(), null, null);
+                            coverage = maskColor(coverage, (String) maskColor, loader.getPoolKey());
                         }
 	                    
 	                    //setState( RENDERING );
@@ -217,6 +210,45 @@ public class MemoryGridCoverageRenderer extends RendererImpl {
         }
     }
 
+    /**
+     * Makes the pixels of a color transparent. If the coverage is kept in the
+     * {@link RasterMemoryPool} the masked coverage is kept there too, so the whole image is not
+     * masked again on every render.
+     *
+     * @param coverage
+     * @param maskColor color as "red:green:blue"
+     * @param poolKey key of the coverage in the pool or null
+     * @return the masked coverage
+     */
+    private static GridCoverage2D maskColor( final GridCoverage2D coverage, final String maskColor,
+            Object poolKey ) throws IOException {
+        if (poolKey == null) {
+            return mask(coverage, maskColor, false);
+        }
+        RenderedImage image = coverage.getRenderedImage();
+        long expectedSize = RasterMemoryPool.sizeOf(image.getWidth(), image.getHeight(), 4,
+                DataBuffer.TYPE_BYTE);
+        return RasterMemoryPool.getDefault().get(poolKey + "#mask=" + maskColor, expectedSize, //$NON-NLS-1$
+                new Callable<GridCoverage2D>(){
+                    public GridCoverage2D call() throws Exception {
+                        return mask(coverage, maskColor, true);
+                    }
+                });
+    }
+
+    private static GridCoverage2D mask( GridCoverage2D coverage, String maskColor, boolean load ) {
+        String[] colorSplit = maskColor.split(":"); //$NON-NLS-1$
+        Color color = new Color(Integer.parseInt(colorSplit[0]), Integer.parseInt(colorSplit[1]),
+                Integer.parseInt(colorSplit[2]));
+        ImageWorker iw = new ImageWorker(coverage.getRenderedImage());
+        iw.makeColorTransparent(color);
+        RenderedImage image = load ? iw.getBufferedImage() : iw.getRenderedImage();
+        GridCoverageFactory gcF = CoverageFactoryFinder.getGridCoverageFactory(null);
+        return gcF.create(coverage.getName(), image, coverage.getCoordinateReferenceSystem(),
+                coverage.getGridGeometry().getGridToCRS(), coverage.getSampleDimensions(), null,
+                null);
+    }
+
     /**
      *  grab the style from the blackboard, otherwise return null
      */
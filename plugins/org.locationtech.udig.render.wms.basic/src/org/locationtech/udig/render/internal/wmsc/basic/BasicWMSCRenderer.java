@@ -16,6 +16,7 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -26,10 +27,13 @@ import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.IGeoResource;
 import org.locationtech.udig.catalog.internal.PreferenceConstants;
 import org.locationtech.udig.catalog.internal.wms.WmsPlugin;
+import org.locationtech.udig.catalog.wmsc.server.AbstractTileRange;
 import org.locationtech.udig.catalog.wmsc.server.Tile;
 import org.locationtech.udig.catalog.wmsc.server.TileListener;
+import org.locationtech.udig.catalog.wmsc.server.TilePrefetch;
 import org.locationtech.udig.catalog.wmsc.server.TileRange;
 import org.locationtech.udig.catalog.wmsc.server.TileRangeInMemory;
+import org.locationtech.udig.catalog.wmsc.server.TileRangeInStore;
 import org.locationtech.udig.catalog.wmsc.server.TileRangeOnDisk;
 import org.locationtech.udig.catalog.wmsc.server.TileSet;
 import org.locationtech.udig.catalog.wmsc.server.TileWorkerQueue;
@@ -81,9 +85,10 @@ public class BasicWMSCRenderer extends RendererImpl implements IRenderer {
     private static int staticid = 0; // for debugging
 
     /**
-     * Static thread pools that will be reused for each renderer that gets created
+     * Static thread pools that will be reused for each renderer that gets created; the
+     * request queue is shared with the WMT renderer
      */
-    private static TileWorkerQueue requestTileWorkQueue = new TileWorkerQueue();
+    private static TileWorkerQueue requestTileWorkQueue = TileWorkerQueue.getRequestQueue();
     private static TileWorkerQueue writeTileWorkQueue = new TileWorkerQueue();
 
     /**
@@ -148,15 +153,13 @@ public class BasicWMSCRenderer extends RendererImpl implements IRenderer {
 
             // look up the preference for caching tiles on-disk or in
             // memory and use the proper tilerange for that.
-            TileRange range = null;
-            String value = CatalogPlugin.getDefault().getPreferenceStore()
-                    .getString(PreferenceConstants.P_WMSCTILE_CACHING);
-            if (value.equals(WMSCTileCaching.ONDISK.toString())) {
-                range = new TileRangeOnDisk(server, tileset, bnds, tilesInRange,
-                        requestTileWorkQueue, writeTileWorkQueue);
-            } else {
-                range = new TileRangeInMemory(server, tileset, bnds, tilesInRange,
-                        requestTileWorkQueue);
+            TileRange range = createTileRange(server, tileset, bnds, tilesInRange, this);
+
+            // move the focus of the request queue to this view, dropping requests
+            // for tiles that are no longer visible
+            if (!tilesInRange.isEmpty()) {
+                requestTileWorkQueue.setFocus(this, bnds,
+                        tilesInRange.values().iterator().next().getScale());
             }
 
             // create an empty raster symbolizer for rendering
@@ -288,8 +291,19 @@ public class BasicWMSCRenderer extends RendererImpl implements IRenderer {
                 }
             }
 
+            // all visible tiles are drawn; use the idle request queue to fetch the
+            // tiles the user is likely to pan or zoom to next
+            if (TilePrefetch.isEnabled() && TilePrefetch.isIdle(requestTileWorkQueue)) {
+                for( Map<String, Tile> prefetchTiles : TilePrefetch.getPrefetchTiles(tileset,
+                        bnds, scaleFactor, tilesInRange, TilePrefetch.getRingSize()) ) {
+                    TilePrefetch.load(createTileRange(server, tileset, bnds, prefetchTiles, null));
+                }
+            }
+
             if (testing) {
                 System.out.println("DONE!!!: " + thisid); //$NON-NLS-1$
+                System.out.println("Queued requests: " + getQueuedTileCount() //$NON-NLS-1$
+                        + " average wait: " + getAverageTileWaitTime() + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
             }
 
         } catch (Exception ex) {
@@ -299,6 +313,31 @@ public class BasicWMSCRenderer extends RendererImpl implements IRenderer {
         monitor.done();
         setState(DONE);
     }
+
+    /**
+     * Creates a TileRange using the caching method from the preferences.
+     * 
+     * @param owner the owner of the tile requests, or null for requests that should only be
+     *        sent once the queue has nothing else to do (prefetching)
+     */
+    private TileRange createTileRange( AbstractOpenWebService server, TileSet tileset,
+            Envelope bnds, Map<String, Tile> tiles, Object owner ) throws IOException {
+        TileRange range = null;
+        String value = CatalogPlugin.getDefault().getPreferenceStore()
+                .getString(PreferenceConstants.P_WMSCTILE_CACHING);
+        if (value.equals(WMSCTileCaching.ONDISK.toString())) {
+            range = new TileRangeOnDisk(server, tileset, bnds, tiles, requestTileWorkQueue,
+                    writeTileWorkQueue);
+        } else if (value.equals(WMSCTileCaching.INSTORE.toString())) {
+            range = new TileRangeInStore(server, tileset, bnds, tiles, requestTileWorkQueue,
+                    writeTileWorkQueue);
+        } else {
+            range = new TileRangeInMemory(server, tileset, bnds, tiles, requestTileWorkQueue);
+        }
+        ((AbstractTileRange) range).setRequestOwner(owner);
+        return range;
+    }
+
     /**
      * @param graphics graphics to draw onto
      * @param tile to draw
@@ -472,8 +511,27 @@ public class BasicWMSCRenderer extends RendererImpl implements IRenderer {
 
     }
 
+    /**
+     * Number of tile requests made by this renderer that are waiting to be sent.
+     * 
+     * @return queue depth
+     */
+    public int getQueuedTileCount() {
+        return requestTileWorkQueue.getQueueSize(this);
+    }
+
+    /**
+     * Average time tile requests (of all tiled layers) waited before being sent.
+     * 
+     * @return wait time in milliseconds
+     */
+    public long getAverageTileWaitTime() {
+        return requestTileWorkQueue.getAverageWaitTime();
+    }
+
     @Override
     public void dispose() {
+        requestTileWorkQueue.removeFocus(this);
         super.dispose();
     }
 
@@ -22,7 +22,12 @@ public enum WMSCTileCaching {
      * On disk, all tiles are stored on disk in the set location based on the
      * WMS-C server they were fetched from, the layer name, and the resolution
      */
-    ONDISK
+    ONDISK,
+    /**
+     * On disk in a single indexed tile store limited in size; the least recently
+     * used tiles are removed when the store is full
+     */
+    INSTORE
     
 }
 
@@ -10,12 +10,17 @@
  */
 package org.locationtech.udig.render.internal.wmsc.basic;
 
+import java.io.IOException;
+
 import org.locationtech.udig.catalog.CatalogPlugin;
 import org.locationtech.udig.catalog.internal.PreferenceConstants;
+import org.locationtech.udig.catalog.internal.wms.WmsPlugin;
 import org.locationtech.udig.catalog.wmsc.server.TileImageReadWriter;
+import org.locationtech.udig.catalog.wmsc.server.TileStore;
 import org.locationtech.udig.catalog.wmsc.server.TileWorkerQueue;
 import org.locationtech.udig.render.wms.basic.internal.Messages;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.DirectoryFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.IntegerFieldEditor;
@@ -39,6 +44,7 @@ import org.eclipse.ui.IWorkbenchPreferencePage;
 public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
 
 	private DirectoryFieldEditor diskCacheFieldEditor;
+	private IntegerFieldEditor storeSizeFieldEditor;
 	private RadioGroupFieldEditor cachingRadioFieldEditor;
 	private Button cacheClearBtn;
 	
@@ -60,6 +66,24 @@ public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implement
 		conRequestsFieldEditor.setEmptyStringAllowed(true);
         addField(conRequestsFieldEditor);		
 		
+		// maximum concurrent tile requests against a single server
+		IntegerFieldEditor hostRequestsFieldEditor = new IntegerFieldEditor(PreferenceConstants.P_WMSCTILE_MAX_HOST_REQUESTS, 
+				Messages.WMSCTilePreferencePage_maxHostRequests,
+				getFieldEditorParent());
+		hostRequestsFieldEditor.setValidRange(TileWorkerQueue.minWorkingQueueSize, TileWorkerQueue.maxWorkingQueueSize);
+		hostRequestsFieldEditor.setEmptyStringAllowed(true);
+		addField(hostRequestsFieldEditor);
+		
+		// fetch tiles in advance while the request queue is idle
+		addField(new BooleanFieldEditor(PreferenceConstants.P_WMSCTILE_PREFETCH,
+				Messages.WMSCTilePreferencePage_prefetch,
+				getFieldEditorParent()));
+		IntegerFieldEditor prefetchRingFieldEditor = new IntegerFieldEditor(PreferenceConstants.P_WMSCTILE_PREFETCH_RING,
+				Messages.WMSCTilePreferencePage_prefetchRing,
+				getFieldEditorParent());
+		prefetchRingFieldEditor.setValidRange(0, 4);
+		addField(prefetchRingFieldEditor);
+		
 		// in-mem or on-disk caching?
 		cachingRadioFieldEditor = new RadioGroupFieldEditor(
                 PreferenceConstants.P_WMSCTILE_CACHING,
@@ -67,13 +91,14 @@ public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implement
                 1,
                 new String[][]{
                         {Messages.WMSCTilePreferencePage_inmemory, WMSCTileCaching.INMEMORY.toString()},
-                        {Messages.WMSCTilePreferencePage_ondisk, WMSCTileCaching.ONDISK.toString()}
+                        {Messages.WMSCTilePreferencePage_ondisk, WMSCTileCaching.ONDISK.toString()},
+                        {Messages.WMSCTilePreferencePage_instore, WMSCTileCaching.INSTORE.toString()}
                         }, 
                         getFieldEditorParent(), true);
         addField(cachingRadioFieldEditor);
         String value = CatalogPlugin.getDefault().getPreferenceStore().getString(PreferenceConstants.P_WMSCTILE_CACHING);
-        boolean diskOn = false;
-		if (value.equals(WMSCTileCaching.ONDISK.toString())) diskOn = true;        
+        boolean diskOn = isDiskCaching(value);
+        boolean storeOn = value.equals(WMSCTileCaching.INSTORE.toString());
         
 		// only enable the disk-caching preferences if disk caching is turned on
         diskCacheFieldEditor = new DirectoryFieldEditor(PreferenceConstants.P_WMSCTILE_DISKDIR,
@@ -82,6 +107,14 @@ public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implement
         diskCacheFieldEditor.setEnabled(diskOn, getFieldEditorParent());
         addField(diskCacheFieldEditor);
         
+        // the indexed tile store is limited in size
+        storeSizeFieldEditor = new IntegerFieldEditor(PreferenceConstants.P_WMSCTILE_STORE_SIZE,
+                Messages.WMSCTilePreferencePage_storeSize,
+                getFieldEditorParent());
+        storeSizeFieldEditor.setValidRange(1, Integer.MAX_VALUE);
+        storeSizeFieldEditor.setEnabled(storeOn, getFieldEditorParent());
+        addField(storeSizeFieldEditor);
+        
         cacheClearBtn = new Button(getFieldEditorParent(), SWT.PUSH);
         cacheClearBtn.setText(Messages.WMSCTilePreferencePage_clearcachebtn);
         
@@ -126,8 +159,27 @@ public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implement
 			return false;
 		}
 		TileImageReadWriter tileReadWriter = new TileImageReadWriter(null, dir);
-		return tileReadWriter.clearCache();
+		boolean cleared = tileReadWriter.clearCache();
+		
+		// also clear the indexed tile store if one has been created at this location
+		long maxSize = getPreferenceStore().getLong(PreferenceConstants.P_WMSCTILE_STORE_SIZE) * 1024 * 1024;
+		if (TileStore.exists(dir)) {
+			try {
+				cleared = TileStore.getInstance(dir, maxSize).clear() || cleared;
+			} catch (IOException e) {
+				WmsPlugin.log("Could not clear the tile store " + dir, e); //$NON-NLS-1$
+			}
+		}
+		return cleared;
 	}	
+	
+	/**
+	 * Check if the caching method stores tiles on disk (in a directory tree or a tile store)
+	 */
+	private static boolean isDiskCaching(String value) {
+		return value.equals(WMSCTileCaching.ONDISK.toString())
+				|| value.equals(WMSCTileCaching.INSTORE.toString());
+	}
 
 	public void init(IWorkbench arg0) {
 	}
@@ -142,9 +194,10 @@ public class WMSCTilePreferencesPage extends FieldEditorPreferencePage implement
 		super.propertyChange(event);
 		if (event.getSource().equals(cachingRadioFieldEditor)) {
 			String value = ((String)event.getNewValue()).toString();
-			boolean diskOn = false;
-			if (value.equals(WMSCTileCaching.ONDISK.toString())) diskOn = true;
+			boolean diskOn = isDiskCaching(value);
 			diskCacheFieldEditor.setEnabled(diskOn, getFieldEditorParent());
+			storeSizeFieldEditor.setEnabled(value.equals(WMSCTileCaching.INSTORE.toString()),
+					getFieldEditorParent());
 			cacheClearBtn.setEnabled(diskOn);
 		}
 	}
@@ -29,12 +29,17 @@ public class Messages extends NLS {
 	public static String WMSCTilePreferencePage_caching_desc;
 	public static String WMSCTilePreferencePage_inmemory;
 	public static String WMSCTilePreferencePage_ondisk;
+	public static String WMSCTilePreferencePage_instore;
+	public static String WMSCTilePreferencePage_storeSize;
 	public static String WMSCTilePreferencePage_disklabel;
 	public static String WMSCTilePreferencePage_clearcachebtn;
 	public static String WMSCTilePreferencePage_clearcacheConfirm;
 	public static String WMSCTilePreferencePage_clearcacheError;
 	public static String WMSCTilePreferencePage_clearcacheSuccess;
 	public static String WMSCTilePreferencePage_maxConRequests;
+	public static String WMSCTilePreferencePage_maxHostRequests;
+	public static String WMSCTilePreferencePage_prefetch;
+	public static String WMSCTilePreferencePage_prefetchRing;
     
 	static {
 		// initialize resource bundle
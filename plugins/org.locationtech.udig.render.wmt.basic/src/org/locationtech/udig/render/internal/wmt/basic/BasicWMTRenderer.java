@@ -16,6 +16,8 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.net.URL;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
@@ -34,10 +36,13 @@ import org.locationtech.udig.catalog.internal.wmt.tile.WMTTileImageReadWriter;
 import org.locationtech.udig.catalog.internal.wmt.tile.WMTTileSetWrapper;
 import org.locationtech.udig.catalog.internal.wmt.ui.properties.WMTLayerProperties;
 import org.locationtech.udig.catalog.internal.wmt.wmtsource.WMTSource;
+import org.locationtech.udig.catalog.wmsc.server.AbstractTileRange;
 import org.locationtech.udig.catalog.wmsc.server.Tile;
 import org.locationtech.udig.catalog.wmsc.server.TileListener;
+import org.locationtech.udig.catalog.wmsc.server.TilePrefetch;
 import org.locationtech.udig.catalog.wmsc.server.TileRange;
 import org.locationtech.udig.catalog.wmsc.server.TileRangeInMemory;
+import org.locationtech.udig.catalog.wmsc.server.TileRangeInStore;
 import org.locationtech.udig.catalog.wmsc.server.TileRangeOnDisk;
 import org.locationtech.udig.catalog.wmsc.server.TileSet;
 import org.locationtech.udig.catalog.wmsc.server.TileWorkerQueue;
@@ -85,9 +90,10 @@ public class BasicWMTRenderer extends RendererImpl {
     private static int staticid = 0; // for debugging
     
     /**
-     * Static thread pools that will be reused for each renderer that gets created
+     * Static thread pools that will be reused for each renderer that gets created; the
+     * request queue is shared with the WMS-C renderer
      */
-    private static TileWorkerQueue requestTileWorkQueue = new TileWorkerQueue();
+    private static TileWorkerQueue requestTileWorkQueue = TileWorkerQueue.getRequestQueue();
     private static TileWorkerQueue writeTileWorkQueue = new TileWorkerQueue();
     
     /**
@@ -173,7 +179,12 @@ public class BasicWMTRenderer extends RendererImpl {
 
             // look up the preference for caching tiles on-disk or in
             // memory and use the proper tilerange for that.
-            TileRange range = createTileRange(wmtSource, renderJob, tileList);
+            TileRange range = createTileRange(wmtSource, renderJob, tileList, this);
+
+            // move the focus of the request queue to this view, dropping requests
+            // for tiles that are no longer visible
+            requestTileWorkQueue.setFocus(this, renderJob.getMapExtentTileCrs(),
+                    tileList.values().iterator().next().getScale());
 
             // create an empty raster symbolizer for rendering
             RasterSymbolizer style = styleBuilder.createRasterSymbolizer();
@@ -205,9 +216,17 @@ public class BasicWMTRenderer extends RendererImpl {
                         thisid, notRenderedTiles, renderedTiles);
             }
 
+            // all visible tiles are drawn; use the idle request queue to fetch the
+            // tiles the user is likely to pan or zoom to next
+            if (TilePrefetch.isEnabled() && TilePrefetch.isIdle(requestTileWorkQueue)) {
+                prefetchTiles(wmtSource, renderJob, tileList);
+            }
+
             if (testing) {
                 System.out.println("DONE!!!: " + thisid); //$NON-NLS-1$
             }
+            WMTPlugin.trace("[BasicWMTRender.render] Queued requests: " + getQueuedTileCount() //$NON-NLS-1$
+                    + " average wait: " + getAverageTileWaitTime() + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
         } catch (UnsupportedOperationException doneExc) {
             setDone(monitor);
             
@@ -351,8 +370,20 @@ public class BasicWMTRenderer extends RendererImpl {
         }
     }
 
+    /**
+     * Requests the tiles around the view and on the neighbouring zoom-levels; the requests
+     * have no owner so they are sent after the requests for visible tiles.
+     */
+    private void prefetchTiles( WMTSource wmtSource, WMTRenderJob renderJob,
+            Map<String, Tile> tileList ) throws IOException {
+        for (Map<String, Tile> prefetchTiles : wmtSource.cutExtentIntoPrefetchTiles(renderJob,
+                tileList, TilePrefetch.getRingSize(), TilePrefetch.MAX_PREFETCH_TILES)) {
+            TilePrefetch.load(createTileRange(wmtSource, renderJob, prefetchTiles, null));
+        }
+    }
+
     private TileRange createTileRange( WMTSource wmtSource, WMTRenderJob renderJob,
-            Map<String, Tile> tileList ) {
+            Map<String, Tile> tileList, Object owner ) throws IOException {
         TileRange range;
         TileSet tileset = new WMTTileSetWrapper(wmtSource);
     
@@ -363,14 +394,36 @@ public class BasicWMTRenderer extends RendererImpl {
             
             range = new TileRangeOnDisk(null, tileset, renderJob.getMapExtentTileCrs(), 
                     tileList, requestTileWorkQueue, writeTileWorkQueue, tileReadWriter);
+        } else if (value.equals(WMSCTileCaching.INSTORE.toString())) {
+            // tiles are looked up in the store index, no directory walk required
+            range = new TileRangeInStore(null, tileset, renderJob.getMapExtentTileCrs(),
+                    tileList, requestTileWorkQueue, writeTileWorkQueue);
         } else {
             range = new TileRangeInMemory(null, tileset, renderJob.getMapExtentTileCrs(),
                     tileList, requestTileWorkQueue);
         }
         
+        AbstractTileRange tileRange = (AbstractTileRange) range;
+        tileRange.setRequestOwner(owner);
+        tileRange.setRequestHost(getRequestHost(tileList));
+        
         return range;
     }
 
+    /**
+     * @return the host the tiles are fetched from, or null if the tiles have no url
+     */
+    private static String getRequestHost( Map<String, Tile> tileList ) {
+        for( Tile tile : tileList.values() ) {
+            if (tile instanceof WMTTile) {
+                URL url = ((WMTTile) tile).getUrl();
+                if (url != null && url.getHost() != null && url.getHost().length() > 0)
+                    return url.getHost();
+            }
+        }
+        return null;
+    }
+
     private Map<String, Tile> checkTooManyTiles(ILayer layer, WMTSource wmtSource,
             WMTLayerProperties layerProperties, WMTRenderJob renderJob, 
             Map<String, Tile> tileList) {
@@ -405,6 +458,30 @@ public class BasicWMTRenderer extends RendererImpl {
         return tileList;
     }
 
+    /**
+     * Number of tile requests made by this renderer that are waiting to be sent.
+     * 
+     * @return queue depth
+     */
+    public int getQueuedTileCount() {
+        return requestTileWorkQueue.getQueueSize(this);
+    }
+
+    /**
+     * Average time tile requests (of all tiled layers) waited before being sent.
+     * 
+     * @return wait time in milliseconds
+     */
+    public long getAverageTileWaitTime() {
+        return requestTileWorkQueue.getAverageWaitTime();
+    }
+
+    @Override
+    public void dispose() {
+        requestTileWorkQueue.removeFocus(this);
+        super.dispose();
+    }
+
     private void setDone( IProgressMonitor monitor ) {
         setState(DONE);
         monitor.done();
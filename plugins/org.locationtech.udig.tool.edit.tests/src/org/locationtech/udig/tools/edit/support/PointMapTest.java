@@ -0,0 +1,72 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.tools.edit.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PointMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        PointMap<String> map = new PointMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(Point.valueOf(1, 2), "a")); //$NON-NLS-1$
+        assertNull(map.put(-1, -2, "b")); //$NON-NLS-1$
+        assertEquals("a", map.put(1, 2, "c")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(2, map.size());
+
+        assertEquals("c", map.get(1, 2)); //$NON-NLS-1$
+        assertEquals("b", map.get(Point.valueOf(-1, -2))); //$NON-NLS-1$
+        assertTrue(map.containsKey(-1, -2));
+        assertFalse(map.containsKey(2, 1));
+        assertNull(map.get("1,2")); //$NON-NLS-1$
+
+        assertEquals("b", map.remove(Point.valueOf(-1, -2))); //$NON-NLS-1$
+        assertNull(map.remove(-1, -2));
+        assertEquals(1, map.size());
+        assertEquals(Point.valueOf(1, 2), map.keySet().iterator().next());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1, 2));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        PointMap<Integer> map = new PointMap<Integer>();
+        Map<Point, Integer> expected = new HashMap<Point, Integer>();
+        Random random = new Random(0);
+        for( int i = 0; i < 100000; i++ ) {
+            // a small area so that keys collide and are removed often
+            Point point = Point.valueOf(random.nextInt(100) - 50, random.nextInt(100) - 50);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(point), map.remove(point));
+            } else {
+                assertEquals(expected.put(point, i), map.put(point, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        for( int x = -50; x < 50; x++ ) {
+            for( int y = -50; y < 50; y++ ) {
+                assertEquals(expected.get(Point.valueOf(x, y)), map.get(x, y));
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@
 package org.locationtech.udig.tools.edit.support;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -52,4 +53,36 @@ public class PointTest {
         
     }
 
+    @Test
+    public void testValueOfInterned() throws Exception {
+        assertSame(Point.valueOf(-10, 5), Point.valueOf(-10, 5));
+        assertSame(Point.valueOf(3000, 2000), Point.valueOf(3000, 2000));
+        assertEquals(Point.valueOf(100000, 5), Point.valueOf(100000, 5));
+
+        final Point[][] results = new Point[4][];
+        Thread[] threads = new Thread[results.length];
+        for( int i = 0; i < threads.length; i++ ) {
+            final int index = i;
+            threads[i] = new Thread(){
+                @Override
+                public void run() {
+                    Point[] points = new Point[1000];
+                    for( int j = 0; j < points.length; j++ ) {
+                        points[j] = Point.valueOf(5000 + j, 4000 - j);
+                    }
+                    results[index] = points;
+                }
+            };
+            threads[i].start();
+        }
+        for( Thread thread : threads ) {
+            thread.join();
+        }
+        for( int j = 0; j < 1000; j++ ) {
+            for( Point[] points : results ) {
+                assertSame(results[0][j], points[j]);
+            }
+        }
+    }
+
 }
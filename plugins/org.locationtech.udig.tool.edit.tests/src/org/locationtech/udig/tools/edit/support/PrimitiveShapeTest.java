@@ -200,6 +200,61 @@ public class PrimitiveShapeTest {
         assertCorrectEdge(Point.valueOf(9, 18), Point.valueOf(10, 18), 3);
     }
 
+    @Test
+    public void testGetClosestEdgeIndexed() {
+        bb = new TestEditBlackboard();
+        geom = bb.newGeom("id", ShapeType.POLYGON);
+        // a star with enough points to be indexed
+        for( int i = 0; i < 200; i++ ) {
+            double angle = Math.PI * 2 * i / 200;
+            int radius = i % 2 == 0 ? 100 : 60;
+            bb.addPoint(150 + (int) (Math.cos(angle) * radius),
+                    150 + (int) (Math.sin(angle) * radius), geom.getShell());
+        }
+        assertTrue(geom.getShell().getNumPoints() >= EdgeIndex.MIN_POINTS);
+        assertSameAsScan();
+
+        // the index must follow changes to the shape
+        Point moved = geom.getShell().getPoint(10);
+        bb.moveCoords(moved.getX(), moved.getY(), 300, 300);
+        bb.removeCoords(geom.getShell().getPoint(50).getX(), geom.getShell().getPoint(50).getY(),
+                geom.getShell());
+        assertSameAsScan();
+    }
+
+    private void assertSameAsScan() {
+        PrimitiveShape shape = geom.getShell();
+        for( int x = 0; x < 320; x += 7 ) {
+            for( int y = 0; y < 320; y += 7 ) {
+                Point click = Point.valueOf(x, y);
+                ClosestEdge edge = shape.getClosestEdge(click, true);
+
+                // visit every edge
+                double mindist = Double.MAX_VALUE;
+                int prev = -1;
+                Point last = shape.getPoint(shape.getNumPoints() - 1);
+                int lastIndex = shape.getNumPoints() - 1;
+                for( int i = 0; i < shape.getNumPoints(); i++ ) {
+                    Point current = shape.getPoint(i);
+                    Point point = EditUtils.instance.closestPointOnEdge(last, current, click);
+                    if (point != null) {
+                        int dx = click.getX() - point.getX();
+                        int dy = click.getY() - point.getY();
+                        double dist = Math.sqrt(dx * dx + dy * dy);
+                        if (dist < mindist) {
+                            mindist = dist;
+                            prev = lastIndex;
+                        }
+                    }
+                    last = current;
+                    lastIndex = i;
+                }
+                assertEquals(click.toString(), mindist, edge.getDistanceToEdge(), 0.0);
+                assertEquals(click.toString(), prev, edge.getIndexOfPrevious());
+            }
+        }
+    }
+
     private void assertCorrectEdge( Point referencePoint, Point pointOnEdge,
             int expectedPreviousPoint ) {
         ClosestEdge edge = geom.getShell().getClosestEdge(referencePoint, true);
@@ -0,0 +1,181 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.tools.edit.support;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.ItemBoundable;
+import com.vividsolutions.jts.index.strtree.ItemDistance;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * An STRtree of the edges of a {@link PrimitiveShape} in screen space so that the closest edge to
+ * a point can be found without visiting every edge.
+ * <p>
+ * The index is a snapshot of the points of the shape; the shape throws it away when it is
+ * modified and builds a new one the next time it is asked for the closest edge. The closest edge
+ * is the same one {@link PrimitiveShape#getClosestEdge(Point, boolean)} finds by visiting every
+ * edge, including which edge wins a tie.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+class EdgeIndex {
+
+    /**
+     * Shapes with fewer points are searched edge by edge.
+     */
+    static final int MIN_POINTS = 64;
+
+    /**
+     * Distance added to the search around the nearest edge; the distances compared by
+     * {@link EditUtils#closestPointOnEdge(Point, Point, Point)} are to points rounded to the
+     * pixel so they may be up to a pixel and a half off.
+     */
+    private static final double MARGIN = 3;
+
+    /**
+     * An edge, numbered in the order {@link PrimitiveShape#getClosestEdge(Point, boolean)} visits
+     * it.
+     */
+    private static final class Edge implements Comparable<Edge> {
+        final int order;
+        final int previous;
+        final Point start;
+        final Point end;
+
+        Edge( int order, int previous, Point start, Point end ) {
+            this.order = order;
+            this.previous = previous;
+            this.start = start;
+            this.end = end;
+        }
+
+        double distance( double x, double y ) {
+            double x1 = start.getX();
+            double y1 = start.getY();
+            double dx = end.getX() - x1;
+            double dy = end.getY() - y1;
+            double length = dx * dx + dy * dy;
+            double t = length == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / length;
+            t = Math.max(0, Math.min(1, t));
+            double px = x1 + t * dx - x;
+            double py = y1 + t * dy - y;
+            return Math.sqrt(px * px + py * py);
+        }
+
+        public int compareTo( Edge other ) {
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+
+    private static final ItemDistance DISTANCE = new ItemDistance(){
+        public double distance( ItemBoundable item1, ItemBoundable item2 ) {
+            Edge edge = (Edge) item1.getItem();
+            Edge click = (Edge) item2.getItem();
+            return edge.distance(click.start.getX(), click.start.getY());
+        }
+    };
+
+    private final STRtree tree = new STRtree();
+
+    private final Envelope bounds = new Envelope();
+
+    private final boolean closed;
+
+    /**
+     * @param points points of the shape
+     * @param closed true if the shape is a polygon; the last point is joined to the first
+     */
+    EdgeIndex( List<Point> points, boolean closed ) {
+        this.closed = closed;
+        int size = points.size();
+        for( Point point : points ) {
+            bounds.expandToInclude(point.getX(), point.getY());
+        }
+        if (closed) {
+            for( int i = 0; i < size; i++ ) {
+                int previous = i == 0 ? size - 1 : i - 1;
+                insert(new Edge(i, previous, points.get(previous), points.get(i)));
+            }
+        } else {
+            for( int i = 1; i < size; i++ ) {
+                insert(new Edge(i, i - 1, points.get(i - 1), points.get(i)));
+            }
+        }
+        tree.build();
+    }
+
+    private void insert( Edge edge ) {
+        Envelope envelope = new Envelope(edge.start.getX(), edge.end.getX(), edge.start.getY(),
+                edge.end.getY());
+        tree.insert(envelope, edge);
+    }
+
+    /**
+     * @return true if the index was built for a polygon
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the bounds of the points in screen space
+     */
+    Envelope getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Finds the closest edge to the click.
+     *
+     * @param click point to search from
+     * @param shape the shape the index was built for
+     * @return the closest edge or null if the shape has no edges
+     */
+    ClosestEdge getClosestEdge( Point click, PrimitiveShape shape ) {
+        if (tree.size() == 0) {
+            return null;
+        }
+        Envelope clickEnvelope = new Envelope(click.getX(), click.getX(), click.getY(), click.getY());
+        Edge nearest = (Edge) tree.nearestNeighbour(clickEnvelope, new Edge(-1, -1, click, click),
+                DISTANCE);
+        double range = nearest.distance(click.getX(), click.getY()) + MARGIN;
+        clickEnvelope.expandBy(range);
+
+        @SuppressWarnings("unchecked")
+        List<Edge> candidates = tree.query(clickEnvelope);
+        Collections.sort(candidates);
+
+        double mindist = Double.MAX_VALUE;
+        int prev = -1;
+        Point closestPoint = null;
+        for( Edge edge : candidates ) {
+            Point point = EditUtils.instance.closestPointOnEdge(edge.start, edge.end, click);
+            if (point == null) {
+                continue;
+            }
+            int x = click.getX() - point.getX();
+            int y = click.getY() - point.getY();
+            double dist = Math.sqrt(x * x + y * y);
+            if (dist < mindist) {
+                mindist = dist;
+                prev = edge.previous;
+                closestPoint = point;
+            }
+        }
+        if (closestPoint == null) {
+            return null;
+        }
+        return new ClosestEdge(mindist, prev, closestPoint, shape);
+    }
+}
@@ -37,9 +37,9 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class EditBlackboard {
 
-    protected Map<Point, List<LazyCoord>> coordMapping;
+    protected PointMap<List<LazyCoord>> coordMapping;
 
-    Map<Point, Set<EditGeom>> geomMapping;
+    PointMap<Set<EditGeom>> geomMapping;
 
     private final List<EditGeom> geometries;
 
@@ -75,8 +75,8 @@ public class EditBlackboard {
         collapseVertices = true;
         this.width = width;
         this.height = height;
-        coordMapping = new HashMap<Point, List<LazyCoord>>();
-        geomMapping = new HashMap<Point, Set<EditGeom>>();
+        coordMapping = new PointMap<List<LazyCoord>>();
+        geomMapping = new PointMap<Set<EditGeom>>();
         pointCoordCalculator = new PointCoordCalculator(toScreen, layerToMap);
         geometries = new ArrayList<EditGeom>();
 
@@ -407,6 +407,11 @@ public class EditBlackboard {
         List<ClosestEdge> closestDistances = new ArrayList<ClosestEdge>();
 
         for (int i = 0; i < geoms.size(); i++) {
+            // edges are at least as far as the bounds; distances are to the nearest pixel so
+            // allow for rounding
+            if (closest != Integer.MAX_VALUE
+                    && geoms.get(i).getShell().distanceToBounds(p, treatUnknownAsPolygon) > closest + 3)
+                continue;
             ClosestEdge geomClosest = geoms.get(i).getClosestEdge(p, treatUnknownAsPolygon);
             if (geomClosest == null)
                 continue;
@@ -436,11 +441,18 @@ public class EditBlackboard {
      * @return the list of coordinates at location:(x,y). <b>TREAT COORDINATES AS IMMUTABLE!!</b>
      */
     public synchronized List<Coordinate> getCoords(int x, int y) {
-        Point point = Point.valueOf(x, y);
-        List<LazyCoord> list = coordMapping.get(point);
+        List<LazyCoord> list = coordMapping.get(x, y);
         if (list == null)
             return Collections.<Coordinate> emptyList();
-        return new CoordResolvingList(list, point);
+        return new CoordResolvingList(list, Point.valueOf(x, y));
+    }
+
+    /**
+     * Same as <code>!getCoords(x, y).isEmpty()</code> without creating a point or a list.
+     */
+    private boolean hasCoords(int x, int y) {
+        List<LazyCoord> list = coordMapping.get(x, y);
+        return list != null && !list.isEmpty();
     }
 
     /**
@@ -462,7 +474,7 @@ public class EditBlackboard {
      * @return a list of the geometries at the position (x,y)
      */
     public synchronized List<EditGeom> getGeoms(int x, int y) {
-        Set<EditGeom> geoms = geomMapping.get(Point.valueOf(x, y));
+        Set<EditGeom> geoms = geomMapping.get(x, y);
         if (geoms == null)
             return Collections.<EditGeom> emptyList();
         return new ArrayList<EditGeom>(geoms);
@@ -1225,22 +1237,22 @@ public class EditBlackboard {
         final int minY = location.getY() - i;
 
         for (int x = minX; x <= maxX; x++) {
-            if (getCoords(x, minY).size() > 0)
+            if (hasCoords(x, minY))
                 return Point.valueOf(x, minY);
         }
 
         for (int y = minY + 1; y <= maxY; y++) {
-            if (getCoords(maxX, y).size() > 0)
+            if (hasCoords(maxX, y))
                 return Point.valueOf(maxX, y);
         }
 
         for (int x = maxX - 1; x >= minX; x--) {
-            if (getCoords(x, maxY).size() > 0)
+            if (hasCoords(x, maxY))
                 return Point.valueOf(x, maxY);
         }
 
         for (int y = maxY - 1; y >= minY; y--) {
-            if (getCoords(minX, y).size() > 0)
+            if (hasCoords(minX, y))
                 return Point.valueOf(minX, y);
         }
 
@@ -48,11 +48,8 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.geotools.data.FeatureSource;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.GeoTools;
-import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.geotools.geometry.jts.JTS;
 import org.opengis.feature.simple.SimpleFeature;
-import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
 import org.opengis.filter.Id;
@@ -514,43 +511,23 @@ public class EditUtils {
             Coordinate tmp = context.pixelToWorld(centerPoint.getX(), centerPoint.getY());
             Coordinate layerCenter = JTS.transform(tmp, new Coordinate(), layer
                     .mapToLayerTransform());
-            FeatureCollection<SimpleFeatureType, SimpleFeature>  features = context.getFeaturesInBbox(layer, bbox);
-            FeatureIterator<SimpleFeature> iter = null;
-            try {
-                Coordinate closest = null;
-                double minDist = Integer.MAX_VALUE;
-                for( iter = features.features(); iter.hasNext(); ) {
-                    SimpleFeature feature = iter.next();
-                    if( feature.getID().equals(editFeatureID) && layer==editLayer )
-                        continue;
-                    Coordinate[] result = new Coordinate[1];
-                    EditUtils.instance.getClosest((Geometry) feature.getDefaultGeometry(), layerCenter, result);
-                    double x = layerCenter.x - result[0].x;
-                    double y = layerCenter.y - result[0].y;
-                    double distNew = Math.sqrt(x * x + y * y);
-
-                    if (distNew < minDist) {
-                        closest = result[0];
-                        minDist = distNew;
-                    }
-                }
-                if (closest != null) {
-                    Coordinate inMapCoords = new Coordinate();
-                    JTS.transform(closest, inMapCoords, layer.layerToMapTransform());
-                    java.awt.Point point = context.worldToPixel(inMapCoords);
-
-                    double x = centerPoint.getX() - point.x;
-                    double y = centerPoint.getY() - point.y;
-                    double distNew = Math.sqrt(x * x + y * y);
-                    if( distNew<PreferenceUtil.instance().getSnappingRadius())
-                        return inMapCoords;
-                    else
-                        return null;
-                }
-            } finally {
-                if (iter != null) {
-                    iter.close();
-                }
+            Envelope layerBBox = JTS.transform(bbox, layer.mapToLayerTransform());
+            // allow for the box being distorted by the transform
+            layerBBox.expandBy(layerBBox.getWidth() / 10, layerBBox.getHeight() / 10);
+            Coordinate closest = SnapIndex.getIndex(layer).getClosest(layer, context, bbox,
+                    layerBBox, layerCenter, layer == editLayer ? editFeatureID : null);
+            if (closest != null) {
+                Coordinate inMapCoords = new Coordinate();
+                JTS.transform(closest, inMapCoords, layer.layerToMapTransform());
+                java.awt.Point point = context.worldToPixel(inMapCoords);
+
+                double x = centerPoint.getX() - point.x;
+                double y = centerPoint.getY() - point.y;
+                double distNew = Math.sqrt(x * x + y * y);
+                if( distNew<PreferenceUtil.instance().getSnappingRadius())
+                    return inMapCoords;
+                else
+                    return null;
             }
         } catch (Exception e) {
             EditPlugin.log("", e); //$NON-NLS-1$
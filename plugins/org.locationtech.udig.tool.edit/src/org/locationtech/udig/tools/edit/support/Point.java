@@ -9,11 +9,15 @@
  */
 package org.locationtech.udig.tools.edit.support;
 
-
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * A point implementation.  Each point for a given location is a singleton and immutable so points can be 
- * compared with ==.
+ * A point implementation.  Each point for a given location on (or near) the screen is a singleton
+ * and immutable so points can be compared with ==.
+ * <p>
+ * Points are interned in blocks of 64x64 that are created as they are needed; looking up a point
+ * does not take a lock.
+ * </p>
  * 
  * @author jones
  * @since 1.1.0
@@ -33,23 +37,52 @@ public class Point{
     public int getX(){ return x; }
     public int getY(){ return y; }
 
-    private static final Point[][] cache=new Point[256][256];
+    /**
+     * Points from -ORIGIN are interned.
+     */
+    private static final int ORIGIN = 1024;
+
+    /**
+     * Width and height of the interned area; large enough for any display.
+     */
+    private static final int CACHE_SIZE = 10240;
+
+    private static final int BLOCK_BITS = 6;
+
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private static final int BLOCKS = CACHE_SIZE / BLOCK_SIZE;
+
+    private static final AtomicReferenceArray<AtomicReferenceArray<Point>> cache = new AtomicReferenceArray<AtomicReferenceArray<Point>>(
+            BLOCKS * BLOCKS);
+
     /**
      * Get a point for location x,y 
      *
      * @return a point for location x,y
      */
-    public synchronized static Point valueOf(int x, int y){
-        if( x>-1 && x<256 &&
-                y>-1 && y<256 ){
-            if( cache[x][y]==null ){
-                cache[x][y]=new Point(x,y);
-            }
-            return cache[x][y];
+    public static Point valueOf(int x, int y){
+        int cacheX = x + ORIGIN;
+        int cacheY = y + ORIGIN;
+        if( cacheX<0 || cacheY<0 || cacheX>=CACHE_SIZE || cacheY>=CACHE_SIZE ){
+            return new Point(x,y);
         }
-        
-        return new Point(x,y);
-        
+        int blockIndex = (cacheY >> BLOCK_BITS) * BLOCKS + (cacheX >> BLOCK_BITS);
+        AtomicReferenceArray<Point> block = cache.get(blockIndex);
+        if( block==null ){
+            cache.compareAndSet(blockIndex, null, new AtomicReferenceArray<Point>(BLOCK_SIZE * BLOCK_SIZE));
+            block = cache.get(blockIndex);
+        }
+        int index = ((cacheY & (BLOCK_SIZE - 1)) << BLOCK_BITS) | (cacheX & (BLOCK_SIZE - 1));
+        Point point = block.get(index);
+        if( point==null ){
+            Point created = new Point(x,y);
+            // another thread may have got there first
+            if( block.compareAndSet(index, null, created) )
+                return created;
+            point = block.get(index);
+        }
+        return point;
     }
     
     @Override
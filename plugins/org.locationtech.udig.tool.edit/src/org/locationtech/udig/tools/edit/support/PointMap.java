@@ -0,0 +1,255 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.tools.edit.support;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map keyed by {@link Point} that stores its keys as packed longs in an open addressing table.
+ * <p>
+ * The x,y methods look up a location without creating (or interning) a {@link Point}, which is
+ * what the {@link EditBlackboard} does for every pixel it searches around the mouse. Null values
+ * are not supported and the entry set is read only.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class PointMap<V> extends AbstractMap<Point, V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+
+    /**
+     * null marks an empty slot.
+     */
+    private Object[] values;
+
+    private int size;
+
+    /**
+     * Number of bits of the table size.
+     */
+    private int bits;
+
+    public PointMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Packs a location into a key.
+     */
+    static long key( int x, int y ) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private void allocate( int capacity ) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        bits = Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slot( long key ) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    /**
+     * @return the slot of the key or -1 if the key is not in the map
+     */
+    private int find( long key ) {
+        int mask = keys.length - 1;
+        for( int i = slot(key);; i = (i + 1) & mask ) {
+            if (values[i] == null)
+                return -1;
+            if (keys[i] == key)
+                return i;
+        }
+    }
+
+    /**
+     * @return the value at location x,y or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get( int x, int y ) {
+        int i = find(key(x, y));
+        return i == -1 ? null : (V) values[i];
+    }
+
+    /**
+     * @return true if the map has a value at location x,y
+     */
+    public boolean containsKey( int x, int y ) {
+        return find(key(x, y)) != -1;
+    }
+
+    /**
+     * Puts a value at location x,y.
+     * 
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put( int x, int y, V value ) {
+        if (value == null)
+            throw new NullPointerException("null values are not supported"); //$NON-NLS-1$
+        long key = key(x, y);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for( ; values[i] != null; i = (i + 1) & mask ) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if (size * 4 > keys.length * 3)
+            rehash(keys.length * 2);
+        return null;
+    }
+
+    /**
+     * Removes the value at location x,y.
+     * 
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove( int x, int y ) {
+        int i = find(key(x, y));
+        if (i == -1)
+            return null;
+        V old = (V) values[i];
+        int mask = keys.length - 1;
+        // shift the following entries back so that no probe sequence is broken
+        for( int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask ) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+        size--;
+        return old;
+    }
+
+    private void rehash( int capacity ) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for( int j = 0; j < oldKeys.length; j++ ) {
+            if (oldValues[j] == null)
+                continue;
+            int i = slot(oldKeys[j]);
+            while( values[i] != null )
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    @Override
+    public V get( Object key ) {
+        if (!(key instanceof Point))
+            return null;
+        Point point = (Point) key;
+        return get(point.getX(), point.getY());
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+        if (!(key instanceof Point))
+            return false;
+        Point point = (Point) key;
+        return containsKey(point.getX(), point.getY());
+    }
+
+    @Override
+    public V put( Point key, V value ) {
+        return put(key.getX(), key.getY(), value);
+    }
+
+    @Override
+    public V remove( Object key ) {
+        if (!(key instanceof Point))
+            return null;
+        Point point = (Point) key;
+        return remove(point.getX(), point.getY());
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0)
+            return;
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Point, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Point, V>>(){
+            @Override
+            public Iterator<Map.Entry<Point, V>> iterator() {
+                return new Iterator<Map.Entry<Point, V>>(){
+                    private int next = advance(0);
+
+                    private int advance( int from ) {
+                        while( from < values.length && values[from] == null )
+                            from++;
+                        return from;
+                    }
+
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<Point, V> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        long key = keys[next];
+                        Point point = Point.valueOf((int) (key >> 32), (int) key);
+                        Map.Entry<Point, V> entry = new SimpleImmutableEntry<Point, V>(point,
+                                (V) values[next]);
+                        next = advance(next + 1);
+                        return entry;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
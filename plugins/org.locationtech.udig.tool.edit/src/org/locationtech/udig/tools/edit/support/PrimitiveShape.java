@@ -57,6 +57,11 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
 
     private Envelope envelope;
 
+    /**
+     * Index of the edges; thrown away whenever the points change.
+     */
+    private volatile EdgeIndex edgeIndex;
+
     String type = "SHELL"; //$NON-NLS-1$
 
     public PrimitiveShape(EditGeom owner) {
@@ -103,6 +108,13 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
         return buffer.toString();
     }
 
+    /**
+     * Called when the points of the shape change.
+     */
+    private void pointsChanged() {
+        edgeIndex = null;
+    }
+
     Mutator getMutator() {
         // Since all copies of a mutable do the same thing this race condition doesn't matter.
         if (mutable.get() == null)
@@ -131,6 +143,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
          * @param coords corresponding coordinate or null.
          */
         public List<LazyCoord> addPoint(int i, Point p, List<Coordinate> coords) {
+            pointsChanged();
             List<Coordinate> c = coords;
             PointCoordMap bag = getBag(i, p);
             if (c == null)
@@ -217,6 +230,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
          * @param i index of point to remove
          */
         public Point removePoint(int i) {
+            pointsChanged();
             PointCoordMap p = points.remove(i);
             pointsToModel.remove(p.point);
             List<LazyCoord> coords = p.coords;
@@ -263,6 +277,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
                 current++;
             }
 
+            pointsChanged();
             PointCoordMap shapePoint = mods.remove(firstBag);
             points.remove(shapePoint);
             coordinates.removeAll(shapePoint.coords);
@@ -281,7 +296,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
         }
 
         public LazyCoord removePoint(int pointIndex, Coordinate coord) {
-
+            pointsChanged();
             PointCoordMap p = points.get(pointIndex);
             LazyCoord lcoord = null;
             for (Iterator<LazyCoord> iter = p.coords.iterator(); iter.hasNext();) {
@@ -319,6 +334,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
          * Resets shape
          */
         public void clear() {
+            pointsChanged();
             getEditGeom().setChanged(true);
             coordinates.clear();
             points.clear();
@@ -364,10 +380,12 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
                 }
 
                 public void remove() {
+                    pointsChanged();
                     iter.remove();
                 }
 
                 public void set(Point o) {
+                    pointsChanged();
                     List<PointCoordMap> maps = pointsToModel.get(current.point);
                     maps.remove(current);
                     if (maps.isEmpty())
@@ -383,7 +401,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
                 }
 
                 public void add(Point o) {
-
+                    pointsChanged();
                     ArrayList<LazyCoord> list = new ArrayList<LazyCoord>();
                     list.add(new LazyCoord(o, getEditBlackboard().toCoord(o), getEditBlackboard()));
                     iter.add(new PointCoordMap(o, list));
@@ -431,6 +449,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
                 }
 
                 public void remove() {
+                    pointsChanged();
                     iter.remove();
                     PointCoordMap bag = coordsToModel.remove(current);
                     points.remove(bag.point);
@@ -452,6 +471,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
          *
          */
         public void reverse() {
+            pointsChanged();
             Collections.reverse(points);
             Collections.reverse(coordinates);
         }
@@ -486,6 +506,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
 
         private HashMap<Point, List<Point>> transformInternal(
                 PointCoordCalculator pointCoordCalculator) {
+            pointsChanged();
             List<PointCoordMap> oldPoints = points;
 
             HashMap<Point, List<Point>> oldPointToNew = new HashMap<Point, List<Point>>();
@@ -571,6 +592,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
 
         private Map<? extends Point, ? extends List<Point>> translate(AffineTransform oldToNew,
                 PointCoordCalculator pointCoordCalculator) {
+            pointsChanged();
             List<PointCoordMap> oldPoints = points;
 
             HashMap<Point, List<Point>> oldPointToNew = new HashMap<Point, List<Point>>();
@@ -655,6 +677,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
          * @param coord
          */
         public void move(Point start, Point end, LazyCoord coord) {
+            pointsChanged();
 
             PointCoordMap toRemove = null;
 
@@ -808,6 +831,7 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
         }
 
         public void move(int deltaX, int deltaY) {
+            pointsChanged();
             Map<Point, List<PointCoordMap>> newPointsToModel = new HashMap<Point, List<PointCoordMap>>();
 
             for (Point point : this) {
@@ -953,6 +977,12 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
     public ClosestEdge getClosestEdge(Point click, boolean treatUnknownAsPolygon) {
         if (getNumPoints() == 0)
             return null;
+        if (getNumPoints() >= EdgeIndex.MIN_POINTS
+                && getEditGeom().getShapeType() != ShapeType.POINT) {
+            ClosestEdge closest = getEdgeIndex(treatUnknownAsPolygon).getClosestEdge(click, this);
+            if (closest != null)
+                return closest;
+        }
         final int endIndex;
         int startIndex, lastIndex;
         Point coord1;
@@ -1005,6 +1035,47 @@ public class PrimitiveShape implements Iterable<Point>, Shape {
         return new ClosestEdge(mindist, prev, closestPoint, this);
     }
 
+    /**
+     * Returns the index of the edges, building it if the points have changed.
+     */
+    private EdgeIndex getEdgeIndex(boolean treatUnknownAsPolygon) {
+        boolean closed = getEditGeom().getShapeType() == ShapeType.POLYGON
+                || (getEditGeom().getShapeType() == ShapeType.UNKNOWN && treatUnknownAsPolygon);
+        EdgeIndex index = edgeIndex;
+        if (index == null || index.isClosed() != closed) {
+            index = new EdgeIndex(getPoints(), closed);
+            edgeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the distance in pixels from the point to the bounding box of the shape; no edge of
+     * the shape is closer to the point.
+     * 
+     * @param point an arbitrary point
+     * @param treatUnknownAsPolygon declares whether to treat geometries of type UNKNOWN as a
+     *        polygon
+     * @return the distance to the bounds or {@link Double#MAX_VALUE} if the shape has no points
+     */
+    public double distanceToBounds(Point point, boolean treatUnknownAsPolygon) {
+        if (getNumPoints() == 0)
+            return Double.MAX_VALUE;
+        Envelope bounds;
+        EdgeIndex index = edgeIndex;
+        if (index != null) {
+            bounds = index.getBounds();
+        } else if (getNumPoints() >= EdgeIndex.MIN_POINTS) {
+            bounds = getEdgeIndex(treatUnknownAsPolygon).getBounds();
+        } else {
+            Rectangle rectangle = getBounds();
+            bounds = new Envelope(rectangle.getMinX(), rectangle.getMaxX(), rectangle.getMinY(),
+                    rectangle.getMaxY());
+        }
+        return bounds.distance(new Envelope(point.getX(), point.getX(), point.getY(),
+                point.getY()));
+    }
+
     /**
      * Returns the bounding box of the Shape in pixel space.
      * 
@@ -0,0 +1,226 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.tools.edit.support;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.locationtech.udig.project.ILayer;
+import org.locationtech.udig.project.ILayerListener;
+import org.locationtech.udig.project.LayerEvent;
+import org.locationtech.udig.project.ui.tool.IToolContext;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * The vertices of the features of a layer around the mouse, kept between mouse events so that
+ * snapping does not go back to the data store every time the mouse moves.
+ * <p>
+ * When a search falls outside of the area that has been loaded, the features in an area
+ * {@link #REGION_SIZE} times the size of the search box are loaded into an STRtree. The index is
+ * thrown away when the features, the filter or the resource of the layer change.
+ * </p>
+ * <p>
+ * In areas too dense for that the loaded area shrinks and is remembered, so that the mouse
+ * moving around does not start the same failing load over and over.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class SnapIndex {
+
+    /**
+     * Size of the area loaded, in search boxes.
+     */
+    static final int REGION_SIZE = 16;
+
+    /**
+     * If the area holds more vertices only the search box is loaded.
+     */
+    private static final int MAX_VERTICES = 500000;
+
+    private static final Map<ILayer, SnapIndex> indices = new WeakHashMap<ILayer, SnapIndex>();
+
+    private static final class Vertex {
+        final Coordinate coordinate;
+        final String fid;
+
+        Vertex( Coordinate coordinate, String fid ) {
+            this.coordinate = coordinate;
+            this.fid = fid;
+        }
+    }
+
+    /**
+     * Loaded area in map coordinates.
+     */
+    private Envelope region;
+
+    private STRtree tree;
+
+    /**
+     * Size of the area loaded, in search boxes; smaller than {@link #REGION_SIZE} once an area
+     * was too dense.
+     */
+    private int regionSize = REGION_SIZE;
+
+    private final ILayerListener listener = new ILayerListener(){
+        public void refresh( LayerEvent event ) {
+            switch( event.getType() ) {
+            case NAME:
+            case STYLE:
+            case VISIBILITY:
+            case ZORDER:
+                break;
+            default:
+                invalidate();
+            }
+        }
+    };
+
+    /**
+     * Returns the index of the layer, creating it if needed.
+     *
+     * @param layer
+     * @return the index of the layer
+     */
+    public static SnapIndex getIndex( ILayer layer ) {
+        synchronized (indices) {
+            SnapIndex index = indices.get(layer);
+            if (index == null) {
+                index = new SnapIndex();
+                layer.addListener(index.listener);
+                indices.put(layer, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Throws away the loaded vertices; they are loaded again by the next search.
+     */
+    public synchronized void invalidate() {
+        region = null;
+        tree = null;
+    }
+
+    /**
+     * Finds the closest vertex to the center.
+     *
+     * @param layer layer the index belongs to
+     * @param context used to load the features
+     * @param bbox search box in map coordinates
+     * @param layerBBox search box in layer coordinates
+     * @param center center of the search in layer coordinates
+     * @param excludeFid id of a feature that is ignored or null
+     * @return the closest vertex in layer coordinates or null if there are no vertices in the box
+     * @throws IOException
+     */
+    public synchronized Coordinate getClosest( ILayer layer, IToolContext context, Envelope bbox,
+            Envelope layerBBox, Coordinate center, String excludeFid ) throws IOException {
+        if (region == null || !region.contains(bbox)) {
+            loadRegion(layer, context, bbox);
+        }
+        Coordinate closest = null;
+        double minDist = Double.MAX_VALUE;
+        @SuppressWarnings("unchecked")
+        List<Vertex> vertices = tree.query(layerBBox);
+        for( Vertex vertex : vertices ) {
+            if (vertex.fid != null && vertex.fid.equals(excludeFid)) {
+                continue;
+            }
+            double dist = vertex.coordinate.distance(center);
+            if (dist < minDist) {
+                closest = vertex.coordinate;
+                minDist = dist;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return the number of loaded vertices
+     */
+    public synchronized int getVertexCount() {
+        return tree == null ? 0 : tree.size();
+    }
+
+    /**
+     * Loads the area around the search box, halving its size while it holds too many vertices
+     * and doubling it again when it holds few.
+     */
+    private void loadRegion( ILayer layer, IToolContext context, Envelope bbox ) throws IOException {
+        while( regionSize > 1 ) {
+            Envelope newRegion = new Envelope(bbox);
+            newRegion.expandBy(bbox.getWidth() * (regionSize - 1) / 2,
+                    bbox.getHeight() * (regionSize - 1) / 2);
+            if (load(layer, context, newRegion, true)) {
+                if (regionSize < REGION_SIZE && tree.size() < MAX_VERTICES / 8) {
+                    regionSize *= 2;
+                }
+                return;
+            }
+            regionSize /= 2;
+        }
+        load(layer, context, bbox, false);
+        // an area four times as large is unlikely to be too dense again
+        if (tree.size() < MAX_VERTICES / 32) {
+            regionSize = 2;
+        }
+    }
+
+    /**
+     * Loads the vertices of the features in the area.
+     *
+     * @param limited if true loading stops once {@link #MAX_VERTICES} have been loaded
+     * @return false if loading was stopped; the index must be loaded again
+     */
+    private boolean load( ILayer layer, IToolContext context, Envelope area, boolean limited )
+            throws IOException {
+        region = null;
+        tree = new STRtree();
+        FeatureCollection<SimpleFeatureType, SimpleFeature> features = context.getFeaturesInBbox(
+                layer, area);
+        FeatureIterator<SimpleFeature> iter = features.features();
+        int count = 0;
+        try {
+            while( iter.hasNext() ) {
+                SimpleFeature feature = iter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null) {
+                    continue;
+                }
+                for( Coordinate coordinate : geometry.getCoordinates() ) {
+                    tree.insert(new Envelope(coordinate), new Vertex(coordinate, feature.getID()));
+                }
+                count += geometry.getNumPoints();
+                if (limited && count > MAX_VERTICES) {
+                    invalidate();
+                    return false;
+                }
+            }
+        } finally {
+            iter.close();
+        }
+        tree.build();
+        region = area;
+        return true;
+    }
+}
@@ -1096,6 +1096,7 @@ public class TableView extends ViewPart implements ISelectionProvider, IUDIGView
                     
                     AdaptableFeatureCollection adaptableCollection = new AdaptableFeatureCollection(features);
                     adaptableCollection.addAdapter(featureSource); // used to listen for changes
+                    adaptableCollection.addAdapter(query); // used to read large tables a page at a time
 
                     if( featureSource instanceof FeatureStore )
                         enableEditing(featureTypeCellModifier, query, adaptableCollection);
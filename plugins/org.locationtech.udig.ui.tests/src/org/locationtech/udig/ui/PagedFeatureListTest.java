@@ -0,0 +1,100 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.swt.SWT;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.Query;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.Id;
+import org.opengis.filter.sort.SortBy;
+
+@SuppressWarnings({"nls"})
+public class PagedFeatureListTest {
+
+    private static final int COUNT = PagedFeatureList.PAGE_SIZE * 3 + 10;
+
+    private SimpleFeatureStore store;
+
+    private PagedFeatureList list;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("paged", "name:String,id:int");
+        MemoryDataStore dataStore = new MemoryDataStore(type);
+        for( int i = 0; i < COUNT; i++ ) {
+            dataStore.addFeature(SimpleFeatureBuilder.build(type, new Object[]{"feature" + i, i},
+                    "paged." + i));
+        }
+        store = (SimpleFeatureStore) dataStore.getFeatureSource("paged");
+        list = new PagedFeatureList(store, new Query("paged"), COUNT);
+        list.setSortBy(new SortBy[]{new AttributeComparator(SWT.UP, "id").toSortBy()});
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        assertEquals(COUNT, list.size());
+        assertEquals("paged.0", list.get(0).getID());
+        assertEquals(PagedFeatureList.PAGE_SIZE * 2 + 5, list.get(PagedFeatureList.PAGE_SIZE * 2 + 5)
+                .getAttribute("id"));
+        assertEquals("paged." + (COUNT - 1), list.get(COUNT - 1).getID());
+        assertNull(list.get(COUNT));
+
+        // only the pages that were read are in the window
+        assertNotNull(list.find("paged.1"));
+        assertNull(list.find("paged." + PagedFeatureList.PAGE_SIZE));
+    }
+
+    @Test
+    public void testSort() throws Exception {
+        list.setSortBy(new SortBy[]{new AttributeComparator(SWT.DOWN, "id").toSortBy()});
+        assertEquals("paged." + (COUNT - 1), list.get(0).getID());
+        assertEquals("paged.0", list.get(COUNT - 1).getID());
+    }
+
+    @Test
+    public void testIndexOf() throws Exception {
+        String fid = "paged." + (COUNT - 3);
+        assertEquals(COUNT - 3, list.indexOf(Collections.singleton(fid), null));
+        list.get(0);
+        assertEquals(1, list.indexOf(Arrays.asList(fid, "paged.1"), null));
+        assertEquals(-1, list.indexOf(Collections.singleton("missing"), null));
+    }
+
+    @Test
+    public void testChanged() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Id id = factory.id(Collections.singleton(factory.featureId("paged.2")));
+
+        store.modifyFeatures("name", "renamed", id);
+        list.changed(new FeatureEvent(store, FeatureEvent.Type.CHANGED, null, id));
+        assertEquals("renamed", list.get(2).getAttribute("name"));
+
+        store.removeFeatures(id);
+        list.changed(new FeatureEvent(store, FeatureEvent.Type.REMOVED, null, id));
+        assertEquals(COUNT - 1, list.size());
+        assertEquals("paged.3", list.get(2).getID());
+    }
+}
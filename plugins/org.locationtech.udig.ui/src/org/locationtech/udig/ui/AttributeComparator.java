@@ -13,7 +13,10 @@ import java.io.Serializable;
 import java.util.Comparator;
 
 import org.eclipse.swt.SWT;
+import org.geotools.factory.CommonFactoryFinder;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 
 public class AttributeComparator implements Comparator<SimpleFeature>, Serializable {
     /** long serialVersionUID field */
@@ -62,6 +65,14 @@ public class AttributeComparator implements Comparator<SimpleFeature>, Serializa
         return sortDir*result;
     }
 
+    /**
+     * @return the same order for a datastore query
+     */
+    SortBy toSortBy() {
+        return CommonFactoryFinder.getFilterFactory(null).sort(xpath,
+                sortDir == 1 ? SortOrder.ASCENDING : SortOrder.DESCENDING);
+    }
+
     @Override
     public int hashCode() {
         final int PRIME = 31;
@@ -14,6 +14,7 @@ import java.util.Comparator;
 
 import org.eclipse.swt.SWT;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.sort.SortBy;
 
 /**
  * Sorts features according to their FIDS.  
@@ -64,6 +65,14 @@ public class FIDComparator implements Comparator<SimpleFeature>, Serializable {
         return dir*id1.compareTo(id2);
     }
 
+    /**
+     * @return the natural (feature id) order for a datastore query; the numbers at the end of
+     *         the ids are compared the way the datastore compares its keys
+     */
+    SortBy toSortBy() {
+        return dir == 1 ? SortBy.NATURAL_ORDER : SortBy.REVERSE_ORDER;
+    }
+
     @Override
     public int hashCode() {
         final int PRIME = 31;
@@ -16,7 +16,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -47,6 +46,7 @@ import org.locationtech.udig.internal.ui.UiPlugin;
 import org.locationtech.udig.ui.internal.Messages;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
 
 /**
  * ContentProvider that agressively listens to FeatureCollection (using FeatureSource FeatureEvents).
@@ -85,6 +85,13 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
             TableViewer viewer = FeatureTableContentProvider.this.owningFeatureTableControl
                     .getViewer();
 
+            List<SimpleFeature> current = features;
+            if (current instanceof PagedFeatureList) {
+                ((PagedFeatureList) current).changed(event);
+                refreshViewer(current.size());
+                return;
+            }
+
             switch (event.getType()) {
             case ADDED:
                 try {
@@ -95,6 +102,7 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                         while (iterator.hasNext()) {
                             SimpleFeature newFeature = iterator.next();
                             features.add(newFeature);
+                            lookup.put(newFeature.getID(), newFeature);
                         }
                         viewer.setItemCount(event.getFeatureSource().getCount(Query.ALL));
                         viewer.getTable().clearAll();
@@ -109,6 +117,7 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                     SimpleFeature feature = iter.next();
                     if (event.getFilter().evaluate(feature)) {
                         iter.remove(); // event indicated this feature has been removed
+                        lookup.remove(feature.getID());
                     }
                 }
                 viewer.setItemCount(features.size());
@@ -123,12 +132,16 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                     try {
                         while (iterator.hasNext()) {
                             SimpleFeature changedFeature = iterator.next();
-                            SCAN: for (ListIterator<SimpleFeature> iter = features.listIterator(); iter
-                                    .hasNext();) {
-                                SimpleFeature item = iter.next();
-                                if (item.getID().equals(changedFeature.getID())) {
-                                    iter.set(changedFeature);
-                                    break SCAN;
+                            // update the row in place, the same way ContentUpdater does
+                            SimpleFeature item = lookup.get(changedFeature.getID());
+                            if (item != null) {
+                                // the table may only show some of the attributes
+                                for (AttributeDescriptor descriptor : item.getFeatureType()
+                                        .getAttributeDescriptors()) {
+                                    String name = descriptor.getLocalName();
+                                    if (changedFeature.getFeatureType().getDescriptor(name) != null) {
+                                        item.setAttribute(name, changedFeature.getAttribute(name));
+                                    }
                                 }
                             }
                         }
@@ -157,11 +170,14 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
     /** Memory bound cache of features for table.
      * May be sorted according to FID or any of the attributes so don't rely on any given order because
      * its liable to change.  User Lookup instead for quickly locating a features
+     * <p>
+     * A {@link PagedFeatureList} when the source has more features than the paging threshold
+     * of the table; only a window of the features is in memory then.
      */
-    List<SimpleFeature> features = Collections.synchronizedList( new ArrayList<SimpleFeature>());
+    volatile List<SimpleFeature> features = Collections.synchronizedList( new ArrayList<SimpleFeature>());
 
     /**
-     * Contains same features as Features but sorted by id
+     * Contains same features as Features but sorted by id; not used when the features are paged
      */
     Map<String, SimpleFeature> lookup = new HashMap<String, SimpleFeature>();
     /**
@@ -199,7 +215,8 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                     return;
                 }
             }
-            features.clear();
+            features = Collections.synchronizedList(new ArrayList<SimpleFeature>());
+            lookup.clear();
             
             if (oldInput != null && oldInput instanceof AdaptableFeatureCollection) {
                 AdaptableFeatureCollection old = (AdaptableFeatureCollection) oldInput;
@@ -272,6 +289,18 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
             owningFeatureTableControl.getViewer().replace("", index); //$NON-NLS-1$
         } else if (monitor != NULL && index == 0 && !updating) {
             owningFeatureTableControl.getViewer().replace(FeatureTableControl.LOADING, 0);
+        } else if (getPagedFeatures() != null) {
+            // never wait for the datastore on the display thread
+            PagedFeatureList paged = getPagedFeatures();
+            SimpleFeature feature = paged.peek(index);
+            if (feature != null) {
+                owningFeatureTableControl.getViewer().replace(feature, index);
+            } else if (paged.isLoaded(index)) {
+                // a paged row that could not be read
+                owningFeatureTableControl.getViewer().replace("", index); //$NON-NLS-1$
+            } else {
+                owningFeatureTableControl.getViewer().replace(FeatureTableControl.LOADING, index);
+            }
         } else {
             int resolvedIndex=index;
             //commented fragment below not needed since features list 
@@ -301,6 +330,17 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
             UiPlugin.trace(Trace.FEATURE_TABLE, FeatureTableContentProvider.class, 
                     "Starting ContentLoader", null); //$NON-NLS-1$
             setEnabled(false);
+            PagedFeatureList paged = createPagedList();
+            if (paged != null) {
+                UiPlugin.trace(Trace.FEATURE_TABLE, FeatureTableContentProvider.class, 
+                        "ContentLoader: paging " + paged.size() + " features", null); //$NON-NLS-1$ //$NON-NLS-2$
+                features = paged;
+                if (!cancel()) {
+                    updateTable(input, true);
+                    setEnabled(true);
+                }
+                return;
+            }
             int i = 0;
             final int[] monitorUpdate = new int[1];
             monitorUpdate[0] = 0;
@@ -351,6 +391,50 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
             }
         }
 
+        /**
+         * Returns a paged list if the input has more features than the paging threshold of the
+         * table and its feature source can read pages.
+         *
+         * @return the paged list or null if the features should be loaded into memory
+         */
+        private PagedFeatureList createPagedList() throws IOException {
+            int threshold = owningFeatureTableControl.getPagingThreshold();
+            if (threshold <= 0 || !(input instanceof AdaptableFeatureCollection))
+                return null;
+            AdaptableFeatureCollection adaptable = (AdaptableFeatureCollection) input;
+            FeatureSource<SimpleFeatureType, SimpleFeature> source = (FeatureSource<SimpleFeatureType, SimpleFeature>) adaptable
+                    .getAdapter(FeatureSource.class);
+            if (source == null || !source.getQueryCapabilities().isOffsetSupported())
+                return null;
+            Query query = (Query) adaptable.getAdapter(Query.class);
+            if (query == null)
+                query = new Query(input.getSchema().getName().getLocalPart());
+            int count = source.getCount(query);
+            if (count == -1)
+                count = input.size();
+            if (count <= threshold)
+                return null;
+            PagedFeatureList paged = new PagedFeatureList(source, query, count);
+            paged.setPageListener(new PagedFeatureList.PageListener(){
+                public void pageLoaded( final int firstRow, final int lastRow ) {
+                    final TableViewer viewer = owningFeatureTableControl.getViewer();
+                    if (viewer == null || viewer.getControl().isDisposed())
+                        return;
+                    viewer.getControl().getDisplay().asyncExec(new Runnable(){
+                        public void run() {
+                            Table table = viewer.getTable();
+                            if (table.isDisposed())
+                                return;
+                            int last = Math.min(lastRow, table.getItemCount() - 1);
+                            if (firstRow <= last)
+                                table.clear(firstRow, last);
+                        }
+                    });
+                }
+            });
+            return paged;
+        }
+
         /**
          * will setenable and set an error message on the feature table control.
          */
@@ -436,7 +520,10 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                         if (!control.isDisposed())
                             control.getVerticalBar().setEnabled(true);
                         if (control.getItemCount() > 0) {
-                            owningFeatureTableControl.getViewer().replace(features.get(0), 0);
+                            if (getPagedFeatures() != null)
+                                control.clear(0);
+                            else
+                                owningFeatureTableControl.getViewer().replace(features.get(0), 0);
                         }
                         owningFeatureTableControl.notifyLoadingListeners(new LoadingEvent(monitor
                                 .isCanceled(), null, false));
@@ -498,8 +585,52 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
     }
     
     SimpleFeature findFeature(String featureId ){
+        List<SimpleFeature> current = features;
+        if (current instanceof PagedFeatureList)
+            return ((PagedFeatureList) current).find(featureId);
         return lookup.get(featureId);
     }
+
+    /**
+     * Returns the feature of a row without waiting for the datastore when the features are
+     * paged; for the display thread.
+     *
+     * @param index row
+     * @return the feature or null if it is not read yet
+     */
+    SimpleFeature getRow( int index ) {
+        PagedFeatureList paged = getPagedFeatures();
+        return paged != null ? paged.peek(index) : features.get(index);
+    }
+
+    /**
+     * @return the paged features or null if all the features are in memory
+     */
+    PagedFeatureList getPagedFeatures() {
+        List<SimpleFeature> current = features;
+        return current instanceof PagedFeatureList ? (PagedFeatureList) current : null;
+    }
+
+    /**
+     * Sets the item count of the viewer and clears its rows; may be called from any thread.
+     */
+    private void refreshViewer( final int size ) {
+        final TableViewer viewer = owningFeatureTableControl.getViewer();
+        if (viewer == null || viewer.getControl().isDisposed())
+            return;
+        Runnable refresh = new Runnable(){
+            public void run() {
+                if (viewer.getControl().isDisposed())
+                    return;
+                viewer.setItemCount(size);
+                viewer.getTable().clearAll();
+            }
+        };
+        if (Display.getCurrent() == null)
+            viewer.getControl().getDisplay().asyncExec(refresh);
+        else
+            refresh.run();
+    }
     
     private class ContentUpdater implements ISafeRunnable{
 
@@ -535,6 +666,14 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
                 
                 startLoading();
                 
+                PagedFeatureList paged = getPagedFeatures();
+                if (paged != null) {
+                    // the rows are read again from the source
+                    paged.refresh();
+                    updateTable(true);
+                    return;
+                }
+
                 SimpleFeatureType schema = newFeatures.getSchema();
                 FeatureIterator<SimpleFeature> iter=newFeatures.features();
                 try{
@@ -617,6 +756,8 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
      * An exception will be thrown otherwise.
      */
     public void assertInternallyConsistent(){
+        if( getPagedFeatures()!=null )
+            return;
         if( features.size()!=lookup.size())
             throw new AssertionError("lookup table has "+lookup.size()+" features while feature list has "+features.size()+" features"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         
@@ -641,6 +782,19 @@ class FeatureTableContentProvider implements ILazyContentProvider, IProvider<Col
             public void run() {
                 Collection<String> selectionFids = owningFeatureTableControl.getSelectionProvider().getSelectionFids();
                 
+                PagedFeatureList paged = getPagedFeatures();
+                if( paged!=null ){
+                    // the rows disappear when the source reports that the features were removed
+                    try {
+                        deletedFeatures.addAll(paged.getFeatures(selectionFids));
+                    } catch (IOException e) {
+                        UiPlugin.log("Unable to read the selected features", e); //$NON-NLS-1$
+                    }
+                    selectionFids.clear();
+                    owningFeatureTableControl.getViewer().getTable().clearAll();
+                    return;
+                }
+                
                 for( Iterator<SimpleFeature> iter = features.iterator(); iter.hasNext(); ) {
                     SimpleFeature feature =  iter.next();
                     if( selectionFids.contains(feature.getID()) ){
@@ -10,8 +10,10 @@
  */
 package org.locationtech.udig.ui;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -24,6 +26,9 @@ import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.MenuManager;
 import org.eclipse.jface.dialogs.MessageDialogWithToggle;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -54,7 +59,9 @@ import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.part.PageBook;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.filter.text.cql2.CQL;
 import org.geotools.filter.text.cql2.CQLException;
 import org.locationtech.udig.core.IProvider;
@@ -65,8 +72,10 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
 import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.sort.SortBy;
 
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -118,6 +127,13 @@ public class FeatureTableControl implements ISelectionProvider {
     /** results per page * */
     private int pageSize = 10; // XXX: actual put this as a user pref
 
+    /**
+     * Default for {@link #getPagingThreshold()}.
+     */
+    public static final int DEFAULT_PAGING_THRESHOLD = 10000;
+
+    private int pagingThreshold = DEFAULT_PAGING_THRESHOLD;
+
     /** table viewer control * */
     private TableViewer tableViewer;
 
@@ -214,6 +230,26 @@ public class FeatureTableControl implements ISelectionProvider {
         return pageSize;
     }
 
+    /**
+     * Sets the number of features above which the features are read from the feature source a
+     * page at a time instead of being loaded into memory. Paging needs a feature source that
+     * supports offsets; sorting is then done by the feature source.
+     * 
+     * @param threshold number of features; 0 or less to always load the features into memory
+     */
+    public void setPagingThreshold( int threshold ) {
+        this.pagingThreshold = threshold;
+    }
+
+    /**
+     * Returns the number of features above which the features are paged.
+     * 
+     * @return number of features, 0 or less if paging is turned off
+     */
+    public int getPagingThreshold() {
+        return pagingThreshold;
+    }
+
     /**
      * Returns the control representing the table control.
      * 
@@ -389,7 +425,8 @@ public class FeatureTableControl implements ISelectionProvider {
                 if ((e.stateMask & SWT.MOD2) != 0 && lastIndex != -1) {
                     if (lastIndex == index)
                         return;
-                    handleSelecteRange(table, index, provider, selectionFids);
+                    if (!handleSelecteRange(table, index, provider, selectionFids))
+                        return; // the listeners are told once the rows are read
                 } else if ((e.stateMask & SWT.MOD1) != 0) {
                     handleXORSelect(table, index, provider, selectionFids);
                 } else {
@@ -407,9 +444,10 @@ public class FeatureTableControl implements ISelectionProvider {
                     selectionFids.clear();
                     table.clearAll();
                 } else {
-                    String fid = provider.features.get(index).getID();
+                    SimpleFeature feature = provider.getRow(index);
                     selectionFids.clear();
-                    selectionFids.add(fid);
+                    if (feature != null)
+                        selectionFids.add(feature.getID());
                     table.clearAll();
                 }
                 lastIndex = index;
@@ -417,7 +455,10 @@ public class FeatureTableControl implements ISelectionProvider {
 
             private void handleXORSelect( final Table table, int index,
                     FeatureTableContentProvider provider, Collection<String> selectionFids ) {
-                String fid = provider.features.get(index).getID();
+                SimpleFeature feature = provider.getRow(index);
+                if (feature == null)
+                    return;
+                String fid = feature.getID();
                 if (selectionFids.contains(fid)) {
                     selectionFids.remove(fid);
                 } else {
@@ -427,7 +468,11 @@ public class FeatureTableControl implements ISelectionProvider {
                 lastIndex = index;
             }
 
-            private void handleSelecteRange( final Table table, int index,
+            /**
+             * @return false if the rows are read in the background and the listeners are told
+             *         later
+             */
+            private boolean handleSelecteRange( final Table table, int index,
                     FeatureTableContentProvider provider, Collection<String> selectionFids ) {
                 selectionFids.clear();
 
@@ -435,13 +480,18 @@ public class FeatureTableControl implements ISelectionProvider {
                 int high = Math.max(lastIndex, index);
                 if (low == -1 || high == -1) {
                     table.clearAll();
-                    return;
+                    return true;
+                }
+                PagedFeatureList paged = provider.getPagedFeatures();
+                if (paged != null) {
+                    selectPagedRange(paged, low, high);
+                    return false;
                 }
                 List<SimpleFeature> toAdd = provider.features.subList(low, high + 1);
                 boolean foundUnselectedItem = false;
                 int i = low;
                 for( SimpleFeature feature : toAdd ) {
-                    if (selectionFids.add(feature.getID())) {
+                    if (feature != null && selectionFids.add(feature.getID())) {
                         foundUnselectedItem = true;
                     }
                     i++;
@@ -449,6 +499,7 @@ public class FeatureTableControl implements ISelectionProvider {
                 if (foundUnselectedItem) {
                     table.clearAll();
                 }
+                return true;
             }
 
         });
@@ -820,9 +871,21 @@ public class FeatureTableControl implements ISelectionProvider {
 
         boolean sorted = false;
         if (!comparator.equals(currentComparator)) {
+            PagedFeatureList paged = provider.getPagedFeatures();
+            if (paged != null) {
+                // let the datastore sort the pages
+                SortBy[] sortBy = toSortBy(comparator);
+                if (sortBy == null || !paged.supportsSorting(sortBy)) {
+                    UiPlugin.trace(Trace.FEATURE_TABLE, FeatureTableControl.class,
+                            "Unable to sort paged features with " + comparator, null); //$NON-NLS-1$
+                    return;
+                }
+                paged.setSortBy(sortBy);
+            } else {
+                Collections.sort(provider.features, comparator);
+            }
             sorted = true;
             currentComparator = comparator;
-            Collections.sort(provider.features, currentComparator);
         }
         Table table = tableViewer.getTable();
         if (table.getSortColumn() != sortColumn) {
@@ -855,13 +918,26 @@ public class FeatureTableControl implements ISelectionProvider {
         FeatureTableContentProvider provider = (FeatureTableContentProvider) tableViewer
                 .getContentProvider();
 
-        Collections.sort(provider.features, currentComparator);
+        if (provider.getPagedFeatures() == null)
+            Collections.sort(provider.features, currentComparator);
 
         tableViewer.getTable().deselectAll();
         if (refreshTable)
             tableViewer.getTable().clearAll();
     }
 
+    /**
+     * @return the sort order of the comparator for a datastore or null if it can only sort in
+     *         memory
+     */
+    private static SortBy[] toSortBy( Comparator<SimpleFeature> comparator ) {
+        if (comparator instanceof AttributeComparator)
+            return new SortBy[]{((AttributeComparator) comparator).toSortBy()};
+        if (comparator instanceof FIDComparator)
+            return new SortBy[]{((FIDComparator) comparator).toSortBy()};
+        return null;
+    }
+
     public TableViewer getViewer() {
         return tableViewer;
     }
@@ -910,11 +986,17 @@ public class FeatureTableControl implements ISelectionProvider {
         if (progressMonitor != null) {
             progressMonitor.setCanceled(true);
         }
+        PagedFeatureList paged = provider.getPagedFeatures();
+        if (paged != null) {
+            // the datastore finds the rows
+            selectPaged(paged, filter, null, null, selectAll);
+            return;
+        }
         getSelectionProvider().getSelectionFids().clear();
         int j = 0;
         int firstMatch = -1;
         OUTER: for( SimpleFeature feature : toSearch ) {
-            if (filter.evaluate(feature)) {
+            if (feature != null && filter.evaluate(feature)) {
                 selectionProvider.getSelectionFids().add(feature.getID());
                 if (firstMatch == -1)
                     firstMatch = j;
@@ -961,11 +1043,18 @@ public class FeatureTableControl implements ISelectionProvider {
         if (progressMonitor != null) {
             progressMonitor.setCanceled(true);
         }
+        PagedFeatureList paged = provider.getPagedFeatures();
+        if (paged != null) {
+            // plain text is found by the datastore, regular expressions while streaming the rows
+            Filter filter = toLikeFilter(text, attributes, paged.getSchema());
+            selectPaged(paged, filter, pattern, attributes, selectAll);
+            return;
+        }
         getSelectionProvider().getSelectionFids().clear();
         int j = 0;
         int firstMatch = -1;
         OUTER: for( SimpleFeature feature : toSearch ) {
-            if (searchFeature(feature, pattern, attributes)) {
+            if (feature != null && searchFeature(feature, pattern, attributes)) {
                 if (firstMatch == -1)
                     firstMatch = j;
                 if (!selectAll)
@@ -985,6 +1074,154 @@ public class FeatureTableControl implements ISelectionProvider {
         selectionProvider.notifyListeners();
     }
 
+    /**
+     * Selects the rows of a paged table that a filter or pattern finds, in the background. The
+     * filter is run by the datastore and only the ids of the rows are read.
+     *
+     * @param paged rows of the table
+     * @param filter filter of the rows or null to match the pattern
+     * @param pattern pattern searched in the attributes when there is no filter
+     * @param attributes attributes searched for the pattern, see {@link #ALL}
+     * @param selectAll if true all rows found are selected otherwise just the first one
+     */
+    private void selectPaged( final PagedFeatureList paged, final Filter filter,
+            final Pattern pattern, final String[] attributes, final boolean selectAll ) {
+        Job job = new Job("Feature table search"){ //$NON-NLS-1$
+            @Override
+            protected IStatus run( IProgressMonitor monitor ) {
+                try {
+                    List<String> fids;
+                    if (filter != null) {
+                        fids = paged.getFeatureIDs(filter, selectAll ? Integer.MAX_VALUE : 1);
+                    } else {
+                        fids = searchPaged(paged, pattern, attributes, selectAll, monitor);
+                    }
+                    if (monitor.isCanceled())
+                        return Status.CANCEL_STATUS;
+                    int firstMatch = fids.isEmpty() ? -1 : paged.indexOf(
+                            Collections.singleton(fids.get(0)), monitor);
+                    showSelection(fids, firstMatch);
+                } catch (IOException e) {
+                    UiPlugin.log("Unable to search the feature table", e); //$NON-NLS-1$
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    /**
+     * Selects the rows of a paged table in a range, reading only their ids in the background.
+     */
+    private void selectPagedRange( final PagedFeatureList paged, final int low, final int high ) {
+        Job job = new Job("Feature table selection"){ //$NON-NLS-1$
+            @Override
+            protected IStatus run( IProgressMonitor monitor ) {
+                try {
+                    showSelection(paged.getFeatureIDs(low, high), -1);
+                } catch (IOException e) {
+                    UiPlugin.log("Unable to read the selected rows", e); //$NON-NLS-1$
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    /**
+     * Makes the rows the selection, in the display thread.
+     *
+     * @param fids ids of the selected rows
+     * @param reveal row to show or -1
+     */
+    private void showSelection( final Collection<String> fids, final int reveal ) {
+        final TableViewer viewer = tableViewer;
+        if (viewer == null || viewer.getControl().isDisposed())
+            return;
+        viewer.getControl().getDisplay().asyncExec(new Runnable(){
+            public void run() {
+                Table table = viewer.getTable();
+                if (table.isDisposed())
+                    return;
+                Collection<String> selectionFids = selectionProvider.getSelectionFids();
+                selectionFids.clear();
+                selectionFids.addAll(fids);
+                if (reveal != -1) {
+                    table.setTopIndex(reveal);
+                }
+                table.clearAll();
+                selectionProvider.notifyListeners();
+            }
+        });
+    }
+
+    /**
+     * Streams the searched attributes of the rows of a paged table to match a pattern the
+     * datastore can not.
+     */
+    private List<String> searchPaged( PagedFeatureList paged, Pattern pattern,
+            String[] attributes, boolean selectAll, IProgressMonitor monitor ) throws IOException {
+        List<String> fids = new ArrayList<String>();
+        FeatureIterator<SimpleFeature> iter = paged.features(attributes == ALL ? null : attributes);
+        try {
+            while( iter.hasNext() && !monitor.isCanceled() ) {
+                SimpleFeature feature = iter.next();
+                boolean found = false;
+                if (attributes == ALL) {
+                    for( int i = 0; !found && i < feature.getAttributeCount(); i++ ) {
+                        found = matches(pattern, feature.getAttribute(i));
+                    }
+                } else {
+                    for( int i = 0; !found && i < attributes.length; i++ ) {
+                        found = matches(pattern, feature.getAttribute(attributes[i]));
+                    }
+                }
+                if (found) {
+                    fids.add(feature.getID());
+                    if (!selectAll)
+                        break;
+                }
+            }
+        } finally {
+            iter.close();
+        }
+        return fids;
+    }
+
+    /**
+     * Turns a plain search text into a filter the datastore can run: the text (or any of its |
+     * separated parts) anywhere in one of the attributes, ignoring case.
+     *
+     * @return the filter or null if the text is a regular expression
+     */
+    private static Filter toLikeFilter( String text, String[] attributes, SimpleFeatureType schema ) {
+        if (!text.matches("[^\\\\.*+?\\[\\](){}^$&]*")) //$NON-NLS-1$
+            return null;
+        List<String> names = new ArrayList<String>();
+        if (attributes == ALL) {
+            for( AttributeDescriptor descriptor : schema.getAttributeDescriptors() ) {
+                if (!(descriptor.getType().getBinding().isAssignableFrom(Geometry.class) || Geometry.class
+                        .isAssignableFrom(descriptor.getType().getBinding())))
+                    names.add(descriptor.getLocalName());
+            }
+        } else {
+            Collections.addAll(names, attributes);
+        }
+        FilterFactory2 factory = CommonFactoryFinder.getFilterFactory2(null);
+        List<Filter> likes = new ArrayList<Filter>();
+        for( String part : text.split("\\|") ) { //$NON-NLS-1$
+            for( String name : names ) {
+                likes.add(factory.like(factory.property(name), "*" + part + "*", "*", "?", "\\", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+                        false));
+            }
+        }
+        if (likes.isEmpty())
+            return null;
+        return likes.size() == 1 ? likes.get(0) : factory.or(likes);
+    }
+
     private Pattern compilePattern( final String text ) {
 
         String[] parts = text.split("\\|");
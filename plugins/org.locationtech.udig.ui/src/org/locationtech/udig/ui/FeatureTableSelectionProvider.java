@@ -10,7 +10,6 @@
 package org.locationtech.udig.ui;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -210,12 +209,20 @@ class FeatureTableSelectionProvider implements ISelectionProvider {
 
                     final List<SimpleFeature> features = provider.features;
                     int i = 0;
-                    synchronized( provider.features ){
-                        for( SimpleFeature feature : features ) {
-                            if (fids.contains(feature.getID())) {
-                                break;
+                    PagedFeatureList paged = provider.getPagedFeatures();
+                    if( paged!=null ){
+                        // only the ids are read from the datastore
+                        i = paged.indexOf(fids, progressMonitor);
+                        if( i==-1 )
+                            i = features.size();
+                    }else{
+                        synchronized( features ){
+                            for( SimpleFeature feature : features ) {
+                                if (fids.contains(feature.getID())) {
+                                    break;
+                                }
+                                i++;
                             }
-                            i++;
                         }
                     }
                     
@@ -310,8 +317,10 @@ class FeatureTableSelectionProvider implements ISelectionProvider {
                 } else if (element instanceof SimpleFeature) {
                     fids.add(((SimpleFeature) element).getID());
                 } else if (element instanceof Id) {
-                    String[] fids2 = ((Id) element).getIDs().toArray(new String[0]);
-                    fids.addAll(Arrays.asList(fids2));
+                    // copy the ids straight across; a large selection is not turned into arrays
+                    for( Object fid : ((Id) element).getIDs() ) {
+                        fids.add(fid.toString());
+                    }
                 } else if (element instanceof IAdaptable) {
 
                     obtainFidsFromAdaptable(fids, (IAdaptable) element);
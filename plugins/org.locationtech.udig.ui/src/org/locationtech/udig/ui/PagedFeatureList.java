@@ -0,0 +1,630 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.ui;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.FeatureIterator;
+import org.locationtech.udig.internal.ui.Trace;
+import org.locationtech.udig.internal.ui.UiPlugin;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.sort.SortBy;
+
+/**
+ * The rows of a {@link FeatureTableControl} read a page at a time from a {@link FeatureSource}.
+ * <p>
+ * Only a window of {@link #MAX_PAGES} pages is kept in memory; the least recently used page is
+ * dropped when another one is read. Pages are read with the start index and maximum features of
+ * the {@link Query} and sorted by the datastore, so the source should support offsets and the
+ * requested sort orders (see {@link org.geotools.data.QueryCapabilities}). When no order is
+ * requested the natural order is asked for, if the source can sort by it, so the pages neither
+ * repeat nor skip rows.
+ * </p>
+ * <p>
+ * The display thread must not wait for the datastore: it asks for rows with {@link #peek(int)},
+ * which reads missing pages in a job and tells the {@link PageListener} when they arrive.
+ * </p>
+ * <p>
+ * The list is read only; feature events are applied with {@link #changed(FeatureEvent)}.
+ * Rows that can not be read (because the features changed under the table) are null.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+class PagedFeatureList extends AbstractList<SimpleFeature> {
+
+    /**
+     * Number of rows read at a time.
+     */
+    static final int PAGE_SIZE = 500;
+
+    /**
+     * Number of pages kept in memory.
+     */
+    static final int MAX_PAGES = 20;
+
+    /**
+     * Told when a page read in the background is in the window.
+     */
+    interface PageListener {
+        /**
+         * @param firstRow first row of the page
+         * @param lastRow last row of the page
+         */
+        void pageLoaded( int firstRow, int lastRow );
+    }
+
+    private final FeatureSource<SimpleFeatureType, SimpleFeature> source;
+
+    private final Query query;
+
+    private SortBy[] sortBy;
+
+    private int size;
+
+    /**
+     * Changes whenever the pages are dropped, so pages read meanwhile are not kept.
+     */
+    private int generation;
+
+    /**
+     * Pages being read in the background.
+     */
+    private final Set<Integer> loading = new HashSet<Integer>();
+
+    private volatile PageListener listener;
+
+    /**
+     * Pages in the window, least recently used first.
+     */
+    private final LinkedHashMap<Integer, List<SimpleFeature>> pages = new LinkedHashMap<Integer, List<SimpleFeature>>(
+            MAX_PAGES, 0.75f, true){
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Integer, List<SimpleFeature>> eldest ) {
+            if (size() <= MAX_PAGES)
+                return false;
+            unindex(eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * Row of each feature in the window.
+     */
+    private final Map<String, Integer> rows = new HashMap<String, Integer>();
+
+    /**
+     * @param source source the features are read from
+     * @param query query of the features shown in the table
+     * @param size number of features returned by the query
+     */
+    PagedFeatureList( FeatureSource<SimpleFeatureType, SimpleFeature> source, Query query,
+            int size ) {
+        this.source = source;
+        this.query = new Query(query);
+        this.sortBy = query.getSortBy();
+        this.size = size;
+    }
+
+    /**
+     * Returns the row, reading its page if it is not in the window. The datastore is queried
+     * without holding the lock of the list, but the caller waits for it: the display thread uses
+     * {@link #peek(int)} instead.
+     */
+    @Override
+    public SimpleFeature get( int index ) {
+        if (index < 0)
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        int page = index / PAGE_SIZE;
+        int readGeneration;
+        synchronized (this) {
+            if (index >= size)
+                return null;
+            List<SimpleFeature> features = pages.get(page);
+            if (features != null)
+                return row(features, index, page);
+            readGeneration = generation;
+        }
+        List<SimpleFeature> features = read(page, createQuery());
+        synchronized (this) {
+            store(page, features, readGeneration);
+            return row(features, index, page);
+        }
+    }
+
+    /**
+     * Returns the row if its page is in the window; otherwise the page is read in the background
+     * and the {@link PageListener} is told when it is there.
+     *
+     * @param index row
+     * @return the feature or null if the row is not read yet or could not be read
+     * @see #isLoaded(int)
+     */
+    public SimpleFeature peek( int index ) {
+        final int page = index / PAGE_SIZE;
+        final int readGeneration;
+        final Query pageQuery;
+        synchronized (this) {
+            if (index < 0 || index >= size)
+                return null;
+            List<SimpleFeature> features = pages.get(page);
+            if (features != null)
+                return row(features, index, page);
+            if (!loading.add(page))
+                return null;
+            readGeneration = generation;
+            pageQuery = createQuery();
+        }
+        Job job = new Job("Feature table page " + page){ //$NON-NLS-1$
+            @Override
+            protected IStatus run( IProgressMonitor monitor ) {
+                List<SimpleFeature> features = read(page, pageQuery);
+                boolean stored;
+                synchronized (PagedFeatureList.this) {
+                    loading.remove(page);
+                    stored = store(page, features, readGeneration);
+                }
+                PageListener current = listener;
+                if (stored && current != null)
+                    current.pageLoaded(page * PAGE_SIZE, page * PAGE_SIZE + features.size() - 1);
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+        return null;
+    }
+
+    /**
+     * @param index row
+     * @return true if the page of the row is in the window
+     */
+    public synchronized boolean isLoaded( int index ) {
+        return pages.containsKey(index / PAGE_SIZE);
+    }
+
+    /**
+     * @param listener told when pages read by {@link #peek(int)} arrive; may be null
+     */
+    public void setPageListener( PageListener listener ) {
+        this.listener = listener;
+    }
+
+    private static SimpleFeature row( List<SimpleFeature> features, int index, int page ) {
+        int offset = index - page * PAGE_SIZE;
+        return offset < features.size() ? features.get(offset) : null;
+    }
+
+    /**
+     * Puts a page read from the datastore in the window, unless the window was dropped while it
+     * was read. Must be called holding the lock.
+     *
+     * @return true if the page was kept
+     */
+    private boolean store( int page, List<SimpleFeature> features, int readGeneration ) {
+        if (readGeneration != generation || pages.containsKey(page))
+            return false;
+        for( int i = 0; i < features.size(); i++ ) {
+            rows.put(features.get(i).getID(), page * PAGE_SIZE + i);
+        }
+        pages.put(page, features);
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Empties the list.
+     */
+    @Override
+    public synchronized void clear() {
+        drop();
+        size = 0;
+    }
+
+    /**
+     * Changes the order of the rows; the datastore does the sorting.
+     *
+     * @param sortBy new order
+     */
+    public synchronized void setSortBy( SortBy[] sortBy ) {
+        this.sortBy = sortBy;
+        drop();
+    }
+
+    /**
+     * @return the type of the features
+     */
+    public SimpleFeatureType getSchema() {
+        return source.getSchema();
+    }
+
+    /**
+     * @return true if the source can sort the rows in the order
+     */
+    public boolean supportsSorting( SortBy[] sortBy ) {
+        return source.getQueryCapabilities().supportsSorting(sortBy);
+    }
+
+    /**
+     * Counts the rows again and drops the window.
+     */
+    public void refresh() {
+        int count = count();
+        synchronized (this) {
+            drop();
+            size = count;
+        }
+    }
+
+    /**
+     * Drops the window. Must be called holding the lock.
+     */
+    private void drop() {
+        pages.clear();
+        rows.clear();
+        generation++;
+    }
+
+    /**
+     * Returns the feature if it is in the window.
+     *
+     * @param fid feature id
+     * @return the feature or null if it is not in the window
+     */
+    public synchronized SimpleFeature find( String fid ) {
+        Integer row = rows.get(fid);
+        if (row == null)
+            return null;
+        List<SimpleFeature> features = pages.get(row / PAGE_SIZE);
+        return features == null ? null : row(features, row, row / PAGE_SIZE);
+    }
+
+    /**
+     * Returns the row of the first of the features. The window is checked first, then the ids of
+     * all the rows are read (without their attributes).
+     *
+     * @param fids feature ids
+     * @param monitor used to cancel the search; may be null
+     * @return the row or -1 if none of the features are in the table
+     */
+    public int indexOf( Collection<String> fids, IProgressMonitor monitor ) {
+        synchronized (this) {
+            int first = Integer.MAX_VALUE;
+            for( String fid : fids ) {
+                Integer row = rows.get(fid);
+                if (row != null)
+                    first = Math.min(first, row);
+            }
+            // a row before the window may still hold one of the features
+            boolean before = first == Integer.MAX_VALUE;
+            for( int page = 0; !before && page <= first / PAGE_SIZE; page++ ) {
+                before = !pages.containsKey(page);
+            }
+            if (!before)
+                return first;
+        }
+        Query idQuery = createQuery();
+        idQuery.setPropertyNames(getSortAttributes());
+        int row = 0;
+        try {
+            FeatureIterator<SimpleFeature> iter = source.getFeatures(idQuery).features();
+            try {
+                while( iter.hasNext() ) {
+                    if (monitor != null && monitor.isCanceled())
+                        return -1;
+                    if (fids.contains(iter.next().getID()))
+                        return row;
+                    row++;
+                }
+            } finally {
+                iter.close();
+            }
+        } catch (IOException e) {
+            UiPlugin.log("Unable to search the feature table", e); //$NON-NLS-1$
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the features with the ids; they do not need to be in the window.
+     *
+     * @param fids feature ids
+     * @return the features
+     */
+    public List<SimpleFeature> getFeatures( Collection<String> fids ) throws IOException {
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        if (fids.isEmpty())
+            return features;
+        Query fidQuery = createQuery();
+        fidQuery.setFilter(createId(fids));
+        FeatureIterator<SimpleFeature> iter = source.getFeatures(fidQuery).features();
+        try {
+            while( iter.hasNext() ) {
+                features.add(iter.next());
+            }
+        } finally {
+            iter.close();
+        }
+        return features;
+    }
+
+    /**
+     * Reads the ids of the rows in a range, without their attributes.
+     *
+     * @param first first row
+     * @param last last row, included
+     * @return the ids in the order of the rows
+     */
+    public List<String> getFeatureIDs( int first, int last ) throws IOException {
+        Query idQuery = createQuery();
+        idQuery.setPropertyNames(getSortAttributes());
+        idQuery.setStartIndex(first);
+        idQuery.setMaxFeatures(last - first + 1);
+        return readIDs(idQuery);
+    }
+
+    /**
+     * Reads the ids of the rows that pass a filter, without their attributes; the datastore
+     * does the filtering.
+     *
+     * @param filter filter of the rows
+     * @param max maximum number of ids, the first rows come first
+     * @return the ids in the order of the rows
+     */
+    public List<String> getFeatureIDs( Filter filter, int max ) throws IOException {
+        Query idQuery = createQuery();
+        idQuery.setPropertyNames(getSortAttributes());
+        idQuery.setFilter(and(query.getFilter(), filter));
+        if (max != Integer.MAX_VALUE)
+            idQuery.setMaxFeatures(max);
+        return readIDs(idQuery);
+    }
+
+    /**
+     * Streams the rows, in order, with only some of their attributes; for searches the datastore
+     * can not do.
+     *
+     * @param propertyNames attributes to read, null for all
+     * @return the features, to be closed by the caller
+     */
+    public FeatureIterator<SimpleFeature> features( String[] propertyNames ) throws IOException {
+        Query rowQuery = createQuery();
+        if (propertyNames != null)
+            rowQuery.setPropertyNames(propertyNames);
+        return source.getFeatures(rowQuery).features();
+    }
+
+    private List<String> readIDs( Query idQuery ) throws IOException {
+        List<String> fids = new ArrayList<String>();
+        FeatureIterator<SimpleFeature> iter = source.getFeatures(idQuery).features();
+        try {
+            while( iter.hasNext() ) {
+                fids.add(iter.next().getID());
+            }
+        } finally {
+            iter.close();
+        }
+        return fids;
+    }
+
+    private static Filter and( Filter filter, Filter other ) {
+        if (filter == null || filter == Filter.INCLUDE)
+            return other;
+        FilterFactory2 factory = CommonFactoryFinder.getFilterFactory2(null);
+        return factory.and(filter, other);
+    }
+
+    /**
+     * Applies a feature event. Changed features in the window are replaced; added and removed
+     * features change the row count and drop the pages whose rows moved.
+     *
+     * @param event event fired by the source
+     */
+    public void changed( FeatureEvent event ) {
+        // counting may query the datastore; the lock is only held to update the window
+        int count;
+        switch( event.getType() ) {
+        case CHANGED:
+            replace(event.getFilter());
+            break;
+        case ADDED:
+            count = count();
+            synchronized (this) {
+                int oldSize = size;
+                size = count;
+                if (sortBy == null || sortBy.length == 0 || sortBy[0] == SortBy.NATURAL_ORDER)
+                    // added at the end in the natural order
+                    dropFrom(oldSize);
+                else
+                    dropFrom(0);
+            }
+            break;
+        case REMOVED:
+            count = count();
+            synchronized (this) {
+                size = count;
+                dropFrom(firstRow(event.getFilter()));
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void replace( Filter filter ) {
+        List<SimpleFeature> changed = new ArrayList<SimpleFeature>();
+        try {
+            Query changedQuery = createQuery();
+            changedQuery.setFilter(filter);
+            FeatureIterator<SimpleFeature> iter = source.getFeatures(changedQuery).features();
+            try {
+                while( iter.hasNext() ) {
+                    changed.add(iter.next());
+                }
+            } finally {
+                iter.close();
+            }
+        } catch (IOException e) {
+            UiPlugin.log("Unable to read the changed features", e); //$NON-NLS-1$
+            return;
+        }
+        synchronized (this) {
+            for( SimpleFeature feature : changed ) {
+                Integer row = rows.get(feature.getID());
+                if (row == null)
+                    continue;
+                List<SimpleFeature> page = pages.get(row / PAGE_SIZE);
+                if (page != null)
+                    page.set(row % PAGE_SIZE, feature);
+            }
+        }
+    }
+
+    /**
+     * @return the first row in the window removed by the filter, 0 if the removed rows are not
+     *         known
+     */
+    private int firstRow( Filter filter ) {
+        if (!(filter instanceof Id))
+            return 0;
+        int first = Integer.MAX_VALUE;
+        for( Object id : ((Id) filter).getIDs() ) {
+            Integer row = rows.get(String.valueOf(id));
+            if (row == null)
+                return 0;
+            first = Math.min(first, row);
+        }
+        return first == Integer.MAX_VALUE ? 0 : first;
+    }
+
+    private void dropFrom( int row ) {
+        int firstPage = row / PAGE_SIZE;
+        // pages being read may start at or after the row
+        generation++;
+        for( Iterator<Map.Entry<Integer, List<SimpleFeature>>> iter = pages.entrySet().iterator(); iter
+                .hasNext(); ) {
+            Map.Entry<Integer, List<SimpleFeature>> entry = iter.next();
+            if (entry.getKey() >= firstPage) {
+                unindex(entry.getValue());
+                iter.remove();
+            }
+        }
+    }
+
+    private List<SimpleFeature> read( int page, Query pageQuery ) {
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(PAGE_SIZE);
+        pageQuery.setStartIndex(page * PAGE_SIZE);
+        pageQuery.setMaxFeatures(PAGE_SIZE);
+        long start = System.currentTimeMillis();
+        try {
+            FeatureIterator<SimpleFeature> iter = source.getFeatures(pageQuery).features();
+            try {
+                while( iter.hasNext() ) {
+                    features.add(iter.next());
+                }
+            } finally {
+                iter.close();
+            }
+        } catch (IOException e) {
+            UiPlugin.log("Unable to read page " + page + " of the feature table", e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        UiPlugin.trace(Trace.FEATURE_TABLE, PagedFeatureList.class, "Read page " + page + " in " //$NON-NLS-1$ //$NON-NLS-2$
+                + (System.currentTimeMillis() - start) + "ms", null); //$NON-NLS-1$
+        return features;
+    }
+
+    private void unindex( List<SimpleFeature> page ) {
+        for( SimpleFeature feature : page ) {
+            rows.remove(feature.getID());
+        }
+    }
+
+    private int count() {
+        try {
+            int count = source.getCount(query);
+            if (count == -1)
+                count = source.getFeatures(query).size();
+            return count;
+        } catch (IOException e) {
+            UiPlugin.log("Unable to count the features of the table", e); //$NON-NLS-1$
+            return 0;
+        }
+    }
+
+    private synchronized Query createQuery() {
+        Query copy = new Query(query);
+        copy.setSortBy(getOrder());
+        return copy;
+    }
+
+    /**
+     * @return the requested order or, if none, the natural order when the source can sort by
+     *         it; without an order the datastore may return the rows of a page in any order
+     */
+    private SortBy[] getOrder() {
+        if (sortBy != null && sortBy.length > 0)
+            return sortBy;
+        SortBy[] natural = new SortBy[]{SortBy.NATURAL_ORDER};
+        return supportsSorting(natural) ? natural : sortBy;
+    }
+
+    /**
+     * @return the attributes the rows are sorted by; the only ones needed to find a row
+     */
+    private synchronized String[] getSortAttributes() {
+        List<String> names = new ArrayList<String>();
+        if (sortBy != null) {
+            for( SortBy order : sortBy ) {
+                if (order.getPropertyName() != null)
+                    names.add(order.getPropertyName().getPropertyName());
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static Id createId( Collection<String> fids ) {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Set<FeatureId> ids = new HashSet<FeatureId>();
+        for( String fid : fids ) {
+            ids.add(factory.featureId(fid));
+        }
+        return factory.id(ids);
+    }
+}
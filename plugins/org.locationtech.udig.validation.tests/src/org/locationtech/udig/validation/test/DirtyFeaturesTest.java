@@ -0,0 +1,156 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.validation.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.locationtech.udig.catalog.IGeoResource;
+import org.locationtech.udig.project.ILayer;
+import org.locationtech.udig.project.LayerEvent;
+import org.locationtech.udig.project.internal.Map;
+import org.locationtech.udig.project.tests.support.MapTests;
+import org.locationtech.udig.ui.tests.support.UDIGTestUtil;
+import org.locationtech.udig.validation.DirtyFeatures;
+import org.locationtech.udig.validation.ValidationProcessor;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.geotools.data.FeatureEvent;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.validation.DefaultFeatureValidation;
+import org.geotools.validation.Validation;
+import org.geotools.validation.ValidationResults;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class DirtyFeaturesTest {
+
+    private SimpleFeature[] features;
+
+    private ILayer layer;
+
+    private DirtyFeatures dirty;
+
+    private File pluginsDir;
+
+    @Before
+    public void setUp() throws Exception {
+        features = UDIGTestUtil.createDefaultTestFeatures("dirtyType", 5); //$NON-NLS-1$
+        IGeoResource resource = MapTests.createGeoResource(features, true);
+        Map map = MapTests.createNonDynamicMapAndRenderer(resource, new Dimension(500, 512));
+        layer = map.getLayersInternal().get(0);
+        dirty = DirtyFeatures.get(map);
+        pluginsDir = File.createTempFile("validationPlugins", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        pluginsDir.delete();
+        pluginsDir.mkdir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pluginsDir.delete();
+    }
+
+    @Test
+    public void testRecordsEdits() throws Exception {
+        // not validated before, so everything has to be
+        assertTrue(dirty.isAll(layer));
+
+        dirty.clear(new ILayer[]{layer});
+        assertFalse(dirty.isAll(layer));
+        assertTrue(dirty.isClean(layer));
+
+        ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, null);
+        edit(features[1].getID(), bounds);
+        assertFalse(dirty.isClean(layer));
+        assertEquals(Collections.singleton(features[1].getID()), dirty.getFeatureIDs(layer));
+        assertEquals(1, dirty.getBounds(layer).size());
+        assertEquals(bounds, dirty.getBounds(layer).get(0));
+
+        // a change that is not a set of ids can touch any feature
+        dirty.refresh(new LayerEvent(layer, LayerEvent.EventType.EDIT_EVENT, null, new FeatureEvent(
+                this, FeatureEvent.Type.CHANGED, bounds, Filter.INCLUDE)));
+        assertTrue(dirty.isAll(layer));
+
+        dirty.clear(new ILayer[]{layer});
+        assertTrue(dirty.isClean(layer));
+    }
+
+    @Test
+    public void testValidatesChangedFeaturesOnly() throws Exception {
+        ValidationProcessor processor = new ValidationProcessor(pluginsDir, null);
+        RecordingValidation validation = new RecordingValidation();
+        validation.setName("record"); //$NON-NLS-1$
+        processor.addValidation(validation);
+        ILayer[] layers = new ILayer[]{layer};
+
+        // every feature the first time
+        processor.runFeatureTest("record", layers, new NullResults(), new NullProgressMonitor(), dirty); //$NON-NLS-1$
+        assertEquals(features.length, validation.validated.size());
+        dirty.clear(layers);
+
+        validation.validated.clear();
+        edit(features[2].getID(), new ReferencedEnvelope(0, 1, 0, 1, null));
+        edit(features[4].getID(), new ReferencedEnvelope(5, 6, 5, 6, null));
+        processor.runFeatureTest("record", layers, new NullResults(), new NullProgressMonitor(), dirty); //$NON-NLS-1$
+        Set<String> expected = new HashSet<String>();
+        expected.add(features[2].getID());
+        expected.add(features[4].getID());
+        assertEquals(expected, validation.validated);
+        assertEquals(2, dirty.getBounds(layer).size());
+
+        // nothing left once validated
+        dirty.clear(layers);
+        validation.validated.clear();
+        processor.runFeatureTest("record", layers, new NullResults(), new NullProgressMonitor(), dirty); //$NON-NLS-1$
+        assertTrue(validation.validated.isEmpty());
+    }
+
+    private void edit( String fid, ReferencedEnvelope bounds ) {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        FeatureEvent event = new FeatureEvent(this, FeatureEvent.Type.CHANGED, bounds,
+                ff.id(Collections.singleton(ff.featureId(fid))));
+        dirty.refresh(new LayerEvent(layer, LayerEvent.EventType.EDIT_EVENT, null, event));
+    }
+
+    static class RecordingValidation extends DefaultFeatureValidation {
+        final Set<String> validated = Collections.synchronizedSet(new HashSet<String>());
+
+        @Override
+        public boolean validate( SimpleFeature feature, SimpleFeatureType type,
+                ValidationResults results ) throws Exception {
+            validated.add(feature.getID());
+            return true;
+        }
+    }
+
+    static class NullResults implements ValidationResults {
+        public void setValidation( Validation validation ) {
+        }
+
+        public void error( SimpleFeature feature, String message ) {
+        }
+
+        public void warning( SimpleFeature feature, String message ) {
+        }
+    }
+}
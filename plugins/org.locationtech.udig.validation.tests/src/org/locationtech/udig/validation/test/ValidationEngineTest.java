@@ -0,0 +1,85 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.validation.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.udig.validation.ValidationEngine;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.validation.Validation;
+import org.geotools.validation.ValidationResults;
+import org.geotools.validation.relate.OverlapsIntegrity;
+import org.geotools.validation.spatial.IsValidGeometryValidation;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class ValidationEngineTest {
+
+    @Test
+    public void testValidateFeatures() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("polygons", "geom:Polygon"); //$NON-NLS-1$ //$NON-NLS-2$
+        GeometryFactory factory = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for( int i = 0; i < 2000; i++ ) {
+            Coordinate[] ring;
+            if (i == 1234) {
+                // a bow tie is not valid
+                ring = new Coordinate[]{new Coordinate(i, 0), new Coordinate(i + 1, 1),
+                        new Coordinate(i + 1, 0), new Coordinate(i, 1), new Coordinate(i, 0)};
+            } else {
+                ring = new Coordinate[]{new Coordinate(i, 0), new Coordinate(i + 1, 0),
+                        new Coordinate(i + 1, 1), new Coordinate(i, 1), new Coordinate(i, 0)};
+            }
+            builder.add(factory.createPolygon(factory.createLinearRing(ring), null));
+            features.add(builder.buildFeature("polygons." + i)); //$NON-NLS-1$
+        }
+        CountingResults results = new CountingResults();
+        new ValidationEngine().validateFeatures(new IsValidGeometryValidation(), type,
+                DataUtilities.collection(features), results, new NullProgressMonitor());
+        assertEquals(1, results.errors.size());
+        assertEquals("polygons.1234", results.errors.get(0)); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testIsLocal() throws Exception {
+        OverlapsIntegrity overlaps = new OverlapsIntegrity();
+        overlaps.setExpected(false);
+        assertTrue(ValidationEngine.isLocal(overlaps));
+        overlaps.setExpected(true);
+        assertFalse(ValidationEngine.isLocal(overlaps));
+    }
+
+    static class CountingResults implements ValidationResults {
+        List<String> errors = new ArrayList<String>();
+
+        public void setValidation( Validation validation ) {
+        }
+
+        public void error( SimpleFeature feature, String message ) {
+            errors.add(feature.getID());
+        }
+
+        public void warning( SimpleFeature feature, String message ) {
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.locationtech.udig.project.EditManagerEvent;
+import org.locationtech.udig.project.IEditManagerListener;
+import org.locationtech.udig.project.ILayer;
+import org.locationtech.udig.project.ILayerListener;
+import org.locationtech.udig.project.IMap;
+import org.locationtech.udig.project.LayerEvent;
+import org.locationtech.udig.project.internal.Layer;
+
+import org.geotools.data.FeatureEvent;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.Identifier;
+
+/**
+ * Records the features edited on the layers of a map since they were last validated, so
+ * validation can check only those.
+ * <p>
+ * The ids and bounds of changed features are taken from the edit events of the layers and, before
+ * a commit clears them, from the feature changes the layers collected during the transaction. A
+ * layer is validated completely when it has not been watched since its last validation, or when
+ * it was changed through a filter other than a set of feature ids.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public class DirtyFeatures implements IEditManagerListener, ILayerListener {
+
+    /**
+     * Trackers by map. A tracker must not reference its map, directly or through its layers, or
+     * the map would never be collected.
+     */
+    private static final Map<IMap, DirtyFeatures> TRACKERS = new WeakHashMap<IMap, DirtyFeatures>();
+
+    /**
+     * What changed on a layer.
+     */
+    static class Region {
+        final Set<String> fids = new HashSet<String>();
+
+        final List<ReferencedEnvelope> bounds = new ArrayList<ReferencedEnvelope>();
+
+        /** true if the changed features are not known */
+        boolean all;
+    }
+
+    /** what changed on the watched layers; layers reference their map so they are held weakly */
+    private final Map<ILayer, Region> regions = new WeakHashMap<ILayer, Region>();
+
+    private DirtyFeatures() {
+    }
+
+    /**
+     * Returns the changes recorded for the map, starting to record them if needed.
+     *
+     * @param map
+     * @return changes recorded for the map
+     */
+    public static DirtyFeatures get( IMap map ) {
+        synchronized (TRACKERS) {
+            DirtyFeatures dirty = TRACKERS.get(map);
+            if (dirty == null) {
+                dirty = new DirtyFeatures();
+                map.getEditManager().addListener(dirty);
+                TRACKERS.put(map, dirty);
+            }
+            return dirty;
+        }
+    }
+
+    /**
+     * Collects the feature changes of the layers before a commit clears them.
+     */
+    public void changed( EditManagerEvent event ) {
+        if (event.getType() == EditManagerEvent.PRE_COMMIT) {
+            collectFeatureChanges();
+        }
+    }
+
+    public void refresh( LayerEvent event ) {
+        if (event.getType() == LayerEvent.EventType.EDIT_EVENT
+                && event.getNewValue() instanceof FeatureEvent) {
+            add(event.getSource(), (FeatureEvent) event.getNewValue());
+        }
+    }
+
+    private synchronized void collectFeatureChanges() {
+        for( ILayer layer : new ArrayList<ILayer>(regions.keySet()) ) {
+            if (layer instanceof Layer) {
+                for( FeatureEvent event : new ArrayList<FeatureEvent>(((Layer) layer)
+                        .getFeatureChanges()) ) {
+                    add(layer, event);
+                }
+            }
+        }
+    }
+
+    synchronized void add( ILayer layer, FeatureEvent event ) {
+        Region region = regions.get(layer);
+        if (region == null || region.all) {
+            return; // validated completely next time anyway
+        }
+        if (event.getBounds() != null && !event.getBounds().isEmpty()) {
+            region.bounds.add(new ReferencedEnvelope(event.getBounds()));
+        }
+        Filter filter = event.getFilter();
+        if (filter instanceof Id) {
+            for( Identifier identifier : ((Id) filter).getIdentifiers() ) {
+                region.fids.add(String.valueOf(identifier.getID()));
+            }
+        } else if (filter != null && filter != Filter.EXCLUDE) {
+            region.all = true;
+        }
+    }
+
+    /**
+     * Returns true if every feature of the layer has to be validated.
+     *
+     * @param layer
+     * @return true if the changes to the layer are not known
+     */
+    public synchronized boolean isAll( ILayer layer ) {
+        Region region = regions.get(layer);
+        return region == null || region.all;
+    }
+
+    /**
+     * Returns true if nothing is recorded as changed on the layer.
+     *
+     * @param layer
+     * @return true if the layer does not need to be validated again
+     */
+    public synchronized boolean isClean( ILayer layer ) {
+        collectFeatureChanges();
+        Region region = regions.get(layer);
+        return region != null && !region.all && region.fids.isEmpty() && region.bounds.isEmpty();
+    }
+
+    /**
+     * @param layer
+     * @return ids of the features changed on the layer
+     */
+    public synchronized Set<String> getFeatureIDs( ILayer layer ) {
+        collectFeatureChanges();
+        Region region = regions.get(layer);
+        if (region == null)
+            return Collections.emptySet();
+        return new HashSet<String>(region.fids);
+    }
+
+    /**
+     * @param layer
+     * @return bounds of the changes on the layer, as reported by the edit events
+     */
+    public synchronized List<ReferencedEnvelope> getBounds( ILayer layer ) {
+        collectFeatureChanges();
+        Region region = regions.get(layer);
+        if (region == null)
+            return Collections.emptyList();
+        return new ArrayList<ReferencedEnvelope>(region.bounds);
+    }
+
+    /**
+     * Forgets the changes to the layers, after they have been validated, and watches them for
+     * new changes.
+     *
+     * @param layers
+     */
+    public synchronized void clear( ILayer[] layers ) {
+        for( ILayer layer : layers ) {
+            if (!regions.containsKey(layer)) {
+                layer.addListener(this);
+            }
+            regions.put(layer, new Region());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/* uDig - User Friendly Desktop Internet GIS client
+ * http://udig.refractions.net
+ * (C) 2012, Refractions Research Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * (http://www.eclipse.org/legal/epl-v10.html), and the Refractions BSD
+ * License v1.0 (http://udig.refractions.net/files/bsd3-v10.html).
+ */
+package org.locationtech.udig.validation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.geotools.data.FeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.validation.FeatureValidation;
+import org.geotools.validation.IntegrityValidation;
+import org.geotools.validation.Validation;
+import org.geotools.validation.ValidationResults;
+import org.geotools.validation.relate.ContainsIntegrity;
+import org.geotools.validation.relate.CrossesIntegrity;
+import org.geotools.validation.relate.DisjointIntegrity;
+import org.geotools.validation.relate.EqualsIntegrity;
+import org.geotools.validation.relate.IntersectsIntegrity;
+import org.geotools.validation.relate.OverlapsIntegrity;
+import org.geotools.validation.relate.RelationIntegrity;
+import org.geotools.validation.relate.TouchesIntegrity;
+import org.geotools.validation.relate.WithinIntegrity;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+/**
+ * Runs validations on several threads.
+ * <ul>
+ * <li>Feature validations are run on batches of features in a fork-join pool.</li>
+ * <li>Integrity validations that compare pairs of geometries, and only report pairs that touch
+ * each other, are run on the cells of a grid over the area being validated. Each run only
+ * compares the features of one cell.</li>
+ * <li>Results are passed to the ValidationResults as they are found, one at a time.</li>
+ * </ul>
+ * The monitor is only used from the calling thread.
+ *
+ * @since 2.1.0
+ */
+public class ValidationEngine {
+
+    /** Features validated by a task */
+    static final int BATCH_SIZE = 500;
+
+    /** Features wanted in each cell of the grid */
+    static final int CELL_FEATURES = 2000;
+
+    /** Most cells along each side of the grid */
+    static final int MAX_CELLS = 32;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime()
+            .availableProcessors()));
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an engine sharing a pool sized to the processors.
+     */
+    public ValidationEngine() {
+        this(POOL);
+    }
+
+    ValidationEngine( ForkJoinPool pool ) {
+        this.pool = pool;
+    }
+
+    /**
+     * Validates every feature of the collection.
+     *
+     * @param validator
+     * @param type schema of the features
+     * @param collection
+     * @param results receives the errors and warnings as they are found
+     * @param monitor
+     */
+    public void validateFeatures( final FeatureValidation validator,
+            final SimpleFeatureType type,
+            FeatureCollection<SimpleFeatureType, SimpleFeature> collection,
+            ValidationResults results, IProgressMonitor monitor ) throws Exception {
+        final ValidationResults shared = new SynchronizedResults(results, false);
+        final AtomicBoolean canceled = new AtomicBoolean();
+        int count = collection.size();
+        monitor.beginTask("", count); //$NON-NLS-1$
+        int position = 0;
+        int maxPending = pool.getParallelism() * 2;
+        Deque<Future<Integer>> pending = new ArrayDeque<Future<Integer>>();
+        FeatureIterator<SimpleFeature> reader = collection.features();
+        try {
+            while( reader.hasNext() ) {
+                // check for the cancel button
+                if (monitor.isCanceled()) {
+                    canceled.set(true);
+                    break;
+                }
+                final List<SimpleFeature> batch = new ArrayList<SimpleFeature>(BATCH_SIZE);
+                while( reader.hasNext() && batch.size() < BATCH_SIZE ) {
+                    batch.add(reader.next());
+                }
+                pending.add(pool.submit(new Callable<Integer>(){
+                    public Integer call() throws Exception {
+                        for( SimpleFeature feature : batch ) {
+                            if (canceled.get())
+                                break;
+                            try {
+                                validator.validate(feature, type, shared);
+                            } catch (Throwable e) {
+                                shared.error(feature, e.getMessage());
+                            }
+                        }
+                        return batch.size();
+                    }
+                }));
+                while( pending.size() >= maxPending ) {
+                    position = finished(pending.poll(), position, count, monitor);
+                }
+            }
+            while( !pending.isEmpty() ) {
+                if (monitor.isCanceled())
+                    canceled.set(true);
+                position = finished(pending.poll(), position, count, monitor);
+            }
+        } finally {
+            reader.close();
+            if (!pending.isEmpty()) {
+                canceled.set(true);
+                for( Future<Integer> future : pending ) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+
+    private static int finished( Future<Integer> future, int position, int count,
+            IProgressMonitor monitor ) throws Exception {
+        int worked = get(future);
+        monitor.worked(worked);
+        position += worked;
+        monitor.subTask(position + "/" + count); //$NON-NLS-1$
+        return position;
+    }
+
+    private static <T> T get( Future<T> future ) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Runs the integrity validation over the envelope, a grid cell at a time if the validation
+     * allows.
+     *
+     * @param validator
+     * @param stores feature sources by typeRef (namespace:typeName)
+     * @param envelope area to validate
+     * @param results receives the errors and warnings as they are found
+     * @param monitor
+     */
+    public void validateIntegrity( final IntegrityValidation validator,
+            final Map<String, FeatureSource<SimpleFeatureType, SimpleFeature>> stores,
+            ReferencedEnvelope envelope, ValidationResults results, IProgressMonitor monitor )
+            throws Exception {
+        int cells = isLocal(validator) ? cells(validator, stores, envelope) : 1;
+        if (cells <= 1) {
+            monitor.beginTask("", 1); //$NON-NLS-1$
+            validator.validate(stores, envelope, results);
+            monitor.worked(1);
+            return;
+        }
+        // a pair that touches is found in every cell both features reach; report it once
+        final ValidationResults shared = new SynchronizedResults(results, true);
+        monitor.beginTask("", cells * cells); //$NON-NLS-1$
+        List<Future<Boolean>> tasks = new ArrayList<Future<Boolean>>(cells * cells);
+        double width = envelope.getWidth() / cells;
+        double height = envelope.getHeight() / cells;
+        for( int x = 0; x < cells; x++ ) {
+            for( int y = 0; y < cells; y++ ) {
+                double minX = envelope.getMinX() + x * width;
+                double minY = envelope.getMinY() + y * height;
+                double maxX = x == cells - 1 ? envelope.getMaxX() : minX + width;
+                double maxY = y == cells - 1 ? envelope.getMaxY() : minY + height;
+                final ReferencedEnvelope cell = new ReferencedEnvelope(minX, maxX, minY, maxY,
+                        envelope.getCoordinateReferenceSystem());
+                tasks.add(pool.submit(new Callable<Boolean>(){
+                    public Boolean call() throws Exception {
+                        return validator.validate(stores, cell, shared);
+                    }
+                }));
+            }
+        }
+        int position = 0;
+        try {
+            for( Future<Boolean> task : tasks ) {
+                if (monitor.isCanceled())
+                    break;
+                get(task);
+                monitor.worked(1);
+                monitor.subTask(++position + "/" + tasks.size()); //$NON-NLS-1$
+            }
+        } finally {
+            for( Future<Boolean> task : tasks ) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Number of cells along each side of the grid, from the number of features of the first
+     * type in the envelope.
+     */
+    private static int cells( IntegrityValidation validator,
+            Map<String, FeatureSource<SimpleFeatureType, SimpleFeature>> stores,
+            ReferencedEnvelope envelope ) throws Exception {
+        if (envelope == null || envelope.isEmpty())
+            return 1;
+        FeatureSource<SimpleFeatureType, SimpleFeature> source = stores
+                .get(((RelationIntegrity) validator).getGeomTypeRefA());
+        if (source == null || source.getSchema().getGeometryDescriptor() == null)
+            return 1;
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        String geometry = source.getSchema().getGeometryDescriptor().getLocalName();
+        Filter filter = ff.bbox(ff.property(geometry), envelope);
+        int count = source.getFeatures(filter).size();
+        if (count <= CELL_FEATURES)
+            return 1;
+        int cells = (int) Math.ceil(Math.sqrt(count / (double) CELL_FEATURES));
+        return Math.min(cells, MAX_CELLS);
+    }
+
+    /**
+     * Returns true if the validation only reports pairs of geometries that intersect, so it can
+     * be run on parts of the area separately.
+     *
+     * @param validator
+     * @return true if the validation can be run a grid cell at a time
+     */
+    public static boolean isLocal( IntegrityValidation validator ) {
+        if (!(validator instanceof RelationIntegrity))
+            return false;
+        boolean expected = ((RelationIntegrity) validator).isExpected();
+        if (validator instanceof DisjointIntegrity) {
+            // pairs that are not disjoint are reported
+            return expected;
+        }
+        // pairs that do have the relation are reported
+        return !expected
+                && (validator instanceof OverlapsIntegrity
+                        || validator instanceof IntersectsIntegrity
+                        || validator instanceof CrossesIntegrity
+                        || validator instanceof TouchesIntegrity
+                        || validator instanceof ContainsIntegrity
+                        || validator instanceof WithinIntegrity || validator instanceof EqualsIntegrity);
+    }
+
+    /**
+     * Passes results to the delegate one at a time, optionally dropping repeated ones.
+     */
+    static class SynchronizedResults implements ValidationResults {
+        private final ValidationResults delegate;
+
+        private final Set<String> reported;
+
+        SynchronizedResults( ValidationResults delegate, boolean unique ) {
+            this.delegate = delegate;
+            this.reported = unique ? new HashSet<String>() : null;
+        }
+
+        public synchronized void setValidation( Validation validation ) {
+            delegate.setValidation(validation);
+        }
+
+        public synchronized void error( SimpleFeature feature, String message ) {
+            if (isNew("E", feature, message)) //$NON-NLS-1$
+                delegate.error(feature, message);
+        }
+
+        public synchronized void warning( SimpleFeature feature, String message ) {
+            if (isNew("W", feature, message)) //$NON-NLS-1$
+                delegate.warning(feature, message);
+        }
+
+        private boolean isNew( String kind, SimpleFeature feature, String message ) {
+            if (reported == null || feature == null)
+                return true;
+            return reported.add(kind + feature.getID() + '|' + message);
+        }
+    }
+}
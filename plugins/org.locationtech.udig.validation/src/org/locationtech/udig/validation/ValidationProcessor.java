@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -28,8 +29,8 @@ import org.eclipse.ui.PlatformUI;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.validation.FeatureValidation;
 import org.geotools.validation.IntegrityValidation;
@@ -45,6 +46,9 @@ import org.geotools.validation.xml.XMLReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.Name;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
 
 /**
  * Subclass for the geotools ValidationProcessor, with added methods which allow
@@ -66,6 +70,8 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
 	
 	private Map<String, ArgumentDTO> allArgs;
 	
+	private ValidationEngine engine = new ValidationEngine();
+	
 	/**
 	 * Constructor for the udig ValidationProcessor subclass. The plugins
 	 * parameter is required, but the testSuites var may be a null File object
@@ -229,6 +235,25 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
 	}
 	
 	
+    /**
+     * Returns true if the test is an integrity validation, run across layers, rather
+     * than a feature validation.
+     *
+     * @param testName
+     * @return true if the test is found in the integrity lookup
+     */
+	public boolean isIntegrityTest(Object testName) {
+		for (Iterator i = integrityLookup.keySet().iterator(); i.hasNext();) {
+			ArrayList testList = (ArrayList) integrityLookup.get(i.next());
+			for (Object thisTest : testList) {
+				if (((Validation) thisTest).getName().equals(testName)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
     /**
      * Runs a single feature validation test
      *
@@ -239,6 +264,21 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
      * @throws Exception
      */
 	public void runFeatureTest(Object testName, ILayer[] layers, ValidationResults results, IProgressMonitor monitor) throws Exception {
+		runFeatureTest(testName, layers, results, monitor, null);
+	}
+
+    /**
+     * Runs a single feature validation test on the features changed since the
+     * layers were last validated.
+     *
+     * @param testName
+     * @param layers
+     * @param results
+     * @param monitor
+     * @param dirty changed features, or null to validate every feature
+     * @throws Exception
+     */
+	public void runFeatureTest(Object testName, ILayer[] layers, ValidationResults results, IProgressMonitor monitor, DirtyFeatures dirty) throws Exception {
 
 		// get the validator from testKey
 		FeatureValidation validator = null;
@@ -306,31 +346,21 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
 				//create a FeatureReader (collection.reader)
 				FeatureSource<SimpleFeatureType, SimpleFeature> source;
 				source = thisLayer.getResource(FeatureSource.class, monitor);
-                FeatureCollection<SimpleFeatureType, SimpleFeature> collection = source.getFeatures();
-                //hmm... pretty pictures or efficiency?
-                int count = collection.size();
-                monitor.beginTask("", count); //$NON-NLS-1$
-                FeatureIterator<SimpleFeature> reader = collection.features();
-                // iterate through each feature and run	the test on it
-		        int position = 0;
-                while (reader.hasNext()) 
-	        	{
-                    //check for the cancel button
-                    if (monitor.isCanceled()) {
-                        reader.close();
-                        break;
+                FeatureCollection<SimpleFeatureType, SimpleFeature> collection;
+                if (dirty == null || dirty.isAll(thisLayer)) {
+                    collection = source.getFeatures();
+                } else {
+                    Set<String> fids = dirty.getFeatureIDs(thisLayer);
+                    if (fids.isEmpty()) {
+                        continue; // nothing changed, or only removed
                     }
-                    //validate this feature
-                    monitor.subTask(++position + "/" + count); //$NON-NLS-1$
-                    SimpleFeature feature = (SimpleFeature) reader.next();
-					try {
-						validator.validate(feature, type, results);
-					} catch (Throwable e) {
-						results.error(feature, e.getMessage());
-					}
-                    monitor.worked(1);
-	        	}
-                reader.close();
+                    collection = source.getFeatures(idFilter(fids));
+                }
+                // run the test on batches of features in parallel
+                engine.validateFeatures(validator, type, collection, results, monitor);
+                if (monitor.isCanceled()) {
+                    break;
+                }
 			}
 		}
 	}
@@ -345,6 +375,21 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
      * @throws Exception
      */
 	public void runIntegrityTest(Object testName, ILayer[] layers, ValidationResults results, IProgressMonitor monitor) throws Exception {
+		runIntegrityTest(testName, layers, results, monitor, null);
+	}
+
+    /**
+     * Runs a single integrity validation test around the features changed since
+     * the layers were last validated.
+     *
+     * @param testName
+     * @param layers
+     * @param results
+     * @param monitor
+     * @param dirty changed features, or null to validate the current viewport
+     * @throws Exception
+     */
+	public void runIntegrityTest(Object testName, ILayer[] layers, ValidationResults results, IProgressMonitor monitor, DirtyFeatures dirty) throws Exception {
 
 		// get the validator from testKey
 		IntegrityValidation validator = null;
@@ -376,9 +421,58 @@ public class ValidationProcessor extends org.geotools.validation.ValidationProce
 	            String typeRef = nameSpace.toString()+":"+typeName; //$NON-NLS-1$
 	            stores.put(typeRef, source); 
 	        }
-			// run the test
-			validator.validate(stores, envelope, results);
+			List<ReferencedEnvelope> areas = dirtyAreas(layers, dirty, monitor);
+			if (areas == null) {
+				// run the test (a grid cell at a time when only touching pairs are reported)
+				engine.validateIntegrity(validator, stores, envelope, results, monitor);
+			} else {
+				// only around the changes; an area may overlap another so report each result once
+				ValidationResults unique = new ValidationEngine.SynchronizedResults(results, true);
+				for (ReferencedEnvelope area : areas) {
+					if (monitor.isCanceled()) {
+						break;
+					}
+					engine.validateIntegrity(validator, stores, area, unique, monitor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Areas changed on the layers: the bounds reported by the edit events and
+	 * the bounds of the changed features.
+	 * 
+	 * @return the areas, or null if the whole viewport has to be validated
+	 */
+	private List<ReferencedEnvelope> dirtyAreas(ILayer[] layers, DirtyFeatures dirty, IProgressMonitor monitor) throws Exception {
+		if (dirty == null) {
+			return null;
+		}
+		List<ReferencedEnvelope> areas = new ArrayList<ReferencedEnvelope>();
+		for (ILayer layer : layers) {
+			if (dirty.isAll(layer)) {
+				return null;
+			}
+			areas.addAll(dirty.getBounds(layer));
+			Set<String> fids = dirty.getFeatureIDs(layer);
+			if (!fids.isEmpty()) {
+				FeatureSource<SimpleFeatureType, SimpleFeature> source = layer.getResource(FeatureSource.class, monitor);
+				ReferencedEnvelope bounds = source.getFeatures(idFilter(fids)).getBounds();
+				if (bounds != null && !bounds.isEmpty()) {
+					areas.add(bounds);
+				}
+			}
+		}
+		return areas;
+	}
+
+	private static Id idFilter(Set<String> fids) {
+		FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+		Set<FeatureId> ids = new HashSet<FeatureId>();
+		for (String fid : fids) {
+			ids.add(ff.featureId(fid));
 		}
+		return ff.id(ids);
 	}
 
 	
@@ -44,6 +44,8 @@ public class Messages extends NLS {
 	public static String ValidationDialog_delete;
 	public static String ValidationDialog_new;
 	public static String ValidationDialog_validations;
+	public static String ValidationDialog_changedOnly;
+	public static String ValidationDialog_changedOnlyTooltip;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
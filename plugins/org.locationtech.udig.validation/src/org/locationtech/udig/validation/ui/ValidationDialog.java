@@ -33,6 +33,7 @@ import org.locationtech.udig.ui.PlatformGIS;
 import org.locationtech.udig.ui.graphics.TableSettings;
 import org.locationtech.udig.ui.graphics.TableUtils;
 import org.locationtech.udig.validation.DTOUtils;
+import org.locationtech.udig.validation.DirtyFeatures;
 import org.locationtech.udig.validation.GenericValidationResults;
 import org.locationtech.udig.validation.ImageConstants;
 import org.locationtech.udig.validation.ValidationPlugin;
@@ -115,6 +116,9 @@ public class ValidationDialog extends TitleAreaDialog {
     private Button exportButton;
     private Button importButton;
     private Button runButton;
+    private Button changedOnlyButton;
+    /** true to validate only the features changed since the last run */
+    private boolean changedOnly;
     private Button cancelButton;
     private Composite buttonComposite;
     private SelectionListener closeListener;
@@ -213,8 +217,8 @@ public class ValidationDialog extends TitleAreaDialog {
 
         Composite rightComp = new Composite(composite, SWT.RIGHT);
         layout = new GridLayout();
-        layout.numColumns = 2;
-        layout.makeColumnsEqualWidth = true;
+        layout.numColumns = 3;
+        layout.makeColumnsEqualWidth = false;
         layout.marginWidth = convertHorizontalDLUsToPixels(IDialogConstants.HORIZONTAL_MARGIN);
         layout.marginHeight = convertVerticalDLUsToPixels(IDialogConstants.VERTICAL_MARGIN);
         layout.horizontalSpacing = convertHorizontalDLUsToPixels(IDialogConstants.HORIZONTAL_SPACING);
@@ -239,6 +243,11 @@ public class ValidationDialog extends TitleAreaDialog {
         exportButton.addSelectionListener(new ExportSuiteListener());
         setButtonLayoutData(exportButton);
         
+        changedOnlyButton = new Button(rightComp, SWT.CHECK);
+        changedOnlyButton.setFont(parent.getFont());
+        changedOnlyButton.setText(Messages.ValidationDialog_changedOnly);
+        changedOnlyButton.setToolTipText(Messages.ValidationDialog_changedOnlyTooltip);
+        
         runButton = new Button(rightComp, SWT.PUSH);
         runButton.setFont(parent.getFont());
         runButton.setText(Messages.ValidationDialog_run); 
@@ -791,7 +800,7 @@ public class ValidationDialog extends TitleAreaDialog {
                           Messages.ValidationDialog_ellipsis, (tests.size() * 11) + 2); 
         //update the Lookup Maps
         processor.updateFVLookup();
-        //processor.updateIVLookup();
+        processor.updateIVLookup();
         monitor.worked(1);
 
         //TODO: ensure typeRefs are copied 
@@ -799,7 +808,10 @@ public class ValidationDialog extends TitleAreaDialog {
         //monitor.beginTask("Running Tests", tests.size());
 
         //FIXME: use the selected map rather than layer[0]
-        ILayer[] layers = (ILayer[]) ApplicationGIS.getActiveMap().getMapLayers().toArray();
+        IMap map = ApplicationGIS.getActiveMap();
+        ILayer[] layers = map.getMapLayers().toArray(new ILayer[0]);
+        // features edited since the last run; layers not run before are validated completely
+        DirtyFeatures dirty = DirtyFeatures.get(map);
 
         //perform feature tests
         GenericValidationResults[] results = new GenericValidationResults[tests.size()];
@@ -816,13 +828,16 @@ public class ValidationDialog extends TitleAreaDialog {
             }
             //proceed
             String testName = tests.get(i).getName();
-            //TODO: run as either feature or integrity test
             monitor.subTask(""); //$NON-NLS-1$
             monitor.setTaskName(Messages.ValidationDialog_validating + " " + testName  
                     + Messages.ValidationDialog_ellipsis); 
             SubProgressMonitor subMonitor = new SubProgressMonitor(monitor, 10);
-            processor.runFeatureTest(testName, layers, results[i], subMonitor);
-            //processor.runIntegrityTest(test.getName(), layers, results[i], monitor);
+            if (processor.isIntegrityTest(testName)) {
+                // only around the changes when asked, otherwise over the viewport
+                processor.runIntegrityTest(testName, layers, results[i], subMonitor, changedOnly ? dirty : null);
+            } else {
+                processor.runFeatureTest(testName, layers, results[i], subMonitor, changedOnly ? dirty : null);
+            }
 
             //check for cancellation again...
             if (subMonitor.isCanceled()) {
@@ -836,6 +851,9 @@ public class ValidationDialog extends TitleAreaDialog {
             IIssuesManager.defaultInstance.getIssuesList().addAll(results[i].issues);
             monitor.worked(1);
         }
+        if (!monitor.isCanceled()) {
+            dirty.clear(layers);
+        }
         monitor.done();
         return results;
     }
@@ -1125,6 +1143,7 @@ public class ValidationDialog extends TitleAreaDialog {
         
         public void widgetSelected( final SelectionEvent e ) {
             final Object[] element = treeViewer.getCheckedElements();
+            changedOnly = changedOnlyButton.getSelection();
 
             IRunnableWithProgress process = new IRunnableWithProgress(){
                 public void run( final IProgressMonitor monitor ) throws InvocationTargetException,